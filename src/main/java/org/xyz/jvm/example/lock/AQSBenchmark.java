@@ -0,0 +1,98 @@
+package org.xyz.jvm.example.lock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 锁竞争测试: N个线程同时抢同一把基于AQS的锁，每个线程加锁、解锁M次
+ * 既可以在虚拟机中解释执行，也可以直接在宿主机上运行，对比两者的耗时
+ */
+public class AQSBenchmark {
+    public static final int THREADS = 4;
+    public static final int ITERATIONS = 2000;
+
+    public static Mutex lock;
+    public static int count;
+
+    // 所有线程都启动之后再一起开始抢锁
+    public static Object gate;
+    public static boolean started;
+
+    /**
+     * 先进先出的互斥锁: 状态用AQS的state做CAS，抢不到锁的线程排队并park，释放锁时unpark队首的线程
+     */
+    public static class Mutex extends AQS {
+        private static final long serialVersionUID = 1L;
+
+        public Queue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+
+        public void lock() {
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+
+            // 不是队首或者抢不到锁就阻塞
+            while (waiters.peek() != current || !compareAndSetState(0, 1)) {
+                LockSupport.park(this);
+            }
+            waiters.remove();
+        }
+
+        public void unlock() {
+            setState(0);
+            LockSupport.unpark(waiters.peek());
+        }
+    }
+
+    public static class Worker extends Thread {
+        public int iterations;
+
+        @Override
+        public void run() {
+            synchronized (gate) {
+                while (!started) {
+                    try {
+                        gate.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+
+            for (int i = 0; i < iterations; i++) {
+                lock.lock();
+                try {
+                    count++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        lock = new Mutex();
+        gate = new Object();
+
+        Worker[] workers = new Worker[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            workers[i] = new Worker();
+            workers[i].iterations = ITERATIONS;
+            workers[i].start();
+        }
+
+        long begin = System.nanoTime();
+        synchronized (gate) {
+            started = true;
+            gate.notifyAll();
+        }
+        for (int i = 0; i < THREADS; i++) {
+            workers[i].join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long ops = (long) THREADS * ITERATIONS;
+        System.out.println("threads: " + THREADS + ", iterations: " + ITERATIONS + ", count: " + count);
+        System.out.println("elapsed: " + elapsed / 1000000 + " ms, " + ops * 1000000000L / (elapsed + 1) + " ops/s");
+    }
+}
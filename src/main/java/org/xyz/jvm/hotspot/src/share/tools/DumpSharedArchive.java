@@ -0,0 +1,23 @@
+package org.xyz.jvm.hotspot.src.share.tools;
+
+import org.xyz.jvm.hotspot.src.share.vm.memory.MetaspaceShared;
+
+/**
+ * 转储类元数据归档（见 MetaspaceShared、FileMapInfo）
+ *
+ * 用法:
+ *  1. 运行一次程序，记录加载的类: -Djvm.DumpLoadedClassList=app.classlist
+ *  2. 转储: DumpSharedArchive app.classlist app.jsa [加载路径]，加载路径不指定时使用 -Djvm.ClassPath（默认为宿主机的classpath）
+ *  3. 之后运行时指定归档: -Djvm.SharedArchiveFile=app.jsa，加载路径要和转储时相同
+ * */
+public class DumpSharedArchive {
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("用法: DumpSharedArchive <类列表> <归档文件> [加载路径]");
+            return;
+        }
+
+        int count = args.length > 2 ? MetaspaceShared.dump(args[0], args[1], args[2]) : MetaspaceShared.dump(args[0], args[1]);
+        System.out.println("转储 " + count + " 个类到 " + args[1]);
+    }
+}
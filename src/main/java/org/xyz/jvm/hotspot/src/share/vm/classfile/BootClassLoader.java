@@ -1,16 +1,24 @@
 package org.xyz.jvm.hotspot.src.share.vm.classfile;
 
-import cn.hutool.core.io.FileUtil;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.FileMapInfo;
 import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
 
-import java.io.File;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
 
 /**
  * 根类加载器
+ * 加载的类保存在当前Isolate的ClassLoaderData中，不同Isolate各自加载、互不可见
  * */
 @Data
 @Slf4j
@@ -18,21 +26,26 @@ public class BootClassLoader {
     // Class文件的扩展名
     public static final String SUFFIX = ".class";
 
-    // 该类加载器的加载路径，多个路径以分号分隔，只有一个的话，分号可省略。注意路径后面的斜杠不可丢
-    private static String searchPath = "/home/xyzjiao/Desktop/project/jvm/target/classes/";
+    // 该类加载器的默认加载路径（没有指定加载路径的Isolate使用），多个目录、jar文件以分号分隔，只有一个的话，分号可省略，见 ClassPath
+    private static String searchPath = Globals.ClassPath;
 
-    // 缓存该类加载器加载的所有类
-    private static Map<String, InstanceKlass> classLoaderData = new HashMap<>();
+    public static String getSearchPath() {
+        return searchPath;
+    }
 
-    // main函数所在类在此保存一份引用，方便快速定位
-    private static InstanceKlass mainKlass = null;
+    /**
+     * 当前Isolate的类加载器数据，加载的类、正在加载的类都保存在其中
+     * */
+    private static ClassLoaderData classLoaderData() {
+        return Isolate.current().getClassLoaderData();
+    }
 
     public static InstanceKlass getMainKlass() {
-        return mainKlass;
+        return classLoaderData().getMainKlass();
     }
 
     public static void setMainKlass(InstanceKlass mainKlass) {
-        BootClassLoader.mainKlass = mainKlass;
+        classLoaderData().setMainKlass(mainKlass);
     }
 
     /**
@@ -40,7 +53,7 @@ public class BootClassLoader {
      * @param className 需要查找的类全限定名
      * */
     public static boolean isLoadedKlass(String className) {
-        return classLoaderData.containsKey(className);
+        return classLoaderData().getKlasses().containsKey(className);
     }
 
     /**
@@ -48,7 +61,7 @@ public class BootClassLoader {
      * @param className 需要查找的类全限定名
      * */
     public static InstanceKlass findLoadedKlass(String className) {
-        return classLoaderData.get(className);
+        return classLoaderData().getKlasses().get(className);
     }
 
     /**
@@ -57,7 +70,23 @@ public class BootClassLoader {
      * @param klass 类的Klass模型
      * */
     public static InstanceKlass saveLoadedKlass(String className, InstanceKlass klass) {
-        return classLoaderData.put(className, klass);
+        return classLoaderData().getKlasses().put(className, klass);
+    }
+
+    /**
+     * 获取该类加载器加载的所有类，垃圾回收时用来扫描类的静态变量
+     * @return 类的全限定名 -> Klass模型
+     * */
+    public static Map<String, InstanceKlass> getClassLoaderData() {
+        return classLoaderData().getKlasses();
+    }
+
+    /**
+     * 用当前Isolate的宿主机类加载器加载宿主机的Class（见 ClassLoaderData.loadHostClass）
+     * @param className 类的全限定名，如 java.lang.String、org.xyz.jvm.example.HelloWorld
+     * */
+    public static Class<?> loadHostClass(String className) throws ClassNotFoundException {
+        return classLoaderData().loadHostClass(className);
     }
 
     /**
@@ -66,6 +95,7 @@ public class BootClassLoader {
      * @return 加载完成后生成的Klass模型InstanceKlass
      * */
     public static InstanceKlass loadMainClass(String className) {
+        InstanceKlass mainKlass = getMainKlass();
         if (mainKlass != null) {
             return mainKlass;
         }
@@ -89,22 +119,53 @@ public class BootClassLoader {
      * @return 加载完成后生成的Klass模型InstanceKlass
      * */
     public static InstanceKlass loadKlass(String className, boolean resolve) {
+        return loadKlass(Isolate.current(), className, resolve);
+    }
+
+    /**
+     * 在指定的Isolate中加载类，用于不是Java线程的宿主机线程（如预加载，见 ClassPreloader），它们不能通过当前线程找到Isolate
+     * @param isolate 加载到哪个Isolate
+     * @param className 类的全限定名
+     * @param resolve 加载之后是否要立刻解析
+     * @return 加载完成后生成的Klass模型InstanceKlass
+     * */
+    public static InstanceKlass loadKlass(Isolate isolate, String className, boolean resolve) {
+        ClassLoaderData loaderData = isolate.getClassLoaderData();
+        // Isolate已经销毁
+        loaderData.checkReleased();
+        Map<String, InstanceKlass> klasses = loaderData.getKlasses();
+        Map<String, Placeholder> placeholders = loaderData.getPlaceholders();
+
         // 查询缓存是否已经加载过了，如果是已经加载过的类直接返回
-        InstanceKlass klass = findLoadedKlass(className);
+        InstanceKlass klass = klasses.get(className);
         if (klass != null) {
             return klass;
         }
 
-        // 读取并解析Class文件
-        klass = readAndParse(className);
+        // 读取并解析Class文件，同一个类只解析一次
+        Placeholder placeholder = new Placeholder(isolate, className);
+        Placeholder loading = placeholders.putIfAbsent(className, placeholder);
+        if (null == loading) {
+            try {
+                placeholder.run();
+            } finally {
+                placeholders.remove(className, placeholder);
+            }
+            klass = placeholder.await();
 
-        // 是否立刻解析
-        if (resolve) {
-            // 解析
-            resolveKlass();
+            // 是否立刻解析
+            if (resolve) {
+                // 解析
+                resolveKlass();
+            }
+            return klass;
         }
 
-        return klass;
+        // 其他线程正在加载该类，等待它的结果
+        if (loading.owner == Thread.currentThread()) {
+            throw new ClassCircularityError(className);
+        }
+        return loading.await();
     }
 
     /**
@@ -112,21 +173,101 @@ public class BootClassLoader {
      * @param className class全限定名
      * @return InstanceKlass实例
      * */
-    private static InstanceKlass readAndParse(String className) {
-        String tmpName = className.replace(".", "/");
-        String classFilePath = searchPath + tmpName + SUFFIX;
+    private static InstanceKlass readAndParse(Isolate isolate, String className) {
+        ClassLoaderData loaderData = isolate.getClassLoaderData();
+        // 通过包索引直接找到Class文件所在的根
+        ClassPath.ClassFile classFile = loaderData.classPath().find(className);
+        if (null == classFile) {
+            throw new NoClassDefFoundError(className);
+        }
 
-        // 读取字节码文件
-        File classFile = new File(classFilePath);
-        byte[] content = FileUtil.readBytes(classFile);
+        isolate.getQuota().loadClass(className);
+
+        InstanceKlass klass;
+        String sharedKey = null;
+        if (Globals.UseSharedClassMetadata) {
+            // 其他Isolate已经解析过同一个Class文件时直接使用它的元数据，否则读取、解析后共享出去
+            sharedKey = classFile.sharedKey();
+            klass = SharedDictionary.acquire(sharedKey, () -> readKlass(className, classFile, SharedDictionary::parse));
+        } else {
+            // 读取并解析字节码文件
+            klass = readKlass(className, classFile, ClassFileParser::parseClassFile);
+        }
+        ClassListWriter.record(className);
 
-        // 解析字节码文件
-        InstanceKlass klass = ClassFileParser.parseClassFile(content);
+        // 将加载过的类存入类加载器的缓存；同一个类只会被一个线程解析，这里以先存入的为准只是为了和saveLoadedKlass并存
+        InstanceKlass loaded = loaderData.getKlasses().putIfAbsent(className, klass);
+        if (null != sharedKey) {
+            if (null == loaded) {
+                loaderData.addSharedKey(sharedKey);
+            } else {
+                SharedDictionary.release(sharedKey);
+            }
+        }
 
-        // 将加载过的类存入类加载器的缓存
-        saveLoadedKlass(className, klass);
+        return null == loaded ? klass : loaded;
+    }
 
-        return klass;
+    /**
+     * 类元数据归档中有该类并且Class文件没有修改时从归档中还原（见 FileMapInfo），否则读取并解析Class文件
+     * @param className 类的全限定名
+     * @param classFile 加载路径中找到的Class文件
+     * @param parser 解析Class文件
+     * @return InstanceKlass实例
+     * */
+    private static InstanceKlass readKlass(String className, ClassPath.ClassFile classFile, Function<ByteBuffer, InstanceKlass> parser) {
+        InstanceKlass klass = FileMapInfo.loadKlass(className, classFile);
+        return null != klass ? klass : classFile.read(parser);
+    }
+
+    /**
+     * 正在加载的类，由第一个请求加载该类的线程执行读取、解析，其他线程在get上等待
+     * */
+    static final class Placeholder extends FutureTask<InstanceKlass> {
+        // 执行加载的线程
+        private final Thread owner = Thread.currentThread();
+
+        Placeholder(Isolate isolate, String className) {
+            // 检查之后、登记之前，上一个加载该类的线程可能刚好完成，再查一次缓存，避免重复解析
+            super(() -> {
+                InstanceKlass loaded = isolate.getClassLoaderData().getKlasses().get(className);
+                return null != loaded ? loaded : readAndParse(isolate, className);
+            });
+        }
+
+        /**
+         * 等待加载完成，等待期间不响应中断（中断状态在返回前恢复）
+         * 等待期间处于阻塞状态: 加载该类的线程可能正在等待安全点，安全点又在等待当前线程时会互相等待
+         * @return 加载完成的Klass模型
+         * */
+        InstanceKlass await() {
+            JavaThread thread = Threads.currentThread();
+            int state = SafepointSynchronize.blockBegin(thread);
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        return get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Error) {
+                            throw (Error) cause;
+                        }
+                        if (cause instanceof RuntimeException) {
+                            throw (RuntimeException) cause;
+                        }
+                        throw new Error("加载类失败", cause);
+                    }
+                }
+            } finally {
+                SafepointSynchronize.blockEnd(thread, state);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
     }
 
     /**
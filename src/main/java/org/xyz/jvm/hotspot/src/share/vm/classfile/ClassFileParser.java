@@ -1,13 +1,13 @@
 package org.xyz.jvm.hotspot.src.share.vm.classfile;
 
 import lombok.extern.slf4j.Slf4j;
-import org.xyz.jvm.hotspot.src.share.tools.DataTranslate;
-import org.xyz.jvm.hotspot.src.share.tools.Stream;
 import org.xyz.jvm.hotspot.src.share.vm.oops.*;
 import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.*;
 import org.xyz.jvm.hotspot.src.share.vm.intepreter.ByteCodeStream;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
 import org.xyz.jvm.hotspot.src.share.vm.utilities.AccessFlags;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import static org.xyz.jvm.hotspot.src.share.vm.oops.Attribute.*;
@@ -19,99 +19,91 @@ public class ClassFileParser {
      * @return 解析生成的 InstanceKlass 实例
      * */
     public static InstanceKlass parseClassFile(byte[] content) {
-        // 解析时对应到字节流中目前解析位置的索引，简称当前解析索引
-        int index = 0;
+        return parseClassFile(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * 直接解析缓冲区中的Class文件，缓冲区可以是映射的Class文件、jar中条目的映射或者解压用的复用缓冲区，不需要先拷贝成字节数组
+     * 通过游标（见 ClassFileStream）按绝对位置读取，不修改缓冲区的position，解析生成的元数据中不保存对缓冲区的引用（字节码、字符串都拷贝出来），解析完成后缓冲区可以释放、复用
+     * @param buffer Class文件的内容，从position到limit
+     * @return 解析生成的 InstanceKlass 实例
+     * */
+    public static InstanceKlass parseClassFile(ByteBuffer buffer) {
+        // 读取游标，位置相对于Class文件的开头
+        ClassFileStream stream = new ClassFileStream(buffer);
         // 解析生成的 InstanceKlass 实例
         InstanceKlass klass = new InstanceKlass();
 
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-        byte[] u4Arr = new byte[4];
-
         // 魔数   u4
-        Stream.readU4Simple(content, index, klass.getMagic());
-        index += 4;
+        stream.readBytes(klass.getMagic());
 
         // 次版本号 u2
-        Stream.readU2Simple(content, index, klass.getMinionVersion());
-        index += 2;
+        stream.readBytes(klass.getMinionVersion());
 
         // 主版本号 u2
-        Stream.readU2Simple(content, index, klass.getMajorVersion());
-        index += 2;
+        stream.readBytes(klass.getMajorVersion());
 
         // 常量池大小 u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.getConstantPool().setLength(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.getConstantPool().setLength(stream.readU2());
         klass.getConstantPool().initContainer();
 
         // 常量池 N字节
-        index = parseConstantPool(content, klass, index);
+        parseConstantPool(stream, klass);
+        klass.getConstantPool().trimUtf8();
 
         // 类的访问权限及属性    u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setAccessFlags(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.setAccessFlags(stream.readU2());
 
         // 类名       u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setThisClass(DataTranslate.byteToUnsignedShort(u2Arr));
-        log.info("类名: " + klass.getConstantPool().getClassName(klass.getThisClass()));
+        klass.setThisClass(stream.readU2());
+        if (log.isInfoEnabled()) {
+            log.info("类名: " + klass.getConstantPool().getClassName(klass.getThisClass()));
+        }
 
         // 父类名  u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setSuperClass(DataTranslate.byteToUnsignedShort(u2Arr));
-        log.info("父类名: " + klass.getConstantPool().getClassName(klass.getSuperClass()));
+        klass.setSuperClass(stream.readU2());
+        if (log.isInfoEnabled()) {
+            log.info("父类名: " + klass.getConstantPool().getClassName(klass.getSuperClass()));
+        }
 
         // 实现的接口数量  u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setInterfacesCount(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.setInterfacesCount(stream.readU2());
 
         // 实现的接口列表
         if (klass.getInterfacesCount() != 0) {
             log.info("开始解析实现的接口信息: ");
             klass.initInterfaceContainer();
 
-            index = parseInterface(content, klass, index);
+            parseInterface(stream, klass);
         }
 
         // 成员字段数量  u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setFieldsCount(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.setFieldsCount(stream.readU2());
 
         // 成员字段列表
         if (klass.getFieldsCount() != 0) {
             log.info("开始解析成员字段信息: ");
 
             klass.initFieldContainer();
-            index = parseFiled(content, klass, index);
+            parseFiled(stream, klass);
         }
 
         // 成员方法数量   u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setMethodsCount(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.setMethodsCount(stream.readU2());
         klass.initMethodContainer();
 
         log.info("开始解析成员方法信息: ");
         // 成员方法列表
-        index = parseMethod(content, klass, index);
+        parseMethod(stream, klass);
 
         // 类属性数量   u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        klass.setAttributesCount(DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.setAttributesCount(stream.readU2());
 
         if (klass.getAttributesCount() != 0) {
             log.info("开始解析类的属性信息: ");
             klass.initAttributeContainer();
 
-            index = parseAttribute(content, klass.getAttributesCount(), klass, index, klass.getAttributes(), null);
+            parseAttribute(stream, klass.getAttributesCount(), klass, klass.getAttributes(), null);
         }
 
         return klass;
@@ -119,17 +111,12 @@ public class ClassFileParser {
 
     /**
      * 解析成员方法
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseMethod(byte[] content, InstanceKlass klass, int index) {
+    private static void parseMethod(ClassFileStream stream, InstanceKlass klass) {
         log.info("解析成员方法:");
 
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
         // 遍历成员方法列表
         for (int i = 0; i < klass.getMethodsCount(); i++) {
             MethodInfo methodInfo = new MethodInfo();
@@ -138,22 +125,20 @@ public class ClassFileParser {
             klass.getMethods().add(methodInfo);
 
             // access_flag  u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            methodInfo.setAccessFlags(new AccessFlags(DataTranslate.byteToUnsignedShort(u2Arr)));
+            methodInfo.setAccessFlags(new AccessFlags(stream.readU2()));
 
             // name_index   u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            methodInfo.setNameIndex(DataTranslate.byteToUnsignedShort(u2Arr));
-            log.info("读取常量池获取方法名称，constant pool index: " + methodInfo.getNameIndex());
+            methodInfo.setNameIndex(stream.readU2());
+            if (log.isInfoEnabled()) {
+                log.info("读取常量池获取方法名称，constant pool index: " + methodInfo.getNameIndex());
+            }
             methodInfo.setMethodName(methodInfo.getBelongKlass().getConstantPool().getUtf8(methodInfo.getNameIndex()));
-            log.info("解析方法: " + methodInfo.getMethodName());
+            if (log.isInfoEnabled()) {
+                log.info("解析方法: " + methodInfo.getMethodName());
+            }
 
             // descriptor_index     u2      直接指向常量池中方法描述符字符串的索引
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            methodInfo.setDescriptorIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+            methodInfo.setDescriptorIndex(stream.readU2());
 
             // 解析方法描述符
             DescriptorStream descriptorStream = new DescriptorStream(klass.getConstantPool().getUtf8(methodInfo.getDescriptorIndex()));
@@ -161,185 +146,170 @@ public class ClassFileParser {
             methodInfo.setDescriptor(descriptorStream);
 
             // attribute_count  u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            methodInfo.setAttributesCount(DataTranslate.byteToUnsignedShort(u2Arr));
-
-            log.info("\t第 " + i + " 个方法: access flag: " + methodInfo.getAccessFlags()
-                    + ", name index: " + methodInfo.getNameIndex()
-                    + ", descriptor index: " + methodInfo.getDescriptorIndex()
-                    + ", attribute count: " + methodInfo.getAttributesCount()
-            );
+            methodInfo.setAttributesCount(stream.readU2());
+
+            if (log.isInfoEnabled()) {
+                log.info("\t第 " + i + " 个方法: access flag: " + methodInfo.getAccessFlags()
+                        + ", name index: " + methodInfo.getNameIndex()
+                        + ", descriptor index: " + methodInfo.getDescriptorIndex()
+                        + ", attribute count: " + methodInfo.getAttributesCount()
+                );
+            }
 
             log.info("开始解析成员方法的属性信息: ");
             // 成员方法的属性表
             methodInfo.initAttributeContainer();
-            index = parseAttribute(content, methodInfo.getAttributesCount(), klass, index, methodInfo.getAttributes(), methodInfo);
+            parseAttribute(stream, methodInfo.getAttributesCount(), klass, methodInfo.getAttributes(), methodInfo);
         }
 
-        return index;
     }
 
     /**
      * 解析成员字段
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseFiled(byte[] content, InstanceKlass klass, int index) {
+    private static void parseFiled(ClassFileStream stream, InstanceKlass klass) {
         log.info("解析成员字段:");
 
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
         // 遍历成员字段列表
         for (int i = 0; i < klass.getFieldsCount(); i++) {
             FiledInfo filedInfo = new FiledInfo();
             klass.getFields().add(filedInfo);
 
             // access_flag  u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            filedInfo.setAccessFlag(DataTranslate.byteToUnsignedShort(u2Arr));
+            filedInfo.setAccessFlag(stream.readU2());
 
             // name_index   u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            filedInfo.setNameIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+            filedInfo.setNameIndex(stream.readU2());
 
             // descriptor_index     u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            filedInfo.setDescriptorIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+            filedInfo.setDescriptorIndex(stream.readU2());
 
             // attribute_count  u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            filedInfo.setAttributesCount(DataTranslate.byteToUnsignedShort(u2Arr));
-
-            log.info("\t第 " + i + " 个字段: " +
-                    "字段名: " + klass.getConstantPool().getUtf8(filedInfo.getNameIndex()) +
-                    ", 字段描述符: " + klass.getConstantPool().getUtf8(filedInfo.getDescriptorIndex()) +
-                    ", 字段属性数量: " + filedInfo.getAttributesCount()
-            );
+            filedInfo.setAttributesCount(stream.readU2());
+
+            if (log.isInfoEnabled()) {
+                log.info("\t第 " + i + " 个字段: " +
+                        "字段名索引: " + filedInfo.getNameIndex() +
+                        ", 字段描述符索引: " + filedInfo.getDescriptorIndex() +
+                        ", 字段属性数量: " + filedInfo.getAttributesCount()
+                );
+            }
 
             // 成员字段的属性表
             if (filedInfo.getAttributesCount() != 0) {
                 log.info("开始解析成员字段的属性信息: ");
 
                 filedInfo.initAttributeContainer();
-                index = parseAttribute(content, filedInfo.getAttributesCount(), klass, index, filedInfo.getAttributes(), null);
+                parseAttribute(stream, filedInfo.getAttributesCount(), klass, filedInfo.getAttributes(), null);
             }
         }
 
-        return index;
     }
 
     /**
      * 解析属性信息
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param attributesCount 属性的数量
      * @param klass 属性所属的Klass，用于获取常量池信息
-     * @param index 当前解析索引
      * @param attributes 存放解析出来属性的容器
      * @param methodInfo 属性所属的方法信息，只有在解析方法的属性时才需要传入，其他情况传入null即可
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseAttribute(byte[] content, int attributesCount, InstanceKlass klass, int index, Map<String, Attribute> attributes, MethodInfo methodInfo) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-        byte[] u4Arr = new byte[4];
-
+    private static void parseAttribute(ClassFileStream stream, int attributesCount, InstanceKlass klass, Map<String, Attribute> attributes, MethodInfo methodInfo) {
         // 遍历属性列表
         for (int i = 0; i < attributesCount; i++) {
             // attribute_name_index     u2
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-            int attributeNameIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+            int attributeNameIndex = stream.readU2();
 
             // attribute_length     u4
-            Stream.readU4Simple(content, index, u4Arr);
-            index += 4;
-            int attributeLength = DataTranslate.byteToInt(u4Arr);
+            int attributeLength = stream.readU4();
 
             // attributeName
             String attributeName = klass.getConstantPool().getUtf8(attributeNameIndex);
 
-            log.info("\t\t第 " + i + " 个属性: " + "属性名: " + attributeName);
+            if (log.isInfoEnabled()) {
+                log.info("\t\t第 " + i + " 个属性: " + "属性名: " + attributeName);
+            }
 
             switch (attributeName) {
                 case JVM_ATTRIBUTE_ConstantValue: {
-                    index = parseConstantValueAttribute(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseConstantValueAttribute(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_Code: {
-                    index = parseCodeAttribute(content, index, attributeNameIndex, attributeLength, attributeName, attributes, klass, methodInfo);
+                    if (Globals.LazyCodeParsing) {
+                        // 只拷贝Code属性的内容，第一次调用方法时才解析（见 MethodInfo.getCodeAttribute）
+                        byte[] codeBytes = new byte[attributeLength];
+                        stream.readBytes(codeBytes);
+                        methodInfo.setCodeAttributeNameIndex(attributeNameIndex);
+                        methodInfo.setCodeBytes(codeBytes);
+                    } else {
+                        methodInfo.setCodeAttribute(parseCodeAttribute(stream, attributeNameIndex, attributeLength, klass, methodInfo));
+                    }
                     break;
                 }
                 case JVM_ATTRIBUTE_Exceptions: {
-                    index = parseExceptionAttribute(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseExceptionAttribute(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_LineNumberTable: {
-                    index = parseLineNumberTable(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseLineNumberTable(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_LocalVariableTable: {
-                    index = parseLocalVariableTable(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseLocalVariableTable(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_SourceFile: {
-                    index = parseSourceFile(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseSourceFile(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_StackMapTable: {
-                    index = parseStackMapTable(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseStackMapTable(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_BootstrapMethods: {
-                    index = parseBootstrapMethods(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseBootstrapMethods(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 case JVM_ATTRIBUTE_InnerClasses: {
-                    index = parseInnerClasses(content, index, attributeNameIndex, attributeLength, attributeName, attributes);
+                    parseInnerClasses(stream, attributeNameIndex, attributeLength, attributeName, attributes);
                     break;
                 }
                 default:
-                    throw new Error("无法识别的属性项: " + attributeName);
+                    // 虚拟机规范要求忽略不认识的属性（如泛型的Signature），直接跳过
+                    if (log.isInfoEnabled()) {
+                        log.info("\t\t跳过未处理的属性: " + attributeName);
+                    }
+                    stream.skip(attributeLength);
             }
         }
 
-        return index;
     }
 
     /**
      * 解析 InnerClasses 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseInnerClasses(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseInnerClasses(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         InnerClassAttribute innerClassAttribute = new InnerClassAttribute();
         StackMapTableAttribute stackMapTableAttribute = new StackMapTableAttribute();
         stackMapTableAttribute.setAttributeNameIndex(attributeNameIndex);
         stackMapTableAttribute.setAttributeLength(attributeLength);
 
         //  内部类的数量    u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        innerClassAttribute.setNumberOfClasses(DataTranslate.byteToUnsignedShort(u2Arr));
+        innerClassAttribute.setNumberOfClasses(stream.readU2());
 
-        log.info("\t\t\tInnerClasses: "
-                + ", table len: " + innerClassAttribute.getNumberOfClasses()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\tInnerClasses: "
+                    + ", table len: " + innerClassAttribute.getNumberOfClasses()
+            );
+        }
 
         if (innerClassAttribute.getNumberOfClasses() != 0) {
             innerClassAttribute.initClassesTable();
@@ -348,24 +318,16 @@ public class ClassFileParser {
                 InnerClassAttribute.Class aClass = new InnerClassAttribute.Class();
 
                 // inner_class_info_index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                aClass.setInnerClassInfoIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                aClass.setInnerClassInfoIndex(stream.readU2());
 
                 // outer_class_info_index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                aClass.setOuterClassInfoIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                aClass.setOuterClassInfoIndex(stream.readU2());
 
                 // inner_name_index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                aClass.setInnerClassNameIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                aClass.setInnerClassNameIndex(stream.readU2());
 
                 // inner_class_access_flags
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                AccessFlags accessFlags = new AccessFlags(DataTranslate.byteToUnsignedShort(u2Arr));
+                AccessFlags accessFlags = new AccessFlags(stream.readU2());
                 aClass.setInnerClassAccessFlags(accessFlags);
 
                 innerClassAttribute.getClasses().add(aClass);
@@ -373,36 +335,30 @@ public class ClassFileParser {
         }
 
         attributes.put(attributeName, innerClassAttribute);
-        return index;
     }
 
     /**
      * 解析 BootstrapMethods 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseBootstrapMethods(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseBootstrapMethods(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         BootstrapMethods bootstrapMethods = new BootstrapMethods();
         StackMapTableAttribute stackMapTableAttribute = new StackMapTableAttribute();
         stackMapTableAttribute.setAttributeNameIndex(attributeNameIndex);
         stackMapTableAttribute.setAttributeLength(attributeLength);
 
         //  numberOfBootstrapMethods   u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        bootstrapMethods.setNumberOfBootstrapMethods(DataTranslate.byteToUnsignedShort(u2Arr));
+        bootstrapMethods.setNumberOfBootstrapMethods(stream.readU2());
 
-        log.info("\t\t\tBootstrapMethods: "
-                + ", table len: " + bootstrapMethods.getNumberOfBootstrapMethods()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\tBootstrapMethods: "
+                    + ", table len: " + bootstrapMethods.getNumberOfBootstrapMethods()
+            );
+        }
 
         if (bootstrapMethods.getNumberOfBootstrapMethods() != 0) {
             bootstrapMethods.initBootstrapMethodTable();
@@ -411,28 +367,23 @@ public class ClassFileParser {
                 BootstrapMethods.BootstrapMethod bootstrapMethod = new BootstrapMethods.BootstrapMethod();
 
                 // bootstrap_method_ref  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                bootstrapMethod.setBootstrapMethodRef(DataTranslate.byteToUnsignedShort(u2Arr));
+                bootstrapMethod.setBootstrapMethodRef(stream.readU2());
 
                 // num_bootstrap_arguments  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                bootstrapMethod.setNumOfBootstrapArguments(DataTranslate.byteToUnsignedShort(u2Arr));
+                bootstrapMethod.setNumOfBootstrapArguments(stream.readU2());
 
-                log.info("\t\t\t\tBootstrapMethodArguments: "
-                        + ", table len: " + bootstrapMethod.getNumOfBootstrapArguments()
-                );
+                if (log.isInfoEnabled()) {
+                    log.info("\t\t\t\tBootstrapMethodArguments: "
+                            + ", table len: " + bootstrapMethod.getNumOfBootstrapArguments()
+                    );
+                }
 
                 if (bootstrapMethod.getNumOfBootstrapArguments() != 0) {
                     bootstrapMethod.initBootstrapArguments();
 
                     for (int j = 0; j < bootstrapMethod.getNumOfBootstrapArguments(); j ++) {
                         // bootstrap_argument  u2
-                        Stream.readU2Simple(content, index, u2Arr);
-                        index += 2;
-
-                        bootstrapMethod.getBootstrapArguments().add(DataTranslate.byteToUnsignedShort(u2Arr));
+                        bootstrapMethod.getBootstrapArguments().add(stream.readU2());
                     }
                 }
 
@@ -441,91 +392,138 @@ public class ClassFileParser {
         }
 
         attributes.put(attributeName, bootstrapMethods);
-        return index;
     }
 
     /**
      * 解析 StackMapTable 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseStackMapTable(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
+    private static void parseStackMapTable(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         StackMapTableAttribute stackMapTableAttribute = new StackMapTableAttribute();
         stackMapTableAttribute.setAttributeNameIndex(attributeNameIndex);
         stackMapTableAttribute.setAttributeLength(attributeLength);
 
-        // 直接跳过后面的数据，不做解析
-        index += stackMapTableAttribute.getAttributeLength();
+        int end = stream.position() + attributeLength;
+
+        // number_of_entries    u2
+        stackMapTableAttribute.setNumberOfEntries(stream.readU2());
+
+        // 第一个帧的位置就是offset_delta，之后每个帧的位置是 前一个帧的位置 + offset_delta + 1
+        int bci = -1;
+        for (int i = 0; i < stackMapTableAttribute.getNumberOfEntries(); i++) {
+            // frame_type   u1
+            int frameType = stream.readU1();
+
+            int offsetDelta;
+            if (frameType <= StackMapTableAttribute.SAME_FRAME_MAX) {
+                offsetDelta = frameType;
+            } else if (frameType <= StackMapTableAttribute.SAME_LOCALS_1_STACK_ITEM_FRAME_MAX) {
+                offsetDelta = frameType - 64;
+                skipVerificationTypeInfo(stream, 1);
+            } else if (frameType < StackMapTableAttribute.SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+                throw new Error("保留的栈映射帧类型: " + frameType);
+            } else {
+                // offset_delta     u2
+                offsetDelta = stream.readU2();
+
+                if (frameType == StackMapTableAttribute.SAME_LOCALS_1_STACK_ITEM_EXTENDED) {
+                    skipVerificationTypeInfo(stream, 1);
+                } else if (frameType > StackMapTableAttribute.SAME_FRAME_EXTENDED && frameType <= StackMapTableAttribute.APPEND_FRAME_MAX) {
+                    skipVerificationTypeInfo(stream, frameType - StackMapTableAttribute.SAME_FRAME_EXTENDED);
+                } else if (frameType == StackMapTableAttribute.FULL_FRAME) {
+                    // number_of_locals     u2
+                    skipVerificationTypeInfo(stream, stream.readU2());
+
+                    // number_of_stack_items    u2
+                    skipVerificationTypeInfo(stream, stream.readU2());
+                }
+            }
+
+            bci += offsetDelta + 1;
+            stackMapTableAttribute.getFrameBcis().add(bci);
+        }
 
-        log.info("\t\t\t\t stackMapTable: "
-                + ", name index: " + stackMapTableAttribute.getAttributeNameIndex()
-                + ", attr len: " + stackMapTableAttribute.getAttributeLength()
-        );
+        if (stream.position() != end) {
+            throw new Error("StackMapTable 解析长度不匹配: " + (stream.position() - end + attributeLength) + " / " + attributeLength);
+        }
+
+        attributes.put(attributeName, stackMapTableAttribute);
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\t\t stackMapTable: "
+                    + ", name index: " + stackMapTableAttribute.getAttributeNameIndex()
+                    + ", attr len: " + stackMapTableAttribute.getAttributeLength()
+                    + ", frames: " + stackMapTableAttribute.getFrameBcis()
+            );
+        }
 
-        return index;
+    }
+
+    /**
+     * 跳过若干个 verification_type_info
+     * @param stream Class文件的读取游标
+     * @param count verification_type_info 的个数
+     * */
+    private static void skipVerificationTypeInfo(ClassFileStream stream, int count) {
+        for (int i = 0; i < count; i++) {
+            // tag  u1
+            int tag = stream.readU1();
+
+            // Object_variable_info 和 Uninitialized_variable_info 后面还有一个u2
+            if (tag == StackMapTableAttribute.ITEM_Object || tag == StackMapTableAttribute.ITEM_Uninitialized) {
+                stream.skip(2);
+            }
+        }
     }
 
     /**
      * 解析 SourceFile 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseSourceFile(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseSourceFile(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         SourceFileAttribute sourceFileAttribute = new SourceFileAttribute();
         sourceFileAttribute.setAttributeNameIndex(attributeNameIndex);
         sourceFileAttribute.setAttributeLength(attributeLength);
 
         // sourceFileIndex     u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        sourceFileAttribute.setSourceFileIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+        sourceFileAttribute.setSourceFileIndex(stream.readU2());
 
         attributes.put(attributeName, sourceFileAttribute);
-        log.info("\t\t\tSourceFile: "
-                + ", source file index: " + sourceFileAttribute.getSourceFileIndex()
-        );
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\tSourceFile: "
+                    + ", source file index: " + sourceFileAttribute.getSourceFileIndex()
+            );
+        }
     }
 
     /**
      * 解析 LocalVariableTable 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseLocalVariableTable(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseLocalVariableTable(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         LocalVariableTableAttribute localVariableTableAttribute = new LocalVariableTableAttribute();
         localVariableTableAttribute.setAttributeNameIndex(attributeNameIndex);
         localVariableTableAttribute.setAttributeLength(attributeLength);
 
         // local_variable_table_length     u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        localVariableTableAttribute.setLocalVariableTableLength(DataTranslate.byteToUnsignedShort(u2Arr));
+        localVariableTableAttribute.setLocalVariableTableLength(stream.readU2());
 
-        log.info("\t\t\t\tLocalVariableTable: "
-                + ", table len: " + localVariableTableAttribute.getLocalVariableTableLength()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\t\tLocalVariableTable: "
+                    + ", table len: " + localVariableTableAttribute.getLocalVariableTableLength()
+            );
+        }
 
         if (localVariableTableAttribute.getLocalVariableTableLength() != 0) {
             localVariableTableAttribute.initLocalVariableTable();
@@ -534,72 +532,58 @@ public class ClassFileParser {
                 LocalVariableTableAttribute.LocalVariable localVariable = new LocalVariableTableAttribute.LocalVariable();
 
                 // start_pc  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                localVariable.setStartPc(DataTranslate.byteToUnsignedShort(u2Arr));
+                localVariable.setStartPc(stream.readU2());
 
                 // length  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                localVariable.setLength(DataTranslate.byteToUnsignedShort(u2Arr));
+                localVariable.setLength(stream.readU2());
 
                 // name_index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                localVariable.setNameIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                localVariable.setNameIndex(stream.readU2());
 
                 // descriptor_index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                localVariable.setDescriptorIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                localVariable.setDescriptorIndex(stream.readU2());
 
                 // index  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                localVariable.setIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+                localVariable.setIndex(stream.readU2());
 
                 localVariableTableAttribute.getLocalVariableTable().add(localVariable);
 
-                log.info("\t\t\t\t\tLocalVariable: "
-                        + ", start pc: " + localVariable.getStartPc()
-                        + ", length: " + localVariable.getLength()
-                        + ", name index: " + localVariable.getNameIndex()
-                        + ", descriptor index: " + localVariable.getDescriptorIndex()
-                        + ", index: " + localVariable.getIndex()
-                );
+                if (log.isInfoEnabled()) {
+                    log.info("\t\t\t\t\tLocalVariable: "
+                            + ", start pc: " + localVariable.getStartPc()
+                            + ", length: " + localVariable.getLength()
+                            + ", name index: " + localVariable.getNameIndex()
+                            + ", descriptor index: " + localVariable.getDescriptorIndex()
+                            + ", index: " + localVariable.getIndex()
+                    );
+                }
             }
         }
 
         attributes.put(attributeName, localVariableTableAttribute);
-        return index;
     }
 
     /**
      * 解析 LineNumberTable 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseLineNumberTable(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseLineNumberTable(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         LineNumberTableAttribute lineNumberTableAttribute = new LineNumberTableAttribute();
         lineNumberTableAttribute.setAttributeNameIndex(attributeNameIndex);
         lineNumberTableAttribute.setAttributeLength(attributeLength);
 
         // line_number_table_length     u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        lineNumberTableAttribute.setLineNumberTableLength(DataTranslate.byteToUnsignedShort(u2Arr));
+        lineNumberTableAttribute.setLineNumberTableLength(stream.readU2());
 
-        log.info("\t\t\t\tlineNumberTable: "
-                + ", table len: " + lineNumberTableAttribute.getLineNumberTableLength()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\t\tlineNumberTable: "
+                    + ", table len: " + lineNumberTableAttribute.getLineNumberTableLength()
+            );
+        }
 
         if (lineNumberTableAttribute.getLineNumberTableLength() != 0) {
             lineNumberTableAttribute.initLineNumberTables();
@@ -608,127 +592,121 @@ public class ClassFileParser {
                 LineNumberTableAttribute.LineNumber lineNumber = new LineNumberTableAttribute.LineNumber();
 
                 // start_pc  u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                lineNumber.setStartPc(DataTranslate.byteToUnsignedShort(u2Arr));
+                lineNumber.setStartPc(stream.readU2());
 
                 // line_number u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                lineNumber.setLineNumber(DataTranslate.byteToUnsignedShort(u2Arr));
+                lineNumber.setLineNumber(stream.readU2());
 
                 lineNumberTableAttribute.getLineNumberTables().add(lineNumber);
 
-                log.info("\t\t\t\t\tlineNumber: "
-                        + ", start pc: " + lineNumber.getStartPc()
-                        + ", line number: " + lineNumber.getLineNumber()
-                );
+                if (log.isInfoEnabled()) {
+                    log.info("\t\t\t\t\tlineNumber: "
+                            + ", start pc: " + lineNumber.getStartPc()
+                            + ", line number: " + lineNumber.getLineNumber()
+                    );
+                }
             }
         }
 
         attributes.put(attributeName, lineNumberTableAttribute);
-        return index;
     }
 
     /**
      * 解析 Exception 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseExceptionAttribute(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseExceptionAttribute(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         ExceptionAttribute exceptionAttribute = new ExceptionAttribute();
         exceptionAttribute.setAttributeNameIndex(attributeNameIndex);
         exceptionAttribute.setAttributeLength(attributeLength);
 
         // numberOfExceptions  u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        exceptionAttribute.setNumberOfExceptions(DataTranslate.byteToUnsignedShort(u2Arr));
+        exceptionAttribute.setNumberOfExceptions(stream.readU2());
 
-        log.info("\t\t\tException: "
-                + ", table len: " + exceptionAttribute.getNumberOfExceptions()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\tException: "
+                    + ", table len: " + exceptionAttribute.getNumberOfExceptions()
+            );
+        }
 
         if (exceptionAttribute.getNumberOfExceptions() != 0) {
             exceptionAttribute.initExceptionIndexTable();
             // exceptionIndexTable
             for (int i = 0; i < exceptionAttribute.getNumberOfExceptions(); i++) {
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                exceptionAttribute.getExceptionIndexTable().add(DataTranslate.byteToUnsignedShort(u2Arr));
+                int exceptionIndex = stream.readU2();
+                exceptionAttribute.getExceptionIndexTable().add(exceptionIndex);
 
-                log.info("\t\t\t\texception class: "
-                        + ", exception class index: " + DataTranslate.byteToUnsignedShort(u2Arr)
-                );
+                if (log.isInfoEnabled()) {
+                    log.info("\t\t\t\texception class: "
+                            + ", exception class index: " + exceptionIndex
+                    );
+                }
             }
         }
 
         attributes.put(attributeName, exceptionAttribute);
-        return index;
+    }
+
+    /**
+     * 解析延迟解析时拷贝的 Code 属性（见 MethodInfo.getCodeAttribute）
+     * @param methodInfo        Code属性所属方法信息
+     * @param attributeNameIndex    属性名在常量池中的索引
+     * @param content           Code属性的内容（attribute_length个字节）
+     * @return 解析出来的Code属性
+     * */
+    public static CodeAttribute parseCodeAttribute(MethodInfo methodInfo, int attributeNameIndex, byte[] content) {
+        ClassFileStream stream = new ClassFileStream(ByteBuffer.wrap(content));
+        CodeAttribute codeAttribute = parseCodeAttribute(stream, attributeNameIndex, content.length, methodInfo.getBelongKlass(), methodInfo);
+        if (stream.position() != content.length) {
+            throw new Error("Code 属性解析长度不匹配: " + stream.position() + " / " + content.length + ", 方法: " + methodInfo.getMethodName());
+        }
+        return codeAttribute;
     }
 
     /**
      * 解析 Code 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
-     * @param attributeName     属性名
-     * @param attributes        解析出来属性的存储容器
      * @param klass             Code属性所属方法所属的类信息
      * @param methodInfo        Code属性所属方法信息
-     * @return 解析完成之后的当前解析索引
+     * @return 解析出来的Code属性
      * */
-    private static int parseCodeAttribute(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes, InstanceKlass klass, MethodInfo methodInfo) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-        byte[] u4Arr = new byte[4];
-
+    private static CodeAttribute parseCodeAttribute(ClassFileStream stream, int attributeNameIndex, int attributeLength, InstanceKlass klass, MethodInfo methodInfo) {
         CodeAttribute codeAttribute = new CodeAttribute();
         codeAttribute.setAttributeNameIndex(attributeNameIndex);
         codeAttribute.setAttributeLength(attributeLength);
 
         // max_stack        u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        codeAttribute.setMaxStack(DataTranslate.byteToUnsignedShort(u2Arr));
+        codeAttribute.setMaxStack(stream.readU2());
 
         // max_locals       u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        codeAttribute.setMaxLocals(DataTranslate.byteToUnsignedShort(u2Arr));
+        codeAttribute.setMaxLocals(stream.readU2());
 
         // code_length  u4
-        Stream.readU4Simple(content, index, u4Arr);
-        index += 4;
-        codeAttribute.setCodeLength(DataTranslate.byteToInt(u4Arr));
+        codeAttribute.setCodeLength(stream.readU4());
 
         // code     code_length个字节
         ByteCodeStream bytecodeStream = new ByteCodeStream(methodInfo, codeAttribute);
         codeAttribute.setCode(bytecodeStream);
 
-        Stream.readSimple(content, index, codeAttribute.getCodeLength(), bytecodeStream.getCodes());
-        index += codeAttribute.getCodeLength();
+        stream.readBytes(bytecodeStream.getCodes(), 0, codeAttribute.getCodeLength());
 
-        log.info("\t\t\tCode 属性:"
-                + ", name index: " + codeAttribute.getAttributeNameIndex()
-                + ", stack: " + codeAttribute.getMaxStack()
-                + ", locals: " + codeAttribute.getMaxLocals()
-                + ", code len: " + codeAttribute.getCodeLength()
-        );
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\tCode 属性:"
+                    + ", name index: " + codeAttribute.getAttributeNameIndex()
+                    + ", stack: " + codeAttribute.getMaxStack()
+                    + ", locals: " + codeAttribute.getMaxLocals()
+                    + ", code len: " + codeAttribute.getCodeLength()
+            );
+        }
 
         // exception_table_length   u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        codeAttribute.setExceptionTableLength(DataTranslate.byteToUnsignedShort(u2Arr));
+        codeAttribute.setExceptionTableLength(stream.readU2());
 
         if (codeAttribute.getExceptionTableLength() != 0) {
             log.info("开始解析成员字段的Code属性的异常处理器列表: ");
@@ -739,184 +717,159 @@ public class ClassFileParser {
                 CodeAttribute.ExceptionHandler exceptionHandler = new CodeAttribute.ExceptionHandler();
 
                 // start_pc u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                exceptionHandler.setStartPc(DataTranslate.byteToUnsignedShort(u2Arr));
+                exceptionHandler.setStartPc(stream.readU2());
 
                 // end_pc u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                exceptionHandler.setEndPc(DataTranslate.byteToUnsignedShort(u2Arr));
+                exceptionHandler.setEndPc(stream.readU2());
 
                 // handler_pc u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                exceptionHandler.setHandlerPc(DataTranslate.byteToUnsignedShort(u2Arr));
+                exceptionHandler.setHandlerPc(stream.readU2());
 
                 // catch_type 捕获异常的类型(常量池中Class的索引) u2
-                Stream.readU2Simple(content, index, u2Arr);
-                index += 2;
-                exceptionHandler.setCatchType(DataTranslate.byteToUnsignedShort(u2Arr));
+                exceptionHandler.setCatchType(stream.readU2());
 
                 codeAttribute.getExceptionTables().add(exceptionHandler);
 
-                log.info("\t\t\t\t ExceptionHandler: "
-                        + ", start pc: " + exceptionHandler.getStartPc()
-                        + ", end pc: " + exceptionHandler.getEndPc()
-                );
+                if (log.isInfoEnabled()) {
+                    log.info("\t\t\t\t ExceptionHandler: "
+                            + ", start pc: " + exceptionHandler.getStartPc()
+                            + ", end pc: " + exceptionHandler.getEndPc()
+                    );
+                }
             }
         }
 
         // attributes_count     u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        codeAttribute.setAttributesCount(DataTranslate.byteToUnsignedShort(u2Arr));
+        codeAttribute.setAttributesCount(stream.readU2());
 
         if (codeAttribute.getAttributesCount() != 0) {
             log.info("开始解析成员字段的Code属性的属性列表: ");
             codeAttribute.initAttributes();
 
             // attributes    N个字节
-            index = parseAttribute(content, codeAttribute.getAttributesCount(), klass, index, codeAttribute.getAttributes(), methodInfo);
+            parseAttribute(stream, codeAttribute.getAttributesCount(), klass, codeAttribute.getAttributes(), methodInfo);
         }
 
-        attributes.put(attributeName, codeAttribute);
-        return index;
+        return codeAttribute;
     }
 
     /**
      * 解析 ConstantValue 属性
-     * @param content 字节流
-     * @param index 当前解析索引
+     * @param stream Class文件的读取游标
      * @param attributeNameIndex    属性名在常量池中的索引
      * @param attributeLength       属性长度(Byte)
      * @param attributeName     属性名
      * @param attributes        解析出来属性的存储容器
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseConstantValueAttribute(byte[] content, int index, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseConstantValueAttribute(ClassFileStream stream, int attributeNameIndex, int attributeLength, String attributeName, Map<String, Attribute> attributes) {
         ConstantValueAttribute constantValueAttribute = new ConstantValueAttribute();
         constantValueAttribute.setAttributeNameIndex(attributeNameIndex);
         constantValueAttribute.setAttributeLength(attributeLength);
 
         // constant_value_index     u2
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        constantValueAttribute.setConstantValueIndex(DataTranslate.byteToUnsignedShort(u2Arr));
+        constantValueAttribute.setConstantValueIndex(stream.readU2());
 
         attributes.put(attributeName, constantValueAttribute);
-        log.info("\t\t\t ConstantValue: "
-                + ", constant value index: " + constantValueAttribute.getConstantValueIndex()
-        );
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t\t\t ConstantValue: "
+                    + ", constant value index: " + constantValueAttribute.getConstantValueIndex()
+            );
+        }
     }
 
     /**
      * 解析实现的接口列表
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseInterface(byte[] content, InstanceKlass klass, int index) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseInterface(ClassFileStream stream, InstanceKlass klass) {
         // 遍历实现的接口列表
         // 列表中的每个成员都是常量池的索引 u2
         for (int i = 0; i < klass.getInterfacesCount(); i++) {
-            Stream.readU2Simple(content, index, u2Arr);
-            index += 2;
-
-            int val = DataTranslate.byteToUnsignedShort(u2Arr);
+            int val = stream.readU2();
             String name = klass.getConstantPool().getClassName(val);
 
             InterfaceInfo interfaceInfo = new InterfaceInfo(val, name);
             klass.getInterfaces().add(interfaceInfo);
 
-            log.info("\t 第 " + (i + 1) + " 个接口: " + name);
+            if (log.isInfoEnabled()) {
+                log.info("\t 第 " + (i + 1) + " 个接口: " + name);
+            }
         }
 
-        return index;
     }
 
     /**
      * 解析常量池
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseConstantPool(byte[] content, InstanceKlass klass, int index) {
+    private static void parseConstantPool(ClassFileStream stream, InstanceKlass klass) {
         log.info("解析常量池");
 
         // 遍历常量池
         for (int i = 1; i < klass.getConstantPool().getLength(); i++) {
-            int tag = Stream.readU1Simple(content, index);
-            index += 1;
+            int tag = stream.readU1();
 
             switch (tag) {
                 case ConstantPool.JVM_CONSTANT_Utf8: {
-                    index = parseJvmConstantUtf8(content, klass, index, i);
+                    parseJvmConstantUtf8(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Integer: {
-                    index = parseJvmConstantInteger(content, klass, index, i);
+                    parseJvmConstantInteger(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Float: {
-                    index = parseJvmConstantFloat(content, klass, index, i);
+                    parseJvmConstantFloat(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Long: {
-                    index = parseJvmConstantLong(content, klass, index, i);
+                    parseJvmConstantLong(stream, klass, i);
                     // 因为long在常量池中占两个槽位，上面解析是一次解析合并完成的，所以之后需要将遍历索引自增1
                     i++;
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Double: {
-                    index = parseJvmConstantDouble(content, klass, index, i);
+                    parseJvmConstantDouble(stream, klass, i);
                     // 因为double在常量池中占两个槽位，上面解析是一次解析合并完成的，所以之后需要将遍历索引自增1
                     i++;
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_String: {
-                    index = parseJvmConstantString(content, klass, index, i);
+                    parseJvmConstantString(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Class: {
-                    index = parseJvmConstantClass(content, klass, index, i);
+                    parseJvmConstantClass(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Fieldref: {
-                    index = parseJvmConstantField(content, klass, index, i);
+                    parseJvmConstantField(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_Methodref: {
-                    index = parseJvmConstantMethod(content, klass, index, i);
+                    parseJvmConstantMethod(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_InterfaceMethodref: {
-                    index = parseJvmConstantInterfaceMethod(content, klass, index, i);
+                    parseJvmConstantInterfaceMethod(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_NameAndType: {
-                    index = parseJvmConstantNameAndType(content, klass, index, i);
+                    parseJvmConstantNameAndType(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_InvokeDynamic: {
-                    index = parseJvmConstantInvokeDynamic(content, klass, index, i);
+                    parseJvmConstantInvokeDynamic(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_MethodType: {
-                    index = parseJvmConstantMethodType(content, klass, index, i);
+                    parseJvmConstantMethodType(stream, klass, i);
                     break;
                 }
                 case ConstantPool.JVM_CONSTANT_MethodHandle: {
-                    index = parseJvmConstantMethodHandle(content, klass, index, i);
+                    parseJvmConstantMethodHandle(stream, klass, i);
                     break;
                 }
                 default:
@@ -924,427 +877,325 @@ public class ClassFileParser {
             }
         }
 
-        return index;
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_MethodType 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantMethodType(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantMethodType(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_MethodType;
 
         // descriptor_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int descriptorIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int descriptorIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, descriptorIndex);
+        klass.getConstantPool().intAtPut(constantPoolIndex, descriptorIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: MethodType，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: MethodType，值: " + klass.getConstantPool().getInts()[constantPoolIndex]);
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_MethodHandle 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantMethodHandle(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantMethodHandle(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_MethodHandle;
 
-        int referenceKind = Stream.readU1Simple(content, index);
-        index += 1;
+        int referenceKind = stream.readU1();
 
         // reference_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int referenceIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int referenceIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将referenceKind(u1)与referenceIndex(u2)拼成一个int(u4)，前十六位是referenceKind，后十六位是referenceIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, referenceKind << 16 | referenceIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, referenceKind, referenceIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: MethodHandle，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: MethodHandle，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_InvokeDynamic 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantInvokeDynamic(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantInvokeDynamic(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_InvokeDynamic;
 
         // bootstrap_method_attr_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int bootstrapMethodAttrIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int bootstrapMethodAttrIndex = stream.readU2();
 
         // name_and_type_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int nameAndTypeIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int nameAndTypeIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将bootstrapMethodAttrIndex(u2)与nameAndTypeIndex(u2)拼成一个int(u4)，前十六位是bootstrapMethodAttrIndex，后十六位是nameAndTypeIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, bootstrapMethodAttrIndex << 16 | nameAndTypeIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, bootstrapMethodAttrIndex, nameAndTypeIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: InvokeDynamic，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: InvokeDynamic，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_NameAndType 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantNameAndType(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantNameAndType(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_NameAndType;
 
         // name_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int nameIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int nameIndex = stream.readU2();
 
         // descriptor_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int descriptorIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int descriptorIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将nameIndex(u2)与descriptorIndex(u2)拼成一个int(u4)，前十六位是nameIndex，后十六位是descriptorIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, nameIndex << 16 | descriptorIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, nameIndex, descriptorIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: NameAndType，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: NameAndType，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_InterfaceMethod 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantInterfaceMethod(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantInterfaceMethod(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_InterfaceMethodref;
 
         // class_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int classIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int classIndex = stream.readU2();
 
         // name_and_type_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int nameAndTypeIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int nameAndTypeIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将classIndex(u2)与nameAndTypeIndex(u2)拼成一个int(u4)，前十六位是classIndex，后十六位是nameAndTypeIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, classIndex << 16 | nameAndTypeIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, classIndex, nameAndTypeIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: InterfaceMethod，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: InterfaceMethod，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Method 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantMethod(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantMethod(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Methodref;
 
         // class_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int classIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int classIndex = stream.readU2();
 
         // name_and_type_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int nameAndTypeIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int nameAndTypeIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将classIndex(u2)与nameAndTypeIndex(u2)拼成一个int(u4)，前十六位是classIndex，后十六位是nameAndTypeIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, classIndex << 16 | nameAndTypeIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, classIndex, nameAndTypeIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Method，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Method，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Field 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantField(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantField(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Fieldref;
 
         // class_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int classIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int classIndex = stream.readU2();
 
         // name_and_type_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int nameAndTypeIndex = DataTranslate.byteToUnsignedShort(u2Arr);
+        int nameAndTypeIndex = stream.readU2();
 
         // 将解析出来的内容存到ConstantPool中
         // 将classIndex(u2)与nameAndTypeIndex(u2)拼成一个int(u4)，前十六位是classIndex，后十六位是nameAndTypeIndex
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, classIndex << 16 | nameAndTypeIndex);
+        klass.getConstantPool().shortsAtPut(constantPoolIndex, classIndex, nameAndTypeIndex);
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Field，值: 0x" + Integer.toHexString((int) klass.getConstantPool().getDataMap().get(constantPoolIndex)));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Field，值: 0x" + Integer.toHexString(klass.getConstantPool().getInts()[constantPoolIndex]));
+        }
     }
 
 
     /**
      * 解析常量池 JVM_CONSTANT_Class 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantClass(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantClass(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Class;
 
         // name_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
 
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.getConstantPool().intAtPut(constantPoolIndex, stream.readU2());
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Class，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Class，值: " + klass.getConstantPool().getInts()[constantPoolIndex]);
+        }
     }
 
 
     /**
      * 解析常量池 JVM_CONSTANT_String 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantString(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantString(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_String;
 
         // string_index
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
 
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToUnsignedShort(u2Arr));
+        klass.getConstantPool().intAtPut(constantPoolIndex, stream.readU2());
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: String，值无法获取，因为字符串的内容还未解析到");
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: String，值无法获取，因为字符串的内容还未解析到");
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Double 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantDouble(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u8Arr = new byte[8];
-
+    private static void parseJvmConstantDouble(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Double;
         // Double
-        Stream.readU8Simple(content, index, u8Arr);
-        index += 8;
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToDouble(u8Arr));
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Double，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
+        double value = Double.longBitsToDouble(stream.readU8());
+        klass.getConstantPool().doubleAtPut(constantPoolIndex, value);
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Double，值: " + klass.getConstantPool().getDouble(constantPoolIndex));
+        }
 
-        // 因为一个Double在常量池中需要两个表项来存储
+        // 因为一个Double在常量池中需要两个表项来存储，第二个表项只记录类型，值从第一个表项中获取
         klass.getConstantPool().getTag()[++constantPoolIndex] = ConstantPool.JVM_CONSTANT_Double;
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToDouble(u8Arr));
-
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Double，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Long 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantLong(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u8Arr = new byte[8];
-
+    private static void parseJvmConstantLong(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Long;
         // Long
-        Stream.readU8Simple(content, index, u8Arr);
-        index += 8;
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToLong(u8Arr));
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Long，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
+        long value = stream.readU8();
+        klass.getConstantPool().longAtPut(constantPoolIndex, value);
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Long，值: " + klass.getConstantPool().getLong(constantPoolIndex));
+        }
 
 
-        // 因为一个Long在常量池中需要两个表项来存储
+        // 因为一个Long在常量池中需要两个表项来存储，第二个表项只记录类型，值从第一个表项中获取
         klass.getConstantPool().getTag()[++constantPoolIndex] = ConstantPool.JVM_CONSTANT_Long;
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToLong(u8Arr));
-
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Long，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Float 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantFloat(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u4Arr = new byte[4];
-
+    private static void parseJvmConstantFloat(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Float;
 
         // Float
-        Stream.readU4Simple(content, index, u4Arr);
-        index += 4;
 
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToFloat(u4Arr));
+        klass.getConstantPool().floatAtPut(constantPoolIndex, Float.intBitsToFloat(stream.readU4()));
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Float，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Float，值: " + klass.getConstantPool().getFloat(constantPoolIndex));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Integer 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantInteger(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u4Arr = new byte[4];
-
+    private static void parseJvmConstantInteger(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Integer;
 
         // Integer
-        Stream.readU4Simple(content, index, u4Arr);
-        index += 4;
 
         // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, DataTranslate.byteToInt(u4Arr));
+        klass.getConstantPool().intAtPut(constantPoolIndex, stream.readU4());
 
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: Integer，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
-        return index;
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: Integer，值: " + klass.getConstantPool().getInteger(constantPoolIndex));
+        }
     }
 
     /**
      * 解析常量池 JVM_CONSTANT_Utf8 结构
-     * @param content 字节流
+     * @param stream Class文件的读取游标
      * @param klass 解析成的instanceKlass实例
-     * @param index 当前解析索引
      * @param constantPoolIndex 该结构在常量池中的索引
-     * @return 解析完成之后的当前解析索引
      * */
-    private static int parseJvmConstantUtf8(byte[] content, InstanceKlass klass, int index, int constantPoolIndex) {
-        // 中转字节数组，可复用
-        byte[] u2Arr = new byte[2];
-
+    private static void parseJvmConstantUtf8(ClassFileStream stream, InstanceKlass klass, int constantPoolIndex) {
         // 将 index-->tag 的映射关系写入常量池
         klass.getConstantPool().getTag()[constantPoolIndex] = ConstantPool.JVM_CONSTANT_Utf8;
 
         // 字符串长度
-        Stream.readU2Simple(content, index, u2Arr);
-        index += 2;
-        int length = DataTranslate.byteToUnsignedShort(u2Arr);
+        int length = stream.readU2();
 
-        // 字符串内容
-        byte[] string = new byte[length];
-        Stream.readSimple(content, index, length, string);
-        index += length;
+        // 字符串内容，只拷贝到ConstantPool中，第一次使用时才解码
+        ConstantPool constantPool = klass.getConstantPool();
+        // 先预留空间（可能扩容），再读入
+        int offset = constantPool.utf8AtPut(constantPoolIndex, length);
+        stream.readBytes(constantPool.getUtf8Bytes(), offset, length);
 
-        // 将解析出来的内容存到ConstantPool中
-        klass.getConstantPool().getDataMap().put(constantPoolIndex, new String(string));
-
-        log.info("\t第 " + constantPoolIndex + " 个: 类型: utf8，值: " + klass.getConstantPool().getDataMap().get(constantPoolIndex));
+        if (log.isInfoEnabled()) {
+            log.info("\t第 " + constantPoolIndex + " 个: 类型: utf8，长度: " + length);
+        }
 
-        return index;
     }
 }
@@ -0,0 +1,137 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class文件的读取游标（对应HotSpot的ClassFileStream）
+ * Class文件中的多字节数据都是大端字节序，这里直接移位拼出u1、u2、u4、u8，不经过中转数组，读取时不分配对象:
+ *  堆内的缓冲区直接读它的数组
+ *  堆外的缓冲区（映射的Class文件、jar）使用ByteBuffer按绝对位置读取（大端，JIT会编译成一次内存读取）
+ * 位置相对于Class文件的开头，只在当前游标中前进，不修改缓冲区的position，多个游标可以同时读取同一个缓冲区
+ * */
+public class ClassFileStream {
+    // Class文件的内容，position为Class文件的开头
+    private final ByteBuffer buffer;
+
+    // 堆内缓冲区的数组，堆外缓冲区为null
+    private final byte[] array;
+
+    // Class文件的开头在数组中的位置
+    private final int base;
+
+    // Class文件的长度
+    private final int length;
+
+    // 当前读取位置
+    private int current;
+
+    /**
+     * @param buffer Class文件的内容，从position到limit
+     * */
+    public ClassFileStream(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+        this.length = this.buffer.remaining();
+        if (buffer.hasArray()) {
+            this.array = buffer.array();
+            this.base = buffer.arrayOffset() + buffer.position();
+        } else {
+            this.array = null;
+            this.base = 0;
+        }
+    }
+
+    public int position() {
+        return current;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 读取一个无符号字节
+     * */
+    public int readU1() {
+        int p = advance(1);
+        return null != array ? array[base + p] & 0xFF : buffer.get(p) & 0xFF;
+    }
+
+    /**
+     * 读取一个无符号的两字节数
+     * */
+    public int readU2() {
+        int p = advance(2);
+        if (null != array) {
+            int i = base + p;
+            return (array[i] & 0xFF) << 8 | (array[i + 1] & 0xFF);
+        }
+        return buffer.getShort(p) & 0xFFFF;
+    }
+
+    /**
+     * 读取一个四字节数（Class文件中的u4，以int的位返回，如 Integer、Float 常量、属性长度）
+     * */
+    public int readU4() {
+        int p = advance(4);
+        if (null != array) {
+            int i = base + p;
+            return (array[i] & 0xFF) << 24 | (array[i + 1] & 0xFF) << 16 | (array[i + 2] & 0xFF) << 8 | (array[i + 3] & 0xFF);
+        }
+        return buffer.getInt(p);
+    }
+
+    /**
+     * 读取一个八字节数（Long、Double 常量）
+     * */
+    public long readU8() {
+        int p = advance(8);
+        if (null != array) {
+            int i = base + p;
+            long high = (array[i] & 0xFF) << 24 | (array[i + 1] & 0xFF) << 16 | (array[i + 2] & 0xFF) << 8 | (array[i + 3] & 0xFF);
+            long low = (array[i + 4] & 0xFF) << 24 | (array[i + 5] & 0xFF) << 16 | (array[i + 6] & 0xFF) << 8 | (array[i + 7] & 0xFF);
+            return high << 32 | (low & 0xFFFFFFFFL);
+        }
+        return buffer.getLong(p);
+    }
+
+    /**
+     * 读取若干字节到目的数组
+     * @param dst 目的数组
+     * @param offset 目的数组中的开始位置
+     * @param size 字节数
+     * */
+    public void readBytes(byte[] dst, int offset, int size) {
+        int p = advance(size);
+        if (null != array) {
+            System.arraycopy(array, base + p, dst, offset, size);
+        } else {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(p);
+            duplicate.get(dst, offset, size);
+        }
+    }
+
+    public void readBytes(byte[] dst) {
+        readBytes(dst, 0, dst.length);
+    }
+
+    /**
+     * 跳过若干字节
+     * */
+    public void skip(int size) {
+        advance(size);
+    }
+
+    /**
+     * 前进size个字节，返回前进之前的位置
+     * 堆内缓冲区的数组可能比Class文件长（复用的缓冲区），所以按Class文件的长度检查越界
+     * */
+    private int advance(int size) {
+        int p = current;
+        if (size < 0 || p + size > length) {
+            throw new Error("Class文件不完整: 位置 " + p + " 读取 " + size + " 字节, 文件长度 " + length);
+        }
+        current = p + size;
+        return p;
+    }
+}
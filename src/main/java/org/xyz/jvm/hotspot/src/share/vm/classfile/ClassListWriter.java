@@ -0,0 +1,59 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 记录加载的类（对应HotSpot的ClassListWriter，-XX:DumpLoadedClassList，见 Globals.DumpLoadedClassList）
+ * 每个从加载路径中加载的类写一行内部形式的类名，按加载的顺序，多个Isolate加载同一个类时只写一次
+ * 写出的文件作为转储类元数据归档的类列表（见 MetaspaceShared.dump）
+ * */
+public class ClassListWriter extends AllStatic {
+    // 已经写过的类
+    private static final Set<String> recorded = ConcurrentHashMap.newKeySet();
+
+    // 类列表文件，第一次记录时创建，由writeLock保护
+    private static PrintWriter writer;
+
+    // 在加载类的线程中写文件，用ReentrantLock，虚拟线程在这里等待、写文件时不固定载体线程
+    private static final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * 记录一个加载的类，没有指定类列表文件时什么也不做
+     * @param className 类的全限定名，以.或者/分隔
+     * */
+    public static void record(String className) {
+        if (null == Globals.DumpLoadedClassList) {
+            return;
+        }
+        String name = SymbolTable.internalName(className);
+        if (!recorded.add(name)) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            if (null == writer) {
+                try {
+                    writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(Globals.DumpLoadedClassList), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new Error("创建类列表文件失败: " + Globals.DumpLoadedClassList, e);
+                }
+            }
+            // 进程可能随时退出，每行都刷到文件
+            writer.println(name);
+            writer.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
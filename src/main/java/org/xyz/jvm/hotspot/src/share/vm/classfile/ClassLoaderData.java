@@ -0,0 +1,167 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 类加载器的数据（对应HotSpot的ClassLoaderData）
+ * 每个Isolate有一份，保存该Isolate加载的所有类，以及解析过的符号引用，不同Isolate之间互不可见:
+ *  类表: 类的全限定名 -> Klass模型
+ *  正在加载的类（见 BootClassLoader.Placeholder）
+ *  宿主机类加载器: Java代码中的对象、静态变量就是宿主机的对象、静态变量，每个Isolate用自己的宿主机类加载器加载类，静态变量各自一份
+ *  符号引用的解析结果（见 LinkResolver），解析结果是宿主机的Class、Field，和宿主机类加载器绑定，所以也是每个Isolate一份
+ * 类表中的InstanceKlass本身解析之后不再修改，可以在Isolate之间共享（见 SharedDictionary），这里只是引用它们
+ * */
+@Getter
+@Slf4j
+public class ClassLoaderData {
+    // 加载路径，多个目录、jar文件以分号分隔，为null时使用 BootClassLoader.searchPath
+    private final String searchPath;
+
+    // 加载路径的索引，第一次加载类时获取，和使用同一加载路径的其他Isolate共享（见 ClassPath.open）
+    private volatile ClassPath classPath;
+
+    // 加载宿主机的Class（对象的类型、静态变量所在的类）使用的类加载器
+    private final ClassLoader hostLoader;
+
+    // 该类加载器加载的所有类，多个线程会同时加载、查找类
+    private final ConcurrentHashMap<String, InstanceKlass> klasses = new ConcurrentHashMap<>();
+
+    // 正在加载的类（对应HotSpot的PlaceholderTable）
+    private final ConcurrentHashMap<String, BootClassLoader.Placeholder> placeholders = new ConcurrentHashMap<>();
+
+    // main函数所在类
+    @Setter
+    private volatile InstanceKlass mainKlass;
+
+    // 是否已经释放，释放之后不能再加载类
+    private volatile boolean released;
+
+    // 从SharedDictionary中获取的类元数据的键，销毁时释放引用，由lock保护
+    private final List<String> sharedKeys = new ArrayList<>();
+
+    // 保护加载路径的索引、共享类元数据的键、释放状态
+    // 打开加载路径要读目录、jar文件，用ReentrantLock，虚拟线程在这里阻塞时可以从载体线程上卸载
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 符号引用的解析结果，见 LinkResolver
+    private final ConcurrentHashMap<String, Class<?>> resolvedClasses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Field> resolvedFields = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MethodInfo> resolvedMethods = new ConcurrentHashMap<>();
+
+    /**
+     * @param searchPath 加载路径，为null时使用 BootClassLoader.searchPath，并且和虚拟机共用宿主机类加载器
+     * */
+    public ClassLoaderData(String searchPath) {
+        this.searchPath = searchPath;
+        this.hostLoader = null == searchPath ? ClassLoaderData.class.getClassLoader() : new IsolateClassLoader(searchPath, ClassLoaderData.class.getClassLoader());
+    }
+
+    public String searchPath() {
+        return null == searchPath ? BootClassLoader.getSearchPath() : searchPath;
+    }
+
+    /**
+     * 加载路径的索引，第一次使用时获取；默认Isolate的加载路径（BootClassLoader.searchPath）被修改之后重新获取
+     * 释放之后不再建立，抛出Error
+     * */
+    public ClassPath classPath() {
+        String path = searchPath();
+        ClassPath cp = classPath;
+        if (null == cp || !cp.getPath().equals(path)) {
+            lock.lock();
+            try {
+                checkReleased();
+                cp = classPath;
+                if (null == cp || !cp.getPath().equals(path)) {
+                    if (null != cp) {
+                        cp.close();
+                    }
+                    cp = ClassPath.open(path);
+                    classPath = cp;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return cp;
+    }
+
+    /**
+     * 用该类加载器加载宿主机的Class
+     * @param className 类的全限定名，如 java.lang.String、org.xyz.jvm.example.HelloWorld、[I
+     * */
+    public Class<?> loadHostClass(String className) throws ClassNotFoundException {
+        return Class.forName(className, true, hostLoader);
+    }
+
+    /**
+     * 已经释放时抛出Error
+     * */
+    public void checkReleased() {
+        if (released) {
+            throw new Error("类加载器已经释放，不能再加载类: " + searchPath());
+        }
+    }
+
+    /**
+     * 记录使用的共享类元数据，已经释放时立即归还引用并抛出Error，不会留下释放不掉的引用
+     * */
+    void addSharedKey(String key) {
+        lock.lock();
+        try {
+            if (!released) {
+                sharedKeys.add(key);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        SharedDictionary.release(key);
+        checkReleased();
+    }
+
+    /**
+     * 释放加载的类和解析结果、共享类元数据的引用，关闭宿主机类加载器，之后宿主机的类、静态变量可以被回收
+     * */
+    public void release() {
+        lock.lock();
+        try {
+            released = true;
+            for (String key : sharedKeys) {
+                SharedDictionary.release(key);
+            }
+            sharedKeys.clear();
+            if (null != classPath) {
+                classPath.close();
+                classPath = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        klasses.clear();
+        placeholders.clear();
+        resolvedClasses.clear();
+        resolvedFields.clear();
+        resolvedMethods.clear();
+        mainKlass = null;
+
+        if (hostLoader instanceof IsolateClassLoader) {
+            try {
+                ((IsolateClassLoader) hostLoader).close();
+            } catch (IOException e) {
+                log.info("关闭类加载器失败: " + e.getMessage());
+            }
+        }
+    }
+}
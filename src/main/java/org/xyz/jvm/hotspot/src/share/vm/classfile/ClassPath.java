@@ -0,0 +1,351 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 类加载路径（对应HotSpot的ClassPathEntry链表）
+ * 由多个根组成，以分号分隔，每个根是一个目录或者一个jar/zip文件，按顺序查找，前面的根中的类优先
+ *
+ * 创建时扫描所有的根，建立 包名 -> 含有该包的根 的索引，加载类时只查找含有该类所在包的根（通常只有一个），
+ * 不需要按顺序挨个试探所有的根；包不在索引中的类直接判定为找不到，不访问文件系统
+ * 索引只在创建时建立，之后在目录中新增的包不可见（新增的类在已有的包中时可见）
+ *
+ * 同一个加载路径的索引在进程内所有Isolate之间共享（见 open），和SharedDictionary一样使用引用计数:
+ * 每个使用它的ClassLoaderData持有一次引用，close释放引用，没有引用时从表中移除，映射的jar/zip文件随之释放
+ * */
+@Slf4j
+public class ClassPath {
+    // 根的分隔符
+    public static final String SEPARATOR = ";";
+
+    // 加载路径 -> 共享的索引
+    private static final ConcurrentHashMap<String, ClassPath> shared = new ConcurrentHashMap<>();
+
+    // 原始的加载路径
+    private final String path;
+
+    // 引用计数，-1表示已经关闭，不能再获取
+    private final AtomicInteger refs = new AtomicInteger();
+
+    // 所有的根，按加载路径中的顺序
+    private final List<Entry> entries = new ArrayList<>();
+
+    // 包名（以/分隔，默认包为空字符串） -> 含有该包的根，按加载路径中的顺序
+    private final Map<String, List<Entry>> packages = new HashMap<>();
+
+    /**
+     * 获取加载路径的索引，其他Isolate已经建立过同一个加载路径的索引时直接使用，引用计数加一
+     * 不再使用时调用close
+     * @param path 加载路径，多个根以分号分隔
+     * @return 共享的索引
+     * */
+    public static ClassPath open(String path) {
+        while (true) {
+            ClassPath cp = shared.get(path);
+            if (null == cp) {
+                // 在表外建立索引，不在ConcurrentHashMap的锁中扫描文件系统；同时建立的多个索引以先放入的为准
+                ClassPath created = new ClassPath(path);
+                cp = shared.putIfAbsent(path, created);
+                if (null == cp) {
+                    cp = created;
+                }
+            }
+
+            int r = cp.refs.get();
+            // 刚好被关闭，移除后重新建立
+            if (r < 0) {
+                shared.remove(path, cp);
+                continue;
+            }
+            if (cp.refs.compareAndSet(r, r + 1)) {
+                return cp;
+            }
+        }
+    }
+
+    /**
+     * @param path 加载路径，多个根以分号分隔
+     * */
+    private ClassPath(String path) {
+        this.path = path;
+
+        long start = System.nanoTime();
+        for (String root : path.split(SEPARATOR)) {
+            if (root.isEmpty()) {
+                continue;
+            }
+            File file = new File(root);
+            Entry entry;
+            if (file.isDirectory()) {
+                entry = new DirectoryEntry(file);
+            } else if (file.isFile()) {
+                entry = new ArchiveEntry(file);
+            } else {
+                log.info("加载路径中的根不存在: " + root);
+                continue;
+            }
+            entries.add(entry);
+            for (String pkg : entry.packages()) {
+                packages.computeIfAbsent(pkg, k -> new ArrayList<>(1)).add(entry);
+            }
+        }
+        log.info("建立加载路径索引: " + entries.size() + " 个根, " + packages.size() + " 个包, 耗时 " + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 查找Class文件
+     * @param className 类的全限定名，以.或者/分隔
+     * @return Class文件，找不到时返回null
+     * */
+    public ClassFile find(String className) {
+        String name = SymbolTable.internalName(className);
+        int slash = name.lastIndexOf('/');
+        List<Entry> candidates = packages.get(slash < 0 ? "" : name.substring(0, slash));
+        if (null == candidates) {
+            return null;
+        }
+
+        String fileName = name + BootClassLoader.SUFFIX;
+        for (Entry entry : candidates) {
+            ClassFile classFile = entry.find(fileName);
+            if (null != classFile) {
+                return classFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 释放一次引用，没有引用时从表中移除，不再使用加载路径，映射的jar/zip文件随之释放
+     * */
+    public void close() {
+        if (0 != refs.decrementAndGet() || !refs.compareAndSet(0, -1)) {
+            return;
+        }
+        shared.remove(path, this);
+        entries.clear();
+        packages.clear();
+        log.info("释放加载路径索引: " + path);
+    }
+
+    // 共享的加载路径索引个数
+    public static int sharedCount() {
+        return shared.size();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * 找到的Class文件
+     * */
+    public interface ClassFile {
+        /**
+         * 共享类元数据的键（见 SharedDictionary），文件内容变化时键也要变化
+         * */
+        String sharedKey();
+
+        /**
+         * 读取Class文件的内容交给reader处理
+         * 内容可能是映射内存的切片或者复用的缓冲区，只在reader执行期间有效，reader不能保存它
+         * @param reader 处理内容，buffer的position为0，limit为内容的长度
+         * @return reader的结果
+         * */
+        <T> T read(Function<ByteBuffer, T> reader);
+    }
+
+    /**
+     * 加载路径中的一个根
+     * */
+    private abstract static class Entry {
+        /**
+         * 扫描该根中含有Class文件的包
+         * */
+        abstract Collection<String> packages();
+
+        /**
+         * @param fileName Class文件在根中的相对路径，如 org/xyz/jvm/example/HelloWorld.class
+         * @return Class文件，不存在时返回null
+         * */
+        abstract ClassFile find(String fileName);
+    }
+
+    /**
+     * 目录
+     * 目录中的Class文件通常只有几KB，读到线程复用的堆内缓冲区中解析，不再逐个映射（每次映射都要mmap/munmap并且缺页）
+     * */
+    private static final class DirectoryEntry extends Entry {
+        // 复用的缓冲区最大的大小，更大的Class文件读到临时的数组中，不让缓冲区一直占着大块内存
+        private static final int MAX_REUSED_BUFFER = 1024 * 1024;
+
+        // 线程复用的读取缓冲区
+        private static final ThreadLocal<ReadBuffer> readBuffer = ThreadLocal.withInitial(ReadBuffer::new);
+
+        private final File root;
+
+        /**
+         * 线程复用的读取缓冲区
+         * */
+        private static final class ReadBuffer {
+            byte[] bytes = new byte[16 * 1024];
+            // 正在使用（回调中又读取了其他Class文件时，内层的读取使用临时的数组）
+            boolean busy;
+        }
+
+        DirectoryEntry(File root) {
+            this.root = root;
+        }
+
+        @Override
+        Collection<String> packages() {
+            List<String> result = new ArrayList<>();
+            scan(root, "", result);
+            return result;
+        }
+
+        private void scan(File dir, String pkg, List<String> result) {
+            File[] files = dir.listFiles();
+            if (null == files) {
+                return;
+            }
+            boolean hasClass = false;
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    scan(file, pkg.isEmpty() ? file.getName() : pkg + "/" + file.getName(), result);
+                } else if (!hasClass && file.getName().endsWith(BootClassLoader.SUFFIX)) {
+                    hasClass = true;
+                }
+            }
+            if (hasClass) {
+                result.add(pkg);
+            }
+        }
+
+        @Override
+        ClassFile find(String fileName) {
+            File file = new File(root, fileName);
+            if (!file.isFile()) {
+                return null;
+            }
+            return new ClassFile() {
+                @Override
+                public String sharedKey() {
+                    return SharedDictionary.keyOf(file);
+                }
+
+                @Override
+                public <T> T read(Function<ByteBuffer, T> reader) {
+                    return DirectoryEntry.read(file, reader);
+                }
+            };
+        }
+
+        private static <T> T read(File file, Function<ByteBuffer, T> reader) {
+            ReadBuffer current = readBuffer.get();
+            boolean reuse = false;
+            ByteBuffer content;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new Error("Class文件过大: " + file);
+                }
+                reuse = !current.busy && size <= MAX_REUSED_BUFFER;
+                byte[] bytes;
+                if (reuse) {
+                    if (current.bytes.length < size) {
+                        current.bytes = new byte[(int) Math.min(MAX_REUSED_BUFFER, Math.max(size, current.bytes.length * 2L))];
+                    }
+                    bytes = current.bytes;
+                } else {
+                    bytes = new byte[(int) size];
+                }
+
+                content = ByteBuffer.wrap(bytes, 0, (int) size);
+                while (content.hasRemaining()) {
+                    if (channel.read(content) < 0) {
+                        throw new Error("读取Class文件失败，文件被截断: " + file);
+                    }
+                }
+                content.flip();
+            } catch (IOException e) {
+                throw new Error("读取Class文件失败: " + file, e);
+            }
+
+            // 文件已经关闭，解析期间缓冲区被当前线程占用
+            if (reuse) {
+                current.busy = true;
+            }
+            try {
+                return reader.apply(content.slice());
+            } finally {
+                if (reuse) {
+                    current.busy = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * jar/zip文件，打开时映射到内存并索引中央目录（见 MappedArchive），之后加载多少个类都不再打开文件
+     * */
+    private static final class ArchiveEntry extends Entry {
+        private final MappedArchive archive;
+
+        ArchiveEntry(File file) {
+            this.archive = new MappedArchive(file);
+        }
+
+        @Override
+        Collection<String> packages() {
+            Set<String> result = new HashSet<>();
+            for (String name : archive.names()) {
+                if (!name.endsWith(BootClassLoader.SUFFIX)) {
+                    continue;
+                }
+                int slash = name.lastIndexOf('/');
+                result.add(slash < 0 ? "" : name.substring(0, slash));
+            }
+            return result;
+        }
+
+        @Override
+        ClassFile find(String fileName) {
+            if (!archive.contains(fileName)) {
+                return null;
+            }
+            return new ClassFile() {
+                @Override
+                public String sharedKey() {
+                    return SharedDictionary.keyOf(archive.getFile()) + "!" + fileName;
+                }
+
+                @Override
+                public <T> T read(Function<ByteBuffer, T> reader) {
+                    return archive.read(fileName, reader);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.oops.ConstantPool;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 类的预加载（见 Globals.PreloadClasses）
+ * main函数所在类的常量池中的 CONSTANT_Class 基本就是程序要用到的类，不等执行到第一次使用它们的指令，
+ * 在后台的线程池中沿着常量池中的类引用传递地读取、解析，加载到Isolate的类表中，之后执行时直接命中缓存
+ *
+ * main方法不等待预加载完成，和预加载同时执行: 执行到的类如果正在预加载，等待它完成（见 BootClassLoader.Placeholder），不会重复解析
+ * 只预加载加载路径中能找到的类，java体系的类（走宿主机的反射）、找不到的类跳过
+ * 预加载失败的类（如格式错误）不报错，执行到它时重新加载并报告错误
+ * 限制了加载类数的Isolate（见 ResourceQuota）不预加载，避免预加载了用不到的类而超出配额
+ * Isolate销毁时先取消它的预加载并等待正在加载的类完成（见 Preloading、Isolate.dispose），之后才释放类加载器
+ * */
+@Slf4j
+public class ClassPreloader extends AllStatic {
+    // 预加载使用的线程池，所有Isolate共用，第一次预加载时创建，工作线程是守护线程
+    private static volatile ForkJoinPool pool;
+    private static final ReentrantLock poolLock = new ReentrantLock();
+
+    /**
+     * 一个Isolate的一次预加载
+     * */
+    public static final class Preloading {
+        // 加载到哪个Isolate
+        private final Isolate isolate;
+        // 已经提交过的类（内部形式），同一个类只预加载一次
+        private final Set<String> visited = ConcurrentHashMap.newKeySet();
+        // 预加载的类数
+        private final AtomicInteger loaded = new AtomicInteger();
+        // 是否已经取消，取消后不再加载新的类
+        private volatile boolean cancelled;
+        // 所有预加载任务（包括正在加载的类）结束时计数归零
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        Preloading(Isolate isolate) {
+            this.isolate = isolate;
+        }
+
+        /**
+         * 取消预加载: 还没有开始加载的类不再加载，正在加载的类继续完成
+         * */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * 等待所有预加载任务结束，不响应中断（中断状态在返回前恢复）
+         * */
+        public void join() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        finished.await();
+                        return;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled || isolate.isDisposed();
+        }
+    }
+
+    /**
+     * 在后台预加载类引用的所有类，立即返回
+     * @param isolate 加载到哪个Isolate
+     * @param klass 开始的类，通常是main函数所在类
+     * @return 这次预加载，用于取消、等待结束；不预加载时返回null
+     * */
+    public static Preloading preload(Isolate isolate, InstanceKlass klass) {
+        if (isolate.getQuota().getMaxLoadedClasses() > 0) {
+            log.info(isolate + " 限制了加载的类数，不预加载");
+            return null;
+        }
+
+        Preloading preloading = new Preloading(isolate);
+        preloading.visited.add(klass.getConstantPool().getClassName(klass.getThisClass()));
+        pool().execute(() -> {
+            try {
+                long start = System.nanoTime();
+                new Preload(preloading, klass, null).invoke();
+                log.info(isolate + " 预加载 " + preloading.loaded.get() + " 个类, 耗时 " + (System.nanoTime() - start) / 1000000 + " ms");
+            } finally {
+                preloading.finished.countDown();
+            }
+        });
+        return preloading;
+    }
+
+    private static ForkJoinPool pool() {
+        ForkJoinPool p = pool;
+        if (null == p) {
+            poolLock.lock();
+            try {
+                p = pool;
+                if (null == p) {
+                    int threads = Globals.PreloadThreads > 0 ? (int) Globals.PreloadThreads : Runtime.getRuntime().availableProcessors();
+                    p = new ForkJoinPool(threads);
+                    pool = p;
+                }
+            } finally {
+                poolLock.unlock();
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 预加载一个类，然后并行预加载它引用的类
+     * */
+    private static final class Preload extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Preloading preloading;
+        // 已经加载的类，为null时先加载className
+        private final InstanceKlass klass;
+        // 类的全限定名
+        private final String className;
+
+        Preload(Preloading preloading, InstanceKlass klass, String className) {
+            this.preloading = preloading;
+            this.klass = klass;
+            this.className = className;
+        }
+
+        @Override
+        protected void compute() {
+            // 已经取消（Isolate正在销毁），不再加载
+            if (preloading.isCancelled()) {
+                return;
+            }
+
+            Isolate isolate = preloading.isolate;
+            InstanceKlass k = klass;
+            if (null == k) {
+                try {
+                    k = BootClassLoader.loadKlass(isolate, className, false);
+                    preloading.loaded.incrementAndGet();
+                } catch (Throwable e) {
+                    // 加载期间被取消不是错误
+                    if (!preloading.isCancelled()) {
+                        log.info("预加载 " + className + " 失败: " + e);
+                    }
+                    return;
+                }
+            }
+
+            ClassLoaderData loaderData = isolate.getClassLoaderData();
+            ConstantPool constantPool = k.getConstantPool();
+            List<Preload> tasks = new ArrayList<>();
+            for (int i = 1; i < constantPool.getLength(); i++) {
+                if (constantPool.getTag(i) != ConstantPool.JVM_CONSTANT_Class) {
+                    continue;
+                }
+                String name = elementName(constantPool.getClassName(i));
+                if (null == name || name.startsWith("java") || !preloading.visited.add(name)) {
+                    continue;
+                }
+
+                // 已经加载的类（如main方法已经执行到）不需要加载，但它引用的类还要继续预加载
+                String externalName = SymbolTable.externalName(name);
+                InstanceKlass loadedKlass = loaderData.getKlasses().get(externalName);
+                if (null == loadedKlass && null == loaderData.classPath().find(name)) {
+                    continue;
+                }
+                tasks.add(new Preload(preloading, loadedKlass, externalName));
+            }
+            invokeAll(tasks);
+        }
+
+        /**
+         * 数组类取元素的类，如 [[Lorg/xyz/Foo; -> org/xyz/Foo
+         * @return 类名的内部形式，基本类型的数组返回null
+         * */
+        private static String elementName(String name) {
+            if (name.charAt(0) != '[') {
+                return name;
+            }
+            int start = 0;
+            while (name.charAt(start) == '[') {
+                start++;
+            }
+            return name.charAt(start) == 'L' ? name.substring(start + 1, name.length() - 1) : null;
+        }
+    }
+}
@@ -7,8 +7,11 @@ import org.xyz.jvm.hotspot.src.share.tools.DataTranslate;
 import org.xyz.jvm.hotspot.src.share.vm.memory.ResourceObj;
 import org.xyz.jvm.hotspot.src.share.vm.oops.ArrayOop;
 import org.xyz.jvm.hotspot.src.share.vm.oops.DescriptorInfo;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.HandleArea;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValue;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
 import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
 
 import java.util.ArrayList;
@@ -39,6 +42,13 @@ public class DescriptorStream extends ResourceObj {
     // 解析完的字段类型
     private DescriptorInfo field;
 
+    // getParamsVal 中被转成宿主数组的实参数组对象，元素存储在虚拟机堆中时，反射调用结束后需要写回
+    private ArrayOop[] paramsOop;
+
+    // paramsOop登记在当前线程的局部句柄区中，调用期间作为垃圾回收的根，releaseParams 时回到登记之前的位置
+    private HandleArea handleArea;
+    private int handleMark;
+
     public DescriptorStream(String descriptorInfo) {
         this.descriptorInfo = descriptorInfo;
     }
@@ -53,7 +63,7 @@ public class DescriptorStream extends ResourceObj {
             case BasicType.T_CHAR:
             case BasicType.T_BYTE:
             case BasicType.T_INT:
-                frame.getOperandStack().push(new StackValue(BasicType.T_INT, (int)o));
+                frame.getOperandStack().push(new StackValue(BasicType.T_INT, toIntValue(o)));
 
                 break;
             case BasicType.T_LONG:
@@ -65,11 +75,16 @@ public class DescriptorStream extends ResourceObj {
 
                 break;
             case BasicType.T_OBJECT:
-                frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, o));
+                // 声明为Object但实际是宿主数组的值(如泛型方法返回的数组)，也要转成数组对象；数组对象（如从Object[]中取出的元素）按数组压栈
+                if (o instanceof ArrayOop || (null != o && o.getClass().isArray())) {
+                    frame.getOperandStack().pushArray(toArrayOop(o), frame);
+                } else {
+                    frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, o));
+                }
 
                 break;
             case BasicType.T_ARRAY:
-                frame.getOperandStack().pushArray((ArrayOop) o, frame);
+                frame.getOperandStack().pushArray(toArrayOop(o), frame);
                 break;
             default:
                 throw new Error("无法识别的参数类型");
@@ -86,7 +101,7 @@ public class DescriptorStream extends ResourceObj {
             case BasicType.T_CHAR:
             case BasicType.T_BYTE:
             case BasicType.T_INT:
-                frame.getOperandStack().push(new StackValue(BasicType.T_INT, (int)o));
+                frame.getOperandStack().push(new StackValue(BasicType.T_INT, toIntValue(o)));
 
                 break;
             case BasicType.T_LONG:
@@ -98,11 +113,16 @@ public class DescriptorStream extends ResourceObj {
 
                 break;
             case BasicType.T_OBJECT:
-                frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, o));
+                // 声明为Object但实际是宿主数组的值(如泛型方法返回的数组)，也要转成数组对象；数组对象（如从Object[]中取出的元素）按数组压栈
+                if (o instanceof ArrayOop || (null != o && o.getClass().isArray())) {
+                    frame.getOperandStack().pushArray(toArrayOop(o), frame);
+                } else {
+                    frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, o));
+                }
 
                 break;
             case BasicType.T_ARRAY:
-                frame.getOperandStack().pushArray((ArrayOop) o, frame);
+                frame.getOperandStack().pushArray(toArrayOop(o), frame);
                 break;
             default:
                 throw new Error("无法识别的参数类型");
@@ -115,8 +135,10 @@ public class DescriptorStream extends ResourceObj {
      * */
     public Object[] getParamsVal(JavaVFrame frame) {
         Object[] values = new Object[getMethodParamsSize()];
+        paramsOop = null;
 
-        for (int i = 0; i < getMethodParamsSize(); i++) {
+        // 最后一个实参位于操作数栈栈顶，所以从最后一个形参开始倒序弹出
+        for (int i = getMethodParamsSize() - 1; i >= 0; i--) {
             DescriptorInfo info = getParameters().get(i);
 
             switch (info.getType()) {
@@ -163,13 +185,14 @@ public class DescriptorStream extends ResourceObj {
                     break;
 
                 // 如果形参类型为引用类型，从操作数栈中弹出引用类型的值
+                // 实参可能是数组对象(如 List.add 的形参是Object)，被调用方法可能保存它，迁移到宿主数组后传递，之后双方看到的是同一个数组
                 case BasicType.T_OBJECT:
-                    values[i] = frame.getOperandStack().pop().getData();
+                    values[i] = toSharedValue(frame.getOperandStack().pop().getData());
                     break;
 
-                // 如果形参类型为数组类型
+                // 如果形参类型为数组类型，直接传递数组对象背后的宿主数组，不做拷贝
                 case BasicType.T_ARRAY:
-                    values[i] = frame.getOperandStack().popArray(frame);
+                    values[i] = toHostParam(i, frame.getOperandStack().popArray(frame));
                     break;
                 default:
                     throw new Error("无法识别的参数类型: " + info.getType());
@@ -229,13 +252,14 @@ public class DescriptorStream extends ResourceObj {
                 break;
 
             // 如果字段类型为引用类型，从操作数栈中弹出引用类型的值
+            // 存入字段的数组对象如果在虚拟机堆中，迁移到宿主数组，保证字段和数组对象看到的是同一份数据
             case BasicType.T_OBJECT:
-                ret = frame.getOperandStack().pop().getData();
+                ret = toSharedValue(frame.getOperandStack().pop().getData());
                 break;
 
             // 如果字段类型为数组类型
             case BasicType.T_ARRAY:
-                ret = frame.getOperandStack().popArray(frame);
+                ret = toSharedValue(frame.getOperandStack().popArray(frame));
                 break;
             default:
                 throw new Error("无法识别的字段类型: " + field.getType());
@@ -243,6 +267,110 @@ public class DescriptorStream extends ResourceObj {
         return ret;
     }
 
+    /**
+     * 将数组类型的实参转成宿主数组
+     * 引用类型数组（如 Object[]、String[]）被调用方法可能保存下来（如 Arrays.asList），按 toSharedValue 处理；
+     * 基本类型数组元素存储在虚拟机堆中时传一份拷贝，数组对象记录下来，供 syncParams 写回
+     * */
+    private Object toHostParam(int index, ArrayOop value) {
+        if (null != value && !value.isPrimitive()) {
+            return toSharedValue(value);
+        }
+        if (null != value && value.isHeapAllocated()) {
+            if (null == paramsOop) {
+                paramsOop = new ArrayOop[getMethodParamsSize()];
+                JavaThread thread = Threads.currentThread();
+                if (null != thread) {
+                    handleArea = thread.getHandleArea();
+                    handleMark = handleArea.mark();
+                }
+            }
+            paramsOop[index] = value;
+            // 已经弹出操作数栈，调用期间发生垃圾回收时，内存块要保留并且移动后更新它的地址，syncParams 才能写回到正确的位置
+            if (null != handleArea) {
+                handleArea.add(value);
+            }
+        }
+        return toHostValue(value);
+    }
+
+    /**
+     * 反射调用结束后，将被调用方法对宿主数组实参的修改写回虚拟机堆，并释放 getParamsVal 登记的局部句柄
+     * @param params getParamsVal 返回的实参值列表
+     * */
+    public void syncParams(Object[] params) {
+        if (null == paramsOop) {
+            return;
+        }
+        for (int i = 0; i < paramsOop.length; i++) {
+            if (null != paramsOop[i]) {
+                paramsOop[i].syncHostArray(params[i]);
+            }
+        }
+        releaseParams();
+    }
+
+    /**
+     * 释放 getParamsVal 登记的局部句柄，不需要写回时（如调用抛出异常、实参不会被修改）调用
+     * 没有释放的局部句柄在当前方法返回时释放（见 JavaNativeInterface.run）
+     * */
+    public void releaseParams() {
+        if (null != handleArea) {
+            handleArea.reset(handleMark);
+            handleArea = null;
+        }
+    }
+
+    /**
+     * 反射得到的boolean、char、byte、short、int值（装箱类型各不相同）统一转成压入操作数栈的int值
+     * */
+    public static int toIntValue(Object o) {
+        if (o instanceof Boolean) {
+            return (Boolean) o ? 1 : 0;
+        }
+        if (o instanceof Character) {
+            return (Character) o;
+        }
+        return ((Number) o).intValue();
+    }
+
+    /**
+     * 将操作数栈中的值转成反射调用时使用的宿主值，数组对象转成其背后的宿主数组
+     * @param value 操作数栈中的值
+     * @return 宿主值
+     * */
+    public static Object toHostValue(Object value) {
+        if (value instanceof ArrayOop) {
+            return ((ArrayOop) value).getHostArray();
+        }
+        return value;
+    }
+
+    /**
+     * 将操作数栈中的值转成会被宿主机保存下来的宿主值: 存入字段、传给形参类型为Object或集合的方法、Unsafe的CAS等
+     * 数组对象迁移到宿主数组（元素存储在虚拟机堆中时，只传拷贝的话之后双方的修改互相不可见），引用类型数组中的数组元素同样迁移
+     * */
+    public static Object toSharedValue(Object value) {
+        if (value instanceof ArrayOop) {
+            ArrayOop array = (ArrayOop) value;
+            array.escapeElements();
+            return array.escapeToHost();
+        }
+        return value;
+    }
+
+    /**
+     * 将反射调用得到的数组值转成数组对象，宿主数组直接被数组对象接管，不做拷贝
+     * @param value 数组对象或者宿主数组
+     * @return 数组对象
+     * */
+    public static ArrayOop toArrayOop(Object value) {
+        if (null == value || value instanceof ArrayOop) {
+            return (ArrayOop) value;
+        }
+        return ArrayOop.fromHostArray(value);
+    }
+
     /**
      * 获取形参列表中每个元素类型对应的Class对象
      * @return 按照顺序存放的形参列表中每个元素类型的Class对象
@@ -289,7 +417,7 @@ public class DescriptorStream extends ResourceObj {
                 case BasicType.T_OBJECT: {
                     // Object通过类的全限定名 使用反射来获取其Class对象
                     try {
-                        types[i] = Class.forName(info.getTypeDesc().replace('/', '.'));
+                        types[i] = BootClassLoader.loadHostClass(SymbolTable.externalName(info.getTypeDesc()));
                     } catch (ClassNotFoundException e) {
                         e.printStackTrace();
                     }
@@ -311,42 +439,42 @@ public class DescriptorStream extends ResourceObj {
                         switch (info.getArrayElementType().getType()) {
                             // 描述符为 "[I" （[数量根据维度来，这里只是举例）
                             case BasicType.T_BOOLEAN: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_BOOLEAN));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_BOOLEAN));
                                 break;
                             }
                             // 描述符为 "[B" （[数量根据维度来，这里只是举例）
                             case BasicType.T_BYTE: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_BYTE));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_BYTE));
                                 break;
                             }
                             // 描述符为 "[C" （[数量根据维度来，这里只是举例）
                             case BasicType.T_CHAR: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_CHAR));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_CHAR));
                                 break;
                             }
                             // 描述符为 "[S" （[数量根据维度来，这里只是举例）
                             case BasicType.T_SHORT: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_SHORT));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_SHORT));
                                 break;
                             }
                             // 描述符为 "[I" （[数量根据维度来，这里只是举例）
                             case BasicType.T_INT: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_INT));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_INT));
                                 break;
                             }
                             // 描述符为 "[F" （[数量根据维度来，这里只是举例）
                             case BasicType.T_FLOAT: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_FLOAT));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_FLOAT));
                                 break;
                             }
                             // 描述符为 "[J" （[数量根据维度来，这里只是举例）
                             case BasicType.T_LONG: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_LONG));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_LONG));
                                 break;
                             }
                             // 描述符为 "[D" （[数量根据维度来，这里只是举例）
                             case BasicType.T_DOUBLE: {
-                                types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_DOUBLE));
+                                types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_DOUBLE));
                                 break;
                             }
                             // 描述符为 "[Ljava/lang/String;"（[数量根据维度来，具体数组类型根据引用类型来，这里只是举例）
@@ -354,8 +482,8 @@ public class DescriptorStream extends ResourceObj {
                                 // 如果数组元素的类型为引用类型，则引用类型存储在数组的arrayElementType(DescriptorInfo)中的typeDesc中
                                 // 引用类型为JVM本身系统加载的类（即java开头的），通过反射
                                 if (info.getArrayElementType().getTypeDesc().startsWith("java")) {
-                                    types[i] = Class.forName(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_CLASS) +
-                                            info.getArrayElementType().getTypeDesc().replace("/", ".") +
+                                    types[i] = BootClassLoader.loadHostClass(arrayPrefix + DataTranslate.byteToString(BasicType.JVM_SIGNATURE_CLASS) +
+                                            SymbolTable.externalName(info.getArrayElementType().getTypeDesc()) +
                                             DataTranslate.byteToString(BasicType.JVM_SIGNATURE_END_CLASS));
                                 } else {    // TODO: 自己加载器加载的类（非java开头的）
 
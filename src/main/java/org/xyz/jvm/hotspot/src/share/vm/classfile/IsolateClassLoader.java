@@ -0,0 +1,81 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Isolate的宿主机类加载器
+ * Java代码中的类在宿主机上也要加载一份（对象就是宿主机的对象，静态变量就是宿主机类的静态变量），
+ * 每个Isolate用自己的类加载器从加载路径中加载这些类，同名的类在不同Isolate中是不同的宿主机Class，静态变量互不影响
+ *
+ * 加载顺序和普通的类加载器相反（child-first）: 先在自己的加载路径中查找，找不到再交给父加载器
+ * java体系的类、虚拟机自己的类（Java代码通过它们和虚拟机交互，如 Handle、Unsafe）始终交给父加载器，所有Isolate共用
+ * */
+public class IsolateClassLoader extends URLClassLoader {
+    // 始终由父加载器加载的包
+    private static final String[] SHARED_PACKAGES = {
+            "java.", "javax.", "sun.", "jdk.", "org.xyz.jvm.hotspot.", "org.xyz.jvm.jdk."
+    };
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * @param searchPath 加载路径，多个路径以分号分隔
+     * @param parent 父加载器
+     * */
+    public IsolateClassLoader(String searchPath, ClassLoader parent) {
+        super(toUrls(searchPath), parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isShared(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (null == clazz) {
+                try {
+                    clazz = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    private static boolean isShared(String name) {
+        for (String prefix : SHARED_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static URL[] toUrls(String searchPath) {
+        List<URL> urls = new ArrayList<>();
+        for (String path : searchPath.split(";")) {
+            if (path.isEmpty()) {
+                continue;
+            }
+            try {
+                urls.add(new File(path).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new Error("不合法的加载路径: " + path, e);
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+}
@@ -0,0 +1,262 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 内存映射的jar/zip文件（对应HotSpot的ClassPathZipEntry）
+ * 打开时把整个文件映射到内存，解析一次中央目录，建立 文件名 -> 条目 的索引，之后读取条目不再打开文件、不再查找中央目录:
+ *  未压缩（STORED）的条目直接返回映射内存的切片，不拷贝
+ *  压缩（DEFLATED）的条目解压到线程复用的缓冲区中，每个线程一个解压器、一个缓冲区，不为每个类重新分配
+ * 读取的结果只在回调执行期间有效（见 read）
+ *
+ * 不支持zip64、加密的条目，映射的内存在没有引用之后由宿主机的垃圾回收释放
+ * */
+@Slf4j
+public class MappedArchive {
+    // 中央目录结束记录
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    // 中央目录中的文件头
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_SIZE = 46;
+    // 本地文件头
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_SIZE = 30;
+
+    // 压缩方法
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    // 线程复用的解压器、缓冲区
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private final File file;
+
+    // 映射的整个文件，只使用绝对位置读取，多个线程共用
+    private final ByteBuffer mapped;
+
+    // 文件名 -> 条目
+    private final Map<String, Entry> entries;
+
+    /**
+     * 中央目录中的一个条目
+     * */
+    private static final class Entry {
+        final int method;
+        final int compressedSize;
+        final int size;
+        final int localHeader;
+
+        // 数据的位置，第一次读取时根据本地文件头计算
+        int dataOffset = -1;
+
+        Entry(int method, int compressedSize, int size, int localHeader) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeader = localHeader;
+        }
+    }
+
+    /**
+     * 线程复用的解压器、缓冲区
+     * */
+    private static final class Scratch {
+        final Inflater inflater = new Inflater(true);
+        byte[] input = new byte[8 * 1024];
+        byte[] output = new byte[64 * 1024];
+        // 正在使用（回调中又读取了其他条目时，内层的读取使用新的缓冲区）
+        boolean busy;
+    }
+
+    public MappedArchive(File file) {
+        this.file = file;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new Error("暂不支持超过2GB的jar/zip文件: " + file);
+            }
+            // 通道关闭之后映射仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            this.mapped = buffer;
+        } catch (IOException e) {
+            throw new Error("映射jar/zip文件失败: " + file, e);
+        }
+        this.entries = readCentralDirectory();
+    }
+
+    /**
+     * 解析中央目录
+     * */
+    private Map<String, Entry> readCentralDirectory() {
+        int end = findEnd();
+        int count = mapped.getShort(end + 10) & 0xFFFF;
+        long offset = mapped.getInt(end + 16) & 0xFFFFFFFFL;
+        if (count == 0xFFFF || offset == 0xFFFFFFFFL) {
+            throw new Error("暂不支持zip64格式: " + file);
+        }
+
+        Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+        int position = (int) offset;
+        byte[] name = new byte[256];
+        for (int i = 0; i < count; i++) {
+            if (mapped.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new Error("不合法的中央目录: " + file + ", 位置 " + position);
+            }
+            int flags = mapped.getShort(position + 8) & 0xFFFF;
+            int method = mapped.getShort(position + 10) & 0xFFFF;
+            int compressedSize = mapped.getInt(position + 20);
+            int size = mapped.getInt(position + 24);
+            int nameLength = mapped.getShort(position + 28) & 0xFFFF;
+            int extraLength = mapped.getShort(position + 30) & 0xFFFF;
+            int commentLength = mapped.getShort(position + 32) & 0xFFFF;
+            int localHeader = mapped.getInt(position + 42);
+
+            if (name.length < nameLength) {
+                name = new byte[nameLength];
+            }
+            for (int j = 0; j < nameLength; j++) {
+                name[j] = mapped.get(position + CENTRAL_SIZE + j);
+            }
+            // 目录、加密的条目不需要索引
+            if ((flags & 1) == 0 && (nameLength == 0 || name[nameLength - 1] != '/')) {
+                result.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), new Entry(method, compressedSize, size, localHeader));
+            }
+            position += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    /**
+     * 从文件末尾向前查找中央目录结束记录（后面可能跟着最长65535字节的注释）
+     * */
+    private int findEnd() {
+        int limit = Math.max(0, mapped.capacity() - END_SIZE - 0xFFFF);
+        for (int position = mapped.capacity() - END_SIZE; position >= limit; position--) {
+            if (mapped.getInt(position) == END_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new Error("不是jar/zip文件: " + file);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 所有条目的文件名
+     * */
+    public Set<String> names() {
+        return entries.keySet();
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * 读取条目的内容交给reader处理
+     * 内容是映射内存的切片或者线程复用的缓冲区，只在reader执行期间有效，reader不能保存它
+     * @param name 文件名
+     * @param reader 处理内容，buffer的position为0，limit为内容的长度，字节序为大端
+     * @return reader的结果，条目不存在时返回null
+     * */
+    public <T> T read(String name, Function<ByteBuffer, T> reader) {
+        Entry entry = entries.get(name);
+        if (null == entry) {
+            return null;
+        }
+
+        ByteBuffer data = slice(dataOffset(entry), entry.compressedSize);
+        switch (entry.method) {
+            case STORED:
+                return reader.apply(data);
+            case DEFLATED:
+                return inflate(name, entry, data, reader);
+            default:
+                throw new Error("不支持的压缩方法 " + entry.method + ": " + file + "!" + name);
+        }
+    }
+
+    private int dataOffset(Entry entry) {
+        int offset = entry.dataOffset;
+        if (offset < 0) {
+            if (mapped.getInt(entry.localHeader) != LOCAL_SIGNATURE) {
+                throw new Error("不合法的本地文件头: " + file + ", 位置 " + entry.localHeader);
+            }
+            int nameLength = mapped.getShort(entry.localHeader + 26) & 0xFFFF;
+            int extraLength = mapped.getShort(entry.localHeader + 28) & 0xFFFF;
+            offset = entry.localHeader + LOCAL_SIZE + nameLength + extraLength;
+            // 多个线程可能同时计算，结果相同
+            entry.dataOffset = offset;
+        }
+        return offset;
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer duplicate = mapped.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        // 切片的字节序为默认的大端
+        return duplicate.slice();
+    }
+
+    private <T> T inflate(String name, Entry entry, ByteBuffer data, Function<ByteBuffer, T> reader) {
+        Scratch current = scratch.get();
+        boolean nested = current.busy;
+        Scratch s = nested ? new Scratch() : current;
+        s.busy = true;
+        try {
+            if (s.output.length < entry.size) {
+                s.output = new byte[Math.max(entry.size, s.output.length * 2)];
+            }
+            Inflater inflater = s.inflater;
+            inflater.reset();
+            int n = 0;
+            while (n < entry.size) {
+                if (inflater.needsInput()) {
+                    int length = Math.min(s.input.length, data.remaining());
+                    if (0 == length) {
+                        break;
+                    }
+                    data.get(s.input, 0, length);
+                    inflater.setInput(s.input, 0, length);
+                }
+                int inflated = inflater.inflate(s.output, n, entry.size - n);
+                if (0 == inflated && (inflater.finished() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != entry.size) {
+                throw new Error("解压失败: " + file + "!" + name + ", 期望 " + entry.size + " 字节, 实际 " + n + " 字节");
+            }
+            return reader.apply(ByteBuffer.wrap(s.output, 0, n).slice());
+        } catch (DataFormatException e) {
+            throw new Error("解压失败: " + file + "!" + name, e);
+        } finally {
+            if (nested) {
+                s.inflater.end();
+            } else {
+                s.busy = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 进程内所有Isolate共享的类元数据
+ * 解析Class文件得到的InstanceKlass（常量池、方法、字节码、属性）解析之后不再修改，同一个Class文件只需要解析一次，所有Isolate共用
+ * 每个Isolate自己的部分不在InstanceKlass中: 静态变量、初始化状态在Isolate的宿主机类加载器加载的Class中，
+ * 符号引用的解析结果、静态synchronized方法锁住的类对象（宿主机的Class）在ClassLoaderData中
+ *
+ * 按Class文件（绝对路径 + 修改时间 + 大小）共享，文件被修改后重新解析
+ * 引用计数: 每个加载了该类的ClassLoaderData持有一次引用，Isolate销毁时释放，没有引用时从表中移除，元数据随之被回收
+ * */
+@Slf4j
+public class SharedDictionary extends AllStatic {
+    // Class文件 -> 共享的元数据
+    private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // 统计
+    private static final LongAdder acquires = new LongAdder();  // 获取元数据
+    private static final LongAdder parses = new LongAdder();    // 解析Class文件
+
+    /**
+     * 一个Class文件的元数据，第一个获取它的线程负责解析，其他线程等待解析结果
+     * */
+    private static final class Entry {
+        final FutureTask<InstanceKlass> task;
+
+        // 引用计数，为0之后表项作废，不能再获取，由lock保护
+        int refs;
+
+        // 不用synchronized，虚拟线程等锁时不会固定载体线程
+        final ReentrantLock lock = new ReentrantLock();
+
+        Entry(Supplier<InstanceKlass> parser) {
+            this.task = new FutureTask<>(parser::get);
+        }
+    }
+
+    /**
+     * 共享的键
+     * @param classFile Class文件
+     * */
+    public static String keyOf(File classFile) {
+        return classFile.getAbsolutePath() + "#" + classFile.lastModified() + "#" + classFile.length();
+    }
+
+    /**
+     * 获取Class文件的元数据，没有时解析，引用计数加一
+     * @param key 共享的键，见 keyOf
+     * @param parser 读取并解析Class文件
+     * @return 共享的元数据
+     * */
+    public static InstanceKlass acquire(String key, Supplier<InstanceKlass> parser) {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry(parser));
+            entry.lock.lock();
+            try {
+                // 表项刚好被释放，重新创建
+                if (entry.refs < 0) {
+                    continue;
+                }
+                entry.refs++;
+            } finally {
+                entry.lock.unlock();
+            }
+
+            acquires.increment();
+            entry.task.run();
+            try {
+                return get(entry.task);
+            } catch (RuntimeException | Error e) {
+                // 解析失败的表项不保留，下次重新解析
+                release(key, entry);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 引用计数减一，没有引用时移除
+     * @param key 共享的键
+     * */
+    public static void release(String key) {
+        Entry entry = entries.get(key);
+        if (null != entry) {
+            release(key, entry);
+        }
+    }
+
+    private static void release(String key, Entry entry) {
+        entry.lock.lock();
+        try {
+            if (entry.refs <= 0) {
+                return;
+            }
+            if (0 == --entry.refs) {
+                entry.refs = -1;
+                entries.remove(key, entry);
+                log.info("释放共享的类元数据: " + key);
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private static InstanceKlass get(FutureTask<InstanceKlass> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new Error("解析类失败", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 解析Class文件，传给acquire的parser使用，统计解析次数
+     * */
+    static InstanceKlass parse(ByteBuffer content) {
+        parses.increment();
+        return ClassFileParser.parseClassFile(content);
+    }
+
+    public static int size() { return entries.size(); }
+    public static long getParses() { return parses.sum(); }
+    // 直接使用已经解析好的元数据的次数
+    public static long getHits() { return acquires.sum() - parses.sum(); }
+
+    public static String printStatistics() {
+        return "共享类元数据: " + size() + " 个类, 解析 " + getParses() + " 次, 共享 " + getHits() + " 次";
+    }
+}
@@ -0,0 +1,77 @@
+package org.xyz.jvm.hotspot.src.share.vm.classfile;
+
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 符号表（对应HotSpot的SymbolTable）
+ * 常量池中的Utf8（类名、方法名、字段名、描述符）解码后在这里查找唯一的实例，同一个值在整个进程中只有一个String:
+ *  不同的类、不同的Isolate中相同的名字共用一份内存
+ *  符号之间可以直接用 == 比较，查找方法时不需要逐个字符比较
+ *  作为类表、解析缓存的键时，hashCode只计算一次，equals在第一步比较引用时就命中
+ *
+ * 类名有两种形式，Class文件中的内部形式（java/lang/String）和宿主机Class.forName使用的外部形式（java.lang.String），
+ * 两种形式之间的转换结果也缓存在这里，执行指令时不再每次 replace 生成新的字符串
+ *
+ * 符号不会被删除: 符号的数量受加载过的Class文件的大小限制，Isolate销毁之后它们的符号仍然留在表中，下次加载同样的类时直接复用
+ * */
+public class SymbolTable extends AllStatic {
+    // 符号 -> 唯一的实例
+    private static final ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<>(4096);
+
+    // 内部形式的类名 -> 外部形式的类名
+    private static final ConcurrentHashMap<String, String> externalNames = new ConcurrentHashMap<>(1024);
+
+    // 外部形式的类名 -> 内部形式的类名
+    private static final ConcurrentHashMap<String, String> internalNames = new ConcurrentHashMap<>(1024);
+
+    /**
+     * 查找符号的唯一实例，不存在时加入符号表
+     * @param name 名字、描述符
+     * @return 符号表中的实例，和name的值相等
+     * */
+    public static String lookup(String name) {
+        String symbol = symbols.get(name);
+        if (null != symbol) {
+            return symbol;
+        }
+        symbol = symbols.putIfAbsent(name, name);
+        return null == symbol ? name : symbol;
+    }
+
+    /**
+     * 内部形式的类名转换成外部形式
+     * @param internalName 如 java/lang/String、[Ljava/lang/Object;
+     * @return 如 java.lang.String、[Ljava.lang.Object;，是符号表中的实例
+     * */
+    public static String externalName(String internalName) {
+        String name = externalNames.get(internalName);
+        if (null == name) {
+            name = lookup(internalName.replace('/', '.'));
+            externalNames.putIfAbsent(lookup(internalName), name);
+        }
+        return name;
+    }
+
+    /**
+     * 外部形式的类名转换成内部形式
+     * @param externalName 如 java.lang.String、[Ljava.lang.Object;
+     * @return 如 java/lang/String、[Ljava/lang/Object;，是符号表中的实例
+     * */
+    public static String internalName(String externalName) {
+        String name = internalNames.get(externalName);
+        if (null == name) {
+            name = lookup(externalName.replace('.', '/'));
+            internalNames.putIfAbsent(lookup(externalName), name);
+        }
+        return name;
+    }
+
+    /**
+     * @return 符号的个数
+     * */
+    public static int size() {
+        return symbols.size();
+    }
+}
@@ -0,0 +1,443 @@
+package org.xyz.jvm.hotspot.src.share.vm.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.intepreter.ByteCodes;
+import org.xyz.jvm.hotspot.src.share.vm.oops.Attribute;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.CodeAttribute;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.StackMapTableAttribute;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 方法的局部变量活跃分析
+ * 局部变量在某个字节码位置活跃，是指从该位置开始的某条执行路径上，在该变量被重新赋值之前会被读取
+ * 不活跃的局部变量中保存的引用不会再被使用，垃圾回收时可以忽略，也可以在安全点直接清除
+ *
+ * 分析过程:
+ *  1.解码所有指令，得到每条指令读取(use)、写入(def)的局部变量以及后继指令
+ *  2.划分基本块: 方法开头、跳转目标、异常处理器起点、跳转/返回指令之后的指令，以及StackMapTable中每个栈映射帧的位置
+ *  3.以基本块为单位做逆向数据流迭代: live_out(B) = ∪ live_in(后继)，live_in(B) = use(B) ∪ (live_out(B) - def(B))，直到不再变化
+ *  4.在每个基本块内逆向计算出每条指令开始处的活跃变量集合
+ * 遇到jsr/ret（老版本编译器生成的子程序）时放弃分析，认为所有局部变量在所有位置都活跃
+ * */
+@Slf4j
+public class MethodLiveness {
+    // 字节码长度
+    private final int codeLength;
+
+    // 局部变量表大小
+    private final int maxLocals;
+
+    // 每条指令开始处活跃的局部变量，下标是字节码位置，不是指令开头的位置为null
+    private final BitSet[] liveAt;
+
+    // 无法分析时为true，所有局部变量都视为活跃
+    private final boolean conservative;
+
+    private MethodLiveness(int codeLength, int maxLocals, BitSet[] liveAt, boolean conservative) {
+        this.codeLength = codeLength;
+        this.maxLocals = maxLocals;
+        this.liveAt = liveAt;
+        this.conservative = conservative;
+    }
+
+    /**
+     * 获取方法的活跃分析结果，第一次获取时计算并缓存在方法上
+     * @param method 方法
+     * @return 活跃分析结果，本地方法、抽象方法返回null
+     * */
+    public static MethodLiveness of(MethodInfo method) {
+        MethodLiveness liveness = method.getLiveness();
+        if (null != liveness) {
+            return liveness;
+        }
+
+        CodeAttribute codeAttribute = method.getCodeAttribute();
+        if (null == codeAttribute) {
+            return null;
+        }
+
+        method.getLock().lock();
+        try {
+            if (null == method.getLiveness()) {
+                method.setLiveness(compute(codeAttribute));
+            }
+            return method.getLiveness();
+        } finally {
+            method.getLock().unlock();
+        }
+    }
+
+    /**
+     * 在某个字节码位置，局部变量是否活跃
+     * @param bci 字节码位置，即下一条要执行的指令的位置
+     * @param slot 局部变量槽位
+     * */
+    public boolean isLive(int bci, int slot) {
+        BitSet live = getLiveLocals(bci);
+        return null == live || live.get(slot);
+    }
+
+    /**
+     * @param bci 字节码位置
+     * @return 该位置活跃的局部变量，无法确定时（不是指令开头、放弃了分析）返回null，表示全部视为活跃
+     * */
+    public BitSet getLiveLocals(int bci) {
+        if (conservative || bci < 0 || bci >= codeLength) {
+            return null;
+        }
+        return liveAt[bci];
+    }
+
+    public boolean isConservative() {
+        return conservative;
+    }
+
+    /*************************************************************************
+     * 分析
+     * */
+    private static MethodLiveness compute(CodeAttribute codeAttribute) {
+        byte[] code = codeAttribute.getCode().getCodes();
+        int codeLength = codeAttribute.getCodeLength();
+        int maxLocals = codeAttribute.getMaxLocals();
+
+        // 1.解码指令
+        List<Instruction> instructions = new ArrayList<>();
+        Instruction[] byBci = new Instruction[codeLength];
+        for (int bci = 0; bci < codeLength; ) {
+            Instruction instruction = decode(code, bci);
+            if (null == instruction) {
+                log.info("方法中包含jsr/ret指令，放弃活跃分析");
+                return new MethodLiveness(codeLength, maxLocals, new BitSet[codeLength], true);
+            }
+            instructions.add(instruction);
+            byBci[bci] = instruction;
+            bci += instruction.length;
+        }
+
+        // 2.划分基本块
+        TreeSet<Integer> leaders = new TreeSet<>();
+        leaders.add(0);
+        for (Instruction instruction : instructions) {
+            for (int target : instruction.targets) {
+                leaders.add(target);
+            }
+            if (instruction.endsBlock() && instruction.bci + instruction.length < codeLength) {
+                leaders.add(instruction.bci + instruction.length);
+            }
+        }
+        List<CodeAttribute.ExceptionHandler> handlers = codeAttribute.getExceptionTables();
+        if (null != handlers) {
+            for (CodeAttribute.ExceptionHandler handler : handlers) {
+                leaders.add(handler.getHandlerPc());
+                leaders.add(handler.getStartPc());
+                if (handler.getEndPc() < codeLength) {
+                    leaders.add(handler.getEndPc());
+                }
+            }
+        }
+        if (null != codeAttribute.getAttributes()) {
+            StackMapTableAttribute stackMapTable = (StackMapTableAttribute) codeAttribute.getAttributes().get(Attribute.JVM_ATTRIBUTE_StackMapTable);
+            if (null != stackMapTable) {
+                leaders.addAll(stackMapTable.getFrameBcis());
+            }
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        Block[] blockAt = new Block[codeLength];
+        Block current = null;
+        for (Instruction instruction : instructions) {
+            if (null == current || leaders.contains(instruction.bci)) {
+                current = new Block();
+                blocks.add(current);
+                blockAt[instruction.bci] = current;
+            }
+            current.instructions.add(instruction);
+        }
+
+        // 基本块的后继: 最后一条指令的跳转目标、顺序执行的下一个块、块内指令可能抛出异常时的异常处理器
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            Instruction last = block.last();
+            for (int target : last.targets) {
+                block.successors.add(blockAt[target]);
+            }
+            if (last.fallsThrough() && i + 1 < blocks.size()) {
+                block.successors.add(blocks.get(i + 1));
+            }
+            if (null != handlers) {
+                for (CodeAttribute.ExceptionHandler handler : handlers) {
+                    if (block.first().bci < handler.getEndPc() && last.bci >= handler.getStartPc()) {
+                        block.successors.add(blockAt[handler.getHandlerPc()]);
+                    }
+                }
+            }
+
+            // 块的use、def
+            for (int j = block.instructions.size() - 1; j >= 0; j--) {
+                Instruction instruction = block.instructions.get(j);
+                block.use.andNot(instruction.def);
+                block.use.or(instruction.use);
+                block.def.or(instruction.def);
+            }
+        }
+
+        // 3.逆向数据流迭代
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                Block block = blocks.get(i);
+
+                BitSet out = new BitSet(maxLocals);
+                for (Block successor : block.successors) {
+                    out.or(successor.liveIn);
+                }
+
+                // 异常处理器可能在块中间的任意一条指令处跳入，块内被写入的变量在写入之前的值也可能被处理器读取，所以处理器入口活跃的变量在整个块都活跃
+                BitSet in = (BitSet) out.clone();
+                in.andNot(block.def);
+                in.or(block.use);
+                in.or(handlerLiveIn(block, blockAt, handlers));
+
+                if (!in.equals(block.liveIn)) {
+                    block.liveIn = in;
+                    changed = true;
+                }
+                block.liveOut = out;
+            }
+        }
+
+        // 4.块内逐条指令计算
+        BitSet[] liveAt = new BitSet[codeLength];
+        for (Block block : blocks) {
+            BitSet live = (BitSet) block.liveOut.clone();
+            BitSet handlerLive = handlerLiveIn(block, blockAt, handlers);
+            for (int j = block.instructions.size() - 1; j >= 0; j--) {
+                Instruction instruction = block.instructions.get(j);
+                live.andNot(instruction.def);
+                live.or(instruction.use);
+                live.or(handlerLive);
+                liveAt[instruction.bci] = (BitSet) live.clone();
+            }
+        }
+
+        return new MethodLiveness(codeLength, maxLocals, liveAt, false);
+    }
+
+    /**
+     * 覆盖该块的所有异常处理器入口处活跃的变量
+     * */
+    private static BitSet handlerLiveIn(Block block, Block[] blockAt, List<CodeAttribute.ExceptionHandler> handlers) {
+        BitSet live = new BitSet();
+        if (null == handlers) {
+            return live;
+        }
+        for (CodeAttribute.ExceptionHandler handler : handlers) {
+            if (block.first().bci < handler.getEndPc() && block.last().bci >= handler.getStartPc()) {
+                live.or(blockAt[handler.getHandlerPc()].liveIn);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 解码一条指令
+     * @return 指令信息，遇到jsr/ret返回null
+     * */
+    private static Instruction decode(byte[] code, int bci) {
+        int opcode = Byte.toUnsignedInt(code[bci]);
+        Instruction instruction = new Instruction(bci, opcode);
+
+        if (opcode >= ByteCodes.ILOAD && opcode <= ByteCodes.ALOAD) {
+            // xload index
+            instruction.length = 2;
+            instruction.use(Byte.toUnsignedInt(code[bci + 1]), isWide(opcode - ByteCodes.ILOAD));
+        } else if (opcode >= ByteCodes.ILOAD_0 && opcode <= ByteCodes.ALOAD_3) {
+            // xload_n
+            int n = opcode - ByteCodes.ILOAD_0;
+            instruction.use(n % 4, isWide(n / 4));
+        } else if (opcode >= ByteCodes.ISTORE && opcode <= ByteCodes.ISTORE + 4) {
+            // xstore index
+            instruction.length = 2;
+            instruction.def(Byte.toUnsignedInt(code[bci + 1]), isWide(opcode - ByteCodes.ISTORE));
+        } else if (opcode >= ByteCodes.ISTORE + 5 && opcode <= ByteCodes.ASTORE_3) {
+            // xstore_n
+            int n = opcode - ByteCodes.ISTORE - 5;
+            instruction.def(n % 4, isWide(n / 4));
+        } else if (opcode == ByteCodes.IINC) {
+            instruction.length = 3;
+            instruction.use(Byte.toUnsignedInt(code[bci + 1]), false);
+        } else if (opcode == ByteCodes.WIDE) {
+            int modified = Byte.toUnsignedInt(code[bci + 1]);
+            int index = u2(code, bci + 2);
+            if (modified == ByteCodes.IINC) {
+                instruction.length = 6;
+                instruction.use(index, false);
+            } else if (modified >= ByteCodes.ILOAD && modified <= ByteCodes.ALOAD) {
+                instruction.length = 4;
+                instruction.use(index, isWide(modified - ByteCodes.ILOAD));
+            } else if (modified >= ByteCodes.ISTORE && modified <= ByteCodes.ISTORE + 4) {
+                instruction.length = 4;
+                instruction.def(index, isWide(modified - ByteCodes.ISTORE));
+            } else {
+                return null;
+            }
+        } else if ((opcode >= ByteCodes.IFEQ && opcode <= ByteCodes.IF_ACMPNE) || opcode == ByteCodes.IFNULL || opcode == ByteCodes.IFNONNULL) {
+            instruction.length = 3;
+            instruction.targets.add(bci + (short) u2(code, bci + 1));
+            instruction.conditional = true;
+        } else if (opcode == ByteCodes.GOTO) {
+            instruction.length = 3;
+            instruction.targets.add(bci + (short) u2(code, bci + 1));
+        } else if (opcode == ByteCodes.GOTO_W) {
+            instruction.length = 5;
+            instruction.targets.add(bci + s4(code, bci + 1));
+        } else if (opcode == ByteCodes.TABLESWITCH) {
+            int pos = align4(bci + 1);
+            instruction.targets.add(bci + s4(code, pos));
+            int low = s4(code, pos + 4);
+            int high = s4(code, pos + 8);
+            pos += 12;
+            for (int i = 0; i <= high - low; i++, pos += 4) {
+                instruction.targets.add(bci + s4(code, pos));
+            }
+            instruction.length = pos - bci;
+        } else if (opcode == ByteCodes.LOOKUPSWITCH) {
+            int pos = align4(bci + 1);
+            instruction.targets.add(bci + s4(code, pos));
+            int npairs = s4(code, pos + 4);
+            pos += 8;
+            for (int i = 0; i < npairs; i++, pos += 8) {
+                instruction.targets.add(bci + s4(code, pos + 4));
+            }
+            instruction.length = pos - bci;
+        } else if (opcode == ByteCodes.JSR || opcode == ByteCodes.JSR_W || opcode == ByteCodes.RET) {
+            return null;
+        } else {
+            instruction.length = LENGTHS[opcode];
+            if (0 == instruction.length) {
+                throw new Error("无法识别的指令: " + opcode + ", bci: " + bci);
+            }
+            instruction.terminal = (opcode >= ByteCodes.IRETURN && opcode <= ByteCodes.RETURN) || opcode == ByteCodes.ATHROW;
+        }
+        return instruction;
+    }
+
+    // 局部变量类型 i l f d a 中的 l d 占两个槽位
+    private static boolean isWide(int typeIndex) {
+        return typeIndex == 1 || typeIndex == 3;
+    }
+
+    private static int u2(byte[] code, int pos) {
+        return (Byte.toUnsignedInt(code[pos]) << 8) | Byte.toUnsignedInt(code[pos + 1]);
+    }
+
+    private static int s4(byte[] code, int pos) {
+        return (code[pos] << 24) | (Byte.toUnsignedInt(code[pos + 1]) << 16) | (Byte.toUnsignedInt(code[pos + 2]) << 8) | Byte.toUnsignedInt(code[pos + 3]);
+    }
+
+    // tableswitch、lookupswitch的操作数从4字节对齐的位置开始
+    private static int align4(int pos) {
+        return (pos + 3) & ~3;
+    }
+
+    // 定长指令的长度，0表示变长或者不支持
+    private static final int[] LENGTHS = new int[256];
+
+    static {
+        for (int op = ByteCodes.NOP; op <= ByteCodes.DCONST_1; op++) LENGTHS[op] = 1;
+        LENGTHS[ByteCodes.BIPUSH] = 2;
+        LENGTHS[ByteCodes.SIPUSH] = 3;
+        LENGTHS[ByteCodes.LDC] = 2;
+        LENGTHS[ByteCodes.LDC_W] = 3;
+        LENGTHS[ByteCodes.LDC2_W] = 3;
+        // xaload、xastore、栈操作、运算、类型转换、比较
+        for (int op = ByteCodes.ALOAD_3 + 1; op < ByteCodes.ISTORE; op++) LENGTHS[op] = 1;
+        for (int op = ByteCodes.ASTORE_3 + 1; op < ByteCodes.IINC; op++) LENGTHS[op] = 1;
+        for (int op = ByteCodes.IINC + 1; op < ByteCodes.IFEQ; op++) LENGTHS[op] = 1;
+        for (int op = ByteCodes.IRETURN; op <= ByteCodes.RETURN; op++) LENGTHS[op] = 1;
+        for (int op = ByteCodes.GETSTATIC; op <= ByteCodes.INVOKESTATIC; op++) LENGTHS[op] = 3;
+        LENGTHS[ByteCodes.INVOKEINTERFACE] = 5;
+        LENGTHS[ByteCodes.INVOKEDYNAMIC] = 5;
+        LENGTHS[ByteCodes.NEW] = 3;
+        LENGTHS[ByteCodes.NEWARRAY] = 2;
+        LENGTHS[ByteCodes.ANEWARRAY] = 3;
+        LENGTHS[ByteCodes.ARRAYLENGTH] = 1;
+        LENGTHS[ByteCodes.ATHROW] = 1;
+        LENGTHS[ByteCodes.CHECKCAST] = 3;
+        LENGTHS[ByteCodes.INSTANCEOF] = 3;
+        LENGTHS[ByteCodes.MONITORENTER] = 1;
+        LENGTHS[ByteCodes.MONITOREXIT] = 1;
+        LENGTHS[ByteCodes.MULTIANEWARRAY] = 4;
+    }
+
+    /**
+     * 一条指令
+     * */
+    private static class Instruction {
+        final int bci;
+        final int opcode;
+        int length = 1;
+        // 读取、写入的局部变量
+        final BitSet use = new BitSet();
+        final BitSet def = new BitSet();
+        // 跳转目标
+        final List<Integer> targets = new ArrayList<>();
+        // 条件跳转，不满足条件时顺序执行
+        boolean conditional;
+        // 返回、抛出异常
+        boolean terminal;
+
+        Instruction(int bci, int opcode) {
+            this.bci = bci;
+            this.opcode = opcode;
+        }
+
+        void use(int slot, boolean wide) {
+            use.set(slot);
+            if (wide) {
+                use.set(slot + 1);
+            }
+        }
+
+        void def(int slot, boolean wide) {
+            def.set(slot);
+            if (wide) {
+                def.set(slot + 1);
+            }
+        }
+
+        boolean endsBlock() {
+            return terminal || !targets.isEmpty();
+        }
+
+        boolean fallsThrough() {
+            return !terminal && (targets.isEmpty() || conditional);
+        }
+    }
+
+    /**
+     * 基本块
+     * */
+    private static class Block {
+        final List<Instruction> instructions = new ArrayList<>();
+        final List<Block> successors = new ArrayList<>();
+        final BitSet use = new BitSet();
+        final BitSet def = new BitSet();
+        BitSet liveIn = new BitSet();
+        BitSet liveOut = new BitSet();
+
+        Instruction first() {
+            return instructions.get(0);
+        }
+
+        Instruction last() {
+            return instructions.get(instructions.size() - 1);
+        }
+    }
+}
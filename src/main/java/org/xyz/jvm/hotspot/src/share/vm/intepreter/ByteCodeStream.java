@@ -11,4 +11,21 @@ public class ByteCodeStream extends BaseBytecodeStream {
         this.index = 0;
         this.codes = new byte[length];
     }
+
+    private ByteCodeStream(MethodInfo belongMethod, CodeAttribute belongCode, byte[] codes) {
+        this.belongMethod = belongMethod;
+        this.belongCode = belongCode;
+        this.length = codes.length;
+        this.index = 0;
+        this.codes = codes;
+    }
+
+    /**
+     * 创建一个新的读取游标，和当前字节码流共享存储字节码的字节数组，读取索引从0开始
+     * 每个栈帧持有自己的游标（程序计数器），递归调用、多个线程同时执行同一个方法时互不影响
+     * @return 新的字节码流
+     * */
+    public ByteCodeStream cursor() {
+        return new ByteCodeStream(belongMethod, belongCode, codes);
+    }
 }
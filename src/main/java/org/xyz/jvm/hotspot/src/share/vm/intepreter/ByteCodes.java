@@ -216,6 +216,11 @@ public class ByteCodes {
     public static final int IF_ACMPNE = 166;    // 0xa6
 
     public static final int GOTO = 167;    // 0xa7
+    public static final int JSR = 168;     // 0xa8
+    public static final int RET = 169;     // 0xa9
+
+    public static final int TABLESWITCH = 170;     // 0xaa
+    public static final int LOOKUPSWITCH = 171;    // 0xab
 
     public static final int IRETURN = 172;      // 0xac
     public static final int LRETURN = 173;      // 0xad
@@ -242,7 +247,17 @@ public class ByteCodes {
 
     public static final int ATHROW = 191;       // 0xbf
     public static final int CHECKCAST = 192;    // 0xc0
+    public static final int INSTANCEOF = 193;   // 0xc1
+
+    public static final int MONITORENTER = 194; // 0xc2
+    public static final int MONITOREXIT = 195;  // 0xc3
+
+    public static final int WIDE = 196;             // 0xc4
+    public static final int MULTIANEWARRAY = 197;   // 0xc5
 
     public static final int IFNULL = 198;    // 0xc6
     public static final int IFNONNULL = 199;    // 0xc7
+
+    public static final int GOTO_W = 200;    // 0xc8
+    public static final int JSR_W = 201;     // 0xc9
 }
@@ -3,13 +3,21 @@ package org.xyz.jvm.hotspot.src.share.vm.intepreter;
 import lombok.extern.slf4j.Slf4j;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.DescriptorStream;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
+import org.xyz.jvm.hotspot.src.share.vm.memory.GuestHeap;
 import org.xyz.jvm.hotspot.src.share.vm.oops.*;
 import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.CodeAttribute;
 import org.xyz.jvm.hotspot.src.share.vm.prims.JavaNativeInterface;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ObjectSynchronizer;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ResourceQuota;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValue;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValueCollection;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.VirtualThreads;
 import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
 
 import java.lang.reflect.Constructor;
@@ -30,13 +38,19 @@ public class BytecodeInterpreter {
      * @param method 方法信息
      * */
     public static void run(JavaThread currentThread, MethodInfo method) {
-        // 获取字节码指令
-        CodeAttribute codeAttribute = (CodeAttribute) method.getAttributes().get(Attribute.JVM_ATTRIBUTE_Code);
-        ByteCodeStream code = codeAttribute.getCode();
+        // 获取字节码指令，每个栈帧有自己的程序计数器
+        ByteCodeStream code = ((JavaVFrame) currentThread.getStack().peek()).getCode();
+
+        // 方法入口轮询安全点、虚拟线程的时间片，检查资源配额
+        SafepointSynchronize.poll(currentThread);
+        VirtualThreads.poll(currentThread);
+        ResourceQuota.methodEntry(currentThread);
 
         while (!code.end()) {
+            int bci = code.current();
             // 获取操作码，操作码都是一个字节
             int opcode = code.getU1Code();
+            currentThread.countInstruction();
 
             switch (opcode) {
                 case ByteCodes.NOP: {
@@ -61,32 +75,33 @@ public class BytecodeInterpreter {
                 case ByteCodes.RETURN:  {
                     log.info("执行指令: return，该指令功能为: 从方法中返回void，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     jReturn(currentThread);
-                    break;
+                    // 返回指令执行完，当前方法结束，回到调用者继续执行（不能继续执行return之后的指令）
+                    return;
                 }
                 case ByteCodes.IRETURN:  {
                     log.info("执行指令: ireturn，该指令功能为: 从方法中返回int类型数据，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     iReturn(currentThread);
-                    break;
+                    return;
                 }
                 case ByteCodes.LRETURN:  {
                     log.info("执行指令: lreturn，该指令功能为: 从方法中返回long类型数据，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     lReturn(currentThread);
-                    break;
+                    return;
                 }
                 case ByteCodes.FRETURN:  {
                     log.info("执行指令: freturn，该指令功能为: 从方法中返回float类型数据，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     fReturn(currentThread);
-                    break;
+                    return;
                 }
                 case ByteCodes.DRETURN:  {
                     log.info("执行指令: dreturn，该指令功能为: 从方法中返回double类型数据，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     dReturn(currentThread);
-                    break;
+                    return;
                 }
                 case ByteCodes.ARETURN:  {
                     log.info("执行指令: areturn，该指令功能为: 从方法中返回引用类型数据，恢复调用者的栈帧，并且把程序的控制权交回调用者");
                     aReturn(currentThread);
-                    break;
+                    return;
                 }
                 case ByteCodes.GETSTATIC: {
                     log.info("执行指令: getstatic，该指令功能为: 获取类的静态字段值并压入操作数栈");
@@ -988,15 +1003,127 @@ public class BytecodeInterpreter {
                     aThrow(currentThread, code);
                     break;
                 }
+                case ByteCodes.MONITORENTER: {
+                    log.info("执行指令: monitorenter，该指令功能为: 获取对象锁");
+                    monitorEnter(currentThread, code);
+                    break;
+                }
+                case ByteCodes.MONITOREXIT: {
+                    log.info("执行指令: monitorexit，该指令功能为: 释放对象锁");
+                    monitorExit(currentThread, code);
+                    break;
+                }
+                case ByteCodes.CHECKCAST: {
+                    log.info("执行指令: checkcast，该指令功能为: 检查栈顶的引用能否转换成指定的类型，不能转换时抛出ClassCastException（不弹出栈顶的值）");
+                    checkCast(currentThread, code);
+                    break;
+                }
+                case ByteCodes.INSTANCEOF: {
+                    log.info("执行指令: instanceof，该指令功能为: 判断栈顶的引用是否是指定类型的实例，是则将1压入栈顶，否则将0压入栈顶（需要将引用先从栈中弹出）");
+                    instanceOf(currentThread, code);
+                    break;
+                }
                 default:
                     throw new Error("暂不支持该指令: " + opcode);
             }
+
+            // 向后跳转（循环回边）之后轮询安全点、虚拟线程的时间片、资源配额，保证长时间运行的循环也能及时停下来、让出载体线程
+            if (code.current() < bci) {
+                SafepointSynchronize.poll(currentThread);
+                VirtualThreads.poll(currentThread);
+                ResourceQuota.poll(currentThread);
+            }
         }
     }
 
+    /**
+     * 执行checkcast字节码指令
+     * 该指令功能为: 检查栈顶的引用能否转换成指定的类型，null可以转换成任何类型
+     * @param currentThread 当前线程
+     * @param code 当前方法的指令段
+     * */
+    private static void checkCast(JavaThread currentThread, ByteCodeStream code) {
+        JavaVFrame frame = (JavaVFrame) currentThread.getStack().peek();
+        ConstantPool constantPool = code.getBelongMethod().getBelongKlass().getConstantPool();
+        // 操作数是常量池的索引（Class），占两个字节
+        int operand = code.getUnsignedShort();
+
+        Object obj = DescriptorStream.toHostValue(frame.getOperandStack().peek().getData());
+        if (null == obj) {
+            return;
+        }
+
+        Class<?> clazz = LinkResolver.resolveClass(constantPool.getClassName(operand));
+        if (!clazz.isInstance(obj)) {
+            throw new ClassCastException(obj.getClass().getName() + " 不能转换成 " + clazz.getName());
+        }
+    }
+
+    /**
+     * 执行instanceof字节码指令
+     * 该指令功能为: 判断栈顶的引用是否是指定类型的实例，null不是任何类型的实例
+     * @param currentThread 当前线程
+     * @param code 当前方法的指令段
+     * */
+    private static void instanceOf(JavaThread currentThread, ByteCodeStream code) {
+        JavaVFrame frame = (JavaVFrame) currentThread.getStack().peek();
+        ConstantPool constantPool = code.getBelongMethod().getBelongKlass().getConstantPool();
+        // 操作数是常量池的索引（Class），占两个字节
+        int operand = code.getUnsignedShort();
+
+        Object obj = DescriptorStream.toHostValue(frame.getOperandStack().pop().getData());
+        Class<?> clazz = LinkResolver.resolveClass(constantPool.getClassName(operand));
+
+        frame.getOperandStack().pushInt(null != obj && clazz.isInstance(obj) ? 1 : 0, frame);
+    }
+
+    /**
+     * 执行monitorenter字节码指令
+     * 该指令功能为: 获取对象锁，synchronized代码块的开始
+     * @param currentThread 当前线程
+     * @param code 当前方法的指令段
+     * */
+    private static void monitorEnter(JavaThread currentThread, ByteCodeStream code) {
+        // 获取栈帧
+        JavaVFrame frame = (JavaVFrame) currentThread.getStack().peek();
+        // 操作数栈
+        StackValueCollection stack = frame.getOperandStack();
+
+        // 从操作数栈中弹出加锁的对象
+        StackValue value = stack.pop();
+        if (value.getType() != BasicType.T_OBJECT && value.getType() != BasicType.T_ARRAY) {
+            log.error("monitorenter字节码指令: 不匹配的数据类型: " + value.getType());
+            throw new Error("monitorenter字节码指令: 不匹配的数据类型" + value.getType());
+        }
+
+        ObjectSynchronizer.enter(value.getObject(), currentThread);
+    }
+
+    /**
+     * 执行monitorexit字节码指令
+     * 该指令功能为: 释放对象锁，synchronized代码块的结束
+     * @param currentThread 当前线程
+     * @param code 当前方法的指令段
+     * */
+    private static void monitorExit(JavaThread currentThread, ByteCodeStream code) {
+        // 获取栈帧
+        JavaVFrame frame = (JavaVFrame) currentThread.getStack().peek();
+        // 操作数栈
+        StackValueCollection stack = frame.getOperandStack();
+
+        // 从操作数栈中弹出加锁的对象
+        StackValue value = stack.pop();
+        if (value.getType() != BasicType.T_OBJECT && value.getType() != BasicType.T_ARRAY) {
+            log.error("monitorexit字节码指令: 不匹配的数据类型: " + value.getType());
+            throw new Error("monitorexit字节码指令: 不匹配的数据类型" + value.getType());
+        }
+
+        ObjectSynchronizer.exit(value.getObject(), currentThread);
+    }
+
     /**
      * 执行athrow字节码指令
-     * 该指令功能为: 调用动态方法
+     * 该指令功能为: 抛出栈顶的异常对象，在当前方法的异常表中查找处理器（见 throwException）
      * @param currentThread 当前线程
      * @param code 当前方法的指令段
      * */
@@ -1005,8 +1132,6 @@ public class BytecodeInterpreter {
         JavaVFrame frame = (JavaVFrame) currentThread.getStack().peek();
         // 操作数栈
         StackValueCollection stack = frame.getOperandStack();
-        // 方法信息
-        MethodInfo method = code.getBelongMethod();
 
         // 从操作数栈中弹出栈顶元素（value）
         StackValue value = stack.peek();
@@ -1016,14 +1141,56 @@ public class BytecodeInterpreter {
             throw new Error("athrow字节码指令: value 不匹配的数据类型" + value.getType());
         }
         Throwable throwable = (Throwable) stack.pop().getData();
+        // 抛出null时抛出的是NullPointerException
+        if (null == throwable) {
+            throwable = new NullPointerException();
+        }
 
-        try {
-            throw throwable;
-        } catch (Throwable e) {
-            e.printStackTrace();
+        // athrow指令只占一个字节，指令位置是操作码的位置
+        throwException(code, code.current() - 1, throwable);
+    }
+
+    /**
+     * 把athrow指令抛出的异常、固有方法产生的异常（如sleep、wait被中断，重复启动线程）抛给Java代码
+     * 在当前方法的异常表中按顺序查找覆盖指令位置、捕获类型匹配的异常处理器，找到时清空操作数栈，压入异常，跳转到处理器
+     * 异常表只在当前方法中查找，不沿调用栈向上展开；找不到时结束当前线程（不退出宿主机进程，同一进程中的其他Isolate不受影响）
+     * @param code 当前方法的指令段
+     * @param bci 抛出异常的指令的位置
+     * @param throwable 异常
+     * */
+    private static void throwException(ByteCodeStream code, int bci, Throwable throwable) {
+        CodeAttribute codeAttribute = code.getBelongCode();
+        ConstantPool constantPool = code.getBelongMethod().getBelongKlass().getConstantPool();
+
+        if (0 != codeAttribute.getExceptionTableLength()) {
+            for (CodeAttribute.ExceptionHandler e : codeAttribute.getExceptionTables()) {
+                // 有效范围不包括endPc
+                if (bci < e.getStartPc() || bci >= e.getEndPc()) {
+                    continue;
+                }
+                // catchType为0表示捕获所有异常（finally）
+                if (0 != e.getCatchType() && !isInstance(constantPool.getClassName(e.getCatchType()), throwable)) {
+                    continue;
+                }
+
+                StackValueCollection stack = ((JavaVFrame) Threads.currentThread().getStack().peek()).getOperandStack();
+                stack.getOperandStack().clear();
+                stack.push(new StackValue(BasicType.T_OBJECT, throwable));
+                code.setIndex(e.getHandlerPc());
+                return;
+            }
         }
 
-        System.exit(-1);
+        throw new Error("未捕获的异常: " + throwable, throwable);
+    }
+
+    // 异常是否是异常处理器捕获的类型，加载不到捕获的类型时不匹配
+    private static boolean isInstance(String className, Throwable throwable) {
+        try {
+            return BootClassLoader.loadHostClass(SymbolTable.externalName(className)).isInstance(throwable);
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
     }
 
     /**
@@ -1556,6 +1723,13 @@ public class BytecodeInterpreter {
         // 取出数组对应索引的元素
         Object value = (Object) arrayRef.get(_index);
 
+        // 元素是数组时按数组压入栈中，之后可以直接用数组指令访问
+        // 虚拟机创建的数组（anewarray）中保存的是数组对象；宿主机创建的多维数组（fromHostArray接管的int[][]等）中保存的是宿主数组，在这里接管为数组对象，不做拷贝
+        if (value instanceof ArrayOop || (null != value && value.getClass().isArray())) {
+            stack.pushArray(DescriptorStream.toArrayOop(value), frame);
+            return;
+        }
+
         // 将数组元素压入栈中
         stack.push(new StackValue(BasicType.T_OBJECT, value));
     }
@@ -1890,6 +2064,11 @@ public class BytecodeInterpreter {
         // 比较并跳转指令的操作数是跳转后的位置相对于当前指令开头的偏移量
         // 而当读取完当前指令的操作数之后，程序计数器已经在下一条指令的开头，所以需要将偏移量减去当前指令的长度（操作码长度1byte+操作数长度2byte）
         code.inc(operand - 1 - 2);
+
+        // 向后跳转是循环回边，在这里清除不再活跃的引用，避免长时间运行的循环让它们一直存活
+        if (operand < 0 && Globals.ClearDeadLocals) {
+            frame.clearDeadLocals(code.current());
+        }
     }
 
         /**
@@ -3776,7 +3955,7 @@ public class BytecodeInterpreter {
                 String className = constantPool.getClassName(e.getCatchType());
 
                 try {
-                    Class<?> clazz = Class.forName(className.replace("/", "."));
+                    Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
                     Constructor constructor = clazz.getConstructor(String.class);
 
                     Object o = constructor.newInstance("/ by zero");
@@ -5192,7 +5371,7 @@ public class BytecodeInterpreter {
                 // JVM加载器加载的类（java开头），通过反射
                 if (className.startsWith("java")) {
                     try {
-                        Class<?> clazz = Class.forName(className.replace('/', '.'));
+                        Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
                         // TODO: 如何找到一个对象
                     } catch (ClassNotFoundException e) {
                         e.printStackTrace();
@@ -6239,12 +6418,14 @@ public class BytecodeInterpreter {
         // 取出操作数，new指令的操作数是常量池的索引（Class），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassName(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassName(operand));
 
         try {
-            Class<?> clazz = Class.forName(className);
+            Class<?> clazz = BootClassLoader.loadHostClass(className);
             Constructor<?> constructor = clazz.getConstructor();
-            Object object = constructor.newInstance();
+            Object object = newHostInstance(constructor);
+            // 对象是宿主机的对象，大小未知，按对象头计入分配的字节数
+            ResourceQuota.allocate(GuestHeap.HeaderSize);
 
             frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, object));
         } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
@@ -6281,7 +6462,7 @@ public class BytecodeInterpreter {
         code.getU1Code();
         code.getU1Code();
 
-        String className = constantPool.getClassNameByMethodInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByMethodInfo(operand));
         String methodName = constantPool.getMethodName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6306,7 +6487,7 @@ public class BytecodeInterpreter {
             //      所以要从指令操作数对应的原始对象中获取相应的method(org/xyz/jvm/example/lambda/CustomLambda.run)，因为invokeinterface调用的就是原始对象(接口类型)中的方法(通过在指令操作数中指定)
             //      然后使用代理对象去调用
             // 指令操作数指定的接口方法的信息: <org/xyz/jvm/example/lambda/CustomLambda.run : (II)V>
-            Class<?> clazz = Class.forName(className.replace("/", "."));
+            Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
             Method fun = clazz.getMethod(methodName, paramsClass);
 
             /**
@@ -6314,11 +6495,12 @@ public class BytecodeInterpreter {
              *  1.无返回值
              *  2.有返回值，需要将返回值压入操作数中（return字节码指令在从被调用方的操作数栈中取出返回值，压入调用方的操作数栈中）
              */
-            if (BasicType.T_VOID == descriptorStream.getReturnElement().getType()) {
-                fun.invoke(obj, params);
-            } else {
-                descriptorStream.pushReturnElement(fun.invoke(obj, params), frame);
+            Object ret = invokeHost(fun, obj, params);
+            if (BasicType.T_VOID != descriptorStream.getReturnElement().getType()) {
+                descriptorStream.pushReturnElement(ret, frame);
             }
+            // 元素存储在虚拟机堆中的数组实参，将被调用方法的修改写回
+            descriptorStream.syncParams(params);
         } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | ClassNotFoundException e) {
             e.printStackTrace();
         }
@@ -6350,43 +6532,33 @@ public class BytecodeInterpreter {
         // 取出操作数，invokevirtual指令的操作数是常量池的索引（Methodref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String methodName = constantPool.getMethodName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
         log.info("执行方法: " + className + ":" + methodName + "#" + descriptorName);
 
+        // 线程、对象锁、Unsafe相关的方法由虚拟机直接执行，不走反射
+        try {
+            if (Intrinsics.invokeVirtual(className, methodName, descriptorName, frame)) {
+                return;
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            // invokevirtual指令占3个字节
+            throwException(code, code.current() - 3, e);
+            return;
+        }
+
         // 系统加载的类走反射
         if (className.startsWith("java")) {
-            // 解析方法描述符
-            DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
-            descriptorStream.parseMethod();
-            // 获取方法所有形参类型的Class对象按照形参顺序组成的数组
-            Class<?>[] paramsClass = descriptorStream.getParamsType();
-
-            // 从操作数栈中根据形类型 顺序 获取实参，即从操作数栈中弹出实参
-            Object[] params = descriptorStream.getParamsVal(frame);
-
-            // 从操作数栈中弹出 被调方法所属类的对象，即this指针
-            Object obj = frame.getOperandStack().pop().getData();
-
-            try {
-                Method fun = obj.getClass().getMethod(methodName, paramsClass);
-
-                /**
-                 * 处理：
-                 *  1.无返回值
-                 *  2.有返回值，需要将返回值压入操作数中（return字节码指令在从被调用方的操作数栈中取出返回值，压入调用方的操作数栈中）
-                 */
-                if (BasicType.T_VOID == descriptorStream.getReturnElement().getType()) {
-                    fun.invoke(obj, params);
-                } else {
-                    descriptorStream.pushReturnElement(fun.invoke(obj, params), frame);
-                }
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-            }
+            invokeVirtualByReflection(frame, methodName, descriptorName);
         } else {
+            // 按this指针的运行时类型分派: this指针是自己加载的类（可能是className的子类）的对象时，从它的类开始查找方法
+            Object obj = stack.getOperandStack().get(stack.getOperandStack().size() - 1 - LinkResolver.parameterSlots(descriptorName)).getData();
+            if (null != obj && !obj.getClass().getName().equals(className) && LinkResolver.isBootClass(obj.getClass())) {
+                className = obj.getClass().getName();
+            }
+
             // 在类加载器的缓存中查找是否有该类，没有就触发加载
             if (!BootClassLoader.isLoadedKlass(className)) {
                 log.info("类[" + className + "]还未加载，开始加载");
@@ -6395,22 +6567,129 @@ public class BytecodeInterpreter {
 
             // 在类加载器的缓存中找到对应的类
             InstanceKlass klass = BootClassLoader.findLoadedKlass(className);
-            // 在对应的类中找到对应的方法
-            MethodInfo method = JavaNativeInterface.getMethod(klass, methodName, descriptorName);
+            // 在对应的类以及自己加载的父类中找到对应的方法
+            MethodInfo method = LinkResolver.resolveMethod(klass, methodName, descriptorName);
             if (null == method) {
-                throw new Error("不存在的方法: " + methodName + "#" + descriptorName);
+                // 方法继承自java体系的父类
+                invokeVirtualByReflection(frame, methodName, descriptorName);
+                return;
             }
 
-            // 同一个方法重复调用问题: 该方法的程序计数器如果没有重置，会导致下一次调用是从上一次调用完之后的指令位置开始，导致出错
-            // 调用某一个方法之前，需要重置该方法的程序计数器，避免上面所说的重复调用的问题
-            CodeAttribute codeAttributeInfo = (CodeAttribute) method.getAttributes().get(CodeAttribute.JVM_ATTRIBUTE_Code);
-            // 重置程序计数器
-            codeAttributeInfo.getCode().reset();
-
             JavaNativeInterface.callMethod(method);
         }
     }
 
+    /**
+     * 通过反射在this指针上调用java体系的实例方法
+     * @param frame 调用方栈帧，this指针和实参在该栈帧的操作数栈中
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * */
+    private static void invokeVirtualByReflection(JavaVFrame frame, String methodName, String descriptorName) {
+        // 解析方法描述符
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        // 获取方法所有形参类型的Class对象按照形参顺序组成的数组
+        Class<?>[] paramsClass = descriptorStream.getParamsType();
+
+        // 从操作数栈中根据形类型 顺序 获取实参，即从操作数栈中弹出实参
+        Object[] params = descriptorStream.getParamsVal(frame);
+
+        // 从操作数栈中弹出 被调方法所属类的对象，即this指针
+        Object obj = frame.getOperandStack().pop().getData();
+
+        try {
+            Method fun = obj.getClass().getMethod(methodName, paramsClass);
+
+            /**
+             * 处理：
+             *  1.无返回值
+             *  2.有返回值，需要将返回值压入操作数中（return字节码指令在从被调用方的操作数栈中取出返回值，压入调用方的操作数栈中）
+             */
+            Object ret = invokeHost(fun, obj, params);
+            if (BasicType.T_VOID != descriptorStream.getReturnElement().getType()) {
+                descriptorStream.pushReturnElement(ret, frame);
+            }
+            // 元素存储在虚拟机堆中的数组实参，将被调用方法的修改写回
+            descriptorStream.syncParams(params);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 反射调用java体系的方法，调用期间处于阻塞状态
+     * 被调用的方法可能长时间不返回（如 BlockingQueue.take、Socket.read），期间其他线程发起的垃圾回收不需要等待当前线程
+     * 阻塞期间不能访问操作数栈和虚拟机堆: 调用前实参已经弹出（元素存储在虚拟机堆中的数组登记在局部句柄区中），
+     * 返回值的压栈、数组实参的写回（syncParams）都要在返回之后进行，此时数组对象的地址已经被垃圾回收更新
+     * @param fun 被调用的方法
+     * @param obj this指针，静态方法忽略
+     * @param params 宿主机实参
+     * @return 返回值，void方法返回null
+     * */
+    private static Object invokeHost(Method fun, Object obj, Object[] params) throws IllegalAccessException, InvocationTargetException {
+        JavaThread thread = Threads.currentThread();
+        int state = SafepointSynchronize.blockBegin(thread);
+        try {
+            return fun.invoke(obj, params);
+        } finally {
+            SafepointSynchronize.blockEnd(thread, state);
+        }
+    }
+
+    /**
+     * 反射调用java体系的构造方法，和 invokeHost 一样调用期间处于阻塞状态
+     * @param constructor 被调用的构造方法
+     * @param params 宿主机实参
+     * @return 创建的对象
+     * */
+    private static Object newHostInstance(Constructor<?> constructor, Object... params) throws IllegalAccessException, InstantiationException, InvocationTargetException {
+        JavaThread thread = Threads.currentThread();
+        int state = SafepointSynchronize.blockBegin(thread);
+        try {
+            return constructor.newInstance(params);
+        } finally {
+            SafepointSynchronize.blockEnd(thread, state);
+        }
+    }
+
+    /**
+     * 通过super调用java体系父类的实例方法
+     * 由虚拟机接管的Thread方法直接执行父类的实现（见 Intrinsics.invokeSpecial）；
+     * 其他方法通过反射调用，反射总是按this指针的运行时类型分派，this指针的类重写了该方法时不能用反射调用父类的实现
+     * @param code 当前方法的指令段
+     * @param frame 调用方栈帧，this指针和实参在该栈帧的操作数栈中
+     * @param className 方法引用所属类的全限定名
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * */
+    private static void invokeSuperByReflection(ByteCodeStream code, JavaVFrame frame, String className, String methodName, String descriptorName) {
+        try {
+            if (Intrinsics.invokeSpecial(className, methodName, descriptorName, frame)) {
+                return;
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            // invokespecial指令占3个字节
+            throwException(code, code.current() - 3, e);
+            return;
+        }
+
+        StackValueCollection stack = frame.getOperandStack();
+        Object obj = stack.getOperandStack().get(stack.getOperandStack().size() - 1 - LinkResolver.parameterSlots(descriptorName)).getData();
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        try {
+            Method fun = BootClassLoader.loadHostClass(className).getMethod(methodName, descriptorStream.getParamsType());
+            if (null != obj && !fun.equals(obj.getClass().getMethod(methodName, descriptorStream.getParamsType()))) {
+                throw new Error("不支持通过super调用被子类重写的java体系方法: " + className + ":" + methodName + "#" + descriptorName);
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            throw new Error("不存在的方法: " + className + ":" + methodName + "#" + descriptorName, e);
+        }
+
+        invokeVirtualByReflection(frame, methodName, descriptorName);
+    }
+
     /**
      * 执行invokestatic字节码指令
      * 该指令功能为: 调用静态方法，即static修饰的方法
@@ -6429,7 +6708,7 @@ public class BytecodeInterpreter {
         // 取出操作数，invokestatic指令的操作数是常量池的索引（Methodref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String methodName = constantPool.getMethodName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6437,6 +6716,17 @@ public class BytecodeInterpreter {
 
         // 系统加载的类走反射
         if (className.startsWith("java")) {
+            // 数组相关的高频方法（System.arraycopy、Arrays.fill等）作为固有方法直接执行，不走反射
+            try {
+                if (Intrinsics.invokeStatic(className, methodName, descriptorName, frame)) {
+                    return;
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                // invokestatic指令占3个字节
+                throwException(code, code.current() - 3, e);
+                return;
+            }
+
             // 解析方法描述符
             DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
             descriptorStream.parseMethod();
@@ -6448,7 +6738,7 @@ public class BytecodeInterpreter {
 
             try {
                 // 通过反射获取静态方法所属类的Class对象
-                Class<?> clazz = Class.forName(className.replace('/', '.'));
+                Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
                 // 找到被调用的静态方法
                 Method fun = clazz.getMethod(methodName, paramsClass);
 
@@ -6457,11 +6747,12 @@ public class BytecodeInterpreter {
                  *  1.无返回值
                  *  2.有返回值，需要将返回值压入操作数中（return字节码指令在从被调用方的操作数栈中取出返回值，压入调用方的操作数栈中）
                  */
-                if (BasicType.T_VOID == descriptorStream.getReturnElement().getType()) {
-                    fun.invoke(clazz, params);
-                } else {
-                    descriptorStream.pushReturnElement(fun.invoke(clazz, params), frame);
+                Object ret = invokeHost(fun, clazz, params);
+                if (BasicType.T_VOID != descriptorStream.getReturnElement().getType()) {
+                    descriptorStream.pushReturnElement(ret, frame);
                 }
+                // 元素存储在虚拟机堆中的数组实参，将被调用方法的修改写回
+                descriptorStream.syncParams(params);
             } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | ClassNotFoundException e) {
                 e.printStackTrace();
             }
@@ -6480,12 +6771,6 @@ public class BytecodeInterpreter {
                 throw new Error("不存在的方法: " + methodName + "#" + descriptorName);
             }
 
-            // 同一个方法重复调用问题: 该方法的程序计数器如果没有重置，会导致下一次调用是从上一次调用完之后的指令位置开始，导致出错
-            // 调用某一个方法之前，需要重置该方法的程序计数器，避免上面所说的重复调用的问题
-            CodeAttribute codeAttributeInfo = (CodeAttribute) method.getAttributes().get(CodeAttribute.JVM_ATTRIBUTE_Code);
-            // 重置程序计数器
-            codeAttributeInfo.getCode().reset();
-
             JavaNativeInterface.callStaticMethod(method);
         }
     }
@@ -6512,7 +6797,7 @@ public class BytecodeInterpreter {
         // 取出操作数，invokestatic指令的操作数是常量池的索引（Methodref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String methodName = constantPool.getMethodName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6520,6 +6805,12 @@ public class BytecodeInterpreter {
 
         // 系统加载的类走反射
         if (className.startsWith("java")) {
+            // 子类中通过super调用java体系父类的方法（如重写了start的Thread子类调用super.start()）
+            if (!methodName.equals("<init>")) {
+                invokeSuperByReflection(code, frame, className, methodName, descriptorName);
+                return;
+            }
+
             // 解析方法描述符
             DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
             descriptorStream.parseMethod();
@@ -6545,55 +6836,65 @@ public class BytecodeInterpreter {
             StackValue stackValue = frame.getOperandStack().pop();
             Object object = stackValue.getObject();
 
-            // 判断调用的是构造方法还是普通方法
-            if (methodName.equals("<init>")) {
-                if (null == object || object.equals("")) {
-                    // 这里判空的原因
-                    // 1.在jvm层面，new只是在堆中分配了内存，此时是没有java对象实体的。因为是用java模拟的，所以jvm返回给我们java的是没有映射实体的，为null
-                    // 2.执行new字节码指令时，对于没有无参数构造函数的类创建对象的处理逻辑是 直接在栈中压入了null
-                    log.info("\t new字节码指令未创建对象的，在这里创建");
-                    try {
-                        Class<?> clazz = Class.forName(className);
-                        Constructor<?> constructor = clazz.getConstructor(paramsClass);
-                        object = constructor.newInstance(params);
-                    } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
-                        e.printStackTrace();
-                    }
+            // 自己加载的类的构造方法中调用java体系父类的构造方法，对象已经在new指令中通过反射创建（父类部分也已经初始化），不需要处理
+            // 继承了Thread的类调用super(runnable)时，记下Runnable，线程启动时使用
+            if (null != object && !object.getClass().getName().equals(className)) {
+                if (object instanceof Thread) {
+                    Threads.recordTarget((Thread) object, paramsClass, params);
                 }
+                return;
+            }
 
-                /*
-                * 1.所有类都会继承自Object类
-                * 2.所有类的构造方法中都会先执行父类的构造方法
-                * 3.示例代码中的类没有显示继承，所以继承自Object类
-                * 4.执行Object类的构造方法时，在invokespecial字节码指令之前没有dup（和执行其他类的构造方法的字节码指令不一样），只是把this指针压栈，
-                *   而上面弹出了这个this指针，所以这里peek会获取到空报异常
-                * */
-                if (!className.equals("java.lang.Object")) {
-                    /*
-                     * 执行new字节码指令时，会将对象引用(this)压入操作数栈中
-                     * 然后再执行invokespecial字节码指令调用构造方法前，还会执行dup指令，将上面new压入栈的this指针复制一份再压入栈中（执行Object类的构造方法除外）
-                     * 之后再压入执行构造方法的参数，最后才会执行invokespecial字节码指令
-                     *
-                     * 所以指向invokespecial字节码指令之前的操作数栈如下
-                     * --------
-                     * | 参数2 |
-                     * --------
-                     * | 参数1 |
-                     * --------
-                     * | this |
-                     * --------
-                     * | this |
-                     * --------
-                     *
-                     * 执行invokespecial字节码指令前，pop出了实参值，然后pop出了一个this指针，操作数栈中还剩一个this指针
-                     * 所以当执行完invokespecial字节码指令之后，真正创建了对象，就要将这个对象的引用赋值给栈顶那个this指针
-                     * */
-                    // 注意：这里应该是给栈帧顶部的StackValue赋值，而不是创建新的压栈
-                    frame.getOperandStack().peek().setObject(object);
+            // new指令只能调用无参构造方法，带参数的构造方法（如 new Thread(runnable)）需要在这里用实参重新创建对象
+            if (null == object || object.equals("") || 0 != params.length) {
+                // 这里判空的原因
+                // 1.在jvm层面，new只是在堆中分配了内存，此时是没有java对象实体的。因为是用java模拟的，所以jvm返回给我们java的是没有映射实体的，为null
+                // 2.执行new字节码指令时，对于没有无参数构造函数的类创建对象的处理逻辑是 直接在栈中压入了null
+                log.info("\t new字节码指令未创建对象的，在这里创建");
+                try {
+                    Class<?> clazz = BootClassLoader.loadHostClass(className);
+                    Constructor<?> constructor = clazz.getConstructor(paramsClass);
+                    object = newHostInstance(constructor, params);
+                    descriptorStream.syncParams(params);
+                } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
+                    e.printStackTrace();
                 }
-            } else {
-                // java体系，非构造方法
-                throw new Error("java体系，非构造方法，未做处理");
+            }
+
+            // 线程对象的Runnable保存在Thread的私有字段中，宿主机不允许反射读取，在构造时记下来（见 Threads.recordTarget）
+            if (object instanceof Thread) {
+                Threads.recordTarget((Thread) object, paramsClass, params);
+            }
+
+            /*
+            * 1.所有类都会继承自Object类
+            * 2.所有类的构造方法中都会先执行父类的构造方法
+            * 3.示例代码中的类没有显示继承，所以继承自Object类
+            * 4.执行Object类的构造方法时，在invokespecial字节码指令之前没有dup（和执行其他类的构造方法的字节码指令不一样），只是把this指针压栈，
+            *   而上面弹出了这个this指针，所以这里peek会获取到空报异常
+            * */
+            if (!className.equals("java.lang.Object")) {
+                /*
+                 * 执行new字节码指令时，会将对象引用(this)压入操作数栈中
+                 * 然后再执行invokespecial字节码指令调用构造方法前，还会执行dup指令，将上面new压入栈的this指针复制一份再压入栈中（执行Object类的构造方法除外）
+                 * 之后再压入执行构造方法的参数，最后才会执行invokespecial字节码指令
+                 *
+                 * 所以指向invokespecial字节码指令之前的操作数栈如下
+                 * --------
+                 * | 参数2 |
+                 * --------
+                 * | 参数1 |
+                 * --------
+                 * | this |
+                 * --------
+                 * | this |
+                 * --------
+                 *
+                 * 执行invokespecial字节码指令前，pop出了实参值，然后pop出了一个this指针，操作数栈中还剩一个this指针
+                 * 所以当执行完invokespecial字节码指令之后，真正创建了对象，就要将这个对象的引用赋值给栈顶那个this指针
+                 * */
+                // 注意：这里应该是给栈帧顶部的StackValue赋值，而不是创建新的压栈
+                frame.getOperandStack().peek().setObject(object);
             }
         } else {    // 非JVM系统加载的类，自己处理
             // 在类加载器的缓存中找到对应的类
@@ -6610,12 +6911,6 @@ public class BytecodeInterpreter {
                 throw new Error("不存在的方法: " + methodName + "#" + descriptorName);
             }
 
-            // 同一个方法重复调用问题: 该方法的程序计数器如果没有重置，会导致下一次调用是从上一次调用完之后的指令位置开始，导致出错
-            // 调用某一个方法之前，需要重置该方法的程序计数器，避免上面所说的重复调用的问题
-            CodeAttribute codeAttributeInfo = (CodeAttribute) method.getAttributes().get(CodeAttribute.JVM_ATTRIBUTE_Code);
-            // 重置程序计数器
-            codeAttributeInfo.getCode().reset();
-
             JavaNativeInterface.callMethod(method);
         }
     }
@@ -6637,7 +6932,7 @@ public class BytecodeInterpreter {
         // 取出操作数，getfield指令的操作数是常量池的索引（Fieldref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String fieldName = constantPool.getFieldName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6649,8 +6944,7 @@ public class BytecodeInterpreter {
         Object obj = frame.getOperandStack().pop().getData();
 
         try {
-            Class<?> clazz = Class.forName(className);
-            Field field = clazz.getField(fieldName);
+            Field field = LinkResolver.resolveField(className, fieldName);
 
             // 如果字段不是静态字段的话，Field.get(Object)要传入反射类的对象（实例属性和对象绑定）。如果传null会报: java.lang.NullPointerException
             // 如果字段是静态字段的话，Field.get(Object)传入任何对象都是可以的（类属性和类绑定），包括null
@@ -6677,7 +6971,7 @@ public class BytecodeInterpreter {
         // 取出操作数，putfield指令的操作数是常量池的索引（Fieldref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String fieldName = constantPool.getFieldName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6692,8 +6986,7 @@ public class BytecodeInterpreter {
         Object obj = frame.getOperandStack().pop().getData();
 
         try {
-            Class<?> clazz = Class.forName(className);
-            Field field = clazz.getField(fieldName);
+            Field field = LinkResolver.resolveField(className, fieldName);
 
             field.set(obj, value);
         } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
@@ -6718,7 +7011,7 @@ public class BytecodeInterpreter {
         // 取出操作数，getstatic指令的操作数是常量池的索引（Fieldref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String fieldName = constantPool.getFieldName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6727,8 +7020,7 @@ public class BytecodeInterpreter {
         descriptorStream.parseFiled();
 
         try {
-            Class<?> clazz = Class.forName(className);
-            Field field = clazz.getField(fieldName);
+            Field field = LinkResolver.resolveField(className, fieldName);
 
             // 如果字段不是静态字段的话，Field.get(Object)要传入反射类的对象（实例属性和对象绑定）。如果传null会报: java.lang.NullPointerException
             // 如果字段是静态字段的话，Field.get(Object)传入任何对象都是可以的（类属性和类绑定），包括null
@@ -6755,7 +7047,7 @@ public class BytecodeInterpreter {
         // 取出操作数，putstatic指令的操作数是常量池的索引（Fieldref），占两个字节
         int operand = code.getUnsignedShort();
 
-        String className = constantPool.getClassNameByFieldInfo(operand).replace('/', '.');
+        String className = SymbolTable.externalName(constantPool.getClassNameByFieldInfo(operand));
         String fieldName = constantPool.getFieldName(operand);
         String descriptorName = constantPool.getFieldDescriptor(operand);
 
@@ -6766,8 +7058,7 @@ public class BytecodeInterpreter {
         Object value = descriptorStream.getFieldVal(frame);
 
         try {
-            Class<?> clazz = Class.forName(className);
-            Field field = clazz.getField(fieldName);
+            Field field = LinkResolver.resolveField(className, fieldName);
 
             field.set(null, value);
         } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
@@ -6952,7 +7243,7 @@ public class BytecodeInterpreter {
                 // JVM加载器加载的类（java开头），通过反射
                 if (className.startsWith("java")) {
                     try {
-                        Class<?> clazz = Class.forName(className.replace('/', '.'));
+                        Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
                         // TODO: 如何找到一个对象
                     } catch (ClassNotFoundException e) {
                         e.printStackTrace();
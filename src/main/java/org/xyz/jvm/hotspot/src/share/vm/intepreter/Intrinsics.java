@@ -0,0 +1,729 @@
+package org.xyz.jvm.hotspot.src.share.vm.intepreter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.DescriptorStream;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.oops.ArrayOop;
+import org.xyz.jvm.hotspot.src.share.vm.oops.DescriptorInfo;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ObjectSynchronizer;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValue;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValueCollection;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 解释器内建的固有方法(intrinsic)
+ * 对于数组相关的高频java体系方法，不走 Class.forName + getMethod + invoke 的反射流程，
+ * 直接在数组对象背后的宿主数组上调用对应的宿主方法
+ *
+ * 线程同步相关的方法同样不走反射:
+ *  LockSupport.park/unpark: 在JavaThread的parker上阻塞、唤醒
+ *  Thread.currentThread: 直接返回当前JavaThread对应的线程对象
+ *  Thread.sleep: 休眠期间处于阻塞状态，不推迟安全点
+ *  Thread.interrupt/isInterrupted/interrupted: 作用在实际执行该线程的宿主机线程上
+ *  Object.wait/notify/notifyAll: 由ObjectSynchronizer在对象锁上实现
+ *  sleep、wait、join被中断时抛出InterruptedException，和其他运行时异常（如IllegalMonitorStateException）一样，由调用方交给Java代码的异常处理器（见 BytecodeInterpreter.throwException）
+ *  sun.misc.Unsafe的CAS、volatile读写: 直接调用宿主机的Unsafe（通过方法句柄调用，见 HostUnsafe）
+ * */
+@Slf4j
+public class Intrinsics extends AllStatic {
+
+    /**
+     * 尝试以固有方法的方式执行invokestatic调用的java体系静态方法
+     * @param className 方法所属类的全限定名，如 java.lang.System
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * @param frame 调用方栈帧，实参在该栈帧的操作数栈中
+     * @return true 已经作为固有方法执行完成；false 不是固有方法，操作数栈未被修改，需要继续走反射
+     * @throws InterruptedException Thread.sleep被中断
+     * */
+    public static boolean invokeStatic(String className, String methodName, String descriptorName, JavaVFrame frame) throws InterruptedException {
+        switch (className) {
+            case "java.lang.System": {
+                if ("arraycopy".equals(methodName)) {
+                    arraycopy(frame);
+                    return true;
+                }
+                return false;
+            }
+            case "java.util.Arrays": {
+                switch (methodName) {
+                    case "fill":
+                        return fill(descriptorName, frame);
+                    case "sort":
+                        return sort(descriptorName, frame);
+                    case "copyOf":
+                        return copyOf(descriptorName, frame);
+                    default:
+                        return false;
+                }
+            }
+            case "java.util.concurrent.locks.LockSupport":
+                return lockSupport(methodName, descriptorName, frame);
+            case "java.lang.Thread": {
+                JavaThread current = Threads.currentThread();
+                if ("currentThread".equals(methodName) && null != current) {
+                    frame.getOperandStack().push(new StackValue(BasicType.T_OBJECT, current.threadObj()));
+                    return true;
+                }
+                if ("sleep".equals(methodName) && "(J)V".equals(descriptorName)) {
+                    sleep(current, frame);
+                    return true;
+                }
+                if ("interrupted".equals(methodName) && "()Z".equals(descriptorName)) {
+                    frame.getOperandStack().push(new StackValue(BasicType.T_INT, Thread.interrupted() ? 1 : 0));
+                    return true;
+                }
+                return false;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 尝试以固有方法的方式执行invokevirtual调用的实例方法
+     * 按方法引用解析出的所属类、方法名、描述符和this指针的运行时类型判断，this指针在所有实参的下面:
+     *  Object.wait/notify/notifyAll是final方法，不会被重写，任何类的对象都按对象锁处理
+     *  Thread.start/join/interrupt/isInterrupted只在this指针的类没有重写该方法时接管（见 overridesThreadMethod），
+     *  重写了的（如自己加载的Thread子类重写了start）按普通方法分派
+     *  Unsafe的方法只接管方法引用属于sun.misc.Unsafe的调用
+     * @param className 方法引用所属类的全限定名，如 java.lang.Thread
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * @param frame 调用方栈帧，this指针和实参在该栈帧的操作数栈中
+     * @return true 已经作为固有方法执行完成；false 不是固有方法，操作数栈未被修改
+     * @throws InterruptedException Object.wait、Thread.join被中断
+     * */
+    public static boolean invokeVirtual(String className, String methodName, String descriptorName, JavaVFrame frame) throws InterruptedException {
+        switch (methodName) {
+            case "wait":
+            case "notify":
+            case "notifyAll":
+                return objectMonitorMethod(methodName, descriptorName, frame);
+            case "start":
+            case "join":
+                return threadMethod(methodName, descriptorName, frame, false);
+            case "interrupt":
+            case "isInterrupted":
+                return interruptMethod(methodName, descriptorName, frame, false);
+            case "compareAndSwapInt":
+            case "compareAndSwapLong":
+            case "compareAndSwapObject":
+            case "getIntVolatile":
+            case "putIntVolatile":
+            case "getObjectVolatile":
+            case "putObjectVolatile":
+                return "sun.misc.Unsafe".equals(className) && unsafeMethod(methodName, descriptorName, frame);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 尝试以固有方法的方式执行invokespecial通过super调用的Thread方法（如重写了start的子类调用super.start()）
+     * 调用的就是Thread自己的实现，不检查子类是否重写
+     * @param className 方法引用所属类的全限定名
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * @param frame 调用方栈帧，this指针和实参在该栈帧的操作数栈中
+     * @return true 已经作为固有方法执行完成；false 不是固有方法，操作数栈未被修改
+     * @throws InterruptedException Thread.join被中断
+     * */
+    public static boolean invokeSpecial(String className, String methodName, String descriptorName, JavaVFrame frame) throws InterruptedException {
+        if (!"java.lang.Thread".equals(className)) {
+            return false;
+        }
+        switch (methodName) {
+            case "start":
+            case "join":
+                return threadMethod(methodName, descriptorName, frame, true);
+            case "interrupt":
+            case "isInterrupted":
+                return interruptMethod(methodName, descriptorName, frame, true);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * LockSupport.park()、park(Object)、parkNanos(long)、parkNanos(Object, long)、parkUntil(long)、parkUntil(Object, long)、unpark(Thread)
+     * blocker只用于诊断，忽略
+     * */
+    private static boolean lockSupport(String methodName, String descriptorName, JavaVFrame frame) {
+        JavaThread current = Threads.currentThread();
+        if (null == current) {
+            return false;
+        }
+        StackValueCollection stack = frame.getOperandStack();
+
+        switch (methodName + descriptorName) {
+            case "park()V":
+                current.getParker().park();
+                return true;
+            case "park(Ljava/lang/Object;)V":
+                stack.pop();
+                current.getParker().park();
+                return true;
+            case "parkNanos(J)V":
+            case "parkNanos(Ljava/lang/Object;J)V": {
+                long nanos = popLong(stack);
+                if (descriptorName.startsWith("(L")) {
+                    stack.pop();
+                }
+                // 等待时间不大于0时立即返回（Parker中0表示一直等待）
+                if (nanos > 0) {
+                    current.getParker().park(false, nanos);
+                }
+                return true;
+            }
+            case "parkUntil(J)V":
+            case "parkUntil(Ljava/lang/Object;J)V": {
+                long deadline = popLong(stack);
+                if (descriptorName.startsWith("(L")) {
+                    stack.pop();
+                }
+                current.getParker().park(true, deadline);
+                return true;
+            }
+            case "unpark(Ljava/lang/Thread;)V": {
+                // 线程还没有启动或者已经结束时不做任何事
+                JavaThread thread = Threads.findThread(stack.pop().getData());
+                if (null != thread) {
+                    thread.getParker().unpark();
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Thread.sleep(long)，休眠期间线程处于阻塞状态，不推迟安全点
+     * 被中断时和JDK一样清除中断标记并抛出InterruptedException
+     * */
+    private static void sleep(JavaThread current, JavaVFrame frame) throws InterruptedException {
+        long millis = popLong(frame.getOperandStack());
+        int state = SafepointSynchronize.blockBegin(current);
+        try {
+            Thread.sleep(millis);
+        } finally {
+            SafepointSynchronize.blockEnd(current, state);
+        }
+    }
+
+    /**
+     * Object.wait()、wait(long)、wait(long, int)、notify()、notifyAll()
+     * */
+    private static boolean objectMonitorMethod(String methodName, String descriptorName, JavaVFrame frame) throws InterruptedException {
+        JavaThread current = Threads.currentThread();
+        if (null == current) {
+            return false;
+        }
+        StackValueCollection stack = frame.getOperandStack();
+
+        switch (methodName + descriptorName) {
+            case "wait()V":
+                ObjectSynchronizer.wait(stack.pop().getData(), current, 0);
+                return true;
+            case "wait(J)V": {
+                long millis = popLong(stack);
+                ObjectSynchronizer.wait(stack.pop().getData(), current, millis);
+                return true;
+            }
+            case "wait(JI)V": {
+                int nanos = popInt(stack, "wait nanos");
+                long millis = popLong(stack);
+                // 和JDK一样，不足一毫秒的部分向上取整
+                if (nanos > 0 && millis < Long.MAX_VALUE) {
+                    millis++;
+                }
+                ObjectSynchronizer.wait(stack.pop().getData(), current, millis);
+                return true;
+            }
+            case "notify()V":
+                ObjectSynchronizer.notify(stack.pop().getData(), current);
+                return true;
+            case "notifyAll()V":
+                ObjectSynchronizer.notifyAll(stack.pop().getData(), current);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Thread.start()、join()、join(long)，由线程管理器接管（见 Threads.invokeThreadMethod）
+     * @param special 是否是通过super的调用，是时不检查子类是否重写
+     * */
+    private static boolean threadMethod(String methodName, String descriptorName, JavaVFrame frame, boolean special) throws InterruptedException {
+        StackValueCollection stack = frame.getOperandStack();
+        Object[] params;
+        if ("()V".equals(descriptorName)) {
+            params = new Object[0];
+        } else if ("(J)V".equals(descriptorName)) {
+            params = new Object[] { peek(stack, 0).getData() };
+        } else {
+            return false;
+        }
+
+        Object obj = peek(stack, params.length).getData();
+        if (!(obj instanceof Thread) || !special && overridesThreadMethod(obj.getClass(), methodName + descriptorName)) {
+            return false;
+        }
+
+        if (!Threads.invokeThreadMethod((Thread) obj, methodName, descriptorName, params)) {
+            return false;
+        }
+        // 弹出实参和this指针
+        for (int i = 0; i <= params.length; i++) {
+            stack.pop();
+        }
+        return true;
+    }
+
+    /**
+     * Thread.interrupt()、isInterrupted()
+     * 线程对象只是Java代码中的对象，中断要作用在实际执行它的宿主机线程上，阻塞在Parker、sleep、wait中的线程才能被唤醒
+     * 线程还没有启动或者已经结束时走反射，作用在线程对象自己身上
+     * @param special 是否是通过super的调用，是时不检查子类是否重写
+     * */
+    private static boolean interruptMethod(String methodName, String descriptorName, JavaVFrame frame, boolean special) {
+        StackValueCollection stack = frame.getOperandStack();
+        if (!("interrupt".equals(methodName) ? "()V" : "()Z").equals(descriptorName)) {
+            return false;
+        }
+        Object obj = peek(stack, 0).getData();
+        if (!(obj instanceof Thread) || !special && overridesThreadMethod(obj.getClass(), methodName + descriptorName)) {
+            return false;
+        }
+        JavaThread thread = Threads.findThread(obj);
+        Thread osThread = null == thread ? null : thread.getOsThread();
+        if (null == osThread) {
+            return false;
+        }
+
+        stack.pop();
+        if ("interrupt".equals(methodName)) {
+            osThread.interrupt();
+        } else {
+            stack.push(new StackValue(BasicType.T_INT, osThread.isInterrupted() ? 1 : 0));
+        }
+        return true;
+    }
+
+    /**
+     * 线程类是否重写了由虚拟机接管的Thread方法
+     * 自己加载的类同样由宿主机类加载器定义（见 BootClassLoader.loadHostClass），可以直接用宿主机的反射查找声明该方法的类
+     * 每个类只计算一次
+     * @param clazz this指针的运行时类型，Thread或者它的子类
+     * @param signature 方法名 + 描述符，如 start()V
+     * */
+    private static boolean overridesThreadMethod(Class<?> clazz, String signature) {
+        return Thread.class != clazz && overriddenThreadMethods.get(clazz).contains(signature);
+    }
+
+    // 线程类 -> 重写了的由虚拟机接管的Thread方法（方法名 + 描述符）
+    private static final ClassValue<Set<String>> overriddenThreadMethods = new ClassValue<Set<String>>() {
+        @Override
+        protected Set<String> computeValue(Class<?> clazz) {
+            Set<String> overridden = new HashSet<>();
+            addIfOverridden(overridden, clazz, "start()V", "start");
+            addIfOverridden(overridden, clazz, "join()V", "join");
+            addIfOverridden(overridden, clazz, "join(J)V", "join", long.class);
+            addIfOverridden(overridden, clazz, "interrupt()V", "interrupt");
+            addIfOverridden(overridden, clazz, "isInterrupted()Z", "isInterrupted");
+            return overridden;
+        }
+
+        private void addIfOverridden(Set<String> overridden, Class<?> clazz, String signature, String name, Class<?>... paramTypes) {
+            try {
+                if (Thread.class != clazz.getMethod(name, paramTypes).getDeclaringClass()) {
+                    overridden.add(signature);
+                }
+            } catch (NoSuchMethodException e) {
+                // Thread的public方法，子类中一定能找到
+                throw new Error("不存在的方法: " + signature, e);
+            }
+        }
+    };
+
+    /**
+     * sun.misc.Unsafe的CAS、volatile读写，直接在宿主机的Unsafe上执行
+     * */
+    private static boolean unsafeMethod(String methodName, String descriptorName, JavaVFrame frame) {
+        StackValueCollection stack = frame.getOperandStack();
+        // 实参槽位数: Object、long各占一个槽位
+        int slots = LinkResolver.parameterSlots(descriptorName);
+        if (!HostUnsafe.isInstance(peek(stack, slots).getData())) {
+            return false;
+        }
+
+        switch (methodName + descriptorName) {
+            case "compareAndSwapInt(Ljava/lang/Object;JII)Z": {
+                int x = popInt(stack, "compareAndSwapInt x");
+                int expected = popInt(stack, "compareAndSwapInt expected");
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                boolean ret = HostUnsafe.compareAndSwapInt(popUnsafe(stack), o, offset, expected, x);
+                stack.push(new StackValue(BasicType.T_INT, ret ? 1 : 0));
+                return true;
+            }
+            case "compareAndSwapLong(Ljava/lang/Object;JJJ)Z": {
+                long x = popLong(stack);
+                long expected = popLong(stack);
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                boolean ret = HostUnsafe.compareAndSwapLong(popUnsafe(stack), o, offset, expected, x);
+                stack.push(new StackValue(BasicType.T_INT, ret ? 1 : 0));
+                return true;
+            }
+            case "compareAndSwapObject(Ljava/lang/Object;JLjava/lang/Object;Ljava/lang/Object;)Z": {
+                Object x = popObject(stack);
+                Object expected = popObject(stack);
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                boolean ret = HostUnsafe.compareAndSwapObject(popUnsafe(stack), o, offset, expected, x);
+                stack.push(new StackValue(BasicType.T_INT, ret ? 1 : 0));
+                return true;
+            }
+            case "getIntVolatile(Ljava/lang/Object;J)I": {
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                stack.push(new StackValue(BasicType.T_INT, HostUnsafe.getIntVolatile(popUnsafe(stack), o, offset)));
+                return true;
+            }
+            case "putIntVolatile(Ljava/lang/Object;JI)V": {
+                int x = popInt(stack, "putIntVolatile x");
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                HostUnsafe.putIntVolatile(popUnsafe(stack), o, offset, x);
+                return true;
+            }
+            case "getObjectVolatile(Ljava/lang/Object;J)Ljava/lang/Object;": {
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                Object ret = HostUnsafe.getObjectVolatile(popUnsafe(stack), o, offset);
+                if (null != ret && ret.getClass().isArray()) {
+                    stack.pushArray(ArrayOop.fromHostArray(ret), frame);
+                } else {
+                    stack.push(new StackValue(BasicType.T_OBJECT, ret));
+                }
+                return true;
+            }
+            case "putObjectVolatile(Ljava/lang/Object;JLjava/lang/Object;)V": {
+                Object x = popObject(stack);
+                long offset = popLong(stack);
+                Object o = popObject(stack);
+                HostUnsafe.putObjectVolatile(popUnsafe(stack), o, offset, x);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * System.arraycopy(Object src, int srcPos, Object dest, int destPos, int length)
+     * */
+    private static void arraycopy(JavaVFrame frame) {
+        StackValueCollection stack = frame.getOperandStack();
+
+        int length = popInt(stack, "arraycopy length");
+        int destPos = popInt(stack, "arraycopy destPos");
+        Object destOop = stack.pop().getData();
+        int srcPos = popInt(stack, "arraycopy srcPos");
+        Object src = DescriptorStream.toHostValue(stack.pop().getData());
+        Object dest = DescriptorStream.toHostValue(destOop);
+
+        log.info("\t 固有方法: System.arraycopy, length: " + length);
+
+        System.arraycopy(src, srcPos, dest, destPos, length);
+
+        // 目标数组的元素存储在虚拟机堆中时，写回
+        if (destOop instanceof ArrayOop) {
+            ((ArrayOop) destOop).syncHostArray(dest);
+        }
+    }
+
+    /**
+     * Arrays.fill(X[] a, X val)、Arrays.fill(X[] a, int fromIndex, int toIndex, X val)
+     * */
+    private static boolean fill(String descriptorName, JavaVFrame frame) {
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        int paramsSize = descriptorStream.getMethodParamsSize();
+        if (paramsSize != 2 && paramsSize != 4) {
+            return false;
+        }
+
+        Object[] params = descriptorStream.getParamsVal(frame);
+        Object a = params[0];
+        int from = 0;
+        int to = Array.getLength(a);
+        Object val = params[1];
+        if (paramsSize == 4) {
+            from = (int) params[1];
+            to = (int) params[2];
+            val = params[3];
+        }
+
+        if (a instanceof int[]) {
+            Arrays.fill((int[]) a, from, to, (int) val);
+        } else if (a instanceof long[]) {
+            Arrays.fill((long[]) a, from, to, (long) val);
+        } else if (a instanceof double[]) {
+            Arrays.fill((double[]) a, from, to, (double) val);
+        } else if (a instanceof float[]) {
+            Arrays.fill((float[]) a, from, to, (float) val);
+        } else if (a instanceof char[]) {
+            Arrays.fill((char[]) a, from, to, (char) val);
+        } else if (a instanceof short[]) {
+            Arrays.fill((short[]) a, from, to, (short) val);
+        } else if (a instanceof byte[]) {
+            Arrays.fill((byte[]) a, from, to, (byte) val);
+        } else if (a instanceof boolean[]) {
+            Arrays.fill((boolean[]) a, from, to, (boolean) val);
+        } else {
+            Arrays.fill((Object[]) a, from, to, val);
+        }
+        descriptorStream.syncParams(params);
+        return true;
+    }
+
+    /**
+     * Arrays.sort(X[] a)、Arrays.sort(X[] a, int fromIndex, int toIndex)
+     * 带Comparator的重载需要回调比较器，不在此处理
+     * */
+    private static boolean sort(String descriptorName, JavaVFrame frame) {
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        int paramsSize = descriptorStream.getMethodParamsSize();
+        if (paramsSize != 1 && paramsSize != 3) {
+            return false;
+        }
+        for (DescriptorInfo info : descriptorStream.getParameters()) {
+            if (info.getType() == BasicType.T_OBJECT) {
+                return false;
+            }
+        }
+
+        Object[] params = descriptorStream.getParamsVal(frame);
+        Object a = params[0];
+        int from = 0;
+        int to = Array.getLength(a);
+        if (paramsSize == 3) {
+            from = (int) params[1];
+            to = (int) params[2];
+        }
+
+        if (a instanceof int[]) {
+            Arrays.sort((int[]) a, from, to);
+        } else if (a instanceof long[]) {
+            Arrays.sort((long[]) a, from, to);
+        } else if (a instanceof double[]) {
+            Arrays.sort((double[]) a, from, to);
+        } else if (a instanceof float[]) {
+            Arrays.sort((float[]) a, from, to);
+        } else if (a instanceof char[]) {
+            Arrays.sort((char[]) a, from, to);
+        } else if (a instanceof short[]) {
+            Arrays.sort((short[]) a, from, to);
+        } else if (a instanceof byte[]) {
+            Arrays.sort((byte[]) a, from, to);
+        } else {
+            Arrays.sort((Object[]) a, from, to);
+        }
+        descriptorStream.syncParams(params);
+        return true;
+    }
+
+    /**
+     * Arrays.copyOf(X[] original, int newLength)
+     * */
+    private static boolean copyOf(String descriptorName, JavaVFrame frame) {
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        if (descriptorStream.getMethodParamsSize() != 2) {
+            return false;
+        }
+
+        Object[] params = descriptorStream.getParamsVal(frame);
+        Object a = params[0];
+        int newLength = (int) params[1];
+
+        Object copy;
+        if (a instanceof int[]) {
+            copy = Arrays.copyOf((int[]) a, newLength);
+        } else if (a instanceof long[]) {
+            copy = Arrays.copyOf((long[]) a, newLength);
+        } else if (a instanceof double[]) {
+            copy = Arrays.copyOf((double[]) a, newLength);
+        } else if (a instanceof float[]) {
+            copy = Arrays.copyOf((float[]) a, newLength);
+        } else if (a instanceof char[]) {
+            copy = Arrays.copyOf((char[]) a, newLength);
+        } else if (a instanceof short[]) {
+            copy = Arrays.copyOf((short[]) a, newLength);
+        } else if (a instanceof byte[]) {
+            copy = Arrays.copyOf((byte[]) a, newLength);
+        } else if (a instanceof boolean[]) {
+            copy = Arrays.copyOf((boolean[]) a, newLength);
+        } else {
+            copy = Arrays.copyOf((Object[]) a, newLength);
+        }
+
+        // 原数组只被读取，不需要写回
+        descriptorStream.releaseParams();
+        frame.getOperandStack().pushArray(ArrayOop.fromHostArray(copy), frame);
+        return true;
+    }
+
+    // 操作数栈中从栈顶往下第depth个元素（栈顶为0）
+    private static StackValue peek(StackValueCollection stack, int depth) {
+        return stack.getOperandStack().get(stack.getOperandStack().size() - 1 - depth);
+    }
+
+    private static long popLong(StackValueCollection stack) {
+        StackValue value = stack.pop();
+        if (value.getType() != BasicType.T_LONG) {
+            throw new Error("不匹配的数据类型, 需要long: " + value.getType());
+        }
+        return (long) value.getData();
+    }
+
+    // 引用类型的实参，数组对象迁移到宿主数组后传递其背后的宿主数组，CAS、volatile写直接作用在数组对象的存储上，而不是一份拷贝
+    private static Object popObject(StackValueCollection stack) {
+        return DescriptorStream.toSharedValue(stack.pop().getData());
+    }
+
+    private static Object popUnsafe(StackValueCollection stack) {
+        return stack.pop().getData();
+    }
+
+    private static int popInt(StackValueCollection stack, String name) {
+        StackValue value = stack.pop();
+        if (value.getType() != BasicType.T_INT) {
+            throw new Error(name + " 不匹配的数据类型: " + value.getType());
+        }
+        return value.getValue();
+    }
+
+    /**
+     * 宿主机的sun.misc.Unsafe
+     * 只在运行时按类名查找、通过方法句柄调用，编译期不引用内部API；第一次执行Unsafe的固有方法时才查找
+     * 方法句柄的接收者类型转成Object，调用方不需要知道Unsafe的类型
+     * */
+    private static final class HostUnsafe {
+        private static final Class<?> UNSAFE_CLASS;
+        private static final MethodHandle COMPARE_AND_SWAP_INT;
+        private static final MethodHandle COMPARE_AND_SWAP_LONG;
+        private static final MethodHandle COMPARE_AND_SWAP_OBJECT;
+        private static final MethodHandle GET_INT_VOLATILE;
+        private static final MethodHandle PUT_INT_VOLATILE;
+        private static final MethodHandle GET_OBJECT_VOLATILE;
+        private static final MethodHandle PUT_OBJECT_VOLATILE;
+
+        static {
+            try {
+                UNSAFE_CLASS = Class.forName("sun.misc.Unsafe");
+                COMPARE_AND_SWAP_INT = find("compareAndSwapInt", boolean.class, Object.class, long.class, int.class, int.class);
+                COMPARE_AND_SWAP_LONG = find("compareAndSwapLong", boolean.class, Object.class, long.class, long.class, long.class);
+                COMPARE_AND_SWAP_OBJECT = find("compareAndSwapObject", boolean.class, Object.class, long.class, Object.class, Object.class);
+                GET_INT_VOLATILE = find("getIntVolatile", int.class, Object.class, long.class);
+                PUT_INT_VOLATILE = find("putIntVolatile", void.class, Object.class, long.class, int.class);
+                GET_OBJECT_VOLATILE = find("getObjectVolatile", Object.class, Object.class, long.class);
+                PUT_OBJECT_VOLATILE = find("putObjectVolatile", void.class, Object.class, long.class, Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new Error("查找宿主机的Unsafe失败", e);
+            }
+        }
+
+        private static MethodHandle find(String name, Class<?> returnType, Class<?>... parameterTypes) throws ReflectiveOperationException {
+            MethodType type = MethodType.methodType(returnType, parameterTypes);
+            return MethodHandles.publicLookup().findVirtual(UNSAFE_CLASS, name, type).asType(type.insertParameterTypes(0, Object.class));
+        }
+
+        static boolean isInstance(Object obj) {
+            return UNSAFE_CLASS.isInstance(obj);
+        }
+
+        static boolean compareAndSwapInt(Object unsafe, Object o, long offset, int expected, int x) {
+            try {
+                return (boolean) COMPARE_AND_SWAP_INT.invokeExact(unsafe, o, offset, expected, x);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static boolean compareAndSwapLong(Object unsafe, Object o, long offset, long expected, long x) {
+            try {
+                return (boolean) COMPARE_AND_SWAP_LONG.invokeExact(unsafe, o, offset, expected, x);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static boolean compareAndSwapObject(Object unsafe, Object o, long offset, Object expected, Object x) {
+            try {
+                return (boolean) COMPARE_AND_SWAP_OBJECT.invokeExact(unsafe, o, offset, expected, x);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static int getIntVolatile(Object unsafe, Object o, long offset) {
+            try {
+                return (int) GET_INT_VOLATILE.invokeExact(unsafe, o, offset);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static void putIntVolatile(Object unsafe, Object o, long offset, int x) {
+            try {
+                PUT_INT_VOLATILE.invokeExact(unsafe, o, offset, x);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static Object getObjectVolatile(Object unsafe, Object o, long offset) {
+            try {
+                return (Object) GET_OBJECT_VOLATILE.invokeExact(unsafe, o, offset);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        static void putObjectVolatile(Object unsafe, Object o, long offset, Object x) {
+            try {
+                PUT_OBJECT_VOLATILE.invokeExact(unsafe, o, offset, x);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof RuntimeException) {
+                return (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return new RuntimeException(e);
+        }
+    }
+}
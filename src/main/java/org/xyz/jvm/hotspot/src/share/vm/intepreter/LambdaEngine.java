@@ -1,6 +1,8 @@
 package org.xyz.jvm.hotspot.src.share.vm.intepreter;
 
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.DescriptorStream;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
 import org.xyz.jvm.hotspot.src.share.vm.oops.Attribute;
 import org.xyz.jvm.hotspot.src.share.vm.oops.ConstantPool;
 import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
@@ -51,9 +53,9 @@ public class LambdaEngine {
 
         try {
             // invokedymaic指令的返回值类型 org/xyz/jvm/example/lambda/CustomLambda
-            Class returnClazz = Class.forName(descriptorStream.getReturnElement().getTypeDesc().replace("/", "."));
+            Class returnClazz = BootClassLoader.loadHostClass(SymbolTable.externalName(descriptorStream.getReturnElement().getTypeDesc()));
             // 调用方类型，在 org/xyz/jvm/example/lambda/TestLambda 中调用的lambda表达式
-            Class callerClazz = Class.forName(className.replace("/", "."));
+            Class callerClazz = BootClassLoader.loadHostClass(SymbolTable.externalName(className));
 
             // 获取调用者org/xyz/jvm/example/lambda/TestLambda的MethodHandles.Lookup
             MethodHandles.Lookup lookup = getLookup(callerClazz);
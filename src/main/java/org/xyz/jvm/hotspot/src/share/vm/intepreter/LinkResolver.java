@@ -0,0 +1,167 @@
+package org.xyz.jvm.hotspot.src.share.vm.intepreter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassLoaderData;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 符号引用的解析（对应HotSpot的LinkResolver）
+ * 类、字段、方法的符号引用第一次解析之后缓存下来，之后执行同一条指令时不再重复查找
+ *  类: 常量池中的类名 -> 宿主机的Class（checkcast、instanceof）
+ *  字段: 类名 + 字段名 -> 宿主机的Field（沿父类查找，非public字段也可以访问）
+ *  方法: 类名 + 方法名 + 描述符 -> 自己加载的类中的MethodInfo（沿父类查找，找到java体系的父类为止）
+ * 解析结果保存在当前Isolate的ClassLoaderData中，同名的类在不同Isolate中解析到不同的宿主机Class
+ * */
+@Slf4j
+public class LinkResolver extends AllStatic {
+    private static ClassLoaderData classLoaderData() {
+        return Isolate.current().getClassLoaderData();
+    }
+
+    /**
+     * 解析类
+     * @param className 常量池中的类名，如 java/lang/Thread、[Ljava/lang/Object;
+     * @return 宿主机的Class
+     * */
+    public static Class<?> resolveClass(String className) {
+        ClassLoaderData loaderData = classLoaderData();
+        ConcurrentHashMap<String, Class<?>> classCache = loaderData.getResolvedClasses();
+        Class<?> clazz = classCache.get(className);
+        if (null != clazz) {
+            return clazz;
+        }
+
+        try {
+            clazz = loaderData.loadHostClass(SymbolTable.externalName(className));
+        } catch (ClassNotFoundException e) {
+            throw new NoClassDefFoundError(className);
+        }
+        Class<?> cached = classCache.putIfAbsent(className, clazz);
+        return null == cached ? clazz : cached;
+    }
+
+    /**
+     * 解析字段
+     * 先按public字段查找（包括接口中的常量），找不到时沿父类查找声明的字段并打开访问权限
+     * @param className 字段引用中的类名，如 org.xyz.jvm.example.lock.AQS
+     * @param fieldName 字段名
+     * @return 宿主机的字段
+     * */
+    public static Field resolveField(String className, String fieldName) throws ClassNotFoundException, NoSuchFieldException {
+        ClassLoaderData loaderData = classLoaderData();
+        ConcurrentHashMap<String, Field> fieldCache = loaderData.getResolvedFields();
+        String key = className + "." + fieldName;
+        Field field = fieldCache.get(key);
+        if (null != field) {
+            return field;
+        }
+
+        field = lookupField(loaderData.loadHostClass(className), fieldName);
+        Field cached = fieldCache.putIfAbsent(key, field);
+        return null == cached ? field : cached;
+    }
+
+    private static Field lookupField(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+        try {
+            return clazz.getField(fieldName);
+        } catch (NoSuchFieldException e) {
+            for (Class<?> c = clazz; null != c; c = c.getSuperclass()) {
+                try {
+                    Field field = c.getDeclaredField(fieldName);
+                    field.setAccessible(true);
+                    return field;
+                } catch (NoSuchFieldException ignored) {
+                    // 继续在父类中查找
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 解析自己加载的类中的方法，当前类中没有时沿父类查找
+     * @param klass 开始查找的类
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * @return 找到的方法；父类链上自己加载的类中都没有时返回null（方法在java体系的父类中）
+     * */
+    public static MethodInfo resolveMethod(InstanceKlass klass, String methodName, String descriptorName) {
+        String className = klass.getConstantPool().getClassName(klass.getThisClass());
+        ConcurrentHashMap<String, MethodInfo> methodCache = classLoaderData().getResolvedMethods();
+        String key = className + "." + methodName + descriptorName;
+        MethodInfo method = methodCache.get(key);
+        if (null != method) {
+            return method;
+        }
+
+        for (InstanceKlass k = klass; null != k; k = superKlass(k)) {
+            method = findMethod(k, methodName, descriptorName);
+            if (null != method) {
+                methodCache.putIfAbsent(key, method);
+                return method;
+            }
+        }
+        return null;
+    }
+
+    // 在类中声明的方法中查找（不查找父类），方法名、描述符都是符号，直接比较引用
+    private static MethodInfo findMethod(InstanceKlass klass, String methodName, String descriptorName) {
+        String name = SymbolTable.lookup(methodName);
+        String descriptor = SymbolTable.lookup(descriptorName);
+        for (MethodInfo methodInfo : klass.getMethods()) {
+            if (methodInfo.getMethodName() == name && methodInfo.getDescriptor().getDescriptorInfo() == descriptor) {
+                return methodInfo;
+            }
+        }
+        return null;
+    }
+
+    // 自己加载的父类，父类是java体系的类或者没有父类时返回null
+    private static InstanceKlass superKlass(InstanceKlass klass) {
+        if (0 == klass.getSuperClass()) {
+            return null;
+        }
+        String superName = SymbolTable.externalName(klass.getConstantPool().getClassName(klass.getSuperClass()));
+        if (superName.startsWith("java")) {
+            return null;
+        }
+        return BootClassLoader.loadKlass(superName);
+    }
+
+    /**
+     * 对象的运行时类型是否是自己加载的类，虚方法按运行时类型分派
+     * 宿主机根类加载器加载的类、java体系的类、lambda表达式生成的类都不是
+     * */
+    public static boolean isBootClass(Class<?> clazz) {
+        return null != clazz.getClassLoader() && !clazz.isSynthetic() && !clazz.getName().startsWith("java");
+    }
+
+    /**
+     * 方法的实参在操作数栈中占用的槽位数（long占一个槽位，double占两个槽位）
+     * @param descriptorName 方法描述符
+     * */
+    public static int parameterSlots(String descriptorName) {
+        int slots = 0;
+        int i = 1;
+        while (descriptorName.charAt(i) != ')') {
+            char c = descriptorName.charAt(i);
+            while ('[' == c) {
+                c = descriptorName.charAt(++i);
+            }
+            if ('L' == c) {
+                i = descriptorName.indexOf(';', i);
+            }
+            slots += 'D' == c && '[' != descriptorName.charAt(i - 1) ? 2 : 1;
+            i++;
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,564 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassFileStream;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassPath;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
+import org.xyz.jvm.hotspot.src.share.vm.intepreter.ByteCodeStream;
+import org.xyz.jvm.hotspot.src.share.vm.oops.*;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.*;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.AccessFlags;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static org.xyz.jvm.hotspot.src.share.vm.oops.Attribute.*;
+
+/**
+ * 类元数据归档（对应HotSpot CDS的FileMapInfo，见 Globals.SharedArchiveFile）
+ * 转储时（见 MetaspaceShared.dump）把类列表中的类解析之后的元数据写进一个文件，第一次加载类时把整个文件映射到内存，只读取末尾的索引；
+ * 之后加载类时在索引中找到它，校验Class文件没有修改，直接从映射的内存中还原出InstanceKlass，不再读取、解析Class文件:
+ *  常量池按 ConstantPool 的平行数组存储，还原时按数组顺序读取，不再逐项判断类型
+ *  属性按解析之后的结构存储（栈映射帧只有字节码位置），不再跳过不认识的属性、不再解码栈映射帧
+ *  方法的Code属性在第一次调用方法时才还原（见 MethodInfo.getCodeAttribute），方法描述符第一次使用时才解析（见 MethodInfo.getDescriptor）
+ *
+ * 文件格式（大端）:
+ *  头部: magic(u4) version(u4) 类数(u4) 索引的位置(u4)
+ *  每个类的记录，格式见 readKlass
+ *  索引: 每个类 类名(内部形式) 来源 记录的位置(u4) 记录的长度(u4) 记录的CRC32(u4)，字符串为 长度(u2) + UTF-8
+ *
+ * 来源是转储时Class文件的共享键（见 ClassPath.ClassFile.sharedKey，含有Class文件或者所在jar的绝对路径、修改时间、大小），
+ * 加载时和加载路径中找到的Class文件比较，不一致（文件被修改、加载路径变化）时不使用归档中的记录，照常解析Class文件
+ * 归档不存在、格式不对时同样照常解析，只打印日志
+ * 记录在第一次使用前校验CRC32: 还原时只检查记录的结构，常量池索引等内容被改写（文件损坏）时能还原出类，执行时才出错，所以不一致时不使用该记录，照常解析Class文件
+ * */
+@Slf4j
+public class FileMapInfo {
+    public static final int MAGIC = 0x4A564D41;
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 16;
+
+    // 归档中属性的类型，下标即类型（0不使用）
+    private static final String[] ATTRIBUTE_NAMES = {
+            null,
+            JVM_ATTRIBUTE_ConstantValue,
+            JVM_ATTRIBUTE_Exceptions,
+            JVM_ATTRIBUTE_LineNumberTable,
+            JVM_ATTRIBUTE_LocalVariableTable,
+            JVM_ATTRIBUTE_SourceFile,
+            JVM_ATTRIBUTE_StackMapTable,
+            JVM_ATTRIBUTE_BootstrapMethods,
+            JVM_ATTRIBUTE_InnerClasses,
+    };
+
+    // 进程中使用的归档，第一次加载类时映射，所有Isolate共用
+    private static volatile FileMapInfo current;
+    private static volatile boolean initialized;
+    // 映射归档要读文件，第一次加载类的线程可能是虚拟线程，用ReentrantLock而不是synchronized
+    private static final ReentrantLock initLock = new ReentrantLock();
+
+    private final File file;
+
+    // 映射的整个文件，只使用绝对位置读取，多个线程共用
+    private final ByteBuffer mapped;
+
+    // 内部形式的类名 -> 记录
+    private final Map<String, Entry> entries;
+
+    // 统计
+    private final LongAdder loads = new LongAdder();        // 从归档中还原的类
+    private final LongAdder mismatches = new LongAdder();   // Class文件已经修改，没有使用归档
+    private final LongAdder corruptions = new LongAdder();  // 记录的CRC32不一致，没有使用归档
+
+    /**
+     * 索引中的一个类
+     * */
+    private static final class Entry {
+        final String source;
+        final int offset;
+        final int length;
+        final int crc;
+        // 已经校验过CRC32，之后（其他Isolate）加载该类时不再校验
+        volatile boolean verified;
+
+        Entry(String source, int offset, int length, int crc) {
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    public FileMapInfo(File file) {
+        this.file = file;
+        long start = System.nanoTime();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new Error("类元数据归档超过2GB: " + file);
+            }
+            // 通道关闭之后映射仍然有效
+            this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new Error("映射类元数据归档失败: " + file, e);
+        }
+        this.entries = readIndex();
+        log.info("映射类元数据归档: " + file + ", " + entries.size() + " 个类, " + mapped.capacity() / 1024 + " KB, 耗时 " + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    /**
+     * 进程中使用的归档，没有指定、映射失败时返回null
+     * */
+    public static FileMapInfo current() {
+        if (!initialized) {
+            initLock.lock();
+            try {
+                if (!initialized) {
+                    if (null != Globals.SharedArchiveFile) {
+                        try {
+                            current = new FileMapInfo(new File(Globals.SharedArchiveFile));
+                        } catch (Error e) {
+                            log.info("类元数据归档不可用，照常解析Class文件: " + e.getMessage());
+                        }
+                    }
+                    initialized = true;
+                }
+            } finally {
+                initLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 从进程中使用的归档中还原类
+     * @param className 类的全限定名，以.或者/分隔
+     * @param classFile 加载路径中找到的Class文件，用来校验归档中的记录是否过期
+     * @return 还原出的Klass模型，没有归档、归档中没有该类或者记录过期时返回null
+     * */
+    public static InstanceKlass loadKlass(String className, ClassPath.ClassFile classFile) {
+        FileMapInfo archive = current();
+        return null == archive ? null : archive.load(className, classFile);
+    }
+
+    /**
+     * 读取索引，同时检查头部
+     * */
+    private Map<String, Entry> readIndex() {
+        if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+            throw new Error("不是类元数据归档: " + file);
+        }
+        if (mapped.getInt(4) != VERSION) {
+            throw new Error("类元数据归档的版本 " + mapped.getInt(4) + " 和虚拟机的版本 " + VERSION + " 不一致: " + file);
+        }
+        int count = mapped.getInt(8);
+        int indexOffset = mapped.getInt(12);
+        if (indexOffset < HEADER_SIZE || indexOffset > mapped.capacity()) {
+            throw new Error("类元数据归档的索引位置不合法: " + indexOffset);
+        }
+
+        ClassFileStream stream = new ClassFileStream(slice(mapped, indexOffset, mapped.capacity() - indexOffset));
+        Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            String name = SymbolTable.lookup(readString(stream));
+            String source = readString(stream);
+            int offset = stream.readU4();
+            int length = stream.readU4();
+            int crc = stream.readU4();
+            if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+                throw new Error("类元数据归档中 " + name + " 的记录位置不合法: " + offset + ", 长度 " + length);
+            }
+            result.put(name, new Entry(source, offset, length, crc));
+        }
+        return result;
+    }
+
+    /**
+     * 从归档中还原类
+     * @return 还原出的Klass模型，归档中没有该类、记录过期或者损坏时返回null
+     * */
+    InstanceKlass load(String className, ClassPath.ClassFile classFile) {
+        Entry entry = entries.get(SymbolTable.internalName(className));
+        if (null == entry) {
+            return null;
+        }
+        if (!entry.source.equals(classFile.sharedKey())) {
+            mismatches.increment();
+            log.info("Class文件在转储归档之后被修改，不使用归档: " + className);
+            return null;
+        }
+
+        ByteBuffer record = slice(mapped, entry.offset, entry.length);
+        if (!entry.verified) {
+            int crc = crc32(record);
+            if (crc != entry.crc) {
+                corruptions.increment();
+                log.info("类元数据归档中 " + className + " 的记录CRC32不一致（" + Integer.toHexString(crc) + " / " + Integer.toHexString(entry.crc) + "），照常解析Class文件");
+                return null;
+            }
+            entry.verified = true;
+        }
+
+        try {
+            InstanceKlass klass = readKlass(record);
+            loads.increment();
+            return klass;
+        } catch (RuntimeException | Error e) {
+            log.info("类元数据归档中 " + className + " 的记录损坏，照常解析Class文件: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 还原一个类，记录的格式:
+     *  magic、次版本号、主版本号(8字节)
+     *  常量池，格式见 readConstantPool
+     *  访问权限(u2) 类(u2) 父类(u2)
+     *  接口数(u2) 接口的常量池索引(u2)...
+     *  字段数(u2) 每个字段 访问权限(u2) 名字(u2) 描述符(u2) Class文件中的属性数(u2) [属性数不为0时: 属性，格式见 readAttributes]
+     *  方法数(u2) 每个方法 访问权限(u2) 名字(u2) 描述符(u2) Class文件中的属性数(u2) Code属性的记录长度(u4，没有时为0) Code属性的记录(格式见 readCodeAttribute) 属性
+     *  Class文件中的属性数(u2) [属性数不为0时: 属性]
+     * @param record 类的记录
+     * */
+    private static InstanceKlass readKlass(ByteBuffer record) {
+        ClassFileStream stream = new ClassFileStream(record);
+        InstanceKlass klass = new InstanceKlass();
+        ConstantPool constantPool = klass.getConstantPool();
+
+        stream.readBytes(klass.getMagic());
+        stream.readBytes(klass.getMinionVersion());
+        stream.readBytes(klass.getMajorVersion());
+
+        readConstantPool(stream, constantPool);
+
+        klass.setAccessFlags(stream.readU2());
+        klass.setThisClass(stream.readU2());
+        klass.setSuperClass(stream.readU2());
+
+        klass.setInterfacesCount(stream.readU2());
+        if (klass.getInterfacesCount() != 0) {
+            klass.initInterfaceContainer();
+            for (int i = 0; i < klass.getInterfacesCount(); i++) {
+                int index = stream.readU2();
+                klass.getInterfaces().add(new InterfaceInfo(index, constantPool.getClassName(index)));
+            }
+        }
+
+        klass.setFieldsCount(stream.readU2());
+        if (klass.getFieldsCount() != 0) {
+            klass.initFieldContainer();
+            for (int i = 0; i < klass.getFieldsCount(); i++) {
+                FiledInfo filedInfo = new FiledInfo();
+                filedInfo.setAccessFlag(stream.readU2());
+                filedInfo.setNameIndex(stream.readU2());
+                filedInfo.setDescriptorIndex(stream.readU2());
+                filedInfo.setAttributesCount(stream.readU2());
+                if (filedInfo.getAttributesCount() != 0) {
+                    filedInfo.initAttributeContainer();
+                    readAttributes(stream, filedInfo.getAttributes());
+                }
+                klass.getFields().add(filedInfo);
+            }
+        }
+
+        klass.setMethodsCount(stream.readU2());
+        klass.initMethodContainer();
+        for (int i = 0; i < klass.getMethodsCount(); i++) {
+            MethodInfo methodInfo = new MethodInfo();
+            methodInfo.setBelongKlass(klass);
+            klass.getMethods().add(methodInfo);
+
+            methodInfo.setAccessFlags(new AccessFlags(stream.readU2()));
+            methodInfo.setNameIndex(stream.readU2());
+            methodInfo.setMethodName(constantPool.getUtf8(methodInfo.getNameIndex()));
+            // 方法描述符第一次使用时才解析（见 MethodInfo.getDescriptor）
+            methodInfo.setDescriptorIndex(stream.readU2());
+            methodInfo.setAttributesCount(stream.readU2());
+
+            int codeLength = stream.readU4();
+            if (codeLength != 0) {
+                // 记录是映射内存的切片，第一次调用方法时才还原
+                methodInfo.setArchivedCode(slice(record, stream.position(), codeLength));
+                stream.skip(codeLength);
+                if (!Globals.LazyCodeParsing) {
+                    methodInfo.getCodeAttribute();
+                }
+            }
+
+            methodInfo.initAttributeContainer();
+            readAttributes(stream, methodInfo.getAttributes());
+        }
+
+        klass.setAttributesCount(stream.readU2());
+        if (klass.getAttributesCount() != 0) {
+            klass.initAttributeContainer();
+            readAttributes(stream, klass.getAttributes());
+        }
+
+        if (stream.position() != stream.length()) {
+            throw new Error("记录长度不匹配: " + stream.position() + " / " + stream.length());
+        }
+        return klass;
+    }
+
+    /**
+     * 还原常量池，记录的格式:
+     *  常量池大小(u2) tag(u1 * 大小) ints(u4 * 大小)
+     *  Long、Double的个数(u2) 每个 索引(u2) 值的位(u8)
+     *  Utf8的内容的长度(u4) 内容（见 ConstantPool.utf8Bytes）
+     * */
+    private static void readConstantPool(ClassFileStream stream, ConstantPool constantPool) {
+        int length = stream.readU2();
+        constantPool.setLength(length);
+        constantPool.initContainer();
+
+        int[] tag = constantPool.getTag();
+        for (int i = 0; i < length; i++) {
+            tag[i] = stream.readU1();
+        }
+        int[] ints = constantPool.getInts();
+        for (int i = 0; i < length; i++) {
+            ints[i] = stream.readU4();
+        }
+
+        int longs = stream.readU2();
+        for (int i = 0; i < longs; i++) {
+            constantPool.longAtPut(stream.readU2(), stream.readU8());
+        }
+
+        int utf8Size = stream.readU4();
+        if (utf8Size != 0) {
+            byte[] utf8Bytes = new byte[utf8Size];
+            stream.readBytes(utf8Bytes);
+            constantPool.setUtf8Bytes(utf8Bytes);
+            constantPool.setUtf8Size(utf8Size);
+        }
+    }
+
+    /**
+     * 还原方法的Code属性（见 MethodInfo.getCodeAttribute），记录的格式:
+     *  属性名的常量池索引(u2) 属性长度(u4) max_stack(u2) max_locals(u2) code_length(u4) code
+     *  异常表长度(u2) 每个异常处理器 start_pc(u2) end_pc(u2) handler_pc(u2) catch_type(u2)
+     *  Class文件中的属性数(u2) [属性数不为0时: 属性]
+     * @param methodInfo 所属方法
+     * @param record Code属性的记录，映射内存的切片
+     * */
+    public static CodeAttribute readCodeAttribute(MethodInfo methodInfo, ByteBuffer record) {
+        ClassFileStream stream = new ClassFileStream(record);
+        CodeAttribute codeAttribute = new CodeAttribute();
+        codeAttribute.setAttributeNameIndex(stream.readU2());
+        codeAttribute.setAttributeLength(stream.readU4());
+        codeAttribute.setMaxStack(stream.readU2());
+        codeAttribute.setMaxLocals(stream.readU2());
+        codeAttribute.setCodeLength(stream.readU4());
+
+        ByteCodeStream bytecodeStream = new ByteCodeStream(methodInfo, codeAttribute);
+        codeAttribute.setCode(bytecodeStream);
+        stream.readBytes(bytecodeStream.getCodes(), 0, codeAttribute.getCodeLength());
+
+        codeAttribute.setExceptionTableLength(stream.readU2());
+        if (codeAttribute.getExceptionTableLength() != 0) {
+            codeAttribute.initExceptionTables();
+            for (int i = 0; i < codeAttribute.getExceptionTableLength(); i++) {
+                CodeAttribute.ExceptionHandler exceptionHandler = new CodeAttribute.ExceptionHandler();
+                exceptionHandler.setStartPc(stream.readU2());
+                exceptionHandler.setEndPc(stream.readU2());
+                exceptionHandler.setHandlerPc(stream.readU2());
+                exceptionHandler.setCatchType(stream.readU2());
+                codeAttribute.getExceptionTables().add(exceptionHandler);
+            }
+        }
+
+        codeAttribute.setAttributesCount(stream.readU2());
+        if (codeAttribute.getAttributesCount() != 0) {
+            codeAttribute.initAttributes();
+            readAttributes(stream, codeAttribute.getAttributes());
+        }
+        return codeAttribute;
+    }
+
+    /**
+     * 还原属性表，记录的格式:
+     *  属性数(u2) 每个属性 类型(u1，见 ATTRIBUTE_NAMES) 属性名的常量池索引(u2) 属性长度(u4) 内容
+     * 内容除了StackMapTable都和Class文件中相同，StackMapTable为 number_of_entries(u2) 每个帧的字节码位置(u2)
+     * */
+    private static void readAttributes(ClassFileStream stream, Map<String, Attribute> attributes) {
+        int count = stream.readU2();
+        for (int i = 0; i < count; i++) {
+            int kind = stream.readU1();
+            int attributeNameIndex = stream.readU2();
+            int attributeLength = stream.readU4();
+
+            Attribute attribute;
+            switch (kind) {
+                case 1: {
+                    ConstantValueAttribute constantValue = new ConstantValueAttribute();
+                    constantValue.setConstantValueIndex(stream.readU2());
+                    attribute = constantValue;
+                    break;
+                }
+                case 2: {
+                    ExceptionAttribute exception = new ExceptionAttribute();
+                    exception.setNumberOfExceptions(stream.readU2());
+                    if (exception.getNumberOfExceptions() != 0) {
+                        exception.initExceptionIndexTable();
+                        for (int j = 0; j < exception.getNumberOfExceptions(); j++) {
+                            exception.getExceptionIndexTable().add(stream.readU2());
+                        }
+                    }
+                    attribute = exception;
+                    break;
+                }
+                case 3: {
+                    LineNumberTableAttribute lineNumberTable = new LineNumberTableAttribute();
+                    lineNumberTable.setLineNumberTableLength(stream.readU2());
+                    if (lineNumberTable.getLineNumberTableLength() != 0) {
+                        lineNumberTable.initLineNumberTables();
+                        for (int j = 0; j < lineNumberTable.getLineNumberTableLength(); j++) {
+                            LineNumberTableAttribute.LineNumber lineNumber = new LineNumberTableAttribute.LineNumber();
+                            lineNumber.setStartPc(stream.readU2());
+                            lineNumber.setLineNumber(stream.readU2());
+                            lineNumberTable.getLineNumberTables().add(lineNumber);
+                        }
+                    }
+                    attribute = lineNumberTable;
+                    break;
+                }
+                case 4: {
+                    LocalVariableTableAttribute localVariableTable = new LocalVariableTableAttribute();
+                    localVariableTable.setLocalVariableTableLength(stream.readU2());
+                    if (localVariableTable.getLocalVariableTableLength() != 0) {
+                        localVariableTable.initLocalVariableTable();
+                        for (int j = 0; j < localVariableTable.getLocalVariableTableLength(); j++) {
+                            LocalVariableTableAttribute.LocalVariable localVariable = new LocalVariableTableAttribute.LocalVariable();
+                            localVariable.setStartPc(stream.readU2());
+                            localVariable.setLength(stream.readU2());
+                            localVariable.setNameIndex(stream.readU2());
+                            localVariable.setDescriptorIndex(stream.readU2());
+                            localVariable.setIndex(stream.readU2());
+                            localVariableTable.getLocalVariableTable().add(localVariable);
+                        }
+                    }
+                    attribute = localVariableTable;
+                    break;
+                }
+                case 5: {
+                    SourceFileAttribute sourceFile = new SourceFileAttribute();
+                    sourceFile.setSourceFileIndex(stream.readU2());
+                    attribute = sourceFile;
+                    break;
+                }
+                case 6: {
+                    StackMapTableAttribute stackMapTable = new StackMapTableAttribute();
+                    stackMapTable.setNumberOfEntries(stream.readU2());
+                    for (int j = 0; j < stackMapTable.getNumberOfEntries(); j++) {
+                        stackMapTable.getFrameBcis().add(stream.readU2());
+                    }
+                    attribute = stackMapTable;
+                    break;
+                }
+                case 7: {
+                    BootstrapMethods bootstrapMethods = new BootstrapMethods();
+                    bootstrapMethods.setNumberOfBootstrapMethods(stream.readU2());
+                    if (bootstrapMethods.getNumberOfBootstrapMethods() != 0) {
+                        bootstrapMethods.initBootstrapMethodTable();
+                        for (int j = 0; j < bootstrapMethods.getNumberOfBootstrapMethods(); j++) {
+                            BootstrapMethods.BootstrapMethod bootstrapMethod = new BootstrapMethods.BootstrapMethod();
+                            bootstrapMethod.setBootstrapMethodRef(stream.readU2());
+                            bootstrapMethod.setNumOfBootstrapArguments(stream.readU2());
+                            if (bootstrapMethod.getNumOfBootstrapArguments() != 0) {
+                                bootstrapMethod.initBootstrapArguments();
+                                for (int k = 0; k < bootstrapMethod.getNumOfBootstrapArguments(); k++) {
+                                    bootstrapMethod.getBootstrapArguments().add(stream.readU2());
+                                }
+                            }
+                            bootstrapMethods.getBootstrapMethods().add(bootstrapMethod);
+                        }
+                    }
+                    attribute = bootstrapMethods;
+                    break;
+                }
+                case 8: {
+                    InnerClassAttribute innerClasses = new InnerClassAttribute();
+                    innerClasses.setNumberOfClasses(stream.readU2());
+                    if (innerClasses.getNumberOfClasses() != 0) {
+                        innerClasses.initClassesTable();
+                        for (int j = 0; j < innerClasses.getNumberOfClasses(); j++) {
+                            InnerClassAttribute.Class aClass = new InnerClassAttribute.Class();
+                            aClass.setInnerClassInfoIndex(stream.readU2());
+                            aClass.setOuterClassInfoIndex(stream.readU2());
+                            aClass.setInnerClassNameIndex(stream.readU2());
+                            aClass.setInnerClassAccessFlags(new AccessFlags(stream.readU2()));
+                            innerClasses.getClasses().add(aClass);
+                        }
+                    }
+                    attribute = innerClasses;
+                    break;
+                }
+                default:
+                    throw new Error("不合法的属性类型: " + kind);
+            }
+
+            attribute.setAttributeNameIndex(attributeNameIndex);
+            attribute.setAttributeLength(attributeLength);
+            attributes.put(ATTRIBUTE_NAMES[kind], attribute);
+        }
+    }
+
+    /**
+     * 属性在归档中的类型
+     * @param attributeName 属性名
+     * @return 类型，不能归档的属性返回0
+     * */
+    public static int attributeKind(String attributeName) {
+        for (int kind = 1; kind < ATTRIBUTE_NAMES.length; kind++) {
+            if (ATTRIBUTE_NAMES[kind].equals(attributeName)) {
+                return kind;
+            }
+        }
+        return 0;
+    }
+
+    private static String readString(ClassFileStream stream) {
+        byte[] bytes = new byte[stream.readU2()];
+        stream.readBytes(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 记录的CRC32，转储时（见 MetaspaceShared.dump）写进索引
+     * */
+    public static int crc32(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String printStatistics() {
+        return "类元数据归档: " + size() + " 个类, 还原 " + loads.sum() + " 次, Class文件已修改 " + mismatches.sum() + " 次, 记录损坏 " + corruptions.sum() + " 次";
+    }
+}
@@ -0,0 +1,290 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
+import org.xyz.jvm.hotspot.src.share.vm.oops.ArrayOop;
+import org.xyz.jvm.hotspot.src.share.vm.prims.Unsafe;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.HandleArea;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JNIHandles;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValue;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValueCollection;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.VFrame;
+import org.xyz.jvm.jdk.classes.Handle;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 虚拟机堆的垃圾回收器
+ * 标记阶段是公共的，从以下根出发找到所有存活的内存块:
+ *  1.所有JavaThread虚拟机栈中每个栈帧的局部变量表（只包括当前位置活跃的局部变量，见 MethodLiveness）和操作数栈，
+ *    以及局部句柄区（HandleArea，调用宿主机方法、本地方法期间已经从操作数栈中弹出的实参）
+ *  2.BootClassLoader加载的类的静态变量（都只包括堆所属Isolate的线程、类）
+ *  3.JNI全局句柄
+ * 虚拟机堆中的内存块被ArrayOop（address字段）和Handle（p字段）引用，称为内存块的持有者，内存块移动后需要更新持有者
+ * Unsafe.allocateMemory分配的原始内存地址已经交给了使用方，无法追踪，始终视为存活且不能移动
+ *
+ * 回收阶段由子类实现: MarkCompactCollector（标记-整理）、SemispaceCollector（复制）
+ * */
+@Slf4j
+public abstract class GarbageCollector {
+    // 回收的虚拟机堆
+    protected GuestHeap heap;
+
+    // 本次回收存活的内存块: 地址 -> 持有者，按地址排序
+    protected TreeMap<Long, List<Object>> liveBlocks;
+
+    // 已经访问过的对象
+    private IdentityHashMap<Object, Boolean> visited;
+
+    // 回收次数
+    private long collections;
+    // 累计停顿时间（纳秒）
+    private long totalPauseNanos;
+    // 累计回收的字节数
+    private long totalReclaimedBytes;
+
+    public static GarbageCollector create(String name, GuestHeap heap) {
+        GarbageCollector collector;
+        switch (name) {
+            case "MarkCompact":
+                collector = new MarkCompactCollector();
+                break;
+            case "Semispace":
+                collector = new SemispaceCollector();
+                break;
+            default:
+                throw new Error("无法识别的垃圾回收器: " + name);
+        }
+        collector.heap = heap;
+        return collector;
+    }
+
+    public abstract String getName();
+
+    /**
+     * 回收存活内存块之外的空间，移动内存块后需要调用 updateOwners
+     * */
+    protected abstract void reclaim();
+
+    /**
+     * 执行一次垃圾回收，调用方需要持有GuestHeap的锁
+     * @param cause 触发原因
+     * */
+    public void collect(String cause) {
+        long start = System.nanoTime();
+        long usedBefore = heap.used();
+        long capacityBefore = heap.capacity();
+
+        liveBlocks = new TreeMap<>();
+        visited = new IdentityHashMap<>();
+        try {
+            markRoots();
+            markPinned();
+            reclaim();
+        } finally {
+            liveBlocks = null;
+            visited = null;
+        }
+
+        long pause = System.nanoTime() - start;
+        long usedAfter = heap.used();
+        long reclaimed = usedBefore - usedAfter;
+
+        collections++;
+        totalPauseNanos += pause;
+        totalReclaimedBytes += reclaimed;
+
+        String info = "[GC #" + collections + " " + getName() + " (" + cause + ") " + usedBefore + "->" + usedAfter
+                + " bytes, capacity " + capacityBefore + "->" + heap.capacity() + " bytes, reclaimed " + reclaimed
+                + " bytes, pause " + String.format("%.3f", pause / 1e6) + " ms]";
+        if (Globals.PrintGC) {
+            System.out.println(info);
+        }
+        log.info(info);
+    }
+
+    /*************************************************************************
+     * 标记
+     * */
+    private void markRoots() {
+        Isolate isolate = heap.getIsolate();
+
+        // 1.线程栈
+        for (Thread thread : isolate.getThreadList()) {
+            if (!(thread instanceof JavaThread)) {
+                continue;
+            }
+            for (VFrame frame : ((JavaThread) thread).getStack()) {
+                if (frame instanceof JavaVFrame) {
+                    markFrame((JavaVFrame) frame);
+                }
+            }
+            HandleArea handles = ((JavaThread) thread).getHandleArea();
+            for (int i = 0; i < handles.size(); i++) {
+                markObject(handles.get(i));
+            }
+        }
+
+        // 2.类的静态变量
+        for (String className : isolate.getClassLoaderData().getKlasses().keySet()) {
+            markStatics(SymbolTable.externalName(className));
+        }
+
+        // 3.JNI全局句柄
+        for (Handle handle : JNIHandles.globalHandles(isolate)) {
+            markObject(handle);
+        }
+    }
+
+    private void markFrame(JavaVFrame frame) {
+        // 当前位置已经不活跃的局部变量不会再被读取，它引用的内存块不需要保留
+        StackValueCollection locals = frame.getLocalVariableTable();
+        if (null != locals && null != locals.getLocalVariableTable()) {
+            BitSet live = Globals.UseMethodLiveness ? frame.liveLocals() : null;
+            StackValue[] slots = locals.getLocalVariableTable();
+            for (int i = 0; i < slots.length; i++) {
+                if (null == live || live.get(i)) {
+                    markStackValue(slots[i]);
+                }
+            }
+        }
+
+        StackValueCollection operands = frame.getOperandStack();
+        if (null != operands) {
+            for (StackValue value : operands.getOperandStack()) {
+                markStackValue(value);
+            }
+        }
+    }
+
+    private void markStackValue(StackValue value) {
+        if (null != value) {
+            markObject(value.getObject());
+        }
+    }
+
+    private void markStatics(String className) {
+        Class<?> clazz;
+        try {
+            clazz = heap.getIsolate().getClassLoaderData().loadHostClass(className);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return;
+        }
+
+        for (Field field : clazz.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                markObject(field.get(null));
+            } catch (IllegalAccessException | RuntimeException e) {
+                log.info("无法访问静态变量: " + className + "." + field.getName());
+            }
+        }
+    }
+
+    /**
+     * 标记一个对象，以及它引用的对象
+     * */
+    private void markObject(Object object) {
+        if (null == object || null != visited.put(object, Boolean.TRUE)) {
+            return;
+        }
+
+        if (object instanceof ArrayOop) {
+            ArrayOop arrayOop = (ArrayOop) object;
+            if (arrayOop.isHeapAllocated()) {
+                markBlock(arrayOop.getAddress(), arrayOop);
+            } else if (arrayOop.getData() instanceof Object[]) {
+                markObject(arrayOop.getData());
+            }
+        } else if (object instanceof Handle) {
+            Handle handle = (Handle) object;
+            if (Unsafe.HANDLE_TYPE_OOP == handle.getType() && isHeapAddress(handle.getP())) {
+                markBlock(handle.getP(), handle);
+            }
+        } else if (object instanceof Object[]) {
+            for (Object element : (Object[]) object) {
+                markObject(element);
+            }
+        }
+    }
+
+    private void markBlock(long address, Object owner) {
+        heap.setMarked(address, true);
+        liveBlocks.computeIfAbsent(address, k -> new ArrayList<>()).add(owner);
+    }
+
+    /**
+     * 原始内存始终存活
+     * */
+    private void markPinned() {
+        for (int i = 0; i < heap.regionSlots(); i++) {
+            if (!heap.isCommitted(i)) {
+                continue;
+            }
+            long address = heap.regionStart(i);
+            long limit = heap.regionLimit(i);
+            while (address < limit) {
+                int size = heap.sizeOf(address);
+                if (size <= 0) {
+                    break;
+                }
+                if (GuestHeap.KIND_RAW == heap.kindOf(address)) {
+                    heap.setMarked(address, true);
+                    liveBlocks.computeIfAbsent(address, k -> new ArrayList<>());
+                }
+                address += size;
+            }
+        }
+    }
+
+    private boolean isHeapAddress(long address) {
+        if (address <= 0) {
+            return false;
+        }
+        int index = (int) (address / Globals.GuestHeapRegionSize);
+        return index < heap.regionSlots() && heap.isCommitted(index) && address < heap.regionLimit(index);
+    }
+
+    /*************************************************************************
+     * 供子类使用
+     * */
+    protected boolean isPinned(long address) {
+        return GuestHeap.KIND_RAW == heap.kindOf(address);
+    }
+
+    /**
+     * 内存块移动后，更新所有持有者
+     * */
+    protected static void updateOwners(List<Object> owners, long newAddress) {
+        for (Object owner : owners) {
+            if (owner instanceof ArrayOop) {
+                ((ArrayOop) owner).setAddress(newAddress);
+            } else if (owner instanceof Handle) {
+                ((Handle) owner).setP(newAddress);
+            }
+        }
+    }
+
+    public long getCollections() { return collections; }
+    public long getTotalPauseNanos() { return totalPauseNanos; }
+    public long getTotalReclaimedBytes() { return totalReclaimedBytes; }
+
+    public String printGCInfo() {
+        return getName() + ": " + collections + " 次回收, 累计停顿 " + String.format("%.3f", totalPauseNanos / 1e6)
+                + " ms, 累计回收 " + totalReclaimedBytes + " bytes";
+    }
+}
@@ -0,0 +1,703 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟机堆（堆外内存实现）
+ * 由若干个大小相同的Region组成，Region使用 ByteBuffer.allocateDirect 或者内存映射文件分配，不占用宿主机的Java堆
+ * 地址空间是连续的: 地址 = Region索引 * Region大小 + Region内偏移，地址0保留作为null
+ *
+ * 分配方式为指针碰撞（bump-pointer）: 只需通过CAS移动top指针，当前Region剩余空间不够时加锁切换到下一个空闲的Region
+ * 每个JavaThread还会从这里划出一段线程私有的分配缓冲区（ThreadLocalAllocBuffer），小对象优先在其中分配
+ * 每块分配出去的内存都带有一个8字节的头:
+ *  0~3字节: 这块内存的大小（包括头，按8字节对齐）
+ *  4~7字节: 低8位是内存块的类型，第8位是垃圾回收的标记位
+ * 这样堆是可解析的，可以从头到尾逐块遍历
+ *
+ * 不实现压缩引用: 虚拟机堆中只有基本类型数组、原始内存和没有引用字段的对象，内存块之间没有引用，地址只保存在宿主机对象（ArrayOop、Handle）的long字段中
+ *
+ * 已使用的空间超过 GCTriggerRatio * GuestHeapSize，或者扩容失败时，触发垃圾回收
+ *
+ * 慢速路径使用ReentrantLock而不是synchronized，JavaThread运行在虚拟线程上时，等锁、映射文件等操作不会把虚拟线程固定在载体线程上
+ *
+ * 每个Isolate有自己的虚拟机堆（地址空间、垃圾回收、统计都是独立的），ArrayOop记住分配它的堆，读写元素时不需要再查找当前Isolate
+ * */
+@Slf4j
+public class GuestHeap {
+    // 对象对齐字节数
+    public static final int ObjectAlignmentInBytes = 8;
+
+    // 内存块头的大小
+    public static final int HeaderSize = 8;
+
+    // 内存块类型
+    public static final int KIND_FILLER = 0;    // 空闲块，用来填充Region中不能使用的空间
+    public static final int KIND_RAW = 1;       // Unsafe.allocateMemory分配的原始内存，地址直接交给了使用方，不能移动
+    public static final int KIND_OBJECT = 2;    // Unsafe.allocateObject分配的对象
+    public static final int KIND_ARRAY = 3;     // 基本类型数组
+
+    // 标记位
+    private static final int MARK_BIT = 0x100;
+
+    // clear使用的全0数组
+    private static final byte[] ZEROS = new byte[4096];
+
+    // 所属的Isolate，垃圾回收只遍历它的线程、类
+    private final Isolate isolate;
+
+    // 所有的Region，被回收的Region对应的位置为null
+    // 读取远多于修改（只有扩容和回收时修改），使用写时复制的List，读取时不需要加锁
+    private final List<ByteBuffer> regions = new CopyOnWriteArrayList<>();
+
+    // 当前Region的分配区间，多个线程通过CAS修改
+    // top和end放在同一个不可变对象中一起发布，不会读到新top、旧end（或者相反）的组合
+    private final AtomicReference<AllocRange> range = new AtomicReference<>(AllocRange.EMPTY);
+
+    // 内存块（不包括空闲块）以及分配给TLAB的空间占用的字节数
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    // 累计分配的字节数
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    // 累计分配的次数
+    private final AtomicLong allocationCount = new AtomicLong();
+
+    // 是否正在进行垃圾回收，回收过程中复制对象时不再触发回收，也不受堆大小限制
+    private boolean collecting;
+
+    // 垃圾回收器
+    private GarbageCollector collector;
+
+    // 已使用空间超过该值时触发垃圾回收，每次回收后根据存活数据量调整，避免存活数据较多时频繁回收
+    private volatile double gcThreshold = Globals.GCTriggerRatio * Globals.GuestHeapSize;
+
+    // 保护Region的切换、扩容和垃圾回收；垃圾回收先获取该锁再开始安全点，等待该锁的线程处于阻塞状态（见 SafepointSynchronize.lock）
+    private final ReentrantLock heapLock = new ReentrantLock();
+
+    // 内存映射文件，UseMappedGuestHeap时使用
+    private FileChannel mappedChannel;
+
+    /**
+     * 分配区间: [top, end)
+     * top: 下一次分配的起始地址
+     * end: 当前Region的结束地址
+     * */
+    private static final class AllocRange {
+        static final AllocRange EMPTY = new AllocRange(0, 0);
+
+        final long top;
+        final long end;
+
+        AllocRange(long top, long end) {
+            this.top = top;
+            this.end = end;
+        }
+    }
+
+    public GuestHeap(Isolate isolate) {
+        this.isolate = isolate;
+    }
+
+    /**
+     * 当前Isolate的虚拟机堆
+     * */
+    public static GuestHeap current() {
+        return Isolate.current().getHeap();
+    }
+
+    public Isolate getIsolate() {
+        return isolate;
+    }
+
+    /**
+     * 分配一块内存
+     * @param bytes 需要的字节数（不包括头）
+     * @param kind 内存块类型
+     * @return 内存块的地址（指向头）
+     * */
+    public long allocate(long bytes, int kind) {
+        long size = alignUp(bytes + HeaderSize);
+        if (isHumongous(bytes)) {
+            throw new OutOfMemoryError("申请的内存超过Region大小: " + bytes);
+        }
+
+        long address = reserve(size);
+        writeHeader(address, size, kind);
+
+        allocatedBytes.addAndGet(size);
+        allocationCount.incrementAndGet();
+        return address;
+    }
+
+    /**
+     * 分配一块内存，并清零
+     * 当前线程是JavaThread并且启用了TLAB时，优先在TLAB中分配
+     * 本地方法在阻塞状态下分配时，分配期间先回到虚拟机内部（见 SafepointSynchronize.enterVM），不和垃圾回收同时进行；
+     * 返回时已经回到阻塞状态，内存块被登记为垃圾回收的根之前就可能被回收，这种调用方要在自己的enterVM、leaveVM之间完成分配和登记（见 Unsafe.allocateObject）
+     * */
+    public long allocateZeroed(long bytes, int kind) {
+        JavaThread thread = Threads.currentThread();
+        int threadState = SafepointSynchronize.enterVM(thread);
+        try {
+            long address = 0;
+            if (Globals.UseTLAB && null != thread) {
+                address = thread.getTlab().allocate(this, alignUp(bytes + HeaderSize), kind);
+            }
+            if (0 == address) {
+                address = allocate(bytes, kind);
+            }
+            clear(payload(address), bytes);
+            return address;
+        } finally {
+            SafepointSynchronize.leaveVM(thread, threadState);
+        }
+    }
+
+    /**
+     * 为TLAB划出一段空间，这段空间没有头，TLAB中分配的每个内存块各自带头
+     * @param size TLAB大小
+     * @return 起始地址
+     * */
+    long allocateTlab(long size) {
+        return reserve(size);
+    }
+
+    /**
+     * 从共享的top划出一段空间
+     * 快速路径: CAS移动top，不加锁
+     * 慢速路径: 当前Region剩余空间不够或者需要垃圾回收时，加锁处理
+     * */
+    private long reserve(long size) {
+        if (usedBytes.get() + size <= gcThreshold) {
+            long address = casReserve(size);
+            if (0 != address) {
+                usedBytes.addAndGet(size);
+                return address;
+            }
+        }
+        return reserveSlow(size);
+    }
+
+    /**
+     * CAS移动top
+     * top和end作为一个整体比较和替换，扩容切换Region（包括复用低地址上被回收的Region）时不会用旧的end检查新的top
+     * @return 起始地址，当前Region放不下时返回0
+     * */
+    private long casReserve(long size) {
+        while (true) {
+            AllocRange r = range.get();
+            if (r.top + size > r.end) {
+                return 0;
+            }
+            if (range.compareAndSet(r, new AllocRange(r.top + size, r.end))) {
+                return r.top;
+            }
+        }
+    }
+
+    private long reserveSlow(long size) {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            return reserveLocked(size);
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    private long reserveLocked(long size) {
+        if (!collecting && usedBytes.get() + size > gcThreshold) {
+            collect("已使用空间超过阈值");
+        }
+
+        boolean collected = false;
+        while (true) {
+            long address = casReserve(size);
+            if (0 != address) {
+                usedBytes.addAndGet(size);
+                return address;
+            }
+
+            // 当前Region剩余空间不够，切换到一个新的Region，当前Region剩余的部分用一个空闲块填充，保证堆可解析
+            fillRemaining();
+            if (expand()) {
+                continue;
+            }
+
+            // 扩容失败，回收一次再试
+            if (collecting || collected) {
+                throw new OutOfMemoryError("虚拟机堆空间不足, GuestHeapSize: " + Globals.GuestHeapSize);
+            }
+            collect("扩容失败");
+            collected = true;
+        }
+    }
+
+    void writeHeader(long address, long size, int kind) {
+        putInt(address, (int) size);
+        putInt(address + 4, kind);
+    }
+
+    /**
+     * 触发一次垃圾回收
+     * @param cause 触发原因
+     * */
+    public void collect(String cause) {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            if (collecting || regions.isEmpty()) {
+                return;
+            }
+            if (null == collector) {
+                collector = GarbageCollector.create(Globals.GuestHeapCollector, this);
+            }
+
+            collecting = true;
+            try {
+                // 在安全点中回收，所有Java线程都停下来，栈和TLAB不会再变化
+                isolate.getSafepoint().execute("GC: " + cause, () -> {
+                    // 所有线程的TLAB剩余空间用空闲块填充，保证堆可解析，回收之后重新申请
+                    ThreadLocalAllocBuffer.retireAll(isolate);
+                    collector.collect(cause);
+                });
+            } finally {
+                collecting = false;
+            }
+            long used = usedBytes.get();
+            gcThreshold = Math.max(Globals.GCTriggerRatio * Globals.GuestHeapSize, used + (Globals.GuestHeapSize - used) / 2.0);
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    /**
+     * 线程结束时退休它的TLAB，和垃圾回收互斥，避免两边同时填充剩余空间
+     * */
+    public void retireTlab(ThreadLocalAllocBuffer tlab) {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            tlab.retire();
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    public GarbageCollector getCollector() {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            return collector;
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    /**
+     * 增加一个Region，优先使用被回收的Region的位置
+     * @return 是否扩容成功
+     * */
+    private boolean expand() {
+        long regionSize = Globals.GuestHeapRegionSize;
+        if (!collecting && (committedRegions() + 1) * regionSize > Globals.GuestHeapSize) {
+            return false;
+        }
+
+        int index = regions.indexOf(null);
+        if (index < 0) {
+            index = regions.size();
+            regions.add(null);
+        }
+
+        ByteBuffer region = Globals.UseMappedGuestHeap ? mapRegion(index) : ByteBuffer.allocateDirect((int) regionSize);
+        region.order(ByteOrder.nativeOrder());
+        regions.set(index, region);
+
+        long start = index * regionSize;
+        // 地址0保留作为null
+        if (0 == start) {
+            putInt(0, ObjectAlignmentInBytes);
+            putInt(4, KIND_FILLER);
+        }
+
+        // top和end一起发布，见casReserve
+        range.set(new AllocRange(0 == start ? ObjectAlignmentInBytes : start, start + regionSize));
+
+        log.info("虚拟机堆扩容, Region个数: " + committedRegions());
+        return true;
+    }
+
+    /**
+     * 使用内存映射文件分配Region
+     * */
+    private ByteBuffer mapRegion(int index) {
+        try {
+            if (null == mappedChannel) {
+                File file = File.createTempFile("guest-heap", ".mmap");
+                file.deleteOnExit();
+                mappedChannel = new RandomAccessFile(file, "rw").getChannel();
+            }
+            long regionSize = Globals.GuestHeapRegionSize;
+            return mappedChannel.map(FileChannel.MapMode.READ_WRITE, index * regionSize, regionSize);
+        } catch (IOException e) {
+            throw new Error("虚拟机堆映射文件失败", e);
+        }
+    }
+
+    /**
+     * 当前Region剩余的空间用一个空闲块填充
+     * */
+    private void fillRemaining() {
+        AllocRange r = range.getAndUpdate(c -> new AllocRange(c.end, c.end));
+        if (r.top < r.end) {
+            fill(r.top, r.end - r.top);
+        }
+    }
+
+    /**
+     * 将一段空间填充为空闲块，跨越多个Region时每个Region各填充一个
+     * */
+    void fill(long address, long bytes) {
+        long regionSize = Globals.GuestHeapRegionSize;
+        while (bytes >= HeaderSize) {
+            long chunk = Math.min(bytes, (address / regionSize + 1) * regionSize - address);
+            putInt(address, (int) chunk);
+            putInt(address + 4, KIND_FILLER);
+            address += chunk;
+            bytes -= chunk;
+        }
+    }
+
+    /*************************************************************************
+     * 供垃圾回收器使用
+     * */
+    // Region个数（包括被回收的位置）
+    int regionSlots() {
+        return regions.size();
+    }
+
+    // 正在使用的Region个数
+    int committedRegions() {
+        int count = 0;
+        for (ByteBuffer region : regions) {
+            if (null != region) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    boolean isCommitted(int index) {
+        return null != regions.get(index);
+    }
+
+    long regionStart(int index) {
+        return (long) index * Globals.GuestHeapRegionSize;
+    }
+
+    // Region中已分配空间的结束地址，当前Region是top，其他Region是Region的结束地址
+    long regionLimit(int index) {
+        AllocRange r = range.get();
+        if (r.end > 0 && index == (r.end - 1) / Globals.GuestHeapRegionSize) {
+            return r.top;
+        }
+        return regionStart(index) + Globals.GuestHeapRegionSize;
+    }
+
+    // 回收一个Region
+    void uncommit(int index) {
+        regions.set(index, null);
+    }
+
+    // 将分配指针设置到某个地址，用于标记-整理结束后
+    void resetTop(long address) {
+        long regionSize = Globals.GuestHeapRegionSize;
+        range.set(new AllocRange(address, (address == 0 ? 0 : (address - 1) / regionSize + 1) * regionSize));
+    }
+
+    // 放弃当前Region，之后的分配使用新的Region，用于复制算法开始前
+    void retireRegion() {
+        fillRemaining();
+        range.set(AllocRange.EMPTY);
+    }
+
+    // 复制算法中分配到空间（to-space）
+    long allocateForCopy(long size, int kind) {
+        long address = casReserve(size);
+        if (0 == address) {
+            fillRemaining();
+            expand();
+            address = casReserve(size);
+        }
+        writeHeader(address, size, kind);
+        return address;
+    }
+
+    void setUsedBytes(long bytes) {
+        usedBytes.set(bytes);
+    }
+
+    boolean isMarked(long address) {
+        return (getInt(address + 4) & MARK_BIT) != 0;
+    }
+
+    void setMarked(long address, boolean marked) {
+        int word = getInt(address + 4);
+        putInt(address + 4, marked ? word | MARK_BIT : word & ~MARK_BIT);
+    }
+
+    /**
+     * 内存块中数据的起始地址
+     * */
+    public static long payload(long address) {
+        return address + HeaderSize;
+    }
+
+    /**
+     * 内存块的大小（包括头）
+     * */
+    public int sizeOf(long address) {
+        return getInt(address);
+    }
+
+    /**
+     * 内存块的类型
+     * */
+    public int kindOf(long address) {
+        return getInt(address + 4) & 0xFF;
+    }
+
+    /**
+     * 是否是大对象: 加上头之后超过一个Region，虚拟机堆放不下，由调用方改用宿主机的Java堆存储（见 ArrayOop）
+     * @param bytes 需要的字节数（不包括头）
+     * */
+    public static boolean isHumongous(long bytes) {
+        return alignUp(bytes + HeaderSize) > Globals.GuestHeapRegionSize;
+    }
+
+    public static long alignUp(long bytes) {
+        return (bytes + ObjectAlignmentInBytes - 1) & ~(long) (ObjectAlignmentInBytes - 1);
+    }
+
+    /**
+     * 清零一段内存，按Region分段，每段用全0数组整体写入
+     * */
+    public void clear(long address, long bytes) {
+        while (bytes > 0) {
+            int chunk = (int) Math.min(bytes, Globals.GuestHeapRegionSize - offset(address));
+            ByteBuffer view = view(address);
+            for (int done = 0; done < chunk; done += ZEROS.length) {
+                view.put(ZEROS, 0, Math.min(ZEROS.length, chunk - done));
+            }
+            address += chunk;
+            bytes -= chunk;
+        }
+    }
+
+    /**
+     * 拷贝一段内存，按Region分段，每段在两个Region的视图之间整体拷贝
+     * 整理时内存块向低地址滑动，源和目标可能在同一个Region中重叠，这时先拷贝到临时数组，防止还没读取的部分被覆盖
+     * */
+    public void copy(long from, long to, long bytes) {
+        if (from == to) {
+            return;
+        }
+        long regionSize = Globals.GuestHeapRegionSize;
+        while (bytes > 0) {
+            int chunk = (int) Math.min(bytes, Math.min(regionSize - offset(from), regionSize - offset(to)));
+            ByteBuffer source = view(from);
+            source.limit(source.position() + chunk);
+            ByteBuffer target = view(to);
+            if (region(from) == region(to) && Math.abs(to - from) < chunk) {
+                byte[] overlap = new byte[chunk];
+                source.get(overlap);
+                target.put(overlap);
+            } else {
+                target.put(source);
+            }
+            from += chunk;
+            to += chunk;
+            bytes -= chunk;
+        }
+    }
+
+    /**
+     * 把一段内存整体读到基本类型的宿主数组中（boolean按一个字节存储），内存块不跨Region，通过Region的类型视图一次拷贝
+     * @param address 起始地址
+     * @param hostArray 基本类型的宿主数组
+     * @param length 元素个数
+     * */
+    public void read(long address, Object hostArray, int length) {
+        ByteBuffer view = view(address);
+        if (hostArray instanceof byte[]) {
+            view.get((byte[]) hostArray, 0, length);
+        } else if (hostArray instanceof int[]) {
+            view.asIntBuffer().get((int[]) hostArray, 0, length);
+        } else if (hostArray instanceof char[]) {
+            view.asCharBuffer().get((char[]) hostArray, 0, length);
+        } else if (hostArray instanceof long[]) {
+            view.asLongBuffer().get((long[]) hostArray, 0, length);
+        } else if (hostArray instanceof double[]) {
+            view.asDoubleBuffer().get((double[]) hostArray, 0, length);
+        } else if (hostArray instanceof float[]) {
+            view.asFloatBuffer().get((float[]) hostArray, 0, length);
+        } else if (hostArray instanceof short[]) {
+            view.asShortBuffer().get((short[]) hostArray, 0, length);
+        } else if (hostArray instanceof boolean[]) {
+            boolean[] values = (boolean[]) hostArray;
+            for (int i = 0; i < length; i++) {
+                values[i] = 0 != view.get();
+            }
+        } else {
+            throw new Error("不是基本类型数组: " + hostArray.getClass().getName());
+        }
+    }
+
+    /**
+     * 把基本类型的宿主数组整体写入一段内存，和 read 对应
+     * @param address 起始地址
+     * @param hostArray 基本类型的宿主数组
+     * @param length 元素个数
+     * */
+    public void write(long address, Object hostArray, int length) {
+        ByteBuffer view = view(address);
+        if (hostArray instanceof byte[]) {
+            view.put((byte[]) hostArray, 0, length);
+        } else if (hostArray instanceof int[]) {
+            view.asIntBuffer().put((int[]) hostArray, 0, length);
+        } else if (hostArray instanceof char[]) {
+            view.asCharBuffer().put((char[]) hostArray, 0, length);
+        } else if (hostArray instanceof long[]) {
+            view.asLongBuffer().put((long[]) hostArray, 0, length);
+        } else if (hostArray instanceof double[]) {
+            view.asDoubleBuffer().put((double[]) hostArray, 0, length);
+        } else if (hostArray instanceof float[]) {
+            view.asFloatBuffer().put((float[]) hostArray, 0, length);
+        } else if (hostArray instanceof short[]) {
+            view.asShortBuffer().put((short[]) hostArray, 0, length);
+        } else if (hostArray instanceof boolean[]) {
+            boolean[] values = (boolean[]) hostArray;
+            for (int i = 0; i < length; i++) {
+                view.put((byte) (values[i] ? 1 : 0));
+            }
+        } else {
+            throw new Error("不是基本类型数组: " + hostArray.getClass().getName());
+        }
+    }
+
+    private ByteBuffer region(long address) {
+        return regions.get((int) (address / Globals.GuestHeapRegionSize));
+    }
+
+    /**
+     * Region的视图，从address开始，字节序和Region一致
+     * 每次新建，position、limit不和其他线程共享
+     * */
+    private ByteBuffer view(long address) {
+        ByteBuffer view = region(address).duplicate();
+        view.order(ByteOrder.nativeOrder());
+        view.position(offset(address));
+        return view;
+    }
+
+    private int offset(long address) {
+        return (int) (address % Globals.GuestHeapRegionSize);
+    }
+
+    public byte getByte(long address) { return region(address).get(offset(address)); }
+    public void putByte(long address, byte value) { region(address).put(offset(address), value); }
+
+    public char getChar(long address) { return region(address).getChar(offset(address)); }
+    public void putChar(long address, char value) { region(address).putChar(offset(address), value); }
+
+    public short getShort(long address) { return region(address).getShort(offset(address)); }
+    public void putShort(long address, short value) { region(address).putShort(offset(address), value); }
+
+    public int getInt(long address) { return region(address).getInt(offset(address)); }
+    public void putInt(long address, int value) { region(address).putInt(offset(address), value); }
+
+    public long getLong(long address) { return region(address).getLong(offset(address)); }
+    public void putLong(long address, long value) { region(address).putLong(offset(address), value); }
+
+    public float getFloat(long address) { return region(address).getFloat(offset(address)); }
+    public void putFloat(long address, float value) { region(address).putFloat(offset(address), value); }
+
+    public double getDouble(long address) { return region(address).getDouble(offset(address)); }
+    public void putDouble(long address, double value) { region(address).putDouble(offset(address), value); }
+
+    /**
+     * 内存块占用的字节数
+     * */
+    public long used() {
+        return usedBytes.get();
+    }
+
+    /**
+     * 正在使用的Region总字节数
+     * */
+    public long capacity() {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            return committedRegions() * (long) Globals.GuestHeapRegionSize;
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    public long getAllocatedBytes() { return allocatedBytes.get(); }
+    public long getAllocationCount() { return allocationCount.get(); }
+
+    /**
+     * 记录TLAB中的分配，TLAB中的分配不经过共享的计数器，TLAB退休时汇总
+     * */
+    void recordTlabAllocations(long bytes, long count) {
+        allocatedBytes.addAndGet(bytes);
+        allocationCount.addAndGet(count);
+    }
+
+    /**
+     * 释放所有Region，Isolate销毁时调用，此时已经没有线程在使用该堆
+     * 直接内存和映射文件的Region在ByteBuffer被回收时释放
+     * */
+    public void release() {
+        heapLock.lock();
+        try {
+            regions.clear();
+            range.set(AllocRange.EMPTY);
+            usedBytes.set(0);
+            if (null != mappedChannel) {
+                try {
+                    mappedChannel.close();
+                } catch (IOException e) {
+                    log.info("关闭虚拟机堆映射文件失败: " + e.getMessage());
+                }
+                mappedChannel = null;
+            }
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    public String printHeapInfo() {
+        SafepointSynchronize.lock(heapLock);
+        try {
+            return "虚拟机堆: used " + used() + " bytes, capacity " + capacity() + " bytes, max " + Globals.GuestHeapSize
+                    + " bytes, regions " + committedRegions() + ", 累计分配 " + allocationCount + " 次 / " + allocatedBytes + " bytes";
+        } finally {
+            heapLock.unlock();
+        }
+    }
+}
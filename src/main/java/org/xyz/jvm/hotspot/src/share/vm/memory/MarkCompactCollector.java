@@ -0,0 +1,83 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标记-整理回收器（滑动整理）
+ * 1.计算转发地址: 按地址顺序遍历存活内存块，依次紧挨着放到堆的低地址处，放不下当前Region就换到下一个Region
+ *   原始内存不能移动，遇到时直接跳过它，它前面的空隙用空闲块填充
+ * 2.更新持有者: 把ArrayOop、Handle中的地址改成转发地址
+ * 3.移动: 按地址顺序把内存块拷贝到转发地址，转发地址一定不大于原地址，所以按顺序拷贝不会覆盖还未移动的内存块
+ * 4.释放整理之后空出来的Region
+ * */
+public class MarkCompactCollector extends GarbageCollector {
+
+    @Override
+    public String getName() {
+        return "MarkCompact";
+    }
+
+    @Override
+    protected void reclaim() {
+        long regionSize = Globals.GuestHeapRegionSize;
+
+        List<long[]> moves = new ArrayList<>();     // {原地址, 转发地址, 大小}
+        List<long[]> fillers = new ArrayList<>();   // {地址, 大小}
+
+        // 地址0保留作为null
+        long dest = GuestHeap.ObjectAlignmentInBytes;
+        long used = 0;
+
+        // 1.计算转发地址
+        for (Map.Entry<Long, List<Object>> entry : liveBlocks.entrySet()) {
+            long address = entry.getKey();
+            int size = heap.sizeOf(address);
+
+            if (isPinned(address)) {
+                if (dest < address) {
+                    fillers.add(new long[]{dest, address - dest});
+                }
+                dest = address + size;
+            } else {
+                long regionEnd = (dest / regionSize + 1) * regionSize;
+                if (dest + size > regionEnd) {
+                    fillers.add(new long[]{dest, regionEnd - dest});
+                    dest = regionEnd;
+                }
+                moves.add(new long[]{address, dest, size});
+                updateOwners(entry.getValue(), dest);
+                dest += size;
+            }
+            used += size;
+        }
+
+        // 2.移动
+        for (long[] move : moves) {
+            heap.copy(move[0], move[1], move[2]);
+            heap.setMarked(move[1], false);
+        }
+        for (Long address : liveBlocks.keySet()) {
+            if (isPinned(address)) {
+                heap.setMarked(address, false);
+            }
+        }
+        for (long[] filler : fillers) {
+            heap.fill(filler[0], filler[1]);
+        }
+
+        // 3.释放空出来的Region
+        int lastRegion = (int) ((dest - 1) / regionSize);
+        for (int i = lastRegion + 1; i < heap.regionSlots(); i++) {
+            if (heap.isCommitted(i)) {
+                heap.uncommit(i);
+            }
+        }
+
+        heap.resetTop(dest);
+        heap.setUsedBytes(used);
+    }
+}
@@ -0,0 +1,318 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassFileParser;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassPath;
+import org.xyz.jvm.hotspot.src.share.vm.oops.*;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 转储类元数据归档（对应HotSpot的MetaspaceShared::dump，-Xshare:dump）
+ * 按类列表（见 ClassListWriter，每行一个内部形式的类名）从加载路径中读取、解析每个类，把解析出的元数据按 FileMapInfo 中的格式写进归档文件
+ * 类列表中找不到、解析失败的类跳过，运行时照常从Class文件加载
+ * */
+@Slf4j
+public class MetaspaceShared extends AllStatic {
+    /**
+     * @param classList 类列表文件
+     * @param archiveFile 归档文件，已经存在时覆盖
+     * @param searchPath 加载路径，多个目录、jar文件以分号分隔，运行时应使用同样的加载路径，否则类的来源不一致，归档不会被使用
+     * @return 归档的类数
+     * */
+    public static int dump(String classList, String archiveFile, String searchPath) {
+        long start = System.nanoTime();
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(classList), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    names.add(line.replace('.', '/'));
+                }
+            }
+        } catch (IOException e) {
+            throw new Error("读取类列表失败: " + classList, e);
+        }
+
+        ClassPath classPath = ClassPath.open(searchPath);
+        ByteArrayOutputStream records = new ByteArrayOutputStream(1024 * 1024);
+        ByteArrayOutputStream index = new ByteArrayOutputStream(names.size() * 64);
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int count = 0;
+        try {
+            for (String name : names) {
+                ClassPath.ClassFile classFile = classPath.find(name);
+                if (null == classFile) {
+                    log.info("类列表中的类不在加载路径中，跳过: " + name);
+                    continue;
+                }
+
+                byte[] record;
+                try {
+                    record = writeKlass(classFile.read(ClassFileParser::parseClassFile));
+                } catch (RuntimeException | Error e) {
+                    log.info("解析 " + name + " 失败，跳过: " + e);
+                    continue;
+                }
+
+                writeString(indexOut, name);
+                writeString(indexOut, classFile.sharedKey());
+                indexOut.writeInt(FileMapInfo.HEADER_SIZE + records.size());
+                indexOut.writeInt(record.length);
+                indexOut.writeInt(FileMapInfo.crc32(ByteBuffer.wrap(record)));
+                records.write(record);
+                count++;
+            }
+
+            try (OutputStream file = new FileOutputStream(archiveFile)) {
+                DataOutputStream out = new DataOutputStream(file);
+                out.writeInt(FileMapInfo.MAGIC);
+                out.writeInt(FileMapInfo.VERSION);
+                out.writeInt(count);
+                out.writeInt(FileMapInfo.HEADER_SIZE + records.size());
+                records.writeTo(out);
+                index.writeTo(out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new Error("写入类元数据归档失败: " + archiveFile, e);
+        } finally {
+            classPath.close();
+        }
+
+        log.info("转储类元数据归档: " + archiveFile + ", " + count + " 个类, 耗时 " + (System.nanoTime() - start) / 1000000 + " ms");
+        return count;
+    }
+
+    /**
+     * 使用虚拟机的默认加载路径（见 BootClassLoader.searchPath）转储
+     * */
+    public static int dump(String classList, String archiveFile) {
+        return dump(classList, archiveFile, BootClassLoader.getSearchPath());
+    }
+
+    /**
+     * 一个类的记录，格式见 FileMapInfo.readKlass
+     * */
+    private static byte[] writeKlass(InstanceKlass klass) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        out.write(klass.getMagic());
+        out.write(klass.getMinionVersion());
+        out.write(klass.getMajorVersion());
+
+        writeConstantPool(out, klass.getConstantPool());
+
+        out.writeShort(klass.getAccessFlags());
+        out.writeShort(klass.getThisClass());
+        out.writeShort(klass.getSuperClass());
+
+        out.writeShort(klass.getInterfacesCount());
+        for (int i = 0; i < klass.getInterfacesCount(); i++) {
+            out.writeShort(klass.getInterfaces().get(i).getConstantPoolIndex());
+        }
+
+        out.writeShort(klass.getFieldsCount());
+        for (int i = 0; i < klass.getFieldsCount(); i++) {
+            FiledInfo filedInfo = klass.getFields().get(i);
+            out.writeShort(filedInfo.getAccessFlag());
+            out.writeShort(filedInfo.getNameIndex());
+            out.writeShort(filedInfo.getDescriptorIndex());
+            out.writeShort(filedInfo.getAttributesCount());
+            if (filedInfo.getAttributesCount() != 0) {
+                writeAttributes(out, filedInfo.getAttributes());
+            }
+        }
+
+        out.writeShort(klass.getMethodsCount());
+        for (MethodInfo methodInfo : klass.getMethods()) {
+            out.writeShort(methodInfo.getAccessFlags().getFlag());
+            out.writeShort(methodInfo.getNameIndex());
+            out.writeShort(methodInfo.getDescriptorIndex());
+            out.writeShort(methodInfo.getAttributesCount());
+
+            // 延迟解析时在这里解析Code属性
+            CodeAttribute codeAttribute = methodInfo.getCodeAttribute();
+            if (null == codeAttribute) {
+                out.writeInt(0);
+            } else {
+                byte[] code = writeCodeAttribute(codeAttribute);
+                out.writeInt(code.length);
+                out.write(code);
+            }
+
+            writeAttributes(out, methodInfo.getAttributes());
+        }
+
+        out.writeShort(klass.getAttributesCount());
+        if (klass.getAttributesCount() != 0) {
+            writeAttributes(out, klass.getAttributes());
+        }
+
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 常量池，格式见 FileMapInfo.readConstantPool
+     * */
+    private static void writeConstantPool(DataOutputStream out, ConstantPool constantPool) throws IOException {
+        int length = constantPool.getLength();
+        int[] tag = constantPool.getTag();
+        int[] ints = constantPool.getInts();
+
+        out.writeShort(length);
+        for (int i = 0; i < length; i++) {
+            out.writeByte(tag[i]);
+        }
+        int longs = 0;
+        for (int i = 0; i < length; i++) {
+            out.writeInt(ints[i]);
+            if (tag[i] == ConstantPool.JVM_CONSTANT_Long || tag[i] == ConstantPool.JVM_CONSTANT_Double) {
+                longs++;
+            }
+        }
+
+        out.writeShort(longs);
+        for (int i = 0; i < length; i++) {
+            if (tag[i] == ConstantPool.JVM_CONSTANT_Long || tag[i] == ConstantPool.JVM_CONSTANT_Double) {
+                out.writeShort(i);
+                out.writeLong(constantPool.getLongs()[i]);
+            }
+        }
+
+        out.writeInt(constantPool.getUtf8Size());
+        if (constantPool.getUtf8Size() != 0) {
+            out.write(constantPool.getUtf8Bytes(), 0, constantPool.getUtf8Size());
+        }
+    }
+
+    /**
+     * Code属性，格式见 FileMapInfo.readCodeAttribute
+     * */
+    private static byte[] writeCodeAttribute(CodeAttribute codeAttribute) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(codeAttribute.getCodeLength() + 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        out.writeShort(codeAttribute.getAttributeNameIndex());
+        out.writeInt(codeAttribute.getAttributeLength());
+        out.writeShort(codeAttribute.getMaxStack());
+        out.writeShort(codeAttribute.getMaxLocals());
+        out.writeInt(codeAttribute.getCodeLength());
+        out.write(codeAttribute.getCode().getCodes(), 0, codeAttribute.getCodeLength());
+
+        out.writeShort(codeAttribute.getExceptionTableLength());
+        for (int i = 0; i < codeAttribute.getExceptionTableLength(); i++) {
+            CodeAttribute.ExceptionHandler exceptionHandler = codeAttribute.getExceptionTables().get(i);
+            out.writeShort(exceptionHandler.getStartPc());
+            out.writeShort(exceptionHandler.getEndPc());
+            out.writeShort(exceptionHandler.getHandlerPc());
+            out.writeShort(exceptionHandler.getCatchType());
+        }
+
+        out.writeShort(codeAttribute.getAttributesCount());
+        if (codeAttribute.getAttributesCount() != 0) {
+            writeAttributes(out, codeAttribute.getAttributes());
+        }
+
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * 属性表，格式见 FileMapInfo.readAttributes
+     * */
+    private static void writeAttributes(DataOutputStream out, Map<String, Attribute> attributes) throws IOException {
+        out.writeShort(attributes.size());
+        for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
+            int kind = FileMapInfo.attributeKind(entry.getKey());
+            if (0 == kind) {
+                throw new Error("不支持归档的属性: " + entry.getKey());
+            }
+            Attribute attribute = entry.getValue();
+            out.writeByte(kind);
+            out.writeShort(attribute.getAttributeNameIndex());
+            out.writeInt(attribute.getAttributeLength());
+
+            if (attribute instanceof ConstantValueAttribute) {
+                out.writeShort(((ConstantValueAttribute) attribute).getConstantValueIndex());
+            } else if (attribute instanceof ExceptionAttribute) {
+                ExceptionAttribute exception = (ExceptionAttribute) attribute;
+                out.writeShort(exception.getNumberOfExceptions());
+                for (int i = 0; i < exception.getNumberOfExceptions(); i++) {
+                    out.writeShort(exception.getExceptionIndexTable().get(i));
+                }
+            } else if (attribute instanceof LineNumberTableAttribute) {
+                LineNumberTableAttribute lineNumberTable = (LineNumberTableAttribute) attribute;
+                out.writeShort(lineNumberTable.getLineNumberTableLength());
+                for (int i = 0; i < lineNumberTable.getLineNumberTableLength(); i++) {
+                    LineNumberTableAttribute.LineNumber lineNumber = lineNumberTable.getLineNumberTables().get(i);
+                    out.writeShort(lineNumber.getStartPc());
+                    out.writeShort(lineNumber.getLineNumber());
+                }
+            } else if (attribute instanceof LocalVariableTableAttribute) {
+                LocalVariableTableAttribute localVariableTable = (LocalVariableTableAttribute) attribute;
+                out.writeShort(localVariableTable.getLocalVariableTableLength());
+                for (int i = 0; i < localVariableTable.getLocalVariableTableLength(); i++) {
+                    LocalVariableTableAttribute.LocalVariable localVariable = localVariableTable.getLocalVariableTable().get(i);
+                    out.writeShort(localVariable.getStartPc());
+                    out.writeShort(localVariable.getLength());
+                    out.writeShort(localVariable.getNameIndex());
+                    out.writeShort(localVariable.getDescriptorIndex());
+                    out.writeShort(localVariable.getIndex());
+                }
+            } else if (attribute instanceof SourceFileAttribute) {
+                out.writeShort(((SourceFileAttribute) attribute).getSourceFileIndex());
+            } else if (attribute instanceof StackMapTableAttribute) {
+                StackMapTableAttribute stackMapTable = (StackMapTableAttribute) attribute;
+                out.writeShort(stackMapTable.getFrameBcis().size());
+                for (int bci : stackMapTable.getFrameBcis()) {
+                    out.writeShort(bci);
+                }
+            } else if (attribute instanceof BootstrapMethods) {
+                BootstrapMethods bootstrapMethods = (BootstrapMethods) attribute;
+                out.writeShort(bootstrapMethods.getNumberOfBootstrapMethods());
+                for (int i = 0; i < bootstrapMethods.getNumberOfBootstrapMethods(); i++) {
+                    BootstrapMethods.BootstrapMethod bootstrapMethod = bootstrapMethods.getBootstrapMethods().get(i);
+                    out.writeShort(bootstrapMethod.getBootstrapMethodRef());
+                    out.writeShort(bootstrapMethod.getNumOfBootstrapArguments());
+                    for (int j = 0; j < bootstrapMethod.getNumOfBootstrapArguments(); j++) {
+                        out.writeShort(bootstrapMethod.getBootstrapArguments().get(j));
+                    }
+                }
+            } else if (attribute instanceof InnerClassAttribute) {
+                InnerClassAttribute innerClasses = (InnerClassAttribute) attribute;
+                out.writeShort(innerClasses.getNumberOfClasses());
+                for (int i = 0; i < innerClasses.getNumberOfClasses(); i++) {
+                    InnerClassAttribute.Class aClass = innerClasses.getClasses().get(i);
+                    out.writeShort(aClass.getInnerClassInfoIndex());
+                    out.writeShort(aClass.getOuterClassInfoIndex());
+                    out.writeShort(aClass.getInnerClassNameIndex());
+                    out.writeShort(aClass.getInnerClassAccessFlags().getFlag());
+                }
+            } else {
+                throw new Error("不支持归档的属性: " + entry.getKey());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,61 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 复制回收器
+ * 回收开始时正在使用的所有Region作为from-space，存活的内存块被依次复制到新分配的Region（to-space）中，
+ * 复制完成后释放from-space，因此回收过程中最多需要两倍于存活数据的空间
+ * 包含原始内存（不能移动）的Region不释放，原地保留
+ * */
+public class SemispaceCollector extends GarbageCollector {
+
+    @Override
+    public String getName() {
+        return "Semispace";
+    }
+
+    @Override
+    protected void reclaim() {
+        int slots = heap.regionSlots();
+
+        // from-space，以及其中包含原始内存的Region
+        boolean[] fromSpace = new boolean[slots];
+        boolean[] pinnedRegion = new boolean[slots];
+        for (int i = 0; i < slots; i++) {
+            fromSpace[i] = heap.isCommitted(i);
+        }
+
+        // 之后的分配都在新的Region中
+        heap.retireRegion();
+
+        long used = 0;
+        for (Map.Entry<Long, List<Object>> entry : liveBlocks.entrySet()) {
+            long address = entry.getKey();
+            int size = heap.sizeOf(address);
+            used += size;
+
+            heap.setMarked(address, false);
+            if (isPinned(address)) {
+                pinnedRegion[(int) (address / Globals.GuestHeapRegionSize)] = true;
+                continue;
+            }
+
+            long newAddress = heap.allocateForCopy(size, heap.kindOf(address));
+            heap.copy(GuestHeap.payload(address), GuestHeap.payload(newAddress), size - GuestHeap.HeaderSize);
+            updateOwners(entry.getValue(), newAddress);
+        }
+
+        // 释放from-space
+        for (int i = 0; i < slots; i++) {
+            if (fromSpace[i] && !pinnedRegion[i]) {
+                heap.uncommit(i);
+            }
+        }
+
+        heap.setUsedBytes(used);
+    }
+}
@@ -0,0 +1,118 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+
+/**
+ * 线程私有的分配缓冲区（Thread Local Allocation Buffer）
+ * 每个JavaThread从虚拟机堆中划出一段空间，在其中分配只需要移动线程私有的top指针，不需要和其他线程竞争
+ * TLAB用完后重新申请（refill），申请时才会CAS修改虚拟机堆共享的top指针
+ * */
+@Data
+@Slf4j
+public class ThreadLocalAllocBuffer {
+    // TLAB所在的虚拟机堆，第一次申请时绑定（线程所属Isolate的堆）
+    private GuestHeap heap;
+
+    // 当前TLAB的起始地址、分配指针、结束地址，start为0表示还没有申请TLAB
+    private long start;
+    private long top;
+    private long end;
+
+    // 当前TLAB中分配的字节数和次数，退休时汇总到虚拟机堆的计数器
+    private long pendingBytes;
+    private long pendingCount;
+
+    /*************************************************************************
+     * 统计信息
+     * */
+    // TLAB中累计分配的字节数
+    private long allocatedBytes;
+    // TLAB中累计分配的次数
+    private long allocations;
+    // 申请TLAB的次数
+    private long refills;
+    // TLAB退休时丢弃的剩余空间
+    private long wastedBytes;
+    // 放不下、直接在共享空间分配的次数
+    private long slowAllocations;
+
+    /**
+     * 在TLAB中分配一块内存
+     * @param heap 虚拟机堆
+     * @param size 内存块大小（包括头，已对齐）
+     * @param kind 内存块类型
+     * @return 内存块地址，返回0表示需要在共享空间分配
+     * */
+    public long allocate(GuestHeap heap, long size, int kind) {
+        if (top + size > end) {
+            long desiredSize = desiredSize();
+            // 对象比TLAB还大，或者剩余空间还比较多不值得丢弃，直接在共享空间分配
+            if (size > desiredSize || end - top > desiredSize / Globals.TLABRefillWasteFraction) {
+                slowAllocations++;
+                return 0;
+            }
+            retire();
+            refill(heap, desiredSize);
+        }
+
+        long address = top;
+        top += size;
+        heap.writeHeader(address, size, kind);
+
+        allocatedBytes += size;
+        allocations++;
+        pendingBytes += size;
+        pendingCount++;
+        return address;
+    }
+
+    /**
+     * 申请一个新的TLAB
+     * */
+    private void refill(GuestHeap heap, long size) {
+        this.heap = heap;
+        start = heap.allocateTlab(size);
+        top = start;
+        end = start + size;
+        refills++;
+    }
+
+    /**
+     * 退休当前TLAB: 剩余空间用空闲块填充，保证堆可解析；分配统计汇总到虚拟机堆
+     * */
+    public void retire() {
+        if (0 != start) {
+            if (end > top) {
+                heap.fill(top, end - top);
+                wastedBytes += end - top;
+            }
+            heap.recordTlabAllocations(pendingBytes, pendingCount);
+        }
+        start = top = end = 0;
+        pendingBytes = pendingCount = 0;
+    }
+
+    private static long desiredSize() {
+        return GuestHeap.alignUp(Math.min(Globals.TLABSize, Globals.GuestHeapRegionSize));
+    }
+
+    /**
+     * 垃圾回收前退休Isolate中所有线程的TLAB
+     * */
+    static void retireAll(Isolate isolate) {
+        for (Thread thread : isolate.getThreadList()) {
+            if (thread instanceof JavaThread) {
+                ((JavaThread) thread).getTlab().retire();
+            }
+        }
+    }
+
+    public String printStatistics() {
+        return "TLAB: " + allocations + " 次分配 / " + allocatedBytes + " bytes, " + refills + " 次申请, 浪费 "
+                + wastedBytes + " bytes, " + slowAllocations + " 次在共享空间分配";
+    }
+}
@@ -1,7 +1,22 @@
 package org.xyz.jvm.hotspot.src.share.vm.oops;
 
 import lombok.Data;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
+import org.xyz.jvm.hotspot.src.share.vm.memory.GuestHeap;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ResourceQuota;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
 
+/**
+ * 数组对象
+ * 基本类型的一维数组直接使用对应的宿主数组(int[]、byte[]等)存储元素，引用类型数组使用Object[]存储元素
+ * 这样在通过反射调用java体系的方法(如 Arrays.sort、String.valueOf(char[]))时，可以直接把宿主数组传过去，不需要逐个元素拷贝
+ *
+ * 启用虚拟机堆（Globals.UseGuestHeap）时，基本类型一维数组的元素存储在堆外的虚拟机堆中，address指向对应的内存块，
+ * 此时反射调用需要把元素拷贝成宿主数组，调用结束后再通过 syncHostArray 写回
+ * 超过一个Region的大数组（见 GuestHeap.isHumongous）虚拟机堆放不下，仍然使用宿主数组存储
+ * */
 @Data
 public class ArrayOop {
     // 数组元素类型
@@ -16,28 +31,211 @@ public class ArrayOop {
     // 数组维度
     private int dimension;
 
-    private Object[] data;
+    // 真实存储数组元素的宿主数组
+    private Object data;
+
+    // 元素存储在虚拟机堆中时，对应内存块的地址，0表示元素存储在宿主数组中
+    private long address;
+
+    // 元素存储在虚拟机堆中时，分配它的虚拟机堆（所属Isolate的堆）
+    private GuestHeap heap;
 
     public Object get(int index) {
-        if (index < 0 || index > size) {
-            throw new ArrayIndexOutOfBoundsException("数组访问越界");
+        checkIndex(index);
+
+        if (0 != address) {
+            return load(index);
+        }
+
+        switch (type) {
+            // boolean数组和byte数组共用baload、bastore指令，所以boolean数组元素以byte的形式读出
+            case BasicType.T_BOOLEAN:
+                return (byte) (((boolean[]) data)[index] ? 1 : 0);
+            case BasicType.T_BYTE:
+                return ((byte[]) data)[index];
+            case BasicType.T_CHAR:
+                return ((char[]) data)[index];
+            case BasicType.T_SHORT:
+                return ((short[]) data)[index];
+            case BasicType.T_INT:
+                return ((int[]) data)[index];
+            case BasicType.T_LONG:
+                return ((long[]) data)[index];
+            case BasicType.T_FLOAT:
+                return ((float[]) data)[index];
+            case BasicType.T_DOUBLE:
+                return ((double[]) data)[index];
+            default:
+                return ((Object[]) data)[index];
         }
-        return data[index];
     }
 
     public void set(int index, Object object) {
-        if (index < 0 || index > size) {
-            throw new ArrayIndexOutOfBoundsException("数组访问越界");
+        checkIndex(index);
+
+        if (0 != address) {
+            store(index, object);
+            return;
+        }
+
+        switch (type) {
+            case BasicType.T_BOOLEAN:
+                ((boolean[]) data)[index] = object instanceof Boolean ? (Boolean) object : ((Number) object).intValue() != 0;
+                break;
+            case BasicType.T_BYTE:
+                ((byte[]) data)[index] = (byte) object;
+                break;
+            case BasicType.T_CHAR:
+                ((char[]) data)[index] = (char) object;
+                break;
+            case BasicType.T_SHORT:
+                ((short[]) data)[index] = (short) object;
+                break;
+            case BasicType.T_INT:
+                ((int[]) data)[index] = (int) object;
+                break;
+            case BasicType.T_LONG:
+                ((long[]) data)[index] = (long) object;
+                break;
+            case BasicType.T_FLOAT:
+                ((float[]) data)[index] = (float) object;
+                break;
+            case BasicType.T_DOUBLE:
+                ((double[]) data)[index] = (double) object;
+                break;
+            default:
+                Object[] elements = (Object[]) data;
+                // 宿主机创建的多维数组（如 int[][]）只能保存宿主数组，数组对象迁移到宿主数组后存入，之后aaload取出时再接管
+                if (object instanceof ArrayOop && !elements.getClass().getComponentType().isInstance(object)) {
+                    ArrayOop array = (ArrayOop) object;
+                    array.escapeElements();
+                    object = array.escapeToHost();
+                }
+                elements[index] = object;
+        }
+    }
+
+    /**
+     * 是否是基本类型的一维数组
+     * */
+    public boolean isPrimitive() {
+        return dimension == 1 && type >= BasicType.T_BOOLEAN && type <= BasicType.T_LONG;
+    }
+
+    /**
+     * 元素是否存储在虚拟机堆中
+     * */
+    public boolean isHeapAllocated() {
+        return 0 != address;
+    }
+
+    /**
+     * 获取存储数组元素的宿主数组，不做拷贝，对宿主数组的修改对该数组对象可见
+     * 元素存储在虚拟机堆中时，返回的是元素的拷贝，修改后需要调用 syncHostArray 写回
+     * @return 宿主数组
+     * */
+    public Object getHostArray() {
+        if (0 == address) {
+            return data;
+        }
+
+        Object hostArray = allocate(type, size);
+        heap.read(GuestHeap.payload(address), hostArray, size);
+        return hostArray;
+    }
+
+    /**
+     * 将元素从虚拟机堆迁移到宿主数组，之后该数组对象不再使用虚拟机堆，原来的内存块等待垃圾回收
+     * 数组被存入宿主对象的字段时需要这样做，否则字段中保存的只是一份拷贝，之后双方的修改互相不可见
+     * @return 宿主数组
+     * */
+    public Object escapeToHost() {
+        if (0 != address) {
+            data = getHostArray();
+            address = 0;
+        }
+        return data;
+    }
+
+    /**
+     * 将 getHostArray 拷贝出去的宿主数组写回虚拟机堆，元素存储在宿主数组中时什么都不做
+     * 内存块的地址在写回时才读取: 拷贝之后（如阻塞在反射调用中时）发生垃圾回收，内存块被移动，写回的是移动后的位置
+     * 必须在结束阻塞之后调用，否则可能和正在移动内存块的垃圾回收同时进行
+     * @param hostArray getHostArray 返回的宿主数组
+     * */
+    public void syncHostArray(Object hostArray) {
+        if (0 == address || hostArray == data) {
+            return;
+        }
+
+        heap.write(GuestHeap.payload(address), hostArray, size);
+    }
+
+    /**
+     * 引用类型数组（包括多维数组）交给宿主机之前调用: 元素中存储在虚拟机堆中的数组迁移到宿主数组（见 escapeToHost）
+     * 宿主机保存了该数组时（如 Arrays.asList），其中的数组对象只被宿主机引用，不是垃圾回收的根，留在虚拟机堆中会被回收
+     * */
+    public void escapeElements() {
+        if (!Globals.UseGuestHeap || isPrimitive() || !(data instanceof Object[])) {
+            return;
+        }
+        for (Object element : (Object[]) data) {
+            if (element instanceof ArrayOop) {
+                ArrayOop array = (ArrayOop) element;
+                array.escapeToHost();
+                array.escapeElements();
+            }
+        }
+    }
+
+    /**
+     * 直接接管一个宿主数组作为数组对象的存储，不做拷贝
+     * 用于将反射调用java体系方法返回的数组（如 Arrays.copyOf 的返回值）转成数组对象
+     * 多维数组只接管最外层，内层的宿主数组在aaload取出时再接管（见 BytecodeInterpreter.aALoad），外层仍然和宿主机共享
+     * @param hostArray 宿主数组，如 int[]、char[]、String[]
+     * @return 数组对象，hostArray为null时返回null
+     * */
+    public static ArrayOop fromHostArray(Object hostArray) {
+        if (null == hostArray) {
+            return null;
+        }
+
+        Class<?> clazz = hostArray.getClass();
+        if (!clazz.isArray()) {
+            throw new Error("不是数组类型: " + clazz.getName());
+        }
+
+        // 计算数组维度以及最内层的元素类型
+        int dimension = 0;
+        Class<?> elementClazz = clazz;
+        while (elementClazz.isArray()) {
+            elementClazz = elementClazz.getComponentType();
+            dimension++;
         }
-        data[index] = object;
+
+        int length = java.lang.reflect.Array.getLength(hostArray);
+        ArrayOop arrayOop;
+        if (dimension == 1 && elementClazz.isPrimitive()) {
+            arrayOop = new ArrayOop(typeOf(elementClazz), length, dimension, hostArray);
+        } else {
+            arrayOop = new ArrayOop(BasicType.T_OBJECT, length, dimension, hostArray);
+            arrayOop.referenceName = SymbolTable.internalName(elementClazz.getName());
+        }
+        return arrayOop;
     }
 
     public ArrayOop(int type, int size) {
         this.type = type;
         this.size = size;
         this.dimension = 1;
+        ResourceQuota.allocate(allocationSize());
 
-        data = new Object[size];
+        if (Globals.UseGuestHeap && isPrimitive() && !GuestHeap.isHumongous((long) size * elementSize(type))) {
+            heap = GuestHeap.current();
+            address = heap.allocateZeroed((long) size * elementSize(type), GuestHeap.KIND_ARRAY);
+        } else {
+            data = allocate(type, size);
+        }
     }
 
     public ArrayOop(int type, String referenceName, int size) {
@@ -45,14 +243,16 @@ public class ArrayOop {
         this.size = size;
         this.referenceName = referenceName;
         this.dimension = 1;
+        ResourceQuota.allocate(allocationSize());
 
-        data = new Object[size];
+        data = allocateReference(referenceName, size);
     }
 
     public ArrayOop(int type, int size, int dimension) {
         this.type = type;
         this.size = size;
         this.dimension = dimension;
+        ResourceQuota.allocate(allocationSize());
 
         data = new Object[size];
     }
@@ -62,7 +262,179 @@ public class ArrayOop {
         this.size = size;
         this.referenceName = referenceName;
         this.dimension = dimension;
+        ResourceQuota.allocate(allocationSize());
 
         data = new Object[size];
     }
+
+    private ArrayOop(int type, int size, int dimension, Object data) {
+        this.type = type;
+        this.size = size;
+        this.dimension = dimension;
+        this.data = data;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException("数组访问越界: " + index);
+        }
+    }
+
+    /**
+     * 数组元素在虚拟机堆中的地址
+     * */
+    private long elementAddress(int index) {
+        return GuestHeap.payload(address) + (long) index * elementSize(type);
+    }
+
+    /**
+     * 从虚拟机堆中读取数组元素
+     * */
+    private Object load(int index) {
+        long addr = elementAddress(index);
+        switch (type) {
+            case BasicType.T_BOOLEAN:
+            case BasicType.T_BYTE:
+                return heap.getByte(addr);
+            case BasicType.T_CHAR:
+                return heap.getChar(addr);
+            case BasicType.T_SHORT:
+                return heap.getShort(addr);
+            case BasicType.T_INT:
+                return heap.getInt(addr);
+            case BasicType.T_LONG:
+                return heap.getLong(addr);
+            case BasicType.T_FLOAT:
+                return heap.getFloat(addr);
+            case BasicType.T_DOUBLE:
+                return heap.getDouble(addr);
+            default:
+                throw new Error("虚拟机堆中不支持的数组元素类型: " + type);
+        }
+    }
+
+    /**
+     * 向虚拟机堆中写入数组元素
+     * */
+    private void store(int index, Object object) {
+        long addr = elementAddress(index);
+        switch (type) {
+            case BasicType.T_BOOLEAN:
+                heap.putByte(addr, (byte) (object instanceof Boolean ? ((Boolean) object ? 1 : 0) : (((Number) object).intValue() != 0 ? 1 : 0)));
+                break;
+            case BasicType.T_BYTE:
+                heap.putByte(addr, (byte) object);
+                break;
+            case BasicType.T_CHAR:
+                heap.putChar(addr, (char) object);
+                break;
+            case BasicType.T_SHORT:
+                heap.putShort(addr, (short) object);
+                break;
+            case BasicType.T_INT:
+                heap.putInt(addr, (int) object);
+                break;
+            case BasicType.T_LONG:
+                heap.putLong(addr, (long) object);
+                break;
+            case BasicType.T_FLOAT:
+                heap.putFloat(addr, (float) object);
+                break;
+            case BasicType.T_DOUBLE:
+                heap.putDouble(addr, (double) object);
+                break;
+            default:
+                throw new Error("虚拟机堆中不支持的数组元素类型: " + type);
+        }
+    }
+
+    /**
+     * 数组占用的字节数，计入资源配额: 头 + 元素，引用按压缩指针的4个字节计算
+     * */
+    private long allocationSize() {
+        return GuestHeap.HeaderSize + (long) size * (isPrimitive() ? elementSize(type) : 4);
+    }
+
+    /**
+     * 基本类型数组元素的字节数
+     * */
+    public static int elementSize(int type) {
+        switch (type) {
+            case BasicType.T_BOOLEAN:
+            case BasicType.T_BYTE:
+                return 1;
+            case BasicType.T_CHAR:
+            case BasicType.T_SHORT:
+                return 2;
+            case BasicType.T_INT:
+            case BasicType.T_FLOAT:
+                return 4;
+            case BasicType.T_LONG:
+            case BasicType.T_DOUBLE:
+                return 8;
+            default:
+                throw new Error("不是基本类型: " + type);
+        }
+    }
+
+    /**
+     * 根据数组元素类型分配宿主数组
+     * @param type 数组元素类型，即newarray指令的atype
+     * @param size 数组大小
+     * */
+    private static Object allocate(int type, int size) {
+        switch (type) {
+            case BasicType.T_BOOLEAN:
+                return new boolean[size];
+            case BasicType.T_BYTE:
+                return new byte[size];
+            case BasicType.T_CHAR:
+                return new char[size];
+            case BasicType.T_SHORT:
+                return new short[size];
+            case BasicType.T_INT:
+                return new int[size];
+            case BasicType.T_LONG:
+                return new long[size];
+            case BasicType.T_FLOAT:
+                return new float[size];
+            case BasicType.T_DOUBLE:
+                return new double[size];
+            default:
+                return new Object[size];
+        }
+    }
+
+    /**
+     * 分配引用类型数组
+     * 元素类型是java体系的类时，分配对应类型的宿主数组(如String[])，这样反射调用时可以直接传递；其他情况使用Object[]
+     * @param referenceName 元素类名，如 java/lang/String
+     * @param size 数组大小
+     * */
+    private static Object allocateReference(String referenceName, int size) {
+        if (null != referenceName && referenceName.startsWith("java")) {
+            try {
+                Class<?> clazz = BootClassLoader.loadHostClass(SymbolTable.externalName(referenceName));
+                return java.lang.reflect.Array.newInstance(clazz, size);
+            } catch (ClassNotFoundException e) {
+                // 找不到对应的宿主类时退化为Object[]
+            }
+        }
+        return new Object[size];
+    }
+
+    /**
+     * 宿主基本类型对应的JVM内部类型
+     * */
+    private static int typeOf(Class<?> clazz) {
+        if (clazz == boolean.class) return BasicType.T_BOOLEAN;
+        if (clazz == byte.class) return BasicType.T_BYTE;
+        if (clazz == char.class) return BasicType.T_CHAR;
+        if (clazz == short.class) return BasicType.T_SHORT;
+        if (clazz == int.class) return BasicType.T_INT;
+        if (clazz == long.class) return BasicType.T_LONG;
+        if (clazz == float.class) return BasicType.T_FLOAT;
+        if (clazz == double.class) return BasicType.T_DOUBLE;
+        throw new Error("无法识别的基本类型: " + clazz);
+    }
 }
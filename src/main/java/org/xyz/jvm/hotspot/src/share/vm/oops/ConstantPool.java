@@ -1,17 +1,19 @@
 package org.xyz.jvm.hotspot.src.share.vm.oops;
 
 import lombok.Data;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * 常量池由5种结构的类型
- * 1.CONSTANT_Utf8_info:                            tag(u1)     length(u2)      byte[length]                解析时解析成String，获取时再进行类型强转
- * 2.CONSTANT_Integer_info、CONSTANT_Float_info      tag(u1)     bytes[4](u4)                               解析时解析成Integer、Float，获取时再进行类型强转
- * 3.CONSTANT_Long_info、CONSTANT_Double_info:       tag(u1)     bytes[8](u8)                               解析时解析成Long、Double，获取时再进行类型强转
- * 4.CONSTANT_String_info、CONSTANT_Class_info:      tag(u1)     index(u2)                                  获取时获取真正的内容，比如字符串值、类名
- * 5.CONSTANT_NameAndType_info、CONSTANT_Fieldref_info、CONSTANT_Methodref_info、CONSTANT_InterfaceMethodref_info:     tag(u1)     index(u2)      index(u2)    解析时两个u2存储在一个int中，获取时进行处理
+ * 1.CONSTANT_Utf8_info:                            tag(u1)     length(u2)      byte[length]                解析时只拷贝内容（见 utf8Bytes），第一次获取时才解码成符号（见 SymbolTable），存在 objects 中
+ * 2.CONSTANT_Integer_info、CONSTANT_Float_info      tag(u1)     bytes[4](u4)                               存在 ints 中，Float存它的位
+ * 3.CONSTANT_Long_info、CONSTANT_Double_info:       tag(u1)     bytes[8](u8)                               存在 longs 中，Double存它的位
+ * 4.CONSTANT_String_info、CONSTANT_Class_info:      tag(u1)     index(u2)                                  索引存在 ints 中，获取时获取真正的内容，比如字符串值、类名
+ * 5.CONSTANT_NameAndType_info、CONSTANT_Fieldref_info、CONSTANT_Methodref_info、CONSTANT_InterfaceMethodref_info:     tag(u1)     index(u2)      index(u2)    两个u2存储在 ints 的一个int中（高16位、低16位），获取时进行处理
+ *
+ * 按常量池的索引存在几个平行的数组中（对应HotSpot的ConstantPool把常量存在紧跟其后的数组中），不装箱，获取时直接读数组
  * */
 @Data
 public class ConstantPool {
@@ -40,8 +42,18 @@ public class ConstantPool {
 
     // 常量池的索引-->常量池项的类型tag
     private int[] tag;
-    // 常量池的索引-->常量池项
-    private Map<Integer, Object> dataMap;
+    // 常量池的索引-->常量池项中的int: Integer、Float（位）的值，Class、String、MethodType的索引，两个u2组成的项
+    private int[] ints;
+    // 常量池的索引-->Long、Double（位）的值，常量池中没有这两种项时为null
+    private long[] longs;
+    // 常量池的索引-->Utf8解码后的字符串，还没有解码的为null
+    private Object[] objects;
+
+    // Utf8结构的内容，按常量池中的顺序拷贝在一起，每个结构为 length(u2) + bytes，ints中存结构的开始位置
+    // 大部分Utf8（签名、调试信息中的名字、属性名）运行时用不到，解析时不解码，第一次获取时才解码（见 getUtf8）
+    private byte[] utf8Bytes;
+    // utf8Bytes中已经使用的长度
+    private int utf8Size;
 
     public ConstantPool(Klass klass) {
         this.klass = klass;
@@ -49,7 +61,66 @@ public class ConstantPool {
 
     public void initContainer() {
         tag = new int[length];
-        dataMap = new HashMap<>(length);
+        ints = new int[length];
+        objects = new Object[length];
+    }
+
+    public void intAtPut(int index, int value) {
+        ints[index] = value;
+    }
+
+    public void floatAtPut(int index, float value) {
+        ints[index] = Float.floatToRawIntBits(value);
+    }
+
+    public void longAtPut(int index, long value) {
+        if (null == longs) {
+            longs = new long[length];
+        }
+        longs[index] = value;
+    }
+
+    public void doubleAtPut(int index, double value) {
+        longAtPut(index, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * 两个u2组成的项
+     * @param high 第一个u2，如 class_index、name_index
+     * @param low 第二个u2，如 name_and_type_index、descriptor_index
+     * */
+    public void shortsAtPut(int index, int high, int low) {
+        ints[index] = high << 16 | low;
+    }
+
+    /**
+     * 为Utf8结构的内容预留空间，内容由调用者读入 utf8Bytes 的 [返回值, 返回值 + length)
+     * @param index Utf8 结构在常量池中的索引
+     * @param length 内容的字节数
+     * @return 内容在 utf8Bytes 中的开始位置
+     * */
+    public int utf8AtPut(int index, int length) {
+        int start = utf8Size;
+        int end = start + 2 + length;
+        if (null == utf8Bytes) {
+            utf8Bytes = new byte[Math.max(end, this.length * 16)];
+        } else if (end > utf8Bytes.length) {
+            utf8Bytes = Arrays.copyOf(utf8Bytes, Math.max(end, utf8Bytes.length * 2));
+        }
+        utf8Bytes[start] = (byte) (length >>> 8);
+        utf8Bytes[start + 1] = (byte) length;
+        utf8Size = end;
+        ints[index] = start;
+        return start + 2;
+    }
+
+    /**
+     * 常量池解析完成后调用，释放 utf8Bytes 中多余的空间
+     * */
+    public void trimUtf8() {
+        if (null != utf8Bytes && utf8Bytes.length != utf8Size) {
+            utf8Bytes = Arrays.copyOf(utf8Bytes, utf8Size);
+        }
     }
 
     /**
@@ -66,44 +137,114 @@ public class ConstantPool {
      * @return Utf8 结构存储的字符串值
      * */
     public String getUtf8(int index) {
-        if (!checkIndex(index)) return null;
-        return (String) dataMap.get(index);
+        if (!checkIndex(index) || tag[index] != JVM_CONSTANT_Utf8) return null;
+        Object value = objects[index];
+        if (null == value) {
+            // 多个线程可能同时解码，从符号表中得到的是同一个String
+            value = SymbolTable.lookup(decodeUtf8(ints[index] + 2, getUtf8Length(index)));
+            objects[index] = value;
+        }
+        return (String) value;
+    }
+
+    /**
+     * @param index Utf8 结构在常量池中的索引
+     * @return Utf8 结构内容的字节数
+     * */
+    public int getUtf8Length(int index) {
+        int start = ints[index];
+        return (utf8Bytes[start] & 0xFF) << 8 | (utf8Bytes[start + 1] & 0xFF);
+    }
+
+    /**
+     * 比较Utf8结构的值和字符串是否相等，查找方法、字段时使用
+     * 还没有解码时直接按字节比较，不解码、不创建String（名字、描述符都是ASCII，不相等时通常第一个字节就不同）
+     * @param index Utf8 结构在常量池中的索引
+     * @param value 比较的字符串
+     * @return true 相等
+     * */
+    public boolean utf8Equals(int index, String value) {
+        if (!checkIndex(index) || tag[index] != JVM_CONSTANT_Utf8) return false;
+        Object decoded = objects[index];
+        if (null != decoded) {
+            return decoded.equals(value);
+        }
+
+        // 每个字符至少编码成一个字节，字节数等于字符数时只能全是单字节的字符
+        int length = getUtf8Length(index);
+        if (length < value.length()) {
+            return false;
+        }
+        if (length > value.length()) {
+            return value.equals(getUtf8(index));
+        }
+        int start = ints[index] + 2;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c >= 0x80 || utf8Bytes[start + i] != (byte) c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解码Class文件中的Utf8（modified UTF-8: 字符0编码成两个字节，增补字符编码成两个三字节的代理对）
+     * */
+    private String decodeUtf8(int offset, int length) {
+        char[] chars = new char[length];
+        int n = 0;
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            int b = utf8Bytes[i++] & 0xFF;
+            if (b < 0x80) {
+                chars[n++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0 && i < end) {
+                chars[n++] = (char) ((b & 0x1F) << 6 | utf8Bytes[i++] & 0x3F);
+            } else if ((b & 0xF0) == 0xE0 && i + 1 < end) {
+                chars[n++] = (char) ((b & 0x0F) << 12 | (utf8Bytes[i++] & 0x3F) << 6 | utf8Bytes[i++] & 0x3F);
+            } else {
+                throw new Error("不合法的Utf8结构: 位置 " + (i - 1 - offset));
+            }
+        }
+        return new String(chars, 0, n);
     }
 
     /**
      * @param index Integer 结构在常量池中的索引
      * @return Integer 结构的值
      * */
-    public Integer getInteger(int index) {
-        if (!checkIndex(index)) return null;
-        return (int) dataMap.get(index);
+    public int getInteger(int index) {
+        if (!checkIndex(index)) throw new Error("常量池索引越界: " + index);
+        return ints[index];
     }
 
     /**
      * @param index Float 结构在常量池中的索引
      * @return Float 结构的值
      * */
-    public Float getFloat(int index) {
-        if (!checkIndex(index)) return null;
-        return (float) dataMap.get(index);
+    public float getFloat(int index) {
+        if (!checkIndex(index)) throw new Error("常量池索引越界: " + index);
+        return Float.intBitsToFloat(ints[index]);
     }
 
     /**
      * @param index Long 结构在常量池中的索引
      * @return Long 结构的值
      * */
-    public Long getLong(int index) {
-        if (!checkIndex(index)) return null;
-        return (long) dataMap.get(index);
+    public long getLong(int index) {
+        if (!checkIndex(index)) throw new Error("常量池索引越界: " + index);
+        return longs[index];
     }
 
     /**
      * @param index Double 结构在常量池中的索引
      * @return Double 结构的值
      * */
-    public Double getDouble(int index) {
-        if (!checkIndex(index)) return null;
-        return (double) dataMap.get(index);
+    public double getDouble(int index) {
+        if (!checkIndex(index)) throw new Error("常量池索引越界: " + index);
+        return Double.longBitsToDouble(longs[index]);
     }
 
     /**
@@ -115,7 +256,7 @@ public class ConstantPool {
      */
     public String getString(int index) {
         if (!checkIndex(index)) return null;
-        return getUtf8((int) dataMap.get(index));
+        return getUtf8(ints[index]);
     }
 
     /**
@@ -124,7 +265,7 @@ public class ConstantPool {
      * */
     public String getClassName(int index) {
         if (!checkIndex(index)) return null;
-        return getUtf8((int) dataMap.get(index));
+        return getUtf8(ints[index]);
     }
 
     /**
@@ -136,7 +277,7 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 MethodType 在常量池中的信息(descriptor_index)
-        int descriptor_index = (int) dataMap.get(index);
+        int descriptor_index = ints[index];
 
         return getUtf8(descriptor_index);
     }
@@ -150,10 +291,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return -1;
 
         // 获取 MethodHandle 在常量池中的信息(reference_kind + reference_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 reference_kind，int的前2个字节
-        int referenceKind = data >> 16;
+        int referenceKind = data >>> 16;
 
         return referenceKind;
     }
@@ -167,10 +308,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 MethodHandle 在常量池中的信息(reference_kind + reference_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 reference_index，int的后2个字节
-        int reference_index = data & 0xFF;
+        int reference_index = data & 0xFFFF;
 
         return getMethodName(reference_index);
     }
@@ -184,10 +325,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 MethodHandle 在常量池中的信息(reference_kind + reference_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 reference_index，int的后2个字节
-        int reference_index = data & 0xFF;
+        int reference_index = data & 0xFFFF;
 
         return getMethodDescriptor(reference_index);
     }
@@ -201,10 +342,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 MethodHandle 在常量池中的信息(reference_kind + reference_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 reference_index，int的后2个字节
-        int reference_index = data & 0xFF;
+        int reference_index = data & 0xFFFF;
 
         return getClassNameByMethodInfo(reference_index);
     }
@@ -218,10 +359,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return -1;
 
         // 获取 InvokeDynamic 在常量池中的信息(bootstrap_method_attr_index + name_and_type_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 bootstrap_method_attr_index，int的前2个字节
-        int bootstrapMethodAttrIndex = data >> 16;
+        int bootstrapMethodAttrIndex = data >>> 16;
 
         return bootstrapMethodAttrIndex;
     }
@@ -235,10 +376,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 InvokeDynamic 在常量池中的信息(bootstrap_method_attr_index + name_and_type_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 name_and_type_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getName(nameAndTypeIndex);
     }
@@ -252,10 +393,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 InvokeDynamic 在常量池中的信息(bootstrap_method_attr_index + name_and_type_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 name_and_type_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getDescriptor(nameAndTypeIndex);
     }
@@ -270,10 +411,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 NameAndType 在常量池中的信息(name_index + descriptor_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 name_index，int的前2个字节
-        int nameIndex = data >> 16;
+        int nameIndex = data >>> 16;
 
         return getUtf8(nameIndex);
     }
@@ -287,10 +428,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 NameAndType 在常量池中的信息(name_index + descriptor_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 descriptor_index，int的后2个字节
-        int descriptorIndex = data & 0xFF;
+        int descriptorIndex = data & 0xFFFF;
 
         return getUtf8(descriptorIndex);
     }
@@ -304,10 +445,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Fieldref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 nameAndType_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getName(nameAndTypeIndex);
     }
@@ -321,10 +462,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Fieldref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 nameAndType_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getDescriptor(nameAndTypeIndex);
     }
@@ -338,10 +479,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Fieldref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 class_index，int的前2个字节
-        int classIndex = data >> 16;
+        int classIndex = data >>> 16;
 
         return getClassName(classIndex);
     }
@@ -355,10 +496,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Methodref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 nameAndType_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getName(nameAndTypeIndex);
     }
@@ -372,10 +513,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Methodref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 nameAndType_index，int的后2个字节
-        int nameAndTypeIndex = data & 0xFF;
+        int nameAndTypeIndex = data & 0xFFFF;
 
         return getDescriptor(nameAndTypeIndex);
     }
@@ -389,10 +530,10 @@ public class ConstantPool {
         if (!checkIndex(index)) return null;
 
         // 获取 Methodref 在常量池中的信息(class_index + nameAndType_index)
-        int data = (int) dataMap.get(index);
+        int data = ints[index];
 
         // 获取 class_index，int的前2个字节
-        int classIndex = data >> 16;
+        int classIndex = data >>> 16;
 
         return getClassName(classIndex);
     }
@@ -403,6 +544,6 @@ public class ConstantPool {
      * @return true 没有超出范围，false 超出范围
      * */
     private boolean checkIndex(int index) throws Error {
-        return index > 0 && index <= length;
+        return index > 0 && index < length;
     }
 }
@@ -1,11 +1,19 @@
 package org.xyz.jvm.hotspot.src.share.vm.oops;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassFileParser;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.DescriptorStream;
+import org.xyz.jvm.hotspot.src.share.vm.compiler.MethodLiveness;
+import org.xyz.jvm.hotspot.src.share.vm.memory.FileMapInfo;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.CodeAttribute;
 import org.xyz.jvm.hotspot.src.share.vm.utilities.AccessFlags;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Data
 public class MethodInfo {
@@ -17,19 +25,86 @@ public class MethodInfo {
     private int descriptorIndex;
     // 成员方法的属性个数，如 final    u2
     private int attributesCount;
-    // 成员方法的属性详情表
+    // 成员方法的属性详情表，不含Code属性（见 getCodeAttribute）
     private Map<String, Attribute> attributes;
 
+    // Code属性，抽象方法、本地方法没有
+    private volatile CodeAttribute codeAttribute;
+
+    // 还没有解析的Code属性的内容（attribute_length个字节），解析后释放（见 Globals.LazyCodeParsing）
+    private byte[] codeBytes;
+    // Code属性名在常量池中的索引
+    private int codeAttributeNameIndex;
+
+    // 从类元数据归档中还原的方法: 还没有还原的Code属性的记录（映射内存的切片），还原后释放（见 FileMapInfo.readCodeAttribute）
+    private ByteBuffer archivedCode;
+
     // 方法名称，从常量池中获取
     private String methodName;
 
-    // 方法描述符
-    private DescriptorStream descriptor;
+    // 方法描述符，从归档中还原的方法第一次使用时才解析（见 getDescriptor）
+    private volatile DescriptorStream descriptor;
 
     // 方法所属类
     private InstanceKlass belongKlass;
 
+    // 局部变量活跃分析结果，第一次使用时计算，见 MethodLiveness.of
+    private volatile MethodLiveness liveness;
+
+    // 保证延迟解析（描述符、Code属性、活跃分析）只做一次；第一次调用方法的可能是虚拟线程，不用synchronized
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ReentrantLock lock = new ReentrantLock();
+
     public void initAttributeContainer() {
         attributes = new HashMap<>(attributesCount);
     }
+
+    /**
+     * 获取解析过的方法描述符，还没有解析时按 descriptorIndex 解析
+     * */
+    public DescriptorStream getDescriptor() {
+        DescriptorStream d = descriptor;
+        if (null == d) {
+            lock.lock();
+            try {
+                d = descriptor;
+                if (null == d) {
+                    d = new DescriptorStream(belongKlass.getConstantPool().getUtf8(descriptorIndex));
+                    d.parseMethod();
+                    descriptor = d;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return d;
+    }
+
+    /**
+     * 获取Code属性，延迟解析时第一次获取才解析（异常表、行号表、局部变量表、栈映射帧、字节码都在这时生成），从归档中还原的方法同样第一次获取时才还原
+     * 类元数据在Isolate之间共享，可能有多个线程同时第一次调用同一个方法，只解析一次
+     * @return Code属性，没有时返回null
+     * */
+    public CodeAttribute getCodeAttribute() {
+        CodeAttribute code = codeAttribute;
+        if (null == code) {
+            lock.lock();
+            try {
+                code = codeAttribute;
+                if (null == code && null != codeBytes) {
+                    code = ClassFileParser.parseCodeAttribute(this, codeAttributeNameIndex, codeBytes);
+                    codeAttribute = code;
+                    codeBytes = null;
+                } else if (null == code && null != archivedCode) {
+                    code = FileMapInfo.readCodeAttribute(this, archivedCode);
+                    codeAttribute = code;
+                    archivedCode = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return code;
+    }
 }
@@ -3,12 +3,32 @@ package org.xyz.jvm.hotspot.src.share.vm.oops.attribute;
 import lombok.Data;
 import org.xyz.jvm.hotspot.src.share.vm.oops.Attribute;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Method的属性
+ * 只保存每个栈映射帧对应的字节码位置，各个位置上局部变量和操作数栈的类型（verification_type_info）解析时跳过
+ * 栈映射帧所在的位置都是基本块的开头（跳转目标、异常处理器的起点），活跃变量分析用它来划分基本块
  * */
 @Data
 public class StackMapTableAttribute extends Attribute {
+    // 帧类型的取值范围
+    public static final int SAME_FRAME_MAX = 63;
+    public static final int SAME_LOCALS_1_STACK_ITEM_FRAME_MAX = 127;
+    public static final int SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247;
+    public static final int CHOP_FRAME_MAX = 250;
+    public static final int SAME_FRAME_EXTENDED = 251;
+    public static final int APPEND_FRAME_MAX = 254;
+    public static final int FULL_FRAME = 255;
+
+    // verification_type_info 中后面还跟着一个u2的类型
+    public static final int ITEM_Object = 7;
+    public static final int ITEM_Uninitialized = 8;
+
     // StackMapTable 表项数  u2
     private int numberOfEntries;
 
+    // 每个栈映射帧对应的字节码位置，按从小到大的顺序
+    private List<Integer> frameBcis = new ArrayList<>();
 }
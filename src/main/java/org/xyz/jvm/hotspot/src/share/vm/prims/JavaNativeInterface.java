@@ -1,13 +1,19 @@
 package org.xyz.jvm.hotspot.src.share.vm.prims;
 
 import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.SymbolTable;
 import org.xyz.jvm.hotspot.src.share.vm.intepreter.BytecodeInterpreter;
+import org.xyz.jvm.hotspot.src.share.vm.intepreter.LinkResolver;
 import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
 import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
 import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.CodeAttribute;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.HandleArea;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
 import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ObjectSynchronizer;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.StackValue;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
 
 import java.util.List;
 
@@ -23,11 +29,11 @@ public class JavaNativeInterface {
     public static MethodInfo getMethod(InstanceKlass klass, String methodName, String descriptorName) {
         List<MethodInfo> methodInfos = klass.getMethods();
 
+        // 方法名、描述符都是符号，直接比较引用
+        String name = SymbolTable.lookup(methodName);
+        String descriptor = SymbolTable.lookup(descriptorName);
         for (MethodInfo methodInfo: methodInfos) {
-            String tmpMethodName = klass.getConstantPool().getUtf8(methodInfo.getNameIndex());
-            String tmpDescriptorName = klass.getConstantPool().getUtf8(methodInfo.getDescriptorIndex());
-
-            if (tmpMethodName.equals(methodName) && tmpDescriptorName.equals(descriptorName)) {
+            if (methodInfo.getMethodName() == name && methodInfo.getDescriptor().getDescriptorInfo() == descriptor) {
                 log.info("找到了方法: " + methodName + "#" + descriptorName);
                 return methodInfo;
             }
@@ -51,6 +57,12 @@ public class JavaNativeInterface {
             throw new Error("只能调用静态方法");
         }
 
+        // 本地方法没有Code属性，交给NativeLookup执行
+        if (method.getAccessFlags().isNative()) {
+            NativeLookup.invokeNative(currentThread, method);
+            return;
+        }
+
         // 判断是否有参数
         if (0 != method.getDescriptor().getMethodParamsSize()) {
             // 这个判断是为了过滤调用main方法的情况，因为调用main方法时线程虚拟机栈中还是空的，没有任何栈帧，main方法的参数由JVM自动传入
@@ -66,7 +78,7 @@ public class JavaNativeInterface {
         }
 
         // 获取当前方法的Code属性
-        CodeAttribute codeAttributeInfo = (CodeAttribute) method.getAttributes().get(CodeAttribute.JVM_ATTRIBUTE_Code);
+        CodeAttribute codeAttributeInfo = method.getCodeAttribute();
 
         // 创建被调用方方法栈帧
         JavaVFrame calleeFrame = new JavaVFrame(codeAttributeInfo.getMaxLocals(), method);
@@ -87,7 +99,7 @@ public class JavaNativeInterface {
         log.info("第 " + currentThread.getStack().size() + " 个栈帧");
 
         // 执行方法的任务交给字节码解释器
-        BytecodeInterpreter.run(currentThread, method);
+        run(currentThread, method, calleeFrame);
 
     }
 
@@ -101,6 +113,12 @@ public class JavaNativeInterface {
         // 获取当前线程
         JavaThread currentThread = Threads.currentThread();
 
+        // 本地方法没有Code属性，交给NativeLookup执行
+        if (method.getAccessFlags().isNative()) {
+            NativeLookup.invokeNative(currentThread, method);
+            return;
+        }
+
         /*
          * 需要获取上一个方法栈帧的情况：
          * 1.非静态方法。因为需要给this赋值
@@ -120,7 +138,7 @@ public class JavaNativeInterface {
         }
 
         // 获取当前方法的Code属性
-        CodeAttribute codeAttributeInfo = (CodeAttribute) method.getAttributes().get(CodeAttribute.JVM_ATTRIBUTE_Code);
+        CodeAttribute codeAttributeInfo = method.getCodeAttribute();
 
         // 创建被调用方方法栈帧
         JavaVFrame calleeFrame = new JavaVFrame(codeAttributeInfo.getMaxLocals(), method);
@@ -151,7 +169,62 @@ public class JavaNativeInterface {
         log.info("第 " + currentThread.getStack().size() + " 个栈帧");
 
         // 执行方法的任务交给字节码解释器
-        BytecodeInterpreter.run(currentThread, method);
+        run(currentThread, method, calleeFrame);
+
+    }
+
+    /**
+     * 以指定对象作为this调用实例方法，用于线程入口等调用方不在虚拟机栈中的情况
+     * @param receiver 方法所属类的对象，即this指针
+     * @param method 被调用的方法信息，没有参数
+     * */
+    public static void callMethod(Object receiver, MethodInfo method) {
+        JavaThread currentThread = Threads.currentThread();
+
+        CodeAttribute codeAttributeInfo = method.getCodeAttribute();
+        JavaVFrame calleeFrame = new JavaVFrame(codeAttributeInfo.getMaxLocals(), method);
+
+        // 给this赋值
+        calleeFrame.getLocalVariableTable().set(0, new StackValue(BasicType.T_OBJECT, receiver));
+
+        currentThread.getStack().push(calleeFrame);
+
+        run(currentThread, method, calleeFrame);
+    }
+
+    /**
+     * 解释执行方法，synchronized方法在执行前后获取、释放对象锁: 实例方法锁this，静态方法锁所属的类
+     * 静态方法锁的是当前Isolate中代表该类的宿主机Class，而不是InstanceKlass: InstanceKlass在Isolate之间共享，锁它会让不同Isolate互相阻塞
+     * 方法返回（包括异常结束）时释放方法执行期间没有释放的局部句柄（见 HandleArea）
+     * @param currentThread 当前线程
+     * @param method 被调用的方法信息
+     * @param frame 被调用方法的栈帧，已经压入虚拟机栈
+     * */
+    private static void run(JavaThread currentThread, MethodInfo method, JavaVFrame frame) {
+        HandleArea handles = currentThread.getHandleArea();
+        int handleMark = handles.mark();
+        try {
+            if (!method.getAccessFlags().isSynchronized()) {
+                BytecodeInterpreter.run(currentThread, method);
+                return;
+            }
+
+            StackValue self = method.getAccessFlags().isStatic() ? null : frame.getLocalVariableTable().get(0);
+            Object lock = null == self || null == self.getObject() ? classMirror(method.getBelongKlass()) : self.getObject();
+
+            ObjectSynchronizer.enter(lock, currentThread);
+            try {
+                BytecodeInterpreter.run(currentThread, method);
+            } finally {
+                ObjectSynchronizer.exit(lock, currentThread);
+            }
+        } finally {
+            handles.reset(handleMark);
+        }
+    }
 
+    // 当前Isolate中代表该类的宿主机Class
+    private static Class<?> classMirror(InstanceKlass klass) {
+        return LinkResolver.resolveClass(klass.getConstantPool().getClassName(klass.getThisClass()));
     }
 }
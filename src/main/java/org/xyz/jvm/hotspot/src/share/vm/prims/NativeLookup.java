@@ -0,0 +1,100 @@
+package org.xyz.jvm.hotspot.src.share.vm.prims;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.DescriptorStream;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.HandleArea;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaVFrame;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地方法查找
+ * 被加载的类中声明为native的方法，没有Code属性，不能交给字节码解释器执行，需要在这里找到对应的Java实现
+ * */
+@Slf4j
+public class NativeLookup extends AllStatic {
+
+    /**
+     * 本地方法的Java实现
+     * */
+    public interface NativeFunction {
+        /**
+         * @param receiver 非静态方法的this，静态方法为null
+         * @param args 实参列表
+         * @return 返回值，void方法返回null
+         * */
+        Object invoke(Object receiver, Object[] args);
+    }
+
+    // 类名.方法名描述符 -> 本地方法的Java实现，类名以斜杠分隔，如 org/xyz/jvm/jdk/classes/sun/misc/Unsafe.allocateMemory(J)J
+    private static final Map<String, NativeFunction> natives = new HashMap<>();
+
+    static {
+        Unsafe.registerNatives();
+    }
+
+    public static void register(String className, String methodName, String descriptorName, NativeFunction function) {
+        natives.put(className + "." + methodName + descriptorName, function);
+    }
+
+    /**
+     * 执行本地方法: 从调用方的操作数栈中弹出实参，执行对应的Java实现，再将返回值压入调用方的操作数栈
+     * @param currentThread 当前线程
+     * @param method 本地方法
+     * */
+    public static void invokeNative(JavaThread currentThread, MethodInfo method) {
+        InstanceKlass klass = method.getBelongKlass();
+        String className = klass.getConstantPool().getClassName(klass.getThisClass());
+        String methodName = klass.getConstantPool().getUtf8(method.getNameIndex());
+        String descriptorName = klass.getConstantPool().getUtf8(method.getDescriptorIndex());
+
+        NativeFunction function = natives.get(className + "." + methodName + descriptorName);
+        if (null == function) {
+            throw new UnsatisfiedLinkError("没有找到本地方法的实现: " + className + "." + methodName + descriptorName);
+        }
+
+        log.info("执行本地方法: " + className + "." + methodName + descriptorName);
+
+        // 调用方栈帧
+        JavaVFrame callerFrame = (JavaVFrame) currentThread.getStack().peek();
+
+        // 本地方法执行期间处于阻塞状态，不推迟其他线程发起的安全点；弹出的实参、返回值在此期间由局部句柄区保持存活
+        HandleArea handles = currentThread.getHandleArea();
+        int handleMark = handles.mark();
+
+        DescriptorStream descriptorStream = new DescriptorStream(descriptorName);
+        descriptorStream.parseMethod();
+        Object[] args = descriptorStream.getParamsVal(callerFrame);
+
+        Object receiver = null;
+        if (!method.getAccessFlags().isStatic()) {
+            receiver = callerFrame.getOperandStack().pop().getData();
+            handles.add(receiver);
+        }
+
+        try {
+            Object ret;
+            int state = SafepointSynchronize.blockBegin(currentThread);
+            try {
+                ret = function.invoke(receiver, args);
+            } finally {
+                SafepointSynchronize.blockEnd(currentThread, state);
+            }
+
+            // 结束阻塞之后才能访问操作数栈和虚拟机堆
+            if (BasicType.T_VOID != descriptorStream.getReturnElement().getType()) {
+                descriptorStream.pushReturnElement(ret, callerFrame);
+            }
+            descriptorStream.syncParams(args);
+        } finally {
+            handles.reset(handleMark);
+        }
+    }
+}
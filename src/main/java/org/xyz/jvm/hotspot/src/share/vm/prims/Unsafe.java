@@ -0,0 +1,70 @@
+package org.xyz.jvm.hotspot.src.share.vm.prims;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.hotspot.src.share.vm.memory.GuestHeap;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.SafepointSynchronize;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
+import org.xyz.jvm.jdk.classes.Handle;
+
+/**
+ * org.xyz.jvm.jdk.classes.sun.misc.Unsafe 中本地方法的Java实现，内存从虚拟机堆（GuestHeap）中分配
+ * */
+@Slf4j
+public class Unsafe extends AllStatic {
+    // Unsafe类的全限定名
+    public static final String CLASS_NAME = "org/xyz/jvm/jdk/classes/sun/misc/Unsafe";
+
+    // Handle所指向内存存储的数据类型
+    public static final int HANDLE_TYPE_KLASS = 1;
+    public static final int HANDLE_TYPE_OOP = 2;
+    public static final int HANDLE_TYPE_METHOD = 3;
+
+    // allocateObject分配的对象大小（不包括头），只包含一个8字节的字段
+    public static final int OBJECT_SIZE = 8;
+
+    static void registerNatives() {
+        NativeLookup.register(CLASS_NAME, "allocateMemory", "(J)J", (receiver, args) -> allocateMemory((long) args[0]));
+        NativeLookup.register(CLASS_NAME, "allocateObject", "()Lorg/xyz/jvm/jdk/classes/Handle;", (receiver, args) -> allocateObject());
+    }
+
+    /**
+     * 分配一块原始内存
+     * @param bytes 字节数
+     * @return 可用内存的起始地址（跳过内存块的头）
+     * */
+    public static long allocateMemory(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("allocateMemory 参数不合法: " + bytes);
+        }
+        long address = GuestHeap.current().allocateZeroed(bytes, GuestHeap.KIND_RAW);
+        return GuestHeap.payload(address);
+    }
+
+    /**
+     * 分配一个对象
+     * @return 指向对象的Handle，p为对象在虚拟机堆中的地址
+     * */
+    public static Handle allocateObject() {
+        // 本地方法在阻塞状态下执行，分配和登记句柄都在虚拟机内部完成，中间不会发生垃圾回收
+        JavaThread thread = Threads.currentThread();
+        int threadState = SafepointSynchronize.enterVM(thread);
+        try {
+            long address = GuestHeap.current().allocateZeroed(OBJECT_SIZE, GuestHeap.KIND_OBJECT);
+
+            Handle handle = new Handle();
+            handle.setP(address);
+            handle.setType(HANDLE_TYPE_OOP);
+            handle.setClassName("java/lang/Object");
+
+            // 压入调用方的操作数栈之前，Handle只被宿主机的局部变量引用，登记到局部句柄区，本地方法返回后释放（见 NativeLookup.invokeNative）
+            if (null != thread) {
+                thread.getHandleArea().add(handle);
+            }
+            return handle;
+        } finally {
+            SafepointSynchronize.leaveVM(thread, threadState);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+
+import java.io.File;
+
+/**
+ * 虚拟机参数，对应HotSpot中的globals
+ * 通过系统属性设置，属性名为 jvm.参数名，如 -Djvm.UseGuestHeap=true -Djvm.GuestHeapSize=268435456
+ * */
+public class Globals extends AllStatic {
+    // 属性名前缀
+    public static final String PREFIX = "jvm.";
+
+    // 默认的类加载路径（见 BootClassLoader.searchPath、ClassPath），多个目录、jar文件以分号分隔，默认为宿主机的classpath
+    public static String ClassPath = getString("ClassPath", System.getProperty("java.class.path").replace(File.pathSeparator, ";"));
+
+    // 是否启用堆外的虚拟机堆，启用后基本类型数组的元素存储在堆外内存中，不再占用宿主机的Java堆
+    public static boolean UseGuestHeap = getBoolean("UseGuestHeap", false);
+
+    // 虚拟机堆的最大大小（字节）
+    public static long GuestHeapSize = getLong("GuestHeapSize", 256L * 1024 * 1024);
+
+    // 虚拟机堆由多个Region组成，每次扩容分配一个Region（字节）
+    public static int GuestHeapRegionSize = (int) getLong("GuestHeapRegionSize", 4L * 1024 * 1024);
+
+    // Region使用内存映射文件（mmap）而不是 ByteBuffer.allocateDirect 分配
+    public static boolean UseMappedGuestHeap = getBoolean("UseMappedGuestHeap", false);
+
+    // 虚拟机堆已使用空间占GuestHeapSize的比例超过该值时触发垃圾回收
+    public static double GCTriggerRatio = getDouble("GCTriggerRatio", 0.75);
+
+    // 虚拟机堆使用的垃圾回收器: MarkCompact（标记-整理）、Semispace（复制）
+    public static String GuestHeapCollector = getString("GuestHeapCollector", "MarkCompact");
+
+    // 每次垃圾回收结束后打印停顿时间和回收的字节数
+    public static boolean PrintGC = getBoolean("PrintGC", false);
+
+    // 是否启用线程私有的分配缓冲区（TLAB）
+    public static boolean UseTLAB = getBoolean("UseTLAB", true);
+
+    // TLAB大小（字节），不超过GuestHeapRegionSize
+    public static long TLABSize = getLong("TLABSize", 64L * 1024);
+
+    // TLAB剩余空间超过 TLABSize / TLABRefillWasteFraction 时，放不下的对象直接在共享空间分配，而不是丢弃TLAB重新申请
+    public static long TLABRefillWasteFraction = getLong("TLABRefillWasteFraction", 64);
+
+    // 同一个Class文件只解析一次，解析出的类元数据在所有Isolate之间共享（见 SharedDictionary）
+    public static boolean UseSharedClassMetadata = getBoolean("UseSharedClassMetadata", true);
+
+    // 解析Class文件时只拷贝方法的Code属性，第一次调用方法时才解析（见 MethodInfo.getCodeAttribute）
+    public static boolean LazyCodeParsing = getBoolean("LazyCodeParsing", true);
+
+    // 记录从加载路径中加载的类（每行一个内部形式的类名），作为转储类元数据归档的类列表（见 ClassListWriter、MetaspaceShared）
+    public static String DumpLoadedClassList = getString("DumpLoadedClassList", null);
+
+    // 类元数据归档文件，归档中的类直接从映射的文件中还原，不再读取、解析Class文件（见 FileMapInfo）
+    public static String SharedArchiveFile = getString("SharedArchiveFile", null);
+
+    // 加载main函数所在类之后，在后台线程池中并行预加载它的常量池传递引用的类（见 ClassPreloader）
+    public static boolean PreloadClasses = getBoolean("PreloadClasses", false);
+
+    // 预加载的线程数，0表示CPU核数
+    public static long PreloadThreads = getLong("PreloadThreads", 0);
+
+    // 垃圾回收时根据局部变量活跃分析的结果，忽略栈帧中已经不活跃的局部变量
+    public static boolean UseMethodLiveness = getBoolean("UseMethodLiveness", true);
+
+    // 在循环回边处（向后跳转的goto）清除已经不活跃的引用类型局部变量
+    public static boolean ClearDeadLocals = getBoolean("ClearDeadLocals", false);
+
+    // Java代码启动的线程运行在宿主机的虚拟线程上（需要JDK 21及以上，不支持时使用平台线程）
+    public static boolean UseVirtualThreads = getBoolean("UseVirtualThreads", false);
+
+    // 运行在虚拟线程上的Java线程每执行多少条指令在方法入口、循环回边让出载体线程，0表示不主动让出
+    public static long VirtualThreadQuantum = getLong("VirtualThreadQuantum", 10000);
+
+    // Isolate的资源配额（见 ResourceQuota），0表示不限制: 执行的指令数、分配的字节数、栈深度、加载的类数
+    public static long QuotaInstructions = getLong("QuotaInstructions", 0);
+    public static long QuotaAllocatedBytes = getLong("QuotaAllocatedBytes", 0);
+    public static long QuotaStackDepth = getLong("QuotaStackDepth", 0);
+    public static long QuotaLoadedClasses = getLong("QuotaLoadedClasses", 0);
+
+    // 线程每执行多少条指令把用量汇总到Isolate、检查一次配额
+    public static long QuotaCheckInterval = getLong("QuotaCheckInterval", 10000);
+
+    // 线程每分配多少字节把用量汇总到Isolate、检查一次配额
+    public static long QuotaCheckBytes = getLong("QuotaCheckBytes", 64L * 1024);
+
+    // main方法执行结束后打印对象锁的统计信息（加锁、竞争、膨胀次数）
+    public static boolean PrintLockStatistics = getBoolean("PrintLockStatistics", false);
+
+    // main方法执行结束后打印安全点的统计信息（次数、到达安全点的时间）
+    public static boolean PrintSafepointStatistics = getBoolean("PrintSafepointStatistics", false);
+
+    // main方法执行结束后打印Isolate的资源用量
+    public static boolean PrintQuotaStatistics = getBoolean("PrintQuotaStatistics", false);
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        return null == value ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public static long getLong(String name, long defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        return null == value ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public static double getDouble(String name, double defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        return null == value ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    public static String getString(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+}
@@ -0,0 +1,55 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import java.util.Arrays;
+
+/**
+ * 线程的局部句柄区（对应HotSpot的HandleArea、HandleMark）
+ * 解释器调用宿主机方法、本地方法时，实参已经从操作数栈中弹出，只保存在宿主机的局部变量中，垃圾回收扫描不到；
+ * 调用期间线程处于阻塞状态，其他线程可以触发垃圾回收，回收之后这些实参（如元素存储在虚拟机堆中的数组对象）指向的内存块可能已经被回收或者移动
+ * 所以弹出时把它们登记到当前线程的句柄区中，作为垃圾回收的根（见 GarbageCollector.markRoots），内存块移动后同样会更新它们
+ *
+ * 用法: 调用前 mark 记下位置，登记对象，调用返回后 reset 回到该位置，释放之后登记的所有对象
+ * 只有所属线程读写；垃圾回收在安全点中读取，此时所属线程处于阻塞状态，不会修改
+ * */
+public class HandleArea {
+    // 登记的对象，[0, top)有效
+    private Object[] handles = new Object[16];
+    private int top;
+
+    /**
+     * @return 当前位置，传给 reset
+     * */
+    public int mark() {
+        return top;
+    }
+
+    /**
+     * 登记一个对象，reset到登记之前的位置之前一直作为垃圾回收的根
+     * @param object 对象
+     * */
+    public void add(Object object) {
+        if (top == handles.length) {
+            handles = Arrays.copyOf(handles, top * 2);
+        }
+        handles[top++] = object;
+    }
+
+    /**
+     * 释放mark之后登记的所有对象
+     * @param mark mark 的返回值
+     * */
+    public void reset(int mark) {
+        if (mark < top) {
+            Arrays.fill(handles, mark, top, null);
+            top = mark;
+        }
+    }
+
+    public int size() {
+        return top;
+    }
+
+    public Object get(int index) {
+        return handles[index];
+    }
+}
@@ -0,0 +1,268 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassLoaderData;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassPreloader;
+import org.xyz.jvm.hotspot.src.share.vm.memory.GuestHeap;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.prims.JavaNativeInterface;
+import org.xyz.jvm.jdk.classes.Handle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 隔离的虚拟机实例
+ * 一个宿主机进程中可以同时运行多个Isolate，每个Isolate运行一个独立的Java程序，拥有自己的:
+ *  类（ClassLoaderData）: 加载的类、符号引用的解析结果、宿主机类加载器（静态变量）
+ *  线程: 线程列表、线程对象 -> JavaThread
+ *  虚拟机堆（GuestHeap）和安全点（SafepointSynchronize）: 一个Isolate垃圾回收只会让它自己的线程停下来
+ *  JNI全局句柄
+ *  资源配额（ResourceQuota）
+ * 销毁Isolate只需要丢掉这些数据、关闭宿主机类加载器，不需要启动、退出宿主机进程
+ *
+ * 当前线程所属的Isolate通过JavaThread找到（见 current），没有绑定JavaThread的宿主机线程使用默认Isolate，
+ * 默认Isolate使用 BootClassLoader.searchPath，和虚拟机共用宿主机类加载器，等同于引入Isolate之前只能运行一个程序的情况
+ *
+ * 对象锁的对象头表（ObjectSynchronizer）、本地方法表（NativeLookup）仍然是全局的: 前者按对象查找，对象本身属于某一个Isolate；后者不保存状态
+ * */
+@Getter
+@Slf4j
+public class Isolate {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // 默认Isolate
+    private static final Isolate defaultIsolate = new Isolate("default", null);
+
+    private final int id;
+
+    private final String name;
+
+    // 加载的类
+    private final ClassLoaderData classLoaderData;
+
+    // 该Isolate的所有线程，垃圾回收、安全点需要遍历，线程的启动、结束远少于遍历，所以使用写时复制的List
+    private final List<Thread> threadList = new CopyOnWriteArrayList<>();
+
+    // Java代码中的线程对象（java.lang.Thread） -> 执行它的JavaThread
+    private final Map<Object, JavaThread> threadObjs = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    // 启动过的线程对象（包括已经结束的），线程对象只能启动一次
+    // 弱引用，线程对象被回收后自动移除；java.lang.Thread没有重写equals、hashCode，按对象身份比较
+    private final Set<Object> startedThreadObjs = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    // 线程对象 -> 构造时传入的Runnable（没有传入时为 Threads.NO_TARGET），解释器执行java.lang.Thread的构造方法时记录（见 Threads.recordTarget）
+    // 弱引用，线程对象被回收后自动移除
+    private final Map<Object, Object> threadTargets = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // 安全点
+    private final SafepointSynchronize safepoint = new SafepointSynchronize(this);
+
+    // 资源配额
+    private final ResourceQuota quota = new ResourceQuota(this);
+
+    // 虚拟机堆，第一次使用时创建
+    private volatile GuestHeap heap;
+
+    // JNI全局句柄，由lock保护（见 JNIHandles）
+    private final List<Handle> globalHandles = new ArrayList<>();
+
+    // 是否已经销毁
+    private volatile boolean disposed;
+
+    // 后台的类预加载，销毁时取消并等待它结束
+    private volatile ClassPreloader.Preloading preloading;
+
+    // 保护虚拟机堆的创建、销毁状态、JNI全局句柄
+    // 创建虚拟机堆可能映射文件，用ReentrantLock，运行在虚拟线程上的JavaThread等锁时不占用载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Isolate(String name, String searchPath) {
+        this.id = nextId.getAndIncrement();
+        this.name = name;
+        this.classLoaderData = new ClassLoaderData(searchPath);
+    }
+
+    /**
+     * 创建一个Isolate
+     * @param name 名称
+     * @param searchPath 加载路径，多个目录、jar文件以分号分隔
+     * */
+    public static Isolate create(String name, String searchPath) {
+        if (null == searchPath) {
+            throw new Error("Isolate的加载路径不能为空: " + name);
+        }
+        Isolate isolate = new Isolate(name, searchPath);
+        log.info("创建Isolate: " + isolate);
+        return isolate;
+    }
+
+    /**
+     * 当前线程所属的Isolate，没有绑定JavaThread的宿主机线程返回默认Isolate
+     * */
+    public static Isolate current() {
+        JavaThread thread = Threads.currentThread();
+        return null == thread ? defaultIsolate : thread.getIsolate();
+    }
+
+    public static Isolate getDefault() {
+        return defaultIsolate;
+    }
+
+    public GuestHeap getHeap() {
+        GuestHeap h = heap;
+        if (null == h) {
+            lock.lock();
+            try {
+                h = heap;
+                if (null == h) {
+                    h = new GuestHeap(this);
+                    heap = h;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return h;
+    }
+
+    /**
+     * 在当前宿主机线程上执行main方法，返回前等待该Isolate中所有非守护线程结束（对应HotSpot的DestroyJavaVM）
+     * main方法异常结束（如超出资源配额）时同样等待其他线程结束之后再抛出
+     * 多个宿主机线程可以同时在各自的Isolate中执行main方法
+     * @param className main函数所在类的全限定名
+     * */
+    public void runMain(String className) {
+        if (disposed) {
+            throw new Error("Isolate已经销毁: " + this);
+        }
+
+        JavaThread previous = Threads.currentThread();
+        JavaThread thread = new JavaThread(this);
+        thread.setOsThread(Thread.currentThread());
+        Threads.add(thread);
+        Threads.setCurrentThread(thread);
+        try {
+            InstanceKlass klass = BootClassLoader.loadMainClass(className);
+            if (Globals.PreloadClasses) {
+                preloading = ClassPreloader.preload(this, klass);
+            }
+            MethodInfo main = JavaNativeInterface.getMethod(klass, "main", "([Ljava/lang/String;)V");
+            if (null == main) {
+                throw new Error("不存在的方法: main#([Ljava/lang/String;)V");
+            }
+            classLoaderData.setMainKlass(klass);
+
+            JavaNativeInterface.callStaticMethod(main);
+        } finally {
+            // main线程结束，安全点不再等待它
+            SafepointSynchronize.blockBegin(thread);
+            if (null != heap) {
+                heap.retireTlab(thread.getTlab());
+            }
+            quota.flush(thread);
+            Threads.remove(thread);
+            Threads.setCurrentThread(previous);
+
+            awaitThreads();
+            if (quota.isExceeded()) {
+                // 清除超出配额时的中断，宿主机线程还要继续使用
+                Thread.interrupted();
+            }
+            log.info(quota.printStatistics());
+        }
+
+        // main方法正常返回，但其他线程超出了配额
+        quota.checkExceeded();
+    }
+
+    /**
+     * 等待所有非守护线程结束
+     * */
+    public void awaitThreads() {
+        while (true) {
+            JavaThread next = null;
+            for (Thread thread : threadList) {
+                if (thread instanceof JavaThread && !thread.isDaemon()) {
+                    next = (JavaThread) thread;
+                    break;
+                }
+            }
+            if (null == next) {
+                return;
+            }
+
+            try {
+                if (null == next.getOsThread()) {
+                    // 已经登记、还没有启动
+                    Thread.yield();
+                } else {
+                    next.joinThread(0);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 销毁Isolate，释放加载的类、虚拟机堆，之后不能再使用
+     * 该Isolate中不能还有线程在运行
+     * */
+    public void dispose() {
+        if (this == defaultIsolate) {
+            throw new Error("默认Isolate不能销毁");
+        }
+        lock.lock();
+        try {
+            if (disposed) {
+                return;
+            }
+            if (!threadList.isEmpty()) {
+                throw new Error("Isolate中还有 " + threadList.size() + " 个线程在运行: " + this);
+            }
+            disposed = true;
+        } finally {
+            lock.unlock();
+        }
+
+        // 预加载线程还可能在往类加载器中加载类，等它们结束之后再释放
+        ClassPreloader.Preloading p = preloading;
+        if (null != p) {
+            p.cancel();
+            p.join();
+            preloading = null;
+        }
+        classLoaderData.release();
+        if (null != heap) {
+            heap.release();
+        }
+        threadObjs.clear();
+        startedThreadObjs.clear();
+        threadTargets.clear();
+        lock.lock();
+        try {
+            globalHandles.clear();
+        } finally {
+            lock.unlock();
+        }
+        log.info("销毁Isolate: " + this);
+    }
+
+    @Override
+    public String toString() {
+        return "Isolate#" + id + "(" + name + ")";
+    }
+}
@@ -0,0 +1,52 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+import org.xyz.jvm.jdk.classes.Handle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JNI全局句柄
+ * 被注册的Handle在调用destroyGlobal之前，它指向的对象一直存活，是垃圾回收的根
+ * 全局句柄登记在当前Isolate中（Handle中的地址属于该Isolate的虚拟机堆），只是它的垃圾回收的根，由Isolate的lock保护
+ * */
+public class JNIHandles extends AllStatic {
+    public static Handle makeGlobal(Handle handle) {
+        Isolate isolate = Isolate.current();
+        ReentrantLock lock = isolate.getLock();
+        lock.lock();
+        try {
+            isolate.getGlobalHandles().add(handle);
+        } finally {
+            lock.unlock();
+        }
+        return handle;
+    }
+
+    public static void destroyGlobal(Handle handle) {
+        Isolate isolate = Isolate.current();
+        ReentrantLock lock = isolate.getLock();
+        lock.lock();
+        try {
+            isolate.getGlobalHandles().remove(handle);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param isolate 全局句柄所在的Isolate
+     * @return 所有全局句柄的快照
+     * */
+    public static List<Handle> globalHandles(Isolate isolate) {
+        ReentrantLock lock = isolate.getLock();
+        lock.lock();
+        try {
+            return new ArrayList<>(isolate.getGlobalHandles());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,14 +1,218 @@
 package org.xyz.jvm.hotspot.src.share.vm.runtime;
 
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.intepreter.LinkResolver;
+import org.xyz.jvm.hotspot.src.share.vm.memory.ThreadLocalAllocBuffer;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.prims.JavaNativeInterface;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.JavaThreadState;
 
+import java.lang.reflect.Field;
 import java.util.Stack;
 
 /**
  * Java线程
+ * 线程对象之间按同一性比较（不使用@Data生成的按字段比较的equals），线程管理器中按对象查找、移除
+ * 每个线程属于创建它的Isolate，只能执行该Isolate加载的类、在该Isolate的堆中分配
  * */
-@Data
+@Getter
+@Setter
+@Slf4j
 public class JavaThread extends Thread {
+    // 线程所属的Isolate
+    private final Isolate isolate;
+
     // 当前线程的虚拟机栈，VFrame是栈帧
     private Stack<VFrame> stack = new Stack<>();
+
+    // 线程私有的分配缓冲区
+    private ThreadLocalAllocBuffer tlab = new ThreadLocalAllocBuffer();
+
+    // 局部句柄区，调用宿主机方法、本地方法期间保存已经弹出的实参，作为垃圾回收的根
+    private final HandleArea handleArea = new HandleArea();
+
+    // 该线程执行的Java代码中的线程对象（java.lang.Thread），main线程为null
+    private Thread threadObj;
+
+    // 实际执行该线程的宿主机线程: 平台线程时就是当前对象，UseVirtualThreads时是一个虚拟线程
+    private volatile Thread osThread;
+
+    // LockSupport.park/unpark使用
+    private final Parker parker = new Parker();
+
+    // 对象锁、wait/notify使用
+    private final Parker parkEvent = new Parker();
+
+    // 在对象头表中查找时复用的查找键，只有自己使用，加锁、解锁不需要每次分配
+    private final ObjectSynchronizer.IdentityKey lockProbe = new ObjectSynchronizer.IdentityKey(null);
+
+    // 线程状态（JavaThreadState），安全点根据它判断是否需要等待该线程
+    private volatile int threadState = JavaThreadState._thread_new;
+
+    // 执行的指令数，只有自己读写，运行在虚拟线程上时据此判断时间片是否用完
+    private long instructions;
+
+    // 指令数到达该值时让出载体线程（见 VirtualThreads.poll）
+    private long preemptAt = Globals.VirtualThreadQuantum;
+
+    // 资源配额的计数（见 ResourceQuota），只有自己读写: 已经汇总到Isolate的指令数、下一次汇总的指令数、分配的字节数、已经汇总的字节数、最大栈深度
+    private long chargedInstructions;
+    private long quotaCheckAt = Globals.QuotaCheckInterval;
+    private long allocatedBytes;
+    private long chargedBytes;
+    private int maxStackDepth;
+
+    public JavaThread() {
+        this(Isolate.current());
+    }
+
+    /**
+     * Isolate的main线程，和JDK一样命名为main，Java代码中 Thread.currentThread().getName() 返回 "main"
+     * */
+    public JavaThread(Isolate isolate) {
+        super("main");
+        this.isolate = isolate;
+    }
+
+    /**
+     * 执行Java代码中的线程对象的线程，属于创建它的线程所在的Isolate
+     * */
+    public JavaThread(Thread threadObj) {
+        super(threadObj.getName());
+        this.isolate = Isolate.current();
+        this.threadObj = threadObj;
+        setDaemon(threadObj.isDaemon());
+    }
+
+    /**
+     * 启动线程
+     * UseVirtualThreads并且宿主机支持时，在虚拟线程上执行run方法，否则启动当前对象对应的平台线程
+     * */
+    @Override
+    public void start() {
+        if (Globals.UseVirtualThreads && VirtualThreads.isSupported()) {
+            osThread = VirtualThreads.unstarted(getName(), this);
+            osThread.start();
+        } else {
+            osThread = this;
+            super.start();
+        }
+    }
+
+    /**
+     * 解释器每执行一条指令调用一次
+     * */
+    public void countInstruction() {
+        instructions++;
+    }
+
+    /**
+     * Java代码中代表当前线程的对象（Thread.currentThread的返回值），main线程没有线程对象，返回自己
+     * */
+    public Thread threadObj() {
+        return null == threadObj ? this : threadObj;
+    }
+
+    /**
+     * 等待线程结束
+     * @param millis 最长等待时间（毫秒），0表示一直等待
+     * */
+    public void joinThread(long millis) throws InterruptedException {
+        Thread thread = osThread;
+        if (null == thread) {
+            return;
+        }
+        JavaThread current = Threads.currentThread();
+        int state = SafepointSynchronize.blockBegin(current);
+        try {
+            if (thread == this) {
+                join(millis);
+            } else {
+                thread.join(millis);
+            }
+        } finally {
+            SafepointSynchronize.blockEnd(current, state);
+        }
+    }
+
+    /**
+     * 线程入口
+     * 线程对象是自己加载的类（继承了Thread）并且重写了run方法时，解释执行它的run方法
+     * 否则找到线程对象的Runnable（见 Threads.recordTarget），Runnable是自己加载的类的对象时解释执行它的run方法，
+     * 其他情况（如lambda表达式生成的类、宿主机的Runnable）直接调用；没有Runnable时什么都不做，和Thread.run一样
+     * */
+    @Override
+    public void run() {
+        if (null == threadObj) {
+            return;
+        }
+
+        Threads.setCurrentThread(this);
+        try {
+            MethodInfo method = isBootClass(threadObj) ? findRun(threadObj) : null;
+            if (null != method) {
+                JavaNativeInterface.callMethod(threadObj, method);
+                return;
+            }
+
+            Object target = getTarget(threadObj);
+            if (Threads.NO_TARGET == target) {
+                return;
+            }
+            if (isBootClass(target)) {
+                method = findRun(target);
+                if (null == method) {
+                    throw new Error("不存在的方法: run#()V");
+                }
+                JavaNativeInterface.callMethod(target, method);
+            } else {
+                ((Runnable) target).run();
+            }
+        } catch (Throwable e) {
+            log.error("线程 " + getName() + " 异常结束", e);
+        } finally {
+            // 不再执行Java代码，安全点不需要再等待该线程
+            SafepointSynchronize.blockBegin(this);
+            isolate.getHeap().retireTlab(tlab);
+            isolate.getQuota().flush(this);
+            Threads.remove(this);
+            Threads.setCurrentThread(null);
+        }
+    }
+
+    // 自己加载的类（非java体系的类），lambda表达式生成的类（合成类）由宿主机执行
+    private static boolean isBootClass(Object object) {
+        Class<?> clazz = object.getClass();
+        return !clazz.getName().startsWith("java") && !clazz.isSynthetic();
+    }
+
+    // 自己加载的类（及其自己加载的父类）中的run()V方法，没有重写时返回null
+    private static MethodInfo findRun(Object object) {
+        InstanceKlass klass = BootClassLoader.loadKlass(object.getClass().getName());
+        return LinkResolver.resolveMethod(klass, "run", "()V");
+    }
+
+    /**
+     * 线程对象的Runnable，没有时返回 Threads.NO_TARGET
+     * 解释器构造的线程对象使用构造时记录的Runnable；宿主机代码创建的线程对象只能从Thread的私有字段target中读取，
+     * 读取不到时（JDK 16之后没有--add-opens）抛出Error，不能把Runnable当作宿主机代码执行，那样会绕过对象锁、固有方法、配额和安全点
+     * */
+    private static Object getTarget(Thread threadObj) {
+        Object target = Threads.targetOf(threadObj);
+        if (null != target) {
+            return target;
+        }
+        try {
+            Field field = Thread.class.getDeclaredField("target");
+            field.setAccessible(true);
+            target = field.get(threadObj);
+            return null == target ? Threads.NO_TARGET : target;
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            throw new Error("无法获取线程对象的Runnable（需要 --add-opens java.base/java.lang=ALL-UNNAMED）: " + threadObj.getName(), e);
+        }
+    }
 }
@@ -2,7 +2,13 @@ package org.xyz.jvm.hotspot.src.share.vm.runtime;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.compiler.MethodLiveness;
+import org.xyz.jvm.hotspot.src.share.vm.intepreter.ByteCodeStream;
 import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.oops.attribute.CodeAttribute;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
+
+import java.util.BitSet;
 
 /**
  * Java线程虚拟机栈中的方法栈帧
@@ -18,10 +24,56 @@ public class JavaVFrame extends VFrame {
     // 该栈帧所属的方法
     private MethodInfo methodInfo;
 
+    // 该栈帧的字节码流，读取索引就是该栈帧的程序计数器
+    private ByteCodeStream code;
+
     // 创建栈帧
     public JavaVFrame(int maxLocals, MethodInfo methodInfo) {
         this.methodInfo = methodInfo;
         localVariableTable = new StackValueCollection(maxLocals);
         operandStack = new StackValueCollection();
+
+        CodeAttribute codeAttribute = methodInfo.getCodeAttribute();
+        if (null != codeAttribute) {
+            code = codeAttribute.getCode().cursor();
+        }
+    }
+
+    /**
+     * 栈帧当前的字节码位置，即下一条要执行的指令的位置
+     * 调用者栈帧停在调用指令之后，也就是被调用方法返回后继续执行的位置
+     * @return 字节码位置，本地方法返回-1
+     * */
+    public int bci() {
+        return null == code ? -1 : code.current();
+    }
+
+    /**
+     * 在当前字节码位置活跃的局部变量
+     * @return 活跃的局部变量槽位，无法确定时返回null，表示全部视为活跃
+     * */
+    public BitSet liveLocals() {
+        MethodLiveness liveness = MethodLiveness.of(methodInfo);
+        return null == liveness ? null : liveness.getLiveLocals(bci());
+    }
+
+    /**
+     * 清除在字节码位置bci处已经不再活跃的引用类型局部变量，之后不会再被读取，清除后不再阻止垃圾回收
+     * @param bci 字节码位置
+     * */
+    public void clearDeadLocals(int bci) {
+        MethodLiveness liveness = MethodLiveness.of(methodInfo);
+        BitSet live = null == liveness ? null : liveness.getLiveLocals(bci);
+        if (null == live || null == localVariableTable.getLocalVariableTable()) {
+            return;
+        }
+
+        StackValue[] slots = localVariableTable.getLocalVariableTable();
+        for (int i = 0; i < slots.length; i++) {
+            StackValue value = slots[i];
+            if (null != value && !live.get(i) && (BasicType.T_OBJECT == value.getType() || BasicType.T_ARRAY == value.getType())) {
+                slots[i] = null;
+            }
+        }
     }
 }
@@ -0,0 +1,227 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 重量级锁（膨胀之后的对象锁）
+ * 轻量级锁发生竞争时由 ObjectSynchronizer 膨胀而来，膨胀时锁的持有者不变
+ * 获取不到锁的线程先自旋，仍然获取不到时进入entryList并阻塞，释放锁时唤醒entryList中的第一个线程，被唤醒的线程重新竞争锁
+ * 调用wait的线程完全释放锁后进入waitSet，在自己的parkEvent上阻塞，被notify或者超时后重新获取锁并恢复重入次数
+ *
+ * 收缩（deflation）: 持有者最后一次释放锁时，如果没有线程正在获取锁、也没有线程在wait，把contentions从0改为负数，
+ * 锁就此作废，由 ObjectSynchronizer 把锁字改回无锁。之后才读到这个锁的线程在enter中看到contentions为负数，返回ENTER_DEFLATED，回到对象头重新加锁
+ * contentions在获取锁之前增加，CAS保证收缩和获取锁只有一方成功；waiters只有持有者增加，wait返回（重新获取锁）之后才减少，所以收缩时不会有线程还在等待这个锁
+ * */
+public class ObjectMonitor {
+    // 获取锁时自旋的次数
+    private static final int SPIN_LIMIT = 64;
+
+    // enter的结果
+    static final int ENTER_RECURSIVE = 0;   // 重入
+    static final int ENTER_FAST = 1;        // 锁空闲，直接获取
+    static final int ENTER_SPIN = 2;        // 锁被其他线程持有，自旋后获取
+    static final int ENTER_BLOCKED = 3;     // 锁被其他线程持有，阻塞后获取
+    static final int ENTER_DEFLATED = 4;    // 锁已经收缩，没有获取，需要回到对象头重新加锁
+
+    // 收缩之后contentions的值，之后的增加不会让它变回非负数
+    private static final int DEFLATED = Integer.MIN_VALUE / 2;
+
+    private static final AtomicReferenceFieldUpdater<ObjectMonitor, JavaThread> OWNER =
+            AtomicReferenceFieldUpdater.newUpdater(ObjectMonitor.class, JavaThread.class, "owner");
+
+    // 持有锁的线程
+    private volatile JavaThread owner;
+
+    // 重入次数，只有持有锁的线程修改
+    private int recursions;
+
+    // 阻塞等待获取锁的线程
+    private final ConcurrentLinkedQueue<JavaThread> entryList = new ConcurrentLinkedQueue<>();
+
+    // 调用wait等待通知的线程
+    private final ConcurrentLinkedQueue<ObjectWaiter> waitSet = new ConcurrentLinkedQueue<>();
+
+    // 正在获取锁（自旋、阻塞）的线程数，收缩之后为负数
+    private final AtomicInteger contentions = new AtomicInteger();
+
+    // 调用了wait、还没有重新获取锁的线程数（包括已经被notify的），只有持有者增加
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * waitSet中的节点
+     * */
+    private static final class ObjectWaiter {
+        final JavaThread thread;
+        // 是否已经被notify
+        volatile boolean notified;
+
+        ObjectWaiter(JavaThread thread) {
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * @param owner 膨胀时持有轻量级锁的线程
+     * */
+    ObjectMonitor(JavaThread owner) {
+        this.owner = owner;
+    }
+
+    public JavaThread getOwner() {
+        return owner;
+    }
+
+    /**
+     * 获取锁
+     * @return 获取锁的方式，ENTER_*
+     * */
+    int enter(JavaThread self) {
+        if (owner == self) {
+            recursions++;
+            return ENTER_RECURSIVE;
+        }
+        // 锁已经收缩，不能再使用（contentions保持为负数）
+        if (contentions.getAndIncrement() < 0) {
+            return ENTER_DEFLATED;
+        }
+        try {
+            if (tryLock(self)) {
+                return ENTER_FAST;
+            }
+
+            for (int i = 0; i < SPIN_LIMIT; i++) {
+                if (tryLock(self)) {
+                    return ENTER_SPIN;
+                }
+            }
+
+            // 先进入entryList再尝试获取锁，保证释放锁的线程要么能看到当前线程，要么当前线程能看到锁已经被释放
+            // 和monitorenter一样不响应中断，中断标记留给之后的wait、sleep等处理
+            entryList.add(self);
+            try {
+                while (!tryLock(self)) {
+                    self.getParkEvent().parkUninterruptibly();
+                }
+            } finally {
+                entryList.remove(self);
+            }
+            return ENTER_BLOCKED;
+        } finally {
+            contentions.decrementAndGet();
+        }
+    }
+
+    /**
+     * 释放锁，最后一次释放并且锁空闲时收缩
+     * @return 锁是否已经收缩，收缩之后调用方负责把锁字改回无锁（锁仍然被当前线程持有，直到锁字改回无锁）
+     * */
+    boolean exit(JavaThread self) {
+        checkOwner(self);
+
+        if (recursions > 0) {
+            recursions--;
+            return false;
+        }
+
+        if (0 == waiters.get() && contentions.compareAndSet(0, DEFLATED)) {
+            owner = null;
+            return true;
+        }
+
+        owner = null;
+        JavaThread next = entryList.peek();
+        if (null != next) {
+            next.getParkEvent().unpark();
+        }
+        return false;
+    }
+
+    /**
+     * 等待通知，对应Object.wait
+     * @param self 当前线程，必须持有锁
+     * @param millis 最长等待时间（毫秒），0表示一直等待
+     * @throws InterruptedException 等待前或者等待期间被中断（没有收到通知），重新获取锁之后抛出，中断标记被清除
+     * */
+    void wait(JavaThread self, long millis) throws InterruptedException {
+        checkOwner(self);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        ObjectWaiter waiter = new ObjectWaiter(self);
+        waiters.incrementAndGet();
+        waitSet.add(waiter);
+
+        // 完全释放锁（包括重入）
+        int savedRecursions = recursions;
+        recursions = 0;
+        exit(self);
+
+        boolean interrupted = false;
+        try {
+            long deadline = 0 == millis ? 0 : System.nanoTime() + millis * 1_000_000L;
+            while (!waiter.notified) {
+                long nanos = 0;
+                if (0 != deadline) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) {
+                        break;
+                    }
+                }
+                self.getParkEvent().park(false, nanos);
+                // 已经收到通知时优先返回，中断标记留给之后处理，保证通知不会丢失
+                if (!waiter.notified && Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+            }
+        } finally {
+            waitSet.remove(waiter);
+            // 重新获取锁，恢复重入次数
+            enter(self);
+            recursions = savedRecursions;
+            waiters.decrementAndGet();
+        }
+        if (interrupted) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * 唤醒一个等待通知的线程，对应Object.notify
+     * */
+    void notify(JavaThread self) {
+        checkOwner(self);
+
+        ObjectWaiter waiter = waitSet.poll();
+        if (null != waiter) {
+            waiter.notified = true;
+            waiter.thread.getParkEvent().unpark();
+        }
+    }
+
+    /**
+     * 唤醒所有等待通知的线程，对应Object.notifyAll
+     * */
+    void notifyAll(JavaThread self) {
+        checkOwner(self);
+
+        ObjectWaiter waiter;
+        while (null != (waiter = waitSet.poll())) {
+            waiter.notified = true;
+            waiter.thread.getParkEvent().unpark();
+        }
+    }
+
+    private void checkOwner(JavaThread self) {
+        if (owner != self) {
+            throw new IllegalMonitorStateException("当前线程没有持有锁: " + self.getName());
+        }
+    }
+
+    private boolean tryLock(JavaThread self) {
+        return null == owner && OWNER.compareAndSet(this, null, self);
+    }
+}
@@ -0,0 +1,386 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对象锁（monitorenter、monitorexit、synchronized方法）
+ *
+ * Java代码中的对象就是宿主机的对象，没有可以使用的对象头，所以为每个加过锁的对象在对象头表中分配一个对象头，对象被回收后对象头自动清除
+ * 对象头中的锁字（mark）有三种状态:
+ *  null: 无锁
+ *  JavaThread: 轻量级锁，被该线程持有，加锁、解锁只需要一次CAS；重入次数记在对象头中，只有持有锁的线程修改
+ *  ObjectMonitor: 重量级锁
+ * 其他线程获取轻量级锁失败时先自旋，仍然失败就把锁膨胀为ObjectMonitor（持有者不变），然后在ObjectMonitor上阻塞
+ * 持有者释放锁时CAS失败说明锁已经膨胀，改为释放ObjectMonitor
+ * 重量级锁最后一次释放时如果没有线程在竞争、也没有线程在wait，就收缩回无锁（见 ObjectMonitor），之后重新从轻量级锁开始；
+ * HotSpot在安全点或者后台线程中收缩，这里由释放锁的线程自己收缩，不需要安全点，也不会在对象头中留下空闲的ObjectMonitor
+ * 查找对象头使用当前线程的查找键（JavaThread.lockProbe），加锁、解锁不分配对象
+ *
+ * 这里的锁只在Java代码之间互斥: 反射调用的宿主机方法中的synchronized使用宿主机自己的对象锁，
+ * Java代码对同一个对象的monitorenter不会阻止宿主机方法进入，反过来也一样
+ * */
+@Slf4j
+public class ObjectSynchronizer extends AllStatic {
+    // 获取轻量级锁失败后，膨胀之前自旋的次数
+    private static final int THIN_SPIN_LIMIT = 16;
+
+    private static final AtomicReferenceFieldUpdater<ObjectHeader, Object> MARK =
+            AtomicReferenceFieldUpdater.newUpdater(ObjectHeader.class, Object.class, "mark");
+
+    // 对象头表: 对象（弱引用，按同一性比较） -> 对象头
+    private static final ConcurrentHashMap<Object, ObjectHeader> headers = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> staleKeys = new ReferenceQueue<>();
+
+    // 统计
+    private static final LongAdder thinAcquires = new LongAdder();          // 通过CAS获取轻量级锁
+    private static final LongAdder monitorAcquires = new LongAdder();       // 获取重量级锁（不包括重入）
+    private static final LongAdder recursiveAcquires = new LongAdder();     // 重入
+    private static final LongAdder contendedAcquires = new LongAdder();     // 获取锁时锁被其他线程持有
+    private static final LongAdder inflations = new LongAdder();            // 膨胀次数
+    private static final LongAdder deflations = new LongAdder();            // 收缩次数
+    private static final LongAdder blockedAcquires = new LongAdder();       // 在重量级锁上阻塞的次数
+
+    /**
+     * 对象头
+     * */
+    static final class ObjectHeader {
+        // 锁字
+        volatile Object mark;
+        // 轻量级锁的重入次数
+        int thinRecursions;
+    }
+
+    /**
+     * 获取对象锁
+     * @param obj 加锁的对象
+     * @param self 当前线程
+     * */
+    public static void enter(Object obj, JavaThread self) {
+        if (null == obj) {
+            throw new NullPointerException("monitorenter: 对象为null");
+        }
+        ObjectHeader header = headerOf(obj, self);
+
+        // 快速路径: 无锁 -> 轻量级锁
+        if (MARK.compareAndSet(header, null, self)) {
+            thinAcquires.increment();
+            return;
+        }
+
+        Object mark = header.mark;
+        if (mark == self) {
+            header.thinRecursions++;
+            recursiveAcquires.increment();
+            return;
+        }
+
+        // 轻量级锁被其他线程持有: 先自旋，仍然获取不到就膨胀
+        if (!(mark instanceof ObjectMonitor)) {
+            contendedAcquires.increment();
+            for (int i = 0; i < THIN_SPIN_LIMIT && !(header.mark instanceof ObjectMonitor); i++) {
+                if (MARK.compareAndSet(header, null, self)) {
+                    thinAcquires.increment();
+                    return;
+                }
+            }
+        }
+
+        while (true) {
+            mark = header.mark;
+            if (null == mark) {
+                if (MARK.compareAndSet(header, null, self)) {
+                    thinAcquires.increment();
+                    return;
+                }
+            } else if (mark instanceof ObjectMonitor) {
+                // 锁在读到之后被收缩时重新读锁字
+                if (monitorEnter((ObjectMonitor) mark, self)) {
+                    return;
+                }
+            } else {
+                inflate(header, (JavaThread) mark);
+            }
+        }
+    }
+
+    // 获取重量级锁，锁已经收缩时返回false
+    private static boolean monitorEnter(ObjectMonitor monitor, JavaThread self) {
+        switch (monitor.enter(self)) {
+            case ObjectMonitor.ENTER_DEFLATED:
+                return false;
+            case ObjectMonitor.ENTER_RECURSIVE:
+                recursiveAcquires.increment();
+                break;
+            case ObjectMonitor.ENTER_FAST:
+                monitorAcquires.increment();
+                break;
+            case ObjectMonitor.ENTER_SPIN:
+                monitorAcquires.increment();
+                contendedAcquires.increment();
+                break;
+            default:
+                monitorAcquires.increment();
+                contendedAcquires.increment();
+                blockedAcquires.increment();
+        }
+        return true;
+    }
+
+    /**
+     * 释放对象锁
+     * @param obj 加锁的对象
+     * @param self 当前线程
+     * */
+    public static void exit(Object obj, JavaThread self) {
+        if (null == obj) {
+            throw new NullPointerException("monitorexit: 对象为null");
+        }
+        ObjectHeader header = headerOf(obj, self);
+
+        // 轻量级锁的重入和膨胀之前的重入次数都记在对象头中，只有持有者修改
+        if (header.thinRecursions > 0 && isOwner(header, self)) {
+            header.thinRecursions--;
+            return;
+        }
+
+        if (MARK.compareAndSet(header, self, null)) {
+            return;
+        }
+
+        Object mark = header.mark;
+        if (mark instanceof ObjectMonitor) {
+            if (((ObjectMonitor) mark).exit(self)) {
+                // 锁已经收缩: 只有当前线程能修改锁字，改回无锁之后其他线程才能加锁
+                header.mark = null;
+                deflations.increment();
+            }
+            return;
+        }
+        throw new IllegalMonitorStateException("当前线程没有持有锁: " + self.getName());
+    }
+
+    /**
+     * 当前线程是否持有对象锁
+     * */
+    public static boolean holdsLock(Object obj, JavaThread self) {
+        return isOwner(headerOf(obj, self), self);
+    }
+
+    /**
+     * 等待通知，对应Object.wait
+     * 等待集合只存在于重量级锁上，当前线程持有的是轻量级锁时先膨胀；轻量级锁的重入次数在等待期间保存下来，重新获取锁之后恢复
+     * @param obj 加锁的对象
+     * @param self 当前线程
+     * @param millis 最长等待时间（毫秒），0表示一直等待
+     * @throws InterruptedException 等待前或者等待期间被中断
+     * */
+    public static void wait(Object obj, JavaThread self, long millis) throws InterruptedException {
+        if (null == obj) {
+            throw new NullPointerException("wait: 对象为null");
+        }
+        if (millis < 0) {
+            throw new IllegalArgumentException("等待时间不能为负数: " + millis);
+        }
+        ObjectHeader header = headerOf(obj, self);
+        ObjectMonitor monitor = ownedMonitor(header, self);
+
+        int thinRecursions = header.thinRecursions;
+        header.thinRecursions = 0;
+        try {
+            monitor.wait(self, millis);
+        } finally {
+            header.thinRecursions = thinRecursions;
+        }
+    }
+
+    /**
+     * 唤醒一个等待通知的线程，对应Object.notify
+     * 持有的是轻量级锁时说明没有线程在等待（wait会先膨胀），不需要做任何事
+     * */
+    public static void notify(Object obj, JavaThread self) {
+        if (null == obj) {
+            throw new NullPointerException("notify: 对象为null");
+        }
+        ObjectHeader header = headerOf(obj, self);
+        Object mark = header.mark;
+        if (mark == self) {
+            return;
+        }
+        ownedMonitor(header, self).notify(self);
+    }
+
+    /**
+     * 唤醒所有等待通知的线程，对应Object.notifyAll
+     * */
+    public static void notifyAll(Object obj, JavaThread self) {
+        if (null == obj) {
+            throw new NullPointerException("notifyAll: 对象为null");
+        }
+        ObjectHeader header = headerOf(obj, self);
+        Object mark = header.mark;
+        if (mark == self) {
+            return;
+        }
+        ownedMonitor(header, self).notifyAll(self);
+    }
+
+    // 当前线程持有的重量级锁，持有的是轻量级锁时膨胀
+    private static ObjectMonitor ownedMonitor(ObjectHeader header, JavaThread self) {
+        while (true) {
+            Object mark = header.mark;
+            if (mark == self) {
+                ObjectMonitor monitor = inflate(header, self);
+                if (null != monitor) {
+                    return monitor;
+                }
+            } else if (mark instanceof ObjectMonitor && ((ObjectMonitor) mark).getOwner() == self) {
+                return (ObjectMonitor) mark;
+            } else {
+                throw new IllegalMonitorStateException("当前线程没有持有锁: " + self.getName());
+            }
+        }
+    }
+
+    /**
+     * 把锁膨胀为重量级锁，持有者不变
+     * @param header 对象头
+     * @param owner 当前持有轻量级锁的线程
+     * @return 膨胀之后的重量级锁，持有者已经释放了锁时返回null
+     * */
+    static ObjectMonitor inflate(ObjectHeader header, JavaThread owner) {
+        ObjectMonitor monitor = new ObjectMonitor(owner);
+        if (MARK.compareAndSet(header, owner, monitor)) {
+            inflations.increment();
+            log.info("锁膨胀, 持有者: " + owner.getName());
+            return monitor;
+        }
+        Object mark = header.mark;
+        return mark instanceof ObjectMonitor ? (ObjectMonitor) mark : null;
+    }
+
+    private static boolean isOwner(ObjectHeader header, JavaThread self) {
+        Object mark = header.mark;
+        return mark == self || (mark instanceof ObjectMonitor && ((ObjectMonitor) mark).getOwner() == self);
+    }
+
+    /**
+     * 获取对象的对象头，没有时创建
+     * @param self 当前线程，用它的查找键查找；为null时（不是Java线程）临时分配一个
+     * */
+    static ObjectHeader headerOf(Object obj, JavaThread self) {
+        ObjectHeader header;
+        if (null == self) {
+            header = headers.get(new IdentityKey(obj));
+        } else {
+            IdentityKey probe = self.getLockProbe();
+            probe.referent = obj;
+            try {
+                header = headers.get(probe);
+            } finally {
+                // 不让查找键引用对象，否则对象在线程下一次加锁之前不能被回收
+                probe.referent = null;
+            }
+        }
+        if (null != header) {
+            return header;
+        }
+
+        expungeStaleHeaders();
+        return headers.computeIfAbsent(new WeakIdentityKey(obj, staleKeys), k -> new ObjectHeader());
+    }
+
+    // 清除已经被回收的对象的对象头
+    private static void expungeStaleHeaders() {
+        Object key;
+        while (null != (key = staleKeys.poll())) {
+            headers.remove(key);
+        }
+    }
+
+    public static long getThinAcquires() { return thinAcquires.sum(); }
+    public static long getMonitorAcquires() { return monitorAcquires.sum(); }
+    public static long getRecursiveAcquires() { return recursiveAcquires.sum(); }
+    public static long getContendedAcquires() { return contendedAcquires.sum(); }
+    public static long getInflations() { return inflations.sum(); }
+    public static long getDeflations() { return deflations.sum(); }
+    public static long getBlockedAcquires() { return blockedAcquires.sum(); }
+
+    public static String printStatistics() {
+        return "对象锁: 轻量级加锁 " + getThinAcquires() + " 次, 重量级加锁 " + getMonitorAcquires() + " 次, 重入 " + getRecursiveAcquires() + " 次, 竞争 " + getContendedAcquires()
+                + " 次, 膨胀 " + getInflations() + " 次, 收缩 " + getDeflations() + " 次, 阻塞 " + getBlockedAcquires() + " 次, 对象头 " + headers.size() + " 个";
+    }
+
+    /**
+     * 按同一性比较的查找键，每个线程复用一个（JavaThread.lockProbe），用完之后清空
+     * */
+    static final class IdentityKey {
+        private Object referent;
+
+        IdentityKey(Object referent) {
+            this.referent = referent;
+        }
+
+        Object get() {
+            return referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            Object referent = get();
+            if (o instanceof IdentityKey) {
+                return null != referent && referent == ((IdentityKey) o).get();
+            }
+            if (o instanceof WeakIdentityKey) {
+                return null != referent && referent == ((WeakIdentityKey) o).get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 对象头表中的键，弱引用对象，按同一性比较
+     * */
+    private static class WeakIdentityKey extends WeakReference<Object> {
+        private final int hash;
+
+        WeakIdentityKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            Object referent = get();
+            if (o instanceof WeakIdentityKey) {
+                return null != referent && referent == ((WeakIdentityKey) o).get();
+            }
+            if (o instanceof IdentityKey) {
+                return null != referent && referent == ((IdentityKey) o).get();
+            }
+            return false;
+        }
+    }
+}
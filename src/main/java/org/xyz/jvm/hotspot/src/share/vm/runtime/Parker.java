@@ -0,0 +1,113 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 线程的阻塞、唤醒（对应HotSpot的Parker、ParkEvent）
+ * 每个JavaThread有两个: parker供Java代码中的LockSupport.park/unpark使用，parkEvent供虚拟机内部的对象锁、wait/notify使用，两者的许可互不干扰
+ *
+ * 许可只有0、1两种状态，unpark设置许可，park消费许可，许可已经存在时park立即返回，所以unpark先于park执行时不会丢失唤醒
+ * 阻塞时直接park宿主机线程（平台线程或者虚拟线程），不经过反射；阻塞期间线程处于阻塞状态，不会推迟安全点
+ *
+ * 宿主机线程被中断时park默认立即返回（LockSupport.park、wait、sleep需要响应中断）
+ * 获取对象锁不响应中断（见 parkUninterruptibly）: 中断标记一直存在时park会立即返回，获取锁的循环会变成空转
+ * */
+public class Parker {
+    // 许可
+    private final AtomicInteger permit = new AtomicInteger();
+
+    // 阻塞在当前Parker上的宿主机线程
+    private volatile Thread parkedThread;
+
+    /**
+     * 阻塞当前线程，直到拿到许可、超时或者宿主机线程被中断
+     * @param absolute true: time是绝对时间（毫秒，System.currentTimeMillis）；false: time是相对时间（纳秒），0表示一直等待
+     * @param time 等待时间
+     * */
+    public void park(boolean absolute, long time) {
+        park(absolute, time, true);
+    }
+
+    /**
+     * 一直阻塞直到拿到许可，被中断时不返回，拿到许可后恢复中断标记
+     * 超出资源配额引起的中断仍然会抛出Error结束当前线程
+     * */
+    public void parkUninterruptibly() {
+        park(false, 0, false);
+    }
+
+    private void park(boolean absolute, long time, boolean interruptible) {
+        // 快速路径: 已经有许可
+        if (permit.getAndSet(0) == 1) {
+            return;
+        }
+        if (absolute && time <= System.currentTimeMillis() || !absolute && time < 0) {
+            return;
+        }
+
+        long deadline = absolute ? 0 : (0 == time ? 0 : System.nanoTime() + time);
+        Thread current = Thread.currentThread();
+        // 阻塞期间安全点不需要等待当前线程
+        JavaThread thread = Threads.currentThread();
+        int state = SafepointSynchronize.blockBegin(thread);
+        // 先登记再检查许可，保证unpark要么能看到阻塞的线程，要么当前线程能看到许可
+        parkedThread = current;
+        boolean interrupted = false;
+        try {
+            while (permit.getAndSet(0) == 0) {
+                if (current.isInterrupted()) {
+                    // 可能是Isolate超出了资源配额
+                    ResourceQuota.check(thread);
+                    if (interruptible) {
+                        return;
+                    }
+                    // 先清除中断标记，否则LockSupport.park会立即返回，返回前再恢复
+                    Thread.interrupted();
+                    interrupted = true;
+                    continue;
+                }
+                if (absolute) {
+                    if (System.currentTimeMillis() >= time) {
+                        return;
+                    }
+                    LockSupport.parkUntil(this, time);
+                } else if (0 == deadline) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+        } finally {
+            parkedThread = null;
+            if (interrupted) {
+                current.interrupt();
+            }
+            SafepointSynchronize.blockEnd(thread, state);
+        }
+    }
+
+    /**
+     * 一直阻塞直到拿到许可
+     * */
+    public void park() {
+        park(false, 0);
+    }
+
+    /**
+     * 设置许可，唤醒阻塞在当前Parker上的线程
+     * */
+    public void unpark() {
+        if (permit.getAndSet(1) == 1) {
+            return;
+        }
+        Thread thread = parkedThread;
+        if (null != thread) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
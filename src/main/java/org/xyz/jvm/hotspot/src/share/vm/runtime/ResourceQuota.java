@@ -0,0 +1,205 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Isolate的资源配额
+ * 限制一个Isolate中的Java程序执行的指令数、分配的字节数、栈深度、加载的类数，0表示不限制，默认值见 Globals.Quota*
+ *
+ * 计数不在每条指令上访问共享的计数器:
+ *  指令数、分配的字节数先记在线程自己的字段中（只有自己读写），在方法入口、循环回边（和安全点同一位置）每 QuotaCheckInterval 条指令汇总到Isolate一次，
+ *  汇总时检查配额；单次分配的字节数超过 QuotaCheckBytes 时立即汇总
+ *  栈深度在方法入口检查，只比较当前线程的栈帧数
+ *  加载的类数在解析Class文件之前检查
+ * 所以实际用量最多超过配额一个检查间隔
+ *
+ * 超出配额时Isolate中的所有线程都会停下来: 发现超出的线程抛出Error，其他线程在下一次轮询时抛出，
+ * 阻塞中的线程被中断唤醒后抛出（见 Parker.park）
+ * 异常处理表暂未实现，Java代码不能捕获这个Error，它会结束所在的线程，runMain等所有线程结束后抛给调用者
+ * */
+@Getter
+@Slf4j
+public class ResourceQuota {
+    private final Isolate isolate;
+
+    // 配额，0表示不限制
+    @Setter
+    private volatile long maxInstructions = Globals.QuotaInstructions;
+    @Setter
+    private volatile long maxAllocatedBytes = Globals.QuotaAllocatedBytes;
+    @Setter
+    private volatile int maxStackDepth = (int) Globals.QuotaStackDepth;
+    @Setter
+    private volatile int maxLoadedClasses = (int) Globals.QuotaLoadedClasses;
+
+    // 用量
+    private final LongAdder instructions = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final AtomicInteger stackDepth = new AtomicInteger();
+    private final AtomicInteger loadedClasses = new AtomicInteger();
+
+    // 超出的配额，null表示没有超出
+    private volatile String exceeded;
+
+    // 只记录第一个超出的配额，超出时所在的线程可能运行在虚拟线程上，不用synchronized
+    private final ReentrantLock exceedLock = new ReentrantLock();
+
+    public ResourceQuota(Isolate isolate) {
+        this.isolate = isolate;
+    }
+
+    /**
+     * 方法入口调用: 检查栈深度，然后和循环回边一样轮询
+     * @param thread 当前线程
+     * */
+    public static void methodEntry(JavaThread thread) {
+        int depth = thread.getStack().size();
+        if (depth > thread.getMaxStackDepth()) {
+            thread.setMaxStackDepth(depth);
+            ResourceQuota quota = thread.getIsolate().getQuota();
+            quota.stackDepth.accumulateAndGet(depth, Math::max);
+            if (quota.maxStackDepth > 0 && depth > quota.maxStackDepth) {
+                quota.exceed("栈深度 " + depth + " 超过 " + quota.maxStackDepth);
+            }
+        }
+        poll(thread);
+    }
+
+    /**
+     * 方法入口、循环回边调用: 执行的指令数到达检查点时汇总
+     * @param thread 当前线程
+     * */
+    public static void poll(JavaThread thread) {
+        if (thread.getInstructions() >= thread.getQuotaCheckAt() || null != thread.getIsolate().getQuota().exceeded) {
+            charge(thread);
+        }
+    }
+
+    /**
+     * 记录当前线程分配的字节数
+     * @param bytes 字节数
+     * */
+    public static void allocate(long bytes) {
+        JavaThread thread = Threads.currentThread();
+        if (null == thread) {
+            return;
+        }
+        thread.setAllocatedBytes(thread.getAllocatedBytes() + bytes);
+        if (thread.getAllocatedBytes() - thread.getChargedBytes() >= Globals.QuotaCheckBytes) {
+            charge(thread);
+        }
+    }
+
+    /**
+     * 阻塞的线程被唤醒后检查Isolate是否已经超出配额
+     * @param thread 当前线程，可能为null
+     * */
+    public static void check(JavaThread thread) {
+        if (null != thread) {
+            thread.getIsolate().getQuota().checkExceeded();
+        }
+    }
+
+    /**
+     * 加载一个类之前调用
+     * */
+    public void loadClass(String className) {
+        int loaded = loadedClasses.incrementAndGet();
+        if (maxLoadedClasses > 0 && loaded > maxLoadedClasses) {
+            loadedClasses.decrementAndGet();
+            exceed("加载的类数超过 " + maxLoadedClasses + ": " + className);
+        }
+    }
+
+    /**
+     * 汇总线程的用量并检查配额
+     * */
+    private static void charge(JavaThread thread) {
+        ResourceQuota quota = thread.getIsolate().getQuota();
+        quota.flush(thread);
+
+        long instructions = quota.instructions.sum();
+        if (quota.maxInstructions > 0 && instructions > quota.maxInstructions) {
+            quota.exceed("指令数 " + instructions + " 超过 " + quota.maxInstructions);
+        }
+        long bytes = quota.allocatedBytes.sum();
+        if (quota.maxAllocatedBytes > 0 && bytes > quota.maxAllocatedBytes) {
+            quota.exceed("分配的字节数 " + bytes + " 超过 " + quota.maxAllocatedBytes);
+        }
+        quota.checkExceeded();
+    }
+
+    /**
+     * 把线程还没有汇总的用量汇总到Isolate，线程结束时也要调用
+     * @param thread 当前线程
+     * */
+    public void flush(JavaThread thread) {
+        long instructions = thread.getInstructions();
+        this.instructions.add(instructions - thread.getChargedInstructions());
+        thread.setChargedInstructions(instructions);
+        thread.setQuotaCheckAt(instructions + Globals.QuotaCheckInterval);
+
+        long bytes = thread.getAllocatedBytes();
+        this.allocatedBytes.add(bytes - thread.getChargedBytes());
+        thread.setChargedBytes(bytes);
+    }
+
+    /**
+     * 超出配额: 记录第一个超出的配额，中断Isolate中的所有线程，当前线程抛出Error
+     * */
+    private void exceed(String reason) {
+        boolean first = false;
+        exceedLock.lock();
+        try {
+            if (null == exceeded) {
+                exceeded = reason;
+                first = true;
+            }
+        } finally {
+            exceedLock.unlock();
+        }
+        if (first) {
+            log.warn(isolate + " 超出配额: " + reason);
+            // 唤醒阻塞中的线程
+            for (Thread thread : isolate.getThreadList()) {
+                if (!(thread instanceof JavaThread)) {
+                    continue;
+                }
+                Thread osThread = ((JavaThread) thread).getOsThread();
+                if (null != osThread && osThread != Thread.currentThread()) {
+                    osThread.interrupt();
+                }
+            }
+        }
+        checkExceeded();
+    }
+
+    void checkExceeded() {
+        String reason = exceeded;
+        if (null != reason) {
+            throw new Error(isolate + " 超出配额: " + reason);
+        }
+    }
+
+    public boolean isExceeded() {
+        return null != exceeded;
+    }
+
+    public String printStatistics() {
+        return isolate + " 资源用量: 指令 " + instructions.sum() + limit(maxInstructions)
+                + ", 分配 " + allocatedBytes.sum() + " bytes" + limit(maxAllocatedBytes)
+                + ", 最大栈深度 " + stackDepth.get() + limit(maxStackDepth)
+                + ", 加载类 " + loadedClasses.get() + limit(maxLoadedClasses)
+                + (null == exceeded ? "" : ", 超出配额: " + exceeded);
+    }
+
+    private static String limit(long max) {
+        return max > 0 ? " / " + max : "";
+    }
+}
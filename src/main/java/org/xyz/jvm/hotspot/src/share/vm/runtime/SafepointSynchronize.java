@@ -0,0 +1,272 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.JavaThreadState;
+
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 安全点
+ * 垃圾回收等需要所有Java线程停在已知位置（栈不再变化）的操作，在安全点中执行:
+ *  1.发起方把状态改为 _synchronizing
+ *  2.解释器在方法入口、循环回边轮询状态（空闲时只是一次volatile读），发现正在同步时在这里阻塞，直到安全点结束
+ *    处于阻塞状态（park、等待对象锁、join、sleep、反射调用宿主机方法、本地方法）的线程不会访问自己的栈，不需要等待它们；它们结束阻塞时检查状态，正在同步就继续阻塞
+ *  3.所有线程都到达安全点或者处于阻塞状态后，状态改为 _synchronized，执行操作
+ *  4.操作结束后状态改回 _not_synchronized，唤醒所有阻塞在安全点的线程
+ * 从发起到所有线程停下来的时间（time to safepoint）记入统计信息
+ *
+ * 每个Isolate有自己的安全点，只等待该Isolate的线程，一个Isolate垃圾回收时不会让其他Isolate的线程停下来
+ * */
+@Slf4j
+public class SafepointSynchronize {
+    // 安全点状态
+    private static final int _not_synchronized = 0;
+    private static final int _synchronizing = 1;
+    private static final int _synchronized = 2;
+
+    // 所属的Isolate，安全点只等待它的线程
+    private final Isolate isolate;
+
+    // 解释器轮询的状态
+    private volatile int state = _not_synchronized;
+
+    // 同一时刻只执行一个安全点操作
+    private final ReentrantLock operationLock = new ReentrantLock();
+
+    // 到达安全点的线程在released上等待安全点结束
+    private final ReentrantLock safepointLock = new ReentrantLock();
+    private final Condition released = safepointLock.newCondition();
+
+    // 发起当前安全点的线程，不需要等待它自己
+    private volatile JavaThread requester;
+
+    // 等待线程到达安全点时，先让出CPU，超过次数之后改为短暂休眠
+    private static final int YIELD_LIMIT = 64;
+    private static final long BACKOFF_NANOS = 10_000;
+
+    // 统计，只在持有operationLock时修改
+    private long safepoints;
+    private long totalTimeToSafepointNanos;
+    private long maxTimeToSafepointNanos;
+    private long totalSafepointNanos;
+    private long beginNanos;
+
+    public SafepointSynchronize(Isolate isolate) {
+        this.isolate = isolate;
+    }
+
+    /**
+     * 轮询安全点，解释器在方法入口、循环回边调用
+     * @param thread 当前线程，检查它所属Isolate的安全点
+     * */
+    public static void poll(JavaThread thread) {
+        if (null == thread) {
+            return;
+        }
+        SafepointSynchronize safepoint = thread.getIsolate().getSafepoint();
+        if (_not_synchronized != safepoint.state) {
+            safepoint.block(thread);
+        }
+    }
+
+    /**
+     * 在安全点中执行操作
+     * @param cause 原因
+     * @param operation 需要所有Java线程停下来才能执行的操作
+     * */
+    public void execute(String cause, Runnable operation) {
+        begin(cause);
+        try {
+            operation.run();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * 开始安全点，返回时其他所有Java线程都已经停下来
+     * @param cause 原因
+     * */
+    public void begin(String cause) {
+        // 等待其他线程发起的安全点操作结束，等待期间处于阻塞状态，不妨碍那个安全点
+        lock(operationLock);
+
+        long start = System.nanoTime();
+        beginNanos = start;
+        requester = Threads.currentThread();
+
+        safepointLock.lock();
+        try {
+            state = _synchronizing;
+        } finally {
+            safepointLock.unlock();
+        }
+
+        // 逐个等待线程到达安全点或者进入阻塞状态，先写state再读线程状态（都是volatile），保证线程要么被看到在运行，要么能看到state
+        List<Thread> threads = isolate.getThreadList();
+        for (Thread thread : threads) {
+            if (!(thread instanceof JavaThread) || thread == requester) {
+                continue;
+            }
+            JavaThread javaThread = (JavaThread) thread;
+            int spins = 0;
+            while (!isSafe(javaThread) && threads.contains(javaThread)) {
+                if (spins++ < YIELD_LIMIT) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(BACKOFF_NANOS);
+                }
+            }
+        }
+        state = _synchronized;
+
+        long timeToSafepoint = System.nanoTime() - start;
+        safepoints++;
+        totalTimeToSafepointNanos += timeToSafepoint;
+        maxTimeToSafepointNanos = Math.max(maxTimeToSafepointNanos, timeToSafepoint);
+        log.info("进入安全点 (" + cause + "), time to safepoint: " + String.format("%.3f", timeToSafepoint / 1e6) + " ms");
+    }
+
+    /**
+     * 结束安全点，唤醒所有阻塞在安全点的线程
+     * */
+    public void end() {
+        safepointLock.lock();
+        try {
+            state = _not_synchronized;
+            released.signalAll();
+        } finally {
+            safepointLock.unlock();
+        }
+        requester = null;
+        totalSafepointNanos += System.nanoTime() - beginNanos;
+        operationLock.unlock();
+    }
+
+    // 线程不会再访问自己的栈
+    private static boolean isSafe(JavaThread thread) {
+        int threadState = thread.getThreadState();
+        return JavaThreadState._thread_blocked == threadState || JavaThreadState._thread_new == threadState;
+    }
+
+    // 在安全点阻塞，直到安全点结束
+    private void block(JavaThread thread) {
+        if (thread == requester) {
+            return;
+        }
+        safepointLock.lock();
+        try {
+            int threadState = thread.getThreadState();
+            thread.setThreadState(JavaThreadState._thread_blocked);
+            while (_not_synchronized != state) {
+                released.awaitUninterruptibly();
+            }
+            thread.setThreadState(threadState);
+        } finally {
+            safepointLock.unlock();
+        }
+    }
+
+    /**
+     * 进入阻塞状态（对应HotSpot的ThreadBlockInVM），阻塞期间安全点不需要等待当前线程
+     * @param thread 当前线程，不是Java线程时为null
+     * @return 进入阻塞状态之前的状态，传给blockEnd
+     * */
+    public static int blockBegin(JavaThread thread) {
+        if (null == thread) {
+            return JavaThreadState._thread_blocked;
+        }
+        int threadState = thread.getThreadState();
+        thread.setThreadState(JavaThreadState._thread_blocked);
+        return threadState;
+    }
+
+    /**
+     * 结束阻塞状态，正在进行安全点时等待它结束
+     * @param thread 当前线程，不是Java线程时为null
+     * @param threadState blockBegin的返回值
+     * */
+    public static void blockEnd(JavaThread thread, int threadState) {
+        if (null == thread) {
+            return;
+        }
+        thread.setThreadState(threadState);
+        // 先写线程状态再读state: 发起方要么看到当前线程已经不在阻塞状态（等待它），要么当前线程在这里看到正在同步（等待安全点结束）
+        poll(thread);
+    }
+
+    /**
+     * 阻塞期间进入虚拟机内部（对应HotSpot的ThreadInVMfromNative），如本地方法在虚拟机堆中分配内存
+     * 分配会修改TLAB、Region，不能和垃圾回收同时进行: 先结束阻塞（正在进行安全点时等待它结束），回到阻塞状态之前安全点要等待当前线程
+     * 不处于阻塞状态时什么都不做
+     * @param thread 当前线程，不是Java线程时为null
+     * @return 进入之前的状态，传给leaveVM
+     * */
+    public static int enterVM(JavaThread thread) {
+        if (null == thread) {
+            return JavaThreadState._thread_in_vm;
+        }
+        int threadState = thread.getThreadState();
+        if (JavaThreadState._thread_blocked == threadState) {
+            blockEnd(thread, JavaThreadState._thread_in_vm);
+        }
+        return threadState;
+    }
+
+    /**
+     * 离开虚拟机内部，回到enterVM之前的阻塞状态
+     * @param thread 当前线程，不是Java线程时为null
+     * @param threadState enterVM的返回值
+     * */
+    public static void leaveVM(JavaThread thread, int threadState) {
+        if (null != thread && JavaThreadState._thread_blocked == threadState) {
+            thread.setThreadState(threadState);
+        }
+    }
+
+    /**
+     * 获取锁，需要等待时进入阻塞状态
+     * 持有该锁的线程可能正在等待安全点，如果等待锁的线程不处于阻塞状态，两边会互相等待
+     * 要在安全点中使用的锁，必须在开始安全点之前获取
+     * */
+    public static void lock(Lock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        JavaThread thread = Threads.currentThread();
+        int threadState = blockBegin(thread);
+        try {
+            lock.lock();
+        } finally {
+            blockEnd(thread, threadState);
+        }
+    }
+
+    /**
+     * 线程开始执行Java代码，正在进行安全点时等待它结束
+     * */
+    public static void threadStarted(JavaThread thread) {
+        blockEnd(thread, JavaThreadState._thread_in_Java);
+    }
+
+    public boolean isSynchronizing() { return _not_synchronized != state; }
+    public long getSafepoints() { return safepoints; }
+    public long getTotalTimeToSafepointNanos() { return totalTimeToSafepointNanos; }
+    public long getMaxTimeToSafepointNanos() { return maxTimeToSafepointNanos; }
+    public long getTotalSafepointNanos() { return totalSafepointNanos; }
+
+    public String printStatistics() {
+        operationLock.lock();
+        try {
+            double avg = 0 == safepoints ? 0 : totalTimeToSafepointNanos / 1e6 / safepoints;
+            return "安全点: " + safepoints + " 次, 到达安全点平均 " + String.format("%.3f", avg) + " ms, 最长 "
+                    + String.format("%.3f", maxTimeToSafepointNanos / 1e6) + " ms, 安全点总时长 " + String.format("%.3f", totalSafepointNanos / 1e6) + " ms";
+        } finally {
+            operationLock.unlock();
+        }
+    }
+}
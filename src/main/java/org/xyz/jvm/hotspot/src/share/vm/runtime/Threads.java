@@ -1,29 +1,146 @@
 package org.xyz.jvm.hotspot.src.share.vm.runtime;
 
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 线程管理器
+ * 每个JavaThread绑定一个宿主机线程，宿主机线程通过线程本地变量找到自己当前绑定的JavaThread
+ * 线程列表属于JavaThread所在的Isolate（见 Isolate.getThreadList），垃圾回收、安全点只遍历自己Isolate的线程
  * */
 @Data
+@Slf4j
 public class Threads extends AllStatic {
-    // 所有Java基本线程（真实线程）都存储在这个List中
-    private static List<Thread> threadList;
+    // 当前宿主机线程绑定的JavaThread
+    private static final ThreadLocal<JavaThread> currentThread = new ThreadLocal<>();
 
-    // 当前线程
-    private static Thread currentThread;
+    // 线程对象构造时没有传入Runnable
+    public static final Object NO_TARGET = new Object();
 
-    static {
-        threadList = new ArrayList<>();
+    public static JavaThread currentThread() { return currentThread.get(); }
+    public static void setCurrentThread(Thread thread) {
+        currentThread.set((JavaThread) thread);
+        // 开始执行Java代码，正在进行安全点时先等它结束
+        if (null != thread) {
+            SafepointSynchronize.threadStarted((JavaThread) thread);
+        }
     }
 
-    public static JavaThread currentThread() { return (JavaThread) currentThread; }
-    public static void setCurrentThread(Thread thread) { currentThread = thread; }
+    /**
+     * 当前Isolate的所有线程
+     * */
+    public static List<Thread> getThreadList() { return Isolate.current().getThreadList(); }
 
-    public static List<Thread> getThreadList() { return threadList; }
+    /**
+     * 注册线程到它所属的Isolate
+     * */
+    public static void add(JavaThread thread) {
+        Isolate isolate = thread.getIsolate();
+        isolate.getThreadList().add(thread);
+        if (null != thread.getThreadObj()) {
+            isolate.getThreadObjs().putIfAbsent(thread.getThreadObj(), thread);
+        }
+    }
+
+    /**
+     * 线程结束时注销
+     * */
+    public static void remove(JavaThread thread) {
+        Isolate isolate = thread.getIsolate();
+        isolate.getThreadList().remove(thread);
+        if (null != thread.getThreadObj()) {
+            isolate.getThreadObjs().remove(thread.getThreadObj());
+        }
+    }
+
+    /**
+     * 查找执行Java线程对象的JavaThread
+     * @param threadObj Java代码中的线程对象，main线程的线程对象就是JavaThread自己（见 JavaThread.threadObj）
+     * @return 还没有启动或者已经结束返回null
+     * */
+    public static JavaThread findThread(Object threadObj) {
+        if (threadObj instanceof JavaThread) {
+            return (JavaThread) threadObj;
+        }
+        return Isolate.current().getThreadObjs().get(threadObj);
+    }
+
+    /**
+     * 启动Java代码中的线程，对应Thread.start
+     * 创建一个JavaThread，在新的宿主机线程（平台线程或者虚拟线程，见UseVirtualThreads）中解释执行线程对象的run方法
+     * 线程对象只能启动一次: 先原子地登记到启动过的线程对象中（见 Isolate.startedThreadObjs），多个线程同时启动时只有一个能成功，
+     * 线程结束后从threadObjs中移除，但仍然留在启动过的线程对象中，再次启动同样抛出异常
+     * @param threadObj Java代码中的线程对象
+     * @return 新创建的JavaThread
+     * */
+    public static JavaThread startThread(Thread threadObj) {
+        // main线程的线程对象就是JavaThread自己，已经在运行
+        if (threadObj instanceof JavaThread || !Isolate.current().getStartedThreadObjs().add(threadObj)) {
+            throw new IllegalThreadStateException("线程已经启动: " + threadObj.getName());
+        }
+
+        JavaThread thread = new JavaThread(threadObj);
+        add(thread);
+        thread.start();
+
+        log.info("启动线程: " + thread.getName());
+        return thread;
+    }
+
+    /**
+     * 记录线程对象构造时传入的Runnable，解释器执行java.lang.Thread的构造方法（包括子类构造方法中的super调用）时调用
+     * Runnable保存在Thread的私有字段target中，JDK 16之后没有--add-opens不能通过反射读取，所以在这里记下来，线程启动时使用（见 JavaThread.run）
+     * @param threadObj 线程对象
+     * @param paramsClass 构造方法的形参类型
+     * @param params 构造方法的实参
+     * */
+    public static void recordTarget(Thread threadObj, Class<?>[] paramsClass, Object[] params) {
+        Object target = NO_TARGET;
+        for (int i = 0; i < paramsClass.length; i++) {
+            if (Runnable.class == paramsClass[i] && null != params[i]) {
+                target = params[i];
+                break;
+            }
+        }
+        Isolate.current().getThreadTargets().put(threadObj, target);
+    }
+
+    /**
+     * 线程对象构造时传入的Runnable
+     * @param threadObj 线程对象
+     * @return 构造时没有传入时返回NO_TARGET；线程对象不是由解释器构造的（如宿主机代码创建的线程）返回null
+     * */
+    public static Object targetOf(Thread threadObj) {
+        return Isolate.current().getThreadTargets().get(threadObj);
+    }
+
+    /**
+     * 处理Java代码中对线程对象的方法调用，需要由虚拟机接管的方法在这里执行
+     *  start()V: 创建JavaThread并启动
+     *  join()V、join(J)V: 等待执行该线程对象的JavaThread结束
+     * @param threadObj 线程对象
+     * @param methodName 方法名
+     * @param descriptorName 方法描述符
+     * @param params 实参
+     * @return 已经处理返回true，其他方法返回false，由调用方通过反射执行
+     * */
+    public static boolean invokeThreadMethod(Thread threadObj, String methodName, String descriptorName, Object[] params) throws InterruptedException {
+        if ("start".equals(methodName) && "()V".equals(descriptorName)) {
+            startThread(threadObj);
+            return true;
+        }
 
+        if ("join".equals(methodName) && ("()V".equals(descriptorName) || "(J)V".equals(descriptorName))) {
+            JavaThread thread = findThread(threadObj);
+            if (null != thread) {
+                thread.joinThread(0 == params.length ? 0 : (long) params[0]);
+            }
+            return true;
+        }
+
+        return false;
+    }
 }
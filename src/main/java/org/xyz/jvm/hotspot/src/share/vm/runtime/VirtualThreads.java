@@ -0,0 +1,91 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyz.jvm.hotspot.src.share.vm.memory.AllStatic;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 宿主机的虚拟线程（JDK 21及以上）
+ * 虚拟机按Java 8编译，不能直接使用 Thread.ofVirtual，通过反射调用
+ * 虚拟线程阻塞（sleep、park、I/O）时从载体线程上卸载，每个线程只占用很少的内存，适合大量阻塞型的线程
+ *
+ * 宿主机的调度器只在虚拟线程阻塞时切换，一直在计算的Java线程会一直占着载体线程，
+ * 所以解释器在方法入口、循环回边检查执行的指令数，超过VirtualThreadQuantum条时主动让出（见 poll）
+ * 解释器是递归实现的，Java线程的执行状态在宿主机栈上，不能在解释器中自己保存、恢复，所以不另外实现M:N调度，
+ * 载体线程数由宿主机的 -Djdk.virtualThreadScheduler.parallelism 指定
+ * */
+@Slf4j
+public class VirtualThreads extends AllStatic {
+    // Thread.ofVirtual()
+    private static final Method OF_VIRTUAL;
+    // Thread.Builder.name(String)
+    private static final Method NAME;
+    // Thread.Builder.unstarted(Runnable)
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            log.info("宿主机不支持虚拟线程: " + System.getProperty("java.version"));
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    /**
+     * @return 宿主机是否支持虚拟线程
+     * */
+    public static boolean isSupported() {
+        return null != UNSTARTED;
+    }
+
+    /**
+     * 检查当前线程的时间片，用完时让出载体线程，解释器在方法入口、循环回边调用
+     * 只对运行在虚拟线程上的Java线程生效（见 JavaThread.start），平台线程、Isolate的main线程由宿主机的操作系统抢占
+     * @param thread 当前线程
+     * */
+    public static void poll(JavaThread thread) {
+        if (!Globals.UseVirtualThreads || 0 == Globals.VirtualThreadQuantum || null == thread || null == thread.getThreadObj()
+                || thread.getInstructions() < thread.getPreemptAt() || !isSupported()) {
+            return;
+        }
+        thread.setPreemptAt(thread.getInstructions() + Globals.VirtualThreadQuantum);
+
+        // 让出期间不执行Java代码，安全点不需要等待当前线程
+        int state = SafepointSynchronize.blockBegin(thread);
+        try {
+            Thread.yield();
+        } finally {
+            SafepointSynchronize.blockEnd(thread, state);
+        }
+    }
+
+    /**
+     * 创建一个未启动的虚拟线程
+     * @param name 线程名
+     * @param task 线程执行的任务
+     * @return 虚拟线程
+     * */
+    public static Thread unstarted(String name, Runnable task) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("宿主机不支持虚拟线程: " + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = NAME.invoke(builder, name);
+            return (Thread) UNSTARTED.invoke(builder, task);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new Error("创建虚拟线程失败", e);
+        }
+    }
+}
@@ -17,4 +17,12 @@ public class AccessFlags {
         return (flag & BasicType.JVM_ACC_STATIC) != 0;
     }
 
+    public boolean isNative() {
+        return (flag & BasicType.JVM_ACC_NATIVE) != 0;
+    }
+
+    public boolean isSynchronized() {
+        return (flag & BasicType.JVM_ACC_SYNCHRONIZED) != 0;
+    }
+
 }
@@ -0,0 +1,16 @@
+package org.xyz.jvm.hotspot.src.share.vm.utilities;
+
+/**
+ * Java线程的状态（和HotSpot的JavaThreadState一致）
+ * 安全点只需要等待处于 _thread_in_Java、_thread_in_vm 状态的线程，其他状态的线程不会访问自己的栈和虚拟机堆
+ * */
+public class JavaThreadState {
+    // 已经创建，还没有开始执行Java代码
+    public static final int _thread_new = 2;
+    // 正在虚拟机内部执行（如阻塞期间在虚拟机堆中分配内存），安全点需要等待
+    public static final int _thread_in_vm = 6;
+    // 正在解释执行Java代码
+    public static final int _thread_in_Java = 8;
+    // 阻塞（park、等待对象锁、wait、join、sleep、到达安全点、执行宿主机方法和本地方法）
+    public static final int _thread_blocked = 10;
+}
@@ -2,18 +2,15 @@ package org.xyz.jvm.jdk;
 
 import org.xyz.jvm.jdk.classes.JniEnv;
 import org.xyz.jvm.jdk.classes.sun.misc.AppClassLoader;
-import org.xyz.jvm.hotspot.src.share.vm.prims.JavaNativeInterface;
-import org.xyz.jvm.hotspot.src.share.vm.runtime.JavaThread;
-import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
-import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
-import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
-import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.ObjectSynchronizer;
 import org.xyz.jvm.jdk.classes.Handle;
 
 public class Main {
     public static void main(String[] args) {
         // 以下是直接调用Java写的jvm代码
-        // class文件的搜索路径请修改 org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader.searchPath 属性
+        // class文件的搜索路径默认为宿主机的classpath，可以通过 -Djvm.ClassPath=目录或jar;目录或jar 修改
         startJvm();
 
         // 以下是通过JNI手段，调用C++写的jvmplus代码               
@@ -34,25 +31,18 @@ public class Main {
 }
 
     public static void startJvm() {
-        // 通过BootClassLoader加载main函数所在的类
-        InstanceKlass klass = BootClassLoader.loadMainClass("org.xyz.jvm.example.exception.ExceptionHappen");
+        // 在默认Isolate中执行main方法（加载路径为 BootClassLoader.searchPath），等待所有非守护线程结束
+        Isolate isolate = Isolate.getDefault();
+        isolate.runMain("org.xyz.jvm.example.exception.ExceptionHappen");
 
-        // 找到main方法
-        MethodInfo main = JavaNativeInterface.getMethod(klass, "main", "([Ljava/lang/String;)V");
-
-        if (main == null) {
-            return;
+        if (Globals.PrintLockStatistics) {
+            System.out.println(ObjectSynchronizer.printStatistics());
+        }
+        if (Globals.PrintSafepointStatistics) {
+            System.out.println(isolate.getSafepoint().printStatistics());
+        }
+        if (Globals.PrintQuotaStatistics) {
+            System.out.println(isolate.getQuota().printStatistics());
         }
-
-        // 创建线程，此处仅为模拟
-        JavaThread thread = new JavaThread();
-
-        // 将新创建的线程存放到线程管理器中
-        Threads.getThreadList().add(thread);
-        // 设置线程管理器的当前线程
-        Threads.setCurrentThread(thread);
-
-        // 执行main方法
-        JavaNativeInterface.callStaticMethod(main);
     }
 }
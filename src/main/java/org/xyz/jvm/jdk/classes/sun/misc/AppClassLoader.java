@@ -4,6 +4,7 @@ import cn.hutool.core.io.FileUtil;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
 import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassFileParser;
 import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Globals;
 import org.xyz.jvm.jdk.classes.Handle;
 import org.xyz.jvm.jdk.classes.JniEnv;
 
@@ -15,8 +16,8 @@ public class AppClassLoader {
     // Class文件的扩展名
     public static final String SUFFIX = ".class";
 
-    // 该类加载器的加载路径，多个路径以分号分隔，只有一个的话，分号可省略。注意路径后面的斜杠不可丢
-    private static String searchPath = "/home/xyzjiao/Desktop/project/jvm/target/classes/";
+    // 该类加载器的加载路径，多个目录、jar文件以分号分隔，只有一个的话，分号可省略
+    private static String searchPath = Globals.ClassPath;
 
     // 缓存该类加载器加载的所有类
     private static Map<String, Handle> appClassLoaderData = new HashMap<>();
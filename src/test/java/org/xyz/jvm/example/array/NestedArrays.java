@@ -0,0 +1,28 @@
+package org.xyz.jvm.example.array;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * 多维数组的回归测试程序: 虚拟机创建的数组（anewarray）和宿主机创建的多维数组（反射返回的int[][]）都可以逐层用数组指令访问
+ * */
+public class NestedArrays {
+    public static int guest;
+    public static int host;
+    public static int hostLength;
+    public static String hostContent;
+
+    public static void main(String[] args) {
+        int[][] g = new int[2][];
+        g[0] = new int[3];
+        g[0][1] = 5;
+        guest = g[0][1];
+
+        int[][] h = (int[][]) Array.newInstance(int.class, 2, 3);
+        h[1][2] = 7;
+        h[0] = new int[] { 9, 8 };
+        host = h[1][2] + h[0][1];
+        hostLength = h[1].length;
+        hostContent = Arrays.deepToString(h);
+    }
+}
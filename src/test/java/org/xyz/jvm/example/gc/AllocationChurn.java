@@ -0,0 +1,46 @@
+package org.xyz.jvm.example.gc;
+
+/**
+ * 垃圾回收的回归测试程序: main线程和工作线程同时分配大量短命的数组，触发多次垃圾回收
+ * 静态变量、局部变量引用的数组在回收（整理）之后要保持原来的内容
+ * */
+public class AllocationChurn {
+    public static int[] kept;
+    public static int keptValue;
+    public static int localValue;
+    public static long workerSum;
+
+    public static class Worker implements Runnable {
+        public Worker() {
+        }
+
+        public void run() {
+            long sum = 0;
+            for (int i = 0; i < 2000; i++) {
+                int[] garbage = new int[1024];
+                garbage[1] = i;
+                sum += garbage[1];
+            }
+            workerSum = sum;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        kept = new int[16];
+        kept[3] = 42;
+
+        Thread worker = new Thread(new Worker());
+        worker.start();
+
+        int[] local = new int[8];
+        local[2] = 11;
+        for (int i = 0; i < 2000; i++) {
+            int[] garbage = new int[1024];
+            garbage[0] = i;
+        }
+        worker.join();
+
+        keptValue = kept[3];
+        localValue = local[2];
+    }
+}
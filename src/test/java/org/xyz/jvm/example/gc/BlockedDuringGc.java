@@ -0,0 +1,64 @@
+package org.xyz.jvm.example.gc;
+
+/**
+ * 安全点的回归测试程序: 工作线程阻塞在 Object.wait、Thread.sleep 中时，main线程分配大量数组触发垃圾回收
+ * 阻塞的线程不访问自己的栈，安全点不需要等待它们，回收要能正常完成
+ * */
+public class BlockedDuringGc {
+    public static final Object lock = new Object();
+    public static boolean released;
+    public static int woken;
+    public static int slept;
+
+    public static class Waiter implements Runnable {
+        public Waiter() {
+        }
+
+        public void run() {
+            synchronized (lock) {
+                while (!released) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                woken++;
+            }
+        }
+    }
+
+    public static class Sleeper implements Runnable {
+        public Sleeper() {
+        }
+
+        public void run() {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            slept++;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Thread waiter = new Thread(new Waiter());
+        Thread sleeper = new Thread(new Sleeper());
+        waiter.start();
+        sleeper.start();
+        Thread.sleep(100);
+
+        for (int i = 0; i < 2000; i++) {
+            int[] garbage = new int[1024];
+            garbage[0] = i;
+        }
+
+        synchronized (lock) {
+            released = true;
+            lock.notifyAll();
+        }
+        waiter.join();
+        sleeper.join();
+    }
+}
@@ -0,0 +1,75 @@
+package org.xyz.jvm.example.gc;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 安全点的回归测试程序: 工作线程阻塞在反射调用的java体系方法（BlockingQueue.take、PipedInputStream.read）中时，main线程分配大量数组触发垃圾回收
+ * 阻塞在宿主机方法中的线程不推迟安全点，回收要能正常完成；read的数组实参在调用期间可能被移动，返回后的写回要落在移动后的位置
+ * */
+public class BlockedInHostCall {
+    public static final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+    public static final PipedInputStream in = new PipedInputStream();
+    public static String taken;
+    public static int read;
+    public static int first;
+    public static int last;
+
+    public static class Taker implements Runnable {
+        public Taker() {
+        }
+
+        public void run() {
+            try {
+                taken = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public static class Reader implements Runnable {
+        public Reader() {
+        }
+
+        public void run() {
+            // 前面的垃圾被回收后，整理会移动后面的buffer
+            int[] garbage = new int[1024];
+            garbage[0] = 1;
+            byte[] buffer = new byte[64];
+            try {
+                read = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                return;
+            }
+            first = buffer[0];
+            last = buffer[read - 1];
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PipedOutputStream out = new PipedOutputStream(in);
+        Thread taker = new Thread(new Taker());
+        Thread reader = new Thread(new Reader());
+        taker.start();
+        reader.start();
+        Thread.sleep(100);
+
+        for (int i = 0; i < 3000; i++) {
+            int[] garbage = new int[1024];
+            garbage[0] = i;
+        }
+
+        queue.put("x");
+        byte[] data = new byte[16];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i + 1);
+        }
+        out.write(data, 0, data.length);
+        out.flush();
+        taker.join();
+        reader.join();
+    }
+}
@@ -0,0 +1,15 @@
+package org.xyz.jvm.example.gc;
+
+/**
+ * 局部变量活跃分析的测试程序: big在读取长度之后不再使用，循环中已经不活跃
+ * */
+public class DeadLocal {
+    public static int lastUse() {
+        int[] big = new int[100];
+        int n = big.length;
+        for (int i = 0; i < 10; i++) {
+            n += i;
+        }
+        return n;
+    }
+}
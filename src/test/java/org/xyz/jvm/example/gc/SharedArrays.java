@@ -0,0 +1,62 @@
+package org.xyz.jvm.example.gc;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 虚拟机堆的回归测试程序: 交给宿主机保存的数组（集合元素、Object[]中的元素、Unsafe CAS的目标）和数组对象是同一份存储，垃圾回收之后仍然可见
+ * int[]的arrayBaseOffset由测试通过系统属性传入（Unsafe.arrayBaseOffset不是固有方法）
+ * */
+public class SharedArrays {
+    public static final String BASE_OFFSET = "jvm.test.intArrayBaseOffset";
+
+    private static final Unsafe unsafe;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = (Unsafe) field.get(null);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
+    public static int alias;
+    public static int nested;
+    public static int swapped;
+    public static int casValue;
+
+    public static void main(String[] args) {
+        List<int[]> list = new ArrayList<int[]>();
+        int[] z = new int[4];
+        list.add(z);
+        z[0] = 99;
+
+        Object[] outer = new Object[1];
+        int[] inner = new int[3];
+        outer[0] = inner;
+        List<Object> view = Arrays.asList(outer);
+        inner[1] = 5;
+
+        int[] counter = new int[4];
+        long base = Long.getLong(BASE_OFFSET, 16L);
+        swapped = unsafe.compareAndSwapInt(counter, base + 8, 0, 7) ? 1 : 0;
+
+        // 只被宿主机集合引用的数组在垃圾回收之后仍然存活
+        z = null;
+        inner = null;
+        for (int i = 0; i < 2000; i++) {
+            int[] garbage = new int[1024];
+            garbage[0] = i;
+        }
+
+        alias = list.get(0)[0];
+        nested = ((int[]) view.get(0))[1];
+        casValue = counter[2];
+    }
+}
@@ -0,0 +1,132 @@
+package org.xyz.jvm.hotspot.src.share.tools;
+
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassFileParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class文件解析的吞吐量测试
+ * 先把语料中的Class文件全部读入内存，再反复解析，只统计解析的耗时，输出每轮的 MB/s
+ *
+ * 放在测试代码中，不打进虚拟机本身；mvn test 不会执行它（类名不匹配surefire的测试类规则）
+ *
+ * 用法: mvn test-compile 之后，在测试类路径（target/test-classes、target/classes 和依赖）上运行 ClassFileParserBenchmark [jar或目录 ...]
+ *  不指定时使用宿主机JDK的java.base模块（jrt:/，JDK 9及以上）
+ *  轮数、预热轮数通过 -Dbenchmark.rounds、-Dbenchmark.warmup 指定
+ * 测试类路径上的 log4j2-test.xml 只输出 WARN 以上的日志，测出来的是解析本身的耗时，不包括解析时的info日志
+ * */
+public class ClassFileParserBenchmark {
+    public static void main(String[] args) throws IOException {
+        int rounds = Integer.getInteger("benchmark.rounds", 10);
+        int warmup = Integer.getInteger("benchmark.warmup", 5);
+
+        List<byte[]> corpus = new ArrayList<>();
+        if (0 == args.length) {
+            loadRuntimeImage(corpus);
+        } else {
+            for (String arg : args) {
+                File file = new File(arg);
+                if (file.isDirectory()) {
+                    loadDirectory(file.toPath(), corpus);
+                } else {
+                    loadArchive(file, corpus);
+                }
+            }
+        }
+
+        long bytes = 0;
+        for (byte[] content : corpus) {
+            bytes += content.length;
+        }
+        System.out.println("语料: " + corpus.size() + " 个Class文件, " + bytes / 1024 + " KB");
+
+        // 解析失败的类（如语料中版本过新、暂不支持的格式）只统计个数，不计入吞吐量
+        List<byte[]> parsable = new ArrayList<>(corpus.size());
+        for (byte[] content : corpus) {
+            try {
+                ClassFileParser.parseClassFile(content);
+                parsable.add(content);
+            } catch (Throwable e) {
+                bytes -= content.length;
+            }
+        }
+        if (parsable.size() != corpus.size()) {
+            System.out.println("解析失败: " + (corpus.size() - parsable.size()) + " 个Class文件，不计入吞吐量");
+        }
+        if (parsable.isEmpty()) {
+            return;
+        }
+
+        for (int round = 0; round < warmup + rounds; round++) {
+            long start = System.nanoTime();
+            for (byte[] content : parsable) {
+                ClassFileParser.parseClassFile(ByteBuffer.wrap(content));
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s %d: %d ms, %.1f MB/s%n", round < warmup ? "预热" : "测试", round,
+                    elapsed / 1000000, bytes / (elapsed / 1e9) / (1024 * 1024));
+        }
+    }
+
+    /**
+     * 宿主机JDK的java.base模块
+     * */
+    private static void loadRuntimeImage(List<byte[]> corpus) throws IOException {
+        FileSystem jrt;
+        try {
+            jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        } catch (Exception e) {
+            throw new Error("宿主机JDK没有jrt:/文件系统（JDK 8），请指定jar或目录作为语料");
+        }
+        loadDirectory(jrt.getPath("/modules/java.base"), corpus);
+    }
+
+    private static void loadDirectory(Path root, List<byte[]> corpus) throws IOException {
+        // 和同一个包中的 Stream 重名，使用全限定名
+        try (java.util.stream.Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String name = path.getFileName() == null ? "" : path.getFileName().toString();
+                if (name.endsWith(".class") && !name.equals("module-info.class")) {
+                    corpus.add(Files.readAllBytes(path));
+                }
+            }
+        }
+    }
+
+    private static void loadArchive(File file, List<byte[]> corpus) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class") || entry.getName().endsWith("module-info.class")) {
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    byte[] content = new byte[(int) entry.getSize()];
+                    int n = 0;
+                    while (n < content.length) {
+                        int read = in.read(content, n, content.length - n);
+                        if (read < 0) {
+                            break;
+                        }
+                        n += read;
+                    }
+                    corpus.add(content);
+                }
+            }
+        }
+    }
+}
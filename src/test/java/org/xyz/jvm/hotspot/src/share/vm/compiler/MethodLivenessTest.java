@@ -0,0 +1,43 @@
+package org.xyz.jvm.hotspot.src.share.vm.compiler;
+
+import org.junit.Test;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.BootClassLoader;
+import org.xyz.jvm.hotspot.src.share.vm.oops.InstanceKlass;
+import org.xyz.jvm.hotspot.src.share.vm.oops.MethodInfo;
+import org.xyz.jvm.hotspot.src.share.vm.prims.JavaNativeInterface;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.GuestPrograms;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MethodLivenessTest {
+
+    /**
+     * DeadLocal.lastUse: 局部变量big（槽位0）在读取长度之前活跃，之后的循环、返回时不再活跃
+     * */
+    @Test
+    public void localIsDeadAfterLastUse() throws Exception {
+        Isolate isolate = Isolate.create("liveness", GuestPrograms.classPath());
+        try {
+            MethodLiveness liveness = GuestPrograms.inJavaThread(isolate, () -> {
+                InstanceKlass klass = BootClassLoader.loadKlass("org.xyz.jvm.example.gc.DeadLocal");
+                MethodInfo method = JavaNativeInterface.getMethod(klass, "lastUse", "()I");
+                return MethodLiveness.of(method);
+            });
+            assertNotNull(liveness);
+            assertFalse(liveness.isConservative());
+
+            // bipush 100; newarray int; astore_0; aload_0 -- 第5个字节是读取big的aload_0
+            assertFalse(liveness.isLive(0, 0));
+            assertTrue(liveness.isLive(5, 0));
+            // 读取长度之后big不再活跃: arraylength之后的每条指令（循环、返回）处都不活跃
+            for (int bci : new int[] { 7, 8, 9, 10, 11, 13, 16, 17, 18, 19, 20, 23, 26, 27 }) {
+                assertFalse("bci " + bci, liveness.isLive(bci, 0));
+            }
+        } finally {
+            isolate.dispose();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xyz.jvm.hotspot.src.share.vm.classfile.ClassPath;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.GuestPrograms;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FileMapInfoTest {
+    private static final String CLASS_NAME = "org/xyz/jvm/example/array/NestedArrays";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 记录被改写时CRC32不一致，不使用归档中的记录（由调用方照常解析Class文件）
+     * */
+    @Test
+    public void corruptedRecordIsNotLoaded() throws Exception {
+        File classList = folder.newFile("classlist");
+        Files.write(classList.toPath(), Collections.singletonList(CLASS_NAME), StandardCharsets.UTF_8);
+        File archive = new File(folder.getRoot(), "app.jsa");
+        assertEquals(1, MetaspaceShared.dump(classList.getPath(), archive.getPath(), GuestPrograms.classPath()));
+
+        ClassPath classPath = ClassPath.open(GuestPrograms.classPath());
+        try {
+            ClassPath.ClassFile classFile = classPath.find(CLASS_NAME);
+            assertNotNull(new FileMapInfo(archive).load(CLASS_NAME, classFile));
+
+            // 唯一的记录从头部之后开始，偏移40落在它的常量池中
+            try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+                file.seek(40);
+                file.writeInt(0x7F7F7F7F);
+            }
+            FileMapInfo corrupted = new FileMapInfo(archive);
+            assertNull(corrupted.load(CLASS_NAME, classFile));
+            assertNull(corrupted.load(CLASS_NAME, classFile));
+        } finally {
+            classPath.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xyz.jvm.hotspot.src.share.vm.oops.ArrayOop;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.GuestPrograms;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.HandleArea;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Threads;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.BasicType;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GarbageCollectorTest {
+    private static final String CHURN = "org.xyz.jvm.example.gc.AllocationChurn";
+    private static final String SHARED = "org.xyz.jvm.example.gc.SharedArrays";
+
+    @Before
+    public void setUp() {
+        GuestPrograms.saveFlags();
+    }
+
+    @After
+    public void tearDown() {
+        GuestPrograms.restoreFlags();
+    }
+
+    /**
+     * 登记在局部句柄区中的数组对象是垃圾回收的根: 整理之后内容不变、地址被更新；释放之后被回收
+     * */
+    @Test
+    public void handleAreaKeepsArgumentsAlive() throws Exception {
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+        Isolate isolate = Isolate.create("handle-area", GuestPrograms.classPath());
+        try {
+            GuestPrograms.inJavaThread(isolate, () -> {
+                GuestHeap heap = isolate.getHeap();
+                HandleArea handles = Threads.currentThread().getHandleArea();
+
+                // 前面的垃圾被回收后，整理会把后面存活的数组移到低地址
+                new ArrayOop(BasicType.T_INT, 1000);
+                ArrayOop rooted = new ArrayOop(BasicType.T_INT, 1000);
+                for (int i = 0; i < 1000; i++) {
+                    rooted.set(i, i * 3);
+                }
+                long address = rooted.getAddress();
+
+                int mark = handles.mark();
+                handles.add(rooted);
+                heap.collect("test");
+
+                assertNotEquals(address, rooted.getAddress());
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(i * 3, rooted.get(i));
+                }
+
+                long used = heap.used();
+                handles.reset(mark);
+                heap.collect("test");
+                assertTrue(heap.used() < used);
+                return null;
+            });
+        } finally {
+            isolate.dispose();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void markCompactKeepsLiveArrays() throws Exception {
+        runChurn("MarkCompact");
+    }
+
+    @Test(timeout = 60000)
+    public void semispaceKeepsLiveArrays() throws Exception {
+        runChurn("Semispace");
+    }
+
+    /**
+     * 交给宿主机保存的数组和数组对象是同一份存储: 集合、Object[]中保存的数组，Unsafe CAS修改的数组，回收之后修改仍然可见
+     * */
+    @Test(timeout = 60000)
+    public void arraysHandedToHostAreShared() throws Exception {
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+        Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        sun.misc.Unsafe unsafe = (sun.misc.Unsafe) field.get(null);
+        System.setProperty("jvm.test.intArrayBaseOffset", String.valueOf(unsafe.arrayBaseOffset(int[].class)));
+
+        Isolate isolate = GuestPrograms.run(SHARED);
+        try {
+            assertTrue(isolate.getHeap().getCollector().getCollections() > 0);
+            assertEquals(99, GuestPrograms.getStatic(isolate, SHARED, "alias"));
+            assertEquals(5, GuestPrograms.getStatic(isolate, SHARED, "nested"));
+            assertEquals(1, GuestPrograms.getStatic(isolate, SHARED, "swapped"));
+            assertEquals(7, GuestPrograms.getStatic(isolate, SHARED, "casValue"));
+        } finally {
+            isolate.dispose();
+        }
+    }
+
+    private void runChurn(String collector) throws Exception {
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, collector);
+        Isolate isolate = GuestPrograms.run(CHURN);
+        try {
+            assertEquals(42, GuestPrograms.getStatic(isolate, CHURN, "keptValue"));
+            assertEquals(11, GuestPrograms.getStatic(isolate, CHURN, "localValue"));
+            assertEquals(1999000L, GuestPrograms.getStatic(isolate, CHURN, "workerSum"));
+            assertTrue(isolate.getHeap().getCollector().getCollections() > 0);
+        } finally {
+            isolate.dispose();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.xyz.jvm.hotspot.src.share.vm.memory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.GuestPrograms;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class GuestHeapTest {
+
+    @Before
+    public void setUp() {
+        GuestPrograms.saveFlags();
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+    }
+
+    @After
+    public void tearDown() {
+        GuestPrograms.restoreFlags();
+    }
+
+    /**
+     * 基本类型数组整体读写，字节序和逐个元素读写一致
+     * */
+    @Test
+    public void bulkReadWriteMatchesElementAccess() throws Exception {
+        inHeap(heap -> {
+            long address = GuestHeap.payload(heap.allocateZeroed(8 * 16, GuestHeap.KIND_ARRAY));
+
+            int[] ints = { 1, -2, 3, Integer.MAX_VALUE };
+            heap.write(address, ints, ints.length);
+            assertEquals(-2, heap.getInt(address + 4));
+            int[] intsRead = new int[ints.length];
+            heap.read(address, intsRead, ints.length);
+            assertArrayEquals(ints, intsRead);
+
+            double[] doubles = { 1.5, -0.25 };
+            heap.write(address, doubles, doubles.length);
+            assertEquals(-0.25, heap.getDouble(address + 8), 0);
+
+            boolean[] booleans = { true, false, true };
+            heap.write(address, booleans, booleans.length);
+            assertEquals(1, heap.getByte(address + 2));
+            boolean[] booleansRead = new boolean[booleans.length];
+            heap.read(address, booleansRead, booleans.length);
+            assertArrayEquals(booleans, booleansRead);
+
+            char[] chars = "guest".toCharArray();
+            heap.write(address, chars, chars.length);
+            assertEquals('u', heap.getChar(address + 2));
+        });
+    }
+
+    /**
+     * 整理时的滑动拷贝: 源和目标在同一个Region中重叠
+     * */
+    @Test
+    public void copyHandlesOverlap() throws Exception {
+        inHeap(heap -> {
+            long address = GuestHeap.payload(heap.allocateZeroed(4 * 64, GuestHeap.KIND_ARRAY));
+            int[] values = new int[64];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i;
+            }
+
+            heap.write(address, values, values.length);
+            heap.copy(address + 8, address, 4 * 62);
+            assertEquals(2, heap.getInt(address));
+            assertEquals(63, heap.getInt(address + 4 * 61));
+
+            heap.write(address, values, values.length);
+            heap.copy(address, address + 8, 4 * 62);
+            assertEquals(0, heap.getInt(address + 8));
+            assertEquals(61, heap.getInt(address + 4 * 63));
+
+            heap.clear(address, 4 * 64);
+            int[] cleared = new int[64];
+            heap.read(address, cleared, cleared.length);
+            assertArrayEquals(new int[64], cleared);
+        });
+    }
+
+    private interface HeapTask {
+        void run(GuestHeap heap);
+    }
+
+    private void inHeap(HeapTask task) throws Exception {
+        Isolate isolate = Isolate.create("guest-heap", GuestPrograms.classPath());
+        try {
+            GuestPrograms.inJavaThread(isolate, () -> {
+                task.run(isolate.getHeap());
+                return null;
+            });
+        } finally {
+            isolate.dispose();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.xyz.jvm.hotspot.src.share.vm.oops;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.GuestPrograms;
+import org.xyz.jvm.hotspot.src.share.vm.runtime.Isolate;
+
+import static org.junit.Assert.assertEquals;
+
+public class ArrayOopTest {
+    private static final String NESTED = "org.xyz.jvm.example.array.NestedArrays";
+
+    @Before
+    public void setUp() {
+        GuestPrograms.saveFlags();
+    }
+
+    @After
+    public void tearDown() {
+        GuestPrograms.restoreFlags();
+    }
+
+    @Test
+    public void nestedArrays() throws Exception {
+        runNested();
+    }
+
+    /**
+     * 内层数组的元素存储在虚拟机堆中时，存入宿主机创建的int[][]之前迁移到宿主数组
+     * */
+    @Test
+    public void nestedArraysWithGuestHeap() throws Exception {
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+        runNested();
+    }
+
+    private void runNested() throws Exception {
+        Isolate isolate = GuestPrograms.run(NESTED);
+        try {
+            assertEquals(5, GuestPrograms.getStatic(isolate, NESTED, "guest"));
+            assertEquals(15, GuestPrograms.getStatic(isolate, NESTED, "host"));
+            assertEquals(3, GuestPrograms.getStatic(isolate, NESTED, "hostLength"));
+            assertEquals("[[9, 8], [0, 0, 7]]", GuestPrograms.getStatic(isolate, NESTED, "hostContent"));
+        } finally {
+            isolate.dispose();
+        }
+    }
+}
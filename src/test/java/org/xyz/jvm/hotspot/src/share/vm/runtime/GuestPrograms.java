@@ -0,0 +1,87 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.concurrent.Callable;
+
+/**
+ * 测试用: 在独立的Isolate中运行测试程序（src/test/java/org/xyz/jvm/example下的类），读取它的静态变量
+ * 虚拟机参数（Globals）是全局可变的，测试修改前通过 saveFlags 保存，结束后 restoreFlags 恢复
+ * */
+public class GuestPrograms {
+    private static boolean useGuestHeap;
+    private static long guestHeapSize;
+    private static int guestHeapRegionSize;
+    private static String guestHeapCollector;
+
+    /**
+     * 测试程序所在的加载路径，即测试类的输出目录
+     * */
+    public static String classPath() {
+        try {
+            return new File(GuestPrograms.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new Error("无法获取测试类的输出目录", e);
+        }
+    }
+
+    /**
+     * 在新的Isolate中执行main方法，等待所有非守护线程结束
+     * @param className main函数所在类的全限定名
+     * @return 执行结束的Isolate，调用方读取结果后调用 dispose
+     * */
+    public static Isolate run(String className) {
+        Isolate isolate = Isolate.create(className, classPath());
+        isolate.runMain(className);
+        return isolate;
+    }
+
+    /**
+     * 读取测试程序的静态变量
+     * */
+    public static Object getStatic(Isolate isolate, String className, String fieldName) throws Exception {
+        return isolate.getClassLoaderData().loadHostClass(className).getField(fieldName).get(null);
+    }
+
+    /**
+     * 在当前宿主机线程上绑定一个属于isolate的JavaThread，执行task，用于直接调用虚拟机内部的接口
+     * */
+    public static <T> T inJavaThread(Isolate isolate, Callable<T> task) throws Exception {
+        JavaThread previous = Threads.currentThread();
+        JavaThread thread = new JavaThread(isolate);
+        thread.setOsThread(Thread.currentThread());
+        Threads.add(thread);
+        Threads.setCurrentThread(thread);
+        try {
+            return task.call();
+        } finally {
+            SafepointSynchronize.blockBegin(thread);
+            Threads.remove(thread);
+            Threads.setCurrentThread(previous);
+        }
+    }
+
+    /**
+     * 启用虚拟机堆，Region较小，少量分配就能触发垃圾回收
+     * */
+    public static void useGuestHeap(long heapSize, int regionSize, String collector) {
+        Globals.UseGuestHeap = true;
+        Globals.GuestHeapSize = heapSize;
+        Globals.GuestHeapRegionSize = regionSize;
+        Globals.GuestHeapCollector = collector;
+    }
+
+    public static void saveFlags() {
+        useGuestHeap = Globals.UseGuestHeap;
+        guestHeapSize = Globals.GuestHeapSize;
+        guestHeapRegionSize = Globals.GuestHeapRegionSize;
+        guestHeapCollector = Globals.GuestHeapCollector;
+    }
+
+    public static void restoreFlags() {
+        Globals.UseGuestHeap = useGuestHeap;
+        Globals.GuestHeapSize = guestHeapSize;
+        Globals.GuestHeapRegionSize = guestHeapRegionSize;
+        Globals.GuestHeapCollector = guestHeapCollector;
+    }
+}
@@ -0,0 +1,127 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ObjectSynchronizerTest {
+
+    /**
+     * 竞争导致膨胀的锁，最后一次释放时收缩回无锁，之后重新使用轻量级锁
+     * */
+    @Test(timeout = 10000)
+    public void idleMonitorDeflates() throws Exception {
+        Object lock = new Object();
+        JavaThread a = javaThread();
+        JavaThread b = javaThread();
+        ObjectSynchronizer.ObjectHeader header = ObjectSynchronizer.headerOf(lock, a);
+        long deflations = ObjectSynchronizer.getDeflations();
+
+        ObjectSynchronizer.enter(lock, a);
+        Thread contender = new Thread(() -> {
+            ObjectSynchronizer.enter(lock, b);
+            ObjectSynchronizer.exit(lock, b);
+        });
+        contender.start();
+        while (!(header.mark instanceof ObjectMonitor)) {
+            Thread.yield();
+        }
+        ObjectMonitor monitor = (ObjectMonitor) header.mark;
+
+        // 还有线程在竞争，释放时不收缩
+        ObjectSynchronizer.exit(lock, a);
+        contender.join();
+        assertNull(header.mark);
+        assertEquals(deflations + 1, ObjectSynchronizer.getDeflations());
+        assertNull(monitor.getOwner());
+
+        long thinAcquires = ObjectSynchronizer.getThinAcquires();
+        ObjectSynchronizer.enter(lock, a);
+        assertTrue(header.mark == a);
+        assertEquals(thinAcquires + 1, ObjectSynchronizer.getThinAcquires());
+        ObjectSynchronizer.exit(lock, a);
+        assertNull(header.mark);
+    }
+
+    /**
+     * 有线程在wait时释放锁不收缩，等待的线程重新获取锁并释放之后收缩
+     * */
+    @Test(timeout = 10000)
+    public void waitingThreadKeepsMonitor() throws Exception {
+        Object lock = new Object();
+        JavaThread a = javaThread();
+        JavaThread b = javaThread();
+        ObjectSynchronizer.ObjectHeader header = ObjectSynchronizer.headerOf(lock, a);
+
+        Thread waiter = new Thread(() -> {
+            ObjectSynchronizer.enter(lock, a);
+            try {
+                ObjectSynchronizer.wait(lock, a, 0);
+            } catch (InterruptedException e) {
+                throw new Error(e);
+            }
+            ObjectSynchronizer.exit(lock, a);
+        });
+        waiter.start();
+        while (Thread.State.WAITING != waiter.getState()) {
+            Thread.yield();
+        }
+
+        ObjectSynchronizer.enter(lock, b);
+        Object monitor = header.mark;
+        assertTrue(monitor instanceof ObjectMonitor);
+        ObjectSynchronizer.exit(lock, b);
+        assertTrue(header.mark == monitor);
+
+        ObjectSynchronizer.enter(lock, b);
+        ObjectSynchronizer.notify(lock, b);
+        ObjectSynchronizer.exit(lock, b);
+        waiter.join();
+        assertNull(header.mark);
+    }
+
+    /**
+     * 反复膨胀、收缩时互斥仍然成立
+     * */
+    @Test(timeout = 60000)
+    public void mutualExclusionAcrossDeflation() throws Exception {
+        Object lock = new Object();
+        int[] counter = new int[1];
+        int threads = 4;
+        int iterations = 20000;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            JavaThread self = javaThread();
+            workers.add(new Thread(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    ObjectSynchronizer.enter(lock, self);
+                    counter[0]++;
+                    ObjectSynchronizer.exit(lock, self);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * iterations, counter[0]);
+        JavaThread self = javaThread();
+        assertNull(ObjectSynchronizer.headerOf(lock, self).mark);
+        assertFalse(ObjectSynchronizer.holdsLock(lock, self));
+    }
+
+    // 只作为锁的持有者，不需要启动
+    private static JavaThread javaThread() {
+        return new JavaThread((Isolate) null);
+    }
+}
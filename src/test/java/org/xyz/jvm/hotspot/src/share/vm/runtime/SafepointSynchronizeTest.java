@@ -0,0 +1,97 @@
+package org.xyz.jvm.hotspot.src.share.vm.runtime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xyz.jvm.hotspot.src.share.vm.utilities.JavaThreadState;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SafepointSynchronizeTest {
+    private static final String BLOCKED = "org.xyz.jvm.example.gc.BlockedDuringGc";
+    private static final String HOST_CALL = "org.xyz.jvm.example.gc.BlockedInHostCall";
+
+    @Before
+    public void setUp() {
+        GuestPrograms.saveFlags();
+    }
+
+    @After
+    public void tearDown() {
+        GuestPrograms.restoreFlags();
+    }
+
+    /**
+     * 其他线程阻塞在 Object.wait、Thread.sleep 中时，垃圾回收的安全点不等待它们
+     * */
+    @Test(timeout = 60000)
+    public void gcDoesNotWaitForBlockedThreads() throws Exception {
+        GuestPrograms.useGuestHeap(4L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+        Isolate isolate = GuestPrograms.run(BLOCKED);
+        try {
+            assertTrue(isolate.getHeap().getCollector().getCollections() > 0);
+            assertEquals(1, GuestPrograms.getStatic(isolate, BLOCKED, "woken"));
+            assertEquals(1, GuestPrograms.getStatic(isolate, BLOCKED, "slept"));
+        } finally {
+            isolate.dispose();
+        }
+    }
+
+    /**
+     * 其他线程阻塞在反射调用的宿主机方法中时，垃圾回收不等待它们，方法返回后数组实参写回到移动后的内存块
+     * */
+    @Test(timeout = 60000)
+    public void gcDoesNotWaitForHostCalls() throws Exception {
+        GuestPrograms.useGuestHeap(8L * 1024 * 1024, 1024 * 1024, "MarkCompact");
+        Isolate isolate = GuestPrograms.run(HOST_CALL);
+        try {
+            assertTrue(isolate.getHeap().getCollector().getCollections() > 0);
+            assertEquals("x", GuestPrograms.getStatic(isolate, HOST_CALL, "taken"));
+            assertEquals(16, GuestPrograms.getStatic(isolate, HOST_CALL, "read"));
+            assertEquals(1, GuestPrograms.getStatic(isolate, HOST_CALL, "first"));
+            assertEquals(16, GuestPrograms.getStatic(isolate, HOST_CALL, "last"));
+        } finally {
+            isolate.dispose();
+        }
+    }
+
+    /**
+     * 阻塞状态的线程结束阻塞时，正在进行的安全点要先结束
+     * */
+    @Test(timeout = 10000)
+    public void blockEndWaitsForSafepoint() throws Exception {
+        Isolate isolate = Isolate.create("safepoint", GuestPrograms.classPath());
+        try {
+            GuestPrograms.inJavaThread(isolate, () -> {
+                JavaThread blocked = new JavaThread(isolate);
+                Threads.add(blocked);
+                SafepointSynchronize.blockBegin(blocked);
+
+                boolean[] returned = new boolean[1];
+                Thread other = new Thread(() -> {
+                    SafepointSynchronize.blockEnd(blocked, JavaThreadState._thread_in_Java);
+                    returned[0] = true;
+                });
+
+                SafepointSynchronize safepoint = isolate.getSafepoint();
+                safepoint.begin("test");
+                try {
+                    other.start();
+                    other.join(200);
+                    assertTrue(other.isAlive());
+                } finally {
+                    safepoint.end();
+                }
+                other.join();
+                assertTrue(returned[0]);
+
+                SafepointSynchronize.blockBegin(blocked);
+                Threads.remove(blocked);
+                return null;
+            });
+        } finally {
+            isolate.dispose();
+        }
+    }
+}